@@ -0,0 +1,255 @@
+package org.miao.benchmark;
+
+import ch.qos.logback.classic.LoggerContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.miao.cache.ResponseCache;
+import org.miao.config.ChatProperties;
+import org.miao.config.ConversationProperties;
+import org.miao.config.DiagnosticsProperties;
+import org.miao.config.OpenRouterProperties;
+import org.miao.config.RetrievalProperties;
+import org.miao.config.TracingProperties;
+import org.miao.config.UsageProperties;
+import org.miao.controller.ChatController;
+import org.miao.controller.GlobalExceptionHandler;
+import org.miao.conversation.ConversationStore;
+import org.miao.diagnostics.SlowRequestRecorder;
+import org.miao.dto.ChatRequest;
+import org.miao.dto.ChatResponse;
+import org.miao.dto.ErrorResponse;
+import org.miao.exception.InvalidRequestException;
+import org.miao.exception.ModelNotAvailableException;
+import org.miao.metrics.ChatMetrics;
+import org.miao.metrics.RequestTimings;
+import org.miao.service.impl.ChatServiceImpl;
+import org.miao.support.HashedTimerWheel;
+import org.miao.tracing.Tracer;
+import org.miao.usage.UsageAccountant;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 聊天请求热路径基准测试
+ * ChatController → ChatServiceImpl使用真实的实现，ChatClient背后是立即返回固定响应的ChatModel，
+ * 测量的是本服务自身在一次请求上的开销：参数校验、选项构建、ChatClient调用链、指标/span/用量记录，
+ * 以及ChatRequest、ChatResponse、ErrorResponse的JSON读写和GlobalExceptionHandler的错误路径。
+ *
+ * 日志级别设为OFF，日志开销由LoggingBenchmark单独测量；span导出为空操作，响应缓存和检索关闭。
+ * jmh profile默认附加 -prof gc，结果中的gc.alloc.rate.norm即每次操作的分配字节数。
+ *
+ * 运行方式：mvn -Pjmh test-compile exec:exec -Djmh.includes=ChatPathBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class ChatPathBenchmark {
+
+    private static final String MODEL = "openai/gpt-4";
+    private static final String UNKNOWN_MODEL = "unknown/model";
+    private static final String MESSAGE = "请介绍一下Spring AI的ChatClient和Advisor机制";
+    private static final String ANSWER = "ChatClient提供了流式的API来构建提示词、调用模型并读取响应，"
+        + "Advisor可以在调用前后修改请求和响应，例如附加会话历史或检索到的参考资料。";
+
+    private ObjectMapper objectMapper;
+    private HashedTimerWheel timerWheel;
+    private ConversationStore conversationStore;
+    private ChatController chatController;
+    private GlobalExceptionHandler exceptionHandler;
+    private WebRequest webRequest;
+
+    private byte[] requestJson;
+    private byte[] unknownModelRequestJson;
+    private byte[] emptyMessageRequestJson;
+    private ChatResponse chatResponse;
+    private ErrorResponse errorResponse;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ((LoggerContext) LoggerFactory.getILoggerFactory()).getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)
+            .setLevel(ch.qos.logback.classic.Level.OFF);
+
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        OpenRouterProperties openRouterProperties = new OpenRouterProperties();
+        openRouterProperties.setDefaultModel(MODEL);
+        openRouterProperties.setAvailableModels(List.of(MODEL, "anthropic/claude-3-haiku"));
+        ChatProperties chatProperties = new ChatProperties();
+        ConversationProperties conversationProperties = new ConversationProperties();
+        conversationProperties.setPersistenceEnabled(false);
+
+        timerWheel = new HashedTimerWheel("benchmark-timer-wheel",
+            chatProperties.getTimerTickMillis(), chatProperties.getTimerWheelSize(), lagNanos -> { });
+        conversationStore = new ConversationStore(conversationProperties, timerWheel, meterRegistry);
+
+        ChatServiceImpl chatService = new ChatServiceImpl(
+            ChatClient.builder(new StubChatModel(ANSWER)).build(),
+            openRouterProperties,
+            conversationStore,
+            chatProperties,
+            timerWheel,
+            new ResponseCache(chatProperties, timerWheel, meterRegistry),
+            (query, topK) -> Collections.emptyList(),
+            new RetrievalProperties(),
+            new ChatMetrics(meterRegistry),
+            new UsageAccountant(new UsageProperties()),
+            new SlowRequestRecorder(new DiagnosticsProperties(), meterRegistry),
+            new Tracer(new TracingProperties(), span -> { }));
+        chatController = new ChatController(chatService);
+        exceptionHandler = new GlobalExceptionHandler();
+        webRequest = new ServletWebRequest(new MockHttpServletRequest("POST", "/api/chat"));
+
+        requestJson = objectMapper.writeValueAsBytes(new ChatRequest(MESSAGE, MODEL));
+        unknownModelRequestJson = objectMapper.writeValueAsBytes(new ChatRequest(MESSAGE, UNKNOWN_MODEL));
+        emptyMessageRequestJson = "{\"message\":\"\",\"model\":\"openai/gpt-4\"}".getBytes(StandardCharsets.UTF_8);
+        chatResponse = chatService.sendMessage(new ChatRequest(MESSAGE, MODEL));
+        errorResponse = ErrorResponse.of("消息内容不能为空", "INVALID_REQUEST", "/api/chat");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        conversationStore.shutdown();
+        timerWheel.close();
+    }
+
+    /**
+     * 完整的成功请求：反序列化请求体、控制器和服务、序列化响应体
+     */
+    @Benchmark
+    public byte[] chatSuccess() throws IOException {
+        RequestTimings.begin();
+        try {
+            ChatRequest request = objectMapper.readValue(requestJson, ChatRequest.class);
+            ResponseEntity<ChatResponse> response = chatController.chat(request, false);
+            return objectMapper.writeValueAsBytes(response.getBody());
+        } finally {
+            RequestTimings.end();
+        }
+    }
+
+    /**
+     * 消息为空的请求：参数校验失败，经GlobalExceptionHandler返回400
+     */
+    @Benchmark
+    public byte[] chatInvalidMessage() throws IOException {
+        ChatRequest request = objectMapper.readValue(emptyMessageRequestJson, ChatRequest.class);
+        try {
+            return objectMapper.writeValueAsBytes(chatController.chat(request, false).getBody());
+        } catch (InvalidRequestException e) {
+            return objectMapper.writeValueAsBytes(
+                exceptionHandler.handleInvalidRequestException(e, webRequest).getBody());
+        }
+    }
+
+    /**
+     * 模型不在可用列表中的请求：校验失败，经GlobalExceptionHandler返回400
+     */
+    @Benchmark
+    public byte[] chatUnknownModel() throws IOException {
+        ChatRequest request = objectMapper.readValue(unknownModelRequestJson, ChatRequest.class);
+        try {
+            return objectMapper.writeValueAsBytes(chatController.chat(request, false).getBody());
+        } catch (ModelNotAvailableException e) {
+            return objectMapper.writeValueAsBytes(
+                exceptionHandler.handleModelNotAvailableException(e, webRequest).getBody());
+        }
+    }
+
+    /**
+     * 每次上游调用构建的请求选项
+     */
+    @Benchmark
+    public OpenAiChatOptions buildOptions() {
+        return OpenAiChatOptions.builder()
+            .withModel(MODEL)
+            .withTemperature(0.7)
+            .withMaxTokens(1000)
+            .withStreamUsage(true)
+            .build();
+    }
+
+    @Benchmark
+    public ChatRequest deserializeRequest() throws IOException {
+        return objectMapper.readValue(requestJson, ChatRequest.class);
+    }
+
+    @Benchmark
+    public byte[] serializeResponse() throws IOException {
+        return objectMapper.writeValueAsBytes(chatResponse);
+    }
+
+    @Benchmark
+    public byte[] serializeError() throws IOException {
+        return objectMapper.writeValueAsBytes(errorResponse);
+    }
+
+    /**
+     * 立即返回固定内容和用量的ChatModel
+     */
+    private static final class StubChatModel implements ChatModel {
+
+        private final org.springframework.ai.chat.model.ChatResponse response;
+
+        StubChatModel(String content) {
+            Usage usage = new Usage() {
+                @Override
+                public Long getPromptTokens() {
+                    return 24L;
+                }
+
+                @Override
+                public Long getGenerationTokens() {
+                    return 96L;
+                }
+            };
+            this.response = new org.springframework.ai.chat.model.ChatResponse(
+                List.of(new Generation(content)),
+                ChatResponseMetadata.builder().withUsage(usage).build());
+        }
+
+        @Override
+        public org.springframework.ai.chat.model.ChatResponse call(Prompt prompt) {
+            return response;
+        }
+
+        @Override
+        public Flux<org.springframework.ai.chat.model.ChatResponse> stream(Prompt prompt) {
+            return Flux.just(response);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.miao.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.miao.dto.ChatResponse;
+import org.miao.web.ContentCoding;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 响应序列化与压缩的基准测试
+ * payload：chat为单个约8KB的聊天响应，batch为20个聊天响应组成的数组，-pretty/-compact分别为缩进和不缩进的JSON；
+ * sse为200个SSE事件，每个事件写出后flush一次（与流式接口相同）。coding为identity、gzip、br，级别取配置的默认值。
+ * 每次操作包含JSON序列化（sse除外）和压缩，分数即每个响应在请求线程上的CPU耗时。
+ * 线上字节数在Setup时打印（"线上字节"一行），与分数一起比较压缩率和CPU开销；br需要brotli本地库，不可用时该组合报错跳过。
+ *
+ * 运行方式：mvn -Pjmh test-compile exec:exec -Djmh.includes=CompressionBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class CompressionBenchmark {
+
+    private static final String MODEL = "openai/gpt-4";
+    private static final int GZIP_LEVEL = 5;
+    private static final int BROTLI_QUALITY = 4;
+    private static final String[] WORDS = {
+        "Spring AI", "ChatClient", "Advisor", "向量存储", "检索增强", "嵌入模型", "提示词", "上下文",
+        "the", "model", "returns", "a", "response", "with", "tokens", "and", "usage", "metadata",
+        "会话", "流式输出", "缓存", "重试", "超时", "并发", "`ChatResponse`", "`Flux<String>`", "。", "，", "\n"
+    };
+
+    @Param({"chat-pretty", "chat-compact", "batch-pretty", "batch-compact", "sse"})
+    private String payload;
+
+    @Param({"identity", "gzip", "br"})
+    private String coding;
+
+    private ContentCoding contentCoding;
+    private ObjectMapper objectMapper;
+    private Object body;
+    private List<byte[]> events;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        contentCoding = switch (coding) {
+            case "gzip" -> ContentCoding.GZIP;
+            case "br" -> ContentCoding.BROTLI;
+            default -> ContentCoding.IDENTITY;
+        };
+        if (contentCoding == ContentCoding.BROTLI && !ContentCoding.isBrotliAvailable()) {
+            throw new IllegalStateException("brotli本地库不可用");
+        }
+        objectMapper = Jackson2ObjectMapperBuilder.json().indentOutput(payload.endsWith("-pretty")).build();
+        Random random = new Random(42);
+        if (payload.startsWith("chat")) {
+            body = ChatResponse.success(completion(random, 8 * 1024), MODEL);
+        } else if (payload.startsWith("batch")) {
+            List<ChatResponse> batch = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                batch.add(ChatResponse.success(completion(random, 1024), MODEL));
+            }
+            body = batch;
+        } else {
+            events = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                events.add(("data:" + completion(random, 40).replace("\n", " ") + "\n\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        CountingOutputStream identity = new CountingOutputStream();
+        writeResponse(ContentCoding.IDENTITY, identity);
+        CountingOutputStream wire = new CountingOutputStream();
+        writeResponse(contentCoding, wire);
+        System.out.printf("线上字节 %s/%s: %d -> %d (%.1f%%)%n", payload, coding, identity.count, wire.count,
+            wire.count * 100.0 / identity.count);
+    }
+
+    @Benchmark
+    public long respond() throws IOException {
+        CountingOutputStream wire = new CountingOutputStream();
+        writeResponse(contentCoding, wire);
+        return wire.count;
+    }
+
+    private void writeResponse(ContentCoding contentCoding, CountingOutputStream wire) throws IOException {
+        int level = contentCoding == ContentCoding.BROTLI ? BROTLI_QUALITY : GZIP_LEVEL;
+        try (OutputStream out = contentCoding.encode(wire, level)) {
+            if (events != null) {
+                for (byte[] event : events) {
+                    out.write(event);
+                    out.flush();
+                }
+            } else {
+                out.write(objectMapper.writeValueAsBytes(body));
+            }
+        }
+    }
+
+    private static String completion(Random random, int chars) {
+        StringBuilder text = new StringBuilder(chars + 16);
+        while (text.length() < chars) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        return text.toString();
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            count += length;
+        }
+    }
+}
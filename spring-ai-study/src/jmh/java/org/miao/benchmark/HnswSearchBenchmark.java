@@ -0,0 +1,192 @@
+package org.miao.benchmark;
+
+import org.miao.retrieval.FlatVectorIndex;
+import org.miao.retrieval.HnswIndex;
+import org.miao.retrieval.SimilarityKernels;
+import org.miao.retrieval.TopK;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HNSW与暴力检索的召回率和查询延迟对比
+ * 数据为围绕若干聚类中心的合成向量，比均匀随机向量更接近真实嵌入的分布。
+ * 建好的图保存在target/benchmark-data下，后续运行直接以内存映射方式打开，同时报告打开耗时。
+ * 每组参数的recall@k在准备阶段打印到标准输出。
+ *
+ * 运行方式：mvn -Pjmh test-compile exec:exec -Djmh.includes=HnswSearchBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Xms4g", "-Xmx4g"})
+public class HnswSearchBenchmark {
+
+    private static final int CLUSTERS = 1000;
+    private static final int QUERIES = 256;
+    private static final int RECALL_QUERIES = 200;
+
+    @Param({"100000", "1000000"})
+    private int size;
+
+    @Param({"384"})
+    private int dimension;
+
+    @Param({"16"})
+    private int m;
+
+    @Param({"200"})
+    private int efConstruction;
+
+    @Param({"16", "64", "128"})
+    private int efSearch;
+
+    @Param({"10"})
+    private int k;
+
+    private HnswIndex hnsw;
+    private FlatVectorIndex exact;
+    private float[][] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        float[][] centers = new float[CLUSTERS][];
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < CLUSTERS; i++) {
+            centers[i] = gaussian(random, 1.0f);
+        }
+        float[][] vectors = new float[size][];
+        for (int i = 0; i < size; i++) {
+            vectors[i] = around(centers[random.nextInt(CLUSTERS)], random);
+        }
+        queries = new float[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = around(centers[random.nextInt(CLUSTERS)], random);
+        }
+
+        Path file = Paths.get("target", "benchmark-data",
+            String.format("hnsw-%d-%d-m%d-ef%d.hnsw", size, dimension, m, efConstruction));
+        Path orderFile = file.resolveSibling(file.getFileName() + ".order");
+        int[] order;
+        if (!Files.exists(file) || !Files.exists(orderFile)) {
+            long start = System.nanoTime();
+            order = new int[size];
+            HnswIndex built = build(vectors, order);
+            System.out.printf("%n建图完成: %d个向量, 耗时 %.1fs%n", size, (System.nanoTime() - start) / 1e9);
+            Files.createDirectories(file.getParent());
+            built.save(file);
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(orderFile)))) {
+                for (int vector : order) {
+                    out.writeInt(vector);
+                }
+            }
+        } else {
+            order = new int[size];
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(orderFile)))) {
+                for (int i = 0; i < size; i++) {
+                    order[i] = in.readInt();
+                }
+            }
+        }
+
+        // 并发建图时序号与生成顺序不同，暴力索引按图中的序号写入以便比较结果
+        exact = new FlatVectorIndex(dimension);
+        for (int id = 0; id < size; id++) {
+            exact.add(vectors[order[id]]);
+        }
+        long start = System.nanoTime();
+        hnsw = HnswIndex.open(file, efConstruction, efSearch, SimilarityKernels.best());
+        System.out.printf("%n打开索引耗时: %.2fms%n", (System.nanoTime() - start) / 1e6);
+        System.out.printf("recall@%d (efSearch=%d): %.4f%n", k, efSearch, recall());
+    }
+
+    @Benchmark
+    public TopK hnsw() {
+        return hnsw.search(queries[next++ & (QUERIES - 1)], k);
+    }
+
+    @Benchmark
+    public TopK exact() {
+        return exact.search(queries[next++ & (QUERIES - 1)], k);
+    }
+
+    /**
+     * 多线程并发建图，order记录每个序号对应的向量下标
+     */
+    private HnswIndex build(float[][] vectors, int[] order) throws InterruptedException {
+        HnswIndex index = new HnswIndex(dimension, m, efConstruction, efSearch);
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicInteger cursor = new AtomicInteger();
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                for (int i = cursor.getAndIncrement(); i < vectors.length; i = cursor.getAndIncrement()) {
+                    order[index.add(vectors[i])] = i;
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.DAYS);
+        return index;
+    }
+
+    private double recall() {
+        int hits = 0;
+        for (int q = 0; q < RECALL_QUERIES; q++) {
+            float[] query = queries[q];
+            TopK expected = exact.search(query, k);
+            TopK actual = hnsw.search(query, k);
+            for (int i = 0; i < expected.size(); i++) {
+                for (int j = 0; j < actual.size(); j++) {
+                    if (expected.getId(i) == actual.getId(j)) {
+                        hits++;
+                        break;
+                    }
+                }
+            }
+        }
+        return (double) hits / (RECALL_QUERIES * k);
+    }
+
+    private float[] around(float[] center, SplittableRandom random) {
+        float[] vector = gaussian(random, 0.5f);
+        for (int i = 0; i < dimension; i++) {
+            vector[i] += center[i];
+        }
+        return vector;
+    }
+
+    private float[] gaussian(SplittableRandom random, float scale) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian() * scale;
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,106 @@
+package org.miao.benchmark;
+
+import org.miao.retrieval.InvertedIndex;
+import org.miao.retrieval.TopK;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BM25倒排索引的建索引耗时与查询延迟基准测试
+ * 文档由中英文混合的合成词表生成，词频近似Zipf分布，并混入错误码和类名等标识符。
+ *
+ * 运行方式：mvn -Pjmh test-compile exec:exec -Djmh.includes=KeywordSearchBenchmark
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class KeywordSearchBenchmark {
+
+    private static final String[] CHINESE = {
+        "空指针", "异常", "配置", "模型", "请求", "超时", "重试", "向量", "检索", "会话",
+        "缓存", "日志", "线程", "内存", "数据库", "连接", "接口", "参数", "响应", "服务"
+    };
+    private static final String[] ENGLISH = {
+        "spring", "model", "token", "request", "timeout", "retry", "vector", "index", "cache", "client",
+        "NullPointerException", "ChatServiceImpl", "OpenAiApi", "RestTemplate", "HashedTimerWheel"
+    };
+    private static final int WORDS_PER_DOCUMENT = 120;
+    private static final int QUERIES = 256;
+
+    @Param({"10000", "100000"})
+    private int documents;
+
+    private String[] corpus;
+    private String[] queries;
+    private InvertedIndex index;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(7);
+        corpus = new String[documents];
+        for (int i = 0; i < documents; i++) {
+            corpus[i] = document(random, i);
+        }
+        queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = pick(CHINESE, random) + pick(CHINESE, random) + " 错误码E"
+                + random.nextInt(documents) + " " + pick(ENGLISH, random);
+        }
+        index = build();
+    }
+
+    /**
+     * 建索引耗时：每次调用重新写入全部文档
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public InvertedIndex build() {
+        InvertedIndex built = new InvertedIndex();
+        for (String document : corpus) {
+            built.add(document);
+        }
+        return built;
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public TopK search() {
+        return index.search(queries[next++ & (QUERIES - 1)], 20);
+    }
+
+    private String document(SplittableRandom random, int id) {
+        StringBuilder text = new StringBuilder(WORDS_PER_DOCUMENT * 4);
+        text.append("错误码E").append(id).append(' ');
+        for (int i = 0; i < WORDS_PER_DOCUMENT; i++) {
+            text.append(random.nextInt(3) == 0 ? pick(ENGLISH, random) : pick(CHINESE, random)).append(' ');
+        }
+        return text.toString();
+    }
+
+    /**
+     * 近似Zipf分布：排名越靠前的词出现越频繁
+     */
+    private String pick(String[] words, SplittableRandom random) {
+        double u = random.nextDouble();
+        return words[(int) (words.length * u * u)];
+    }
+}
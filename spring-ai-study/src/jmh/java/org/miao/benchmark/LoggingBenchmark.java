@@ -0,0 +1,147 @@
+package org.miao.benchmark;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.encoder.Encoder;
+import org.miao.logging.BoundedAsyncAppender;
+import org.miao.logging.JsonLogEncoder;
+import org.miao.logging.LogContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.MDC;
+
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个聊天请求的日志开销基准测试
+ * legacy模拟改造前的请求：写入3个MDC字段（含格式化的时间戳）、4条INFO日志、清空MDC，同步输出文本格式；
+ * current模拟改造后的请求：激活LogContext、1条INFO日志和3条被级别过滤的DEBUG日志，
+ * 分别用同步JSON输出（json-sync）和有界异步队列（json-async）测量。输出写入空流，只测量请求线程上的开销。
+ *
+ * json-async下后台线程跟不上时会丢弃日志，丢弃条数在TearDown时打印。
+ * jmh profile默认附加 -prof gc，可查看每次请求的分配字节数。
+ *
+ * 运行方式：mvn -Pjmh test-compile exec:exec -Djmh.includes=LoggingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class LoggingBenchmark {
+
+    private static final String MODEL = "openai/gpt-4";
+    private static final String MESSAGE = "请介绍一下Spring AI的ChatClient和Advisor机制";
+
+    @Param({"legacy", "json-sync", "json-async"})
+    private String mode;
+
+    private LoggerContext loggerContext;
+    private Logger logger;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        loggerContext = new LoggerContext();
+        loggerContext.setMDCAdapter(MDC.getMDCAdapter());
+        Encoder<ILoggingEvent> encoder;
+        if ("legacy".equals(mode)) {
+            PatternLayoutEncoder patternEncoder = new PatternLayoutEncoder();
+            patternEncoder.setPattern("%d{yyyy-MM-dd HH:mm:ss} - %msg%n");
+            encoder = patternEncoder;
+        } else {
+            JsonLogEncoder jsonEncoder = new JsonLogEncoder();
+            jsonEncoder.setStaticFields("app=spring-ai-study");
+            encoder = jsonEncoder;
+        }
+        encoder.setContext(loggerContext);
+        encoder.start();
+
+        OutputStreamAppender<ILoggingEvent> output = new OutputStreamAppender<>();
+        output.setContext(loggerContext);
+        output.setEncoder(encoder);
+        output.setOutputStream(OutputStream.nullOutputStream());
+        output.start();
+
+        Appender<ILoggingEvent> appender = output;
+        if ("json-async".equals(mode)) {
+            BoundedAsyncAppender async = new BoundedAsyncAppender();
+            async.setContext(loggerContext);
+            async.setQueueSize(8192);
+            async.setDiscardingThreshold(0);
+            async.setNeverBlock(true);
+            async.setIncludeCallerData(false);
+            async.addAppender(output);
+            async.start();
+            appender = async;
+        }
+
+        Logger root = loggerContext.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        root.detachAndStopAllAppenders();
+        root.addAppender(appender);
+        root.setLevel(ch.qos.logback.classic.Level.INFO);
+        logger = loggerContext.getLogger("org.miao.service.impl.ChatServiceImpl");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        loggerContext.stop();
+        if ("json-async".equals(mode)) {
+            System.out.println("丢弃日志条数: " + BoundedAsyncAppender.droppedCount());
+        }
+    }
+
+    @Benchmark
+    public void request() {
+        String requestId = UUID.randomUUID().toString().substring(0, 8);
+        if ("legacy".equals(mode)) {
+            legacyRequest(requestId);
+        } else {
+            currentRequest(requestId);
+        }
+    }
+
+    private void legacyRequest(String requestId) {
+        MDC.put("requestId", requestId);
+        MDC.put("model", MODEL);
+        MDC.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        try {
+            logger.info("收到聊天请求 - 消息长度: {}, 指定模型: {}", MESSAGE.length(), MODEL);
+            logger.info("开始处理聊天请求 [{}] - 模型: {}, 消息长度: {}", requestId, MODEL, MESSAGE.length());
+            logger.info("聊天请求处理成功 [{}] - 响应长度: {}", requestId, 512);
+            logger.info("聊天请求处理成功 - 响应长度: {}, 使用模型: {}", 512, MODEL);
+        } finally {
+            MDC.clear();
+        }
+    }
+
+    private void currentRequest(String requestId) {
+        try (LogContext.Scope ignored = LogContext.of(requestId, MODEL).activate()) {
+            logger.debug("收到聊天请求 - 消息长度: {}, 指定模型: {}", MESSAGE.length(), MODEL);
+            logger.debug("开始处理聊天请求 [{}] - 模型: {}, 消息长度: {}", requestId, MODEL, MESSAGE.length());
+            logger.info("聊天请求处理成功 [{}] - 响应长度: {}", requestId, 512);
+            logger.debug("聊天请求处理成功 - 响应长度: {}, 使用模型: {}", 512, MODEL);
+        }
+    }
+}
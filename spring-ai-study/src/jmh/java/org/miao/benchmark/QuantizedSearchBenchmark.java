@@ -0,0 +1,143 @@
+package org.miao.benchmark;
+
+import org.miao.retrieval.FlatVectorIndex;
+import org.miao.retrieval.PqVectorIndex;
+import org.miao.retrieval.TopK;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 乘积量化索引的内存占用、召回率与查询延迟
+ * 在不同子空间数（每个向量的编码字节数）和重排序倍数下，与全精度暴力检索对比。
+ * 每组参数的堆内字节数、压缩比和recall@k在准备阶段打印到标准输出。
+ *
+ * 运行方式：mvn -Pjmh test-compile exec:exec -Djmh.includes=QuantizedSearchBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Xms4g", "-Xmx4g"})
+public class QuantizedSearchBenchmark {
+
+    private static final int CLUSTERS = 1000;
+    private static final int QUERIES = 256;
+    private static final int RECALL_QUERIES = 200;
+    private static final int TRAINING_SIZE = 16384;
+
+    @Param({"100000"})
+    private int size;
+
+    @Param({"384"})
+    private int dimension;
+
+    @Param({"24", "48", "96", "192"})
+    private int subspaces;
+
+    @Param({"0", "4", "16"})
+    private int rerankFactor;
+
+    @Param({"10"})
+    private int k;
+
+    private PqVectorIndex quantized;
+    private FlatVectorIndex exact;
+    private Path rawFile;
+    private float[][] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        float[][] centers = new float[CLUSTERS][];
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < CLUSTERS; i++) {
+            centers[i] = gaussian(random, 1.0f);
+        }
+        rawFile = Files.createTempFile("pq-benchmark", ".raw");
+        quantized = new PqVectorIndex(dimension, subspaces, TRAINING_SIZE, rerankFactor, rawFile);
+        exact = new FlatVectorIndex(dimension);
+        for (int i = 0; i < size; i++) {
+            float[] vector = around(centers[random.nextInt(CLUSTERS)], random);
+            quantized.add(vector);
+            exact.add(vector);
+        }
+        queries = new float[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = around(centers[random.nextInt(CLUSTERS)], random);
+        }
+
+        long fullBytes = (long) size * dimension * Float.BYTES;
+        long heapBytes = quantized.heapBytes();
+        System.out.printf("%n子空间数=%d, 重排序倍数=%d: 堆内 %.1fMB (全精度 %.1fMB, 压缩比 %.1fx), 每向量 %d字节%n",
+            subspaces, rerankFactor, heapBytes / 1048576.0, fullBytes / 1048576.0,
+            (double) fullBytes / heapBytes, subspaces);
+        System.out.printf("recall@%d: %.4f%n", k, recall());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        quantized.close();
+        Files.deleteIfExists(rawFile);
+    }
+
+    @Benchmark
+    public TopK quantized() {
+        return quantized.search(queries[next++ & (QUERIES - 1)], k);
+    }
+
+    @Benchmark
+    public TopK exact() {
+        return exact.search(queries[next++ & (QUERIES - 1)], k);
+    }
+
+    private double recall() {
+        int hits = 0;
+        for (int q = 0; q < RECALL_QUERIES; q++) {
+            float[] query = queries[q];
+            TopK expected = exact.search(query, k);
+            TopK actual = quantized.search(query, k);
+            for (int i = 0; i < expected.size(); i++) {
+                for (int j = 0; j < actual.size(); j++) {
+                    if (expected.getId(i) == actual.getId(j)) {
+                        hits++;
+                        break;
+                    }
+                }
+            }
+        }
+        return (double) hits / (RECALL_QUERIES * k);
+    }
+
+    private float[] around(float[] center, SplittableRandom random) {
+        float[] vector = gaussian(random, 0.5f);
+        for (int i = 0; i < dimension; i++) {
+            vector[i] += center[i];
+        }
+        return vector;
+    }
+
+    private float[] gaussian(SplittableRandom random, float scale) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian() * scale;
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,83 @@
+package org.miao.benchmark;
+
+import org.miao.retrieval.FlatVectorIndex;
+import org.miao.retrieval.SimilarityKernel;
+import org.miao.retrieval.SimilarityKernels;
+import org.miao.retrieval.TopK;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 暴力向量检索的查询延迟基准测试
+ * 对比标量内核与Vector API内核在10万、100万向量规模下的top-k检索耗时
+ *
+ * 运行方式：mvn -Pjmh test-compile exec:exec -Djmh.includes=VectorSearchBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Xms4g", "-Xmx4g"})
+public class VectorSearchBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int size;
+
+    @Param({"384"})
+    private int dimension;
+
+    @Param({"scalar", "vector"})
+    private String kernel;
+
+    @Param({"10"})
+    private int k;
+
+    private FlatVectorIndex index;
+    private float[][] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SimilarityKernel selected = "vector".equals(kernel) ? SimilarityKernels.best() : SimilarityKernels.scalar();
+        if ("vector".equals(kernel) && !SimilarityKernels.isVectorApiAvailable()) {
+            throw new IllegalStateException("Vector API不可用，请添加--add-modules jdk.incubator.vector");
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        index = new FlatVectorIndex(dimension, selected);
+        for (int i = 0; i < size; i++) {
+            index.add(randomVector(random));
+        }
+        queries = new float[64][];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = randomVector(random);
+        }
+    }
+
+    @Benchmark
+    public TopK search() {
+        float[] query = queries[next++ & (queries.length - 1)];
+        return index.search(query, k);
+    }
+
+    private float[] randomVector(SplittableRandom random) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
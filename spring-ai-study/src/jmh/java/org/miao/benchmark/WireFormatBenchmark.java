@@ -0,0 +1,103 @@
+package org.miao.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.miao.dto.ChatRequest;
+import org.miao.dto.ChatResponse;
+import org.miao.dto.TokenUsage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON、Smile、CBOR三种传输格式的基准测试
+ * 服务端每个请求解析一次ChatRequest（readRequest）并序列化一次ChatResponse（writeResponse），
+ * 调用方反过来序列化请求并解析响应（readResponse）。responseChars为响应内容的字符数，模拟短回答和长回答。
+ * 各格式的ObjectMapper与应用一致（Jackson2ObjectMapperBuilder，不缩进），请求和响应的字节数在Setup时打印（"报文字节"一行）。
+ *
+ * 运行方式：mvn -Pjmh test-compile exec:exec -Djmh.includes=WireFormatBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class WireFormatBenchmark {
+
+    private static final String MODEL = "openai/gpt-4";
+    private static final String MESSAGE = "请介绍一下Spring AI的ChatClient和Advisor机制，并给出一个带会话记忆的示例";
+    private static final String SENTENCE = "Spring AI通过ChatClient统一了不同模型的调用方式，Advisor可以在请求前后插入检索和记忆。";
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    @Param({"256", "8192"})
+    private int responseChars;
+
+    private ObjectWriter responseWriter;
+    private ObjectReader requestReader;
+    private ObjectReader responseReader;
+    private ChatResponse response;
+    private byte[] requestBytes;
+    private byte[] responseBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = switch (format) {
+            case "smile" -> Jackson2ObjectMapperBuilder.smile();
+            case "cbor" -> Jackson2ObjectMapperBuilder.cbor();
+            default -> Jackson2ObjectMapperBuilder.json();
+        };
+        ObjectMapper objectMapper = builder.indentOutput(false).build();
+        responseWriter = objectMapper.writerFor(ChatResponse.class);
+        requestReader = objectMapper.readerFor(ChatRequest.class);
+        responseReader = objectMapper.readerFor(ChatResponse.class);
+
+        StringBuilder content = new StringBuilder(responseChars + SENTENCE.length());
+        while (content.length() < responseChars) {
+            content.append(SENTENCE);
+        }
+        response = ChatResponse.success(content.substring(0, responseChars), MODEL);
+        response.setConversationId("conv-7f3a9c21");
+        response.setUsage(new TokenUsage(420, responseChars / 2, 0.0123));
+        response.setTimings(Map.of("parse", 0.12, "retrieval", 3.4, "upstream", 812.5));
+        ChatRequest request = new ChatRequest(MESSAGE, MODEL);
+        request.setConversationId("conv-7f3a9c21");
+
+        requestBytes = objectMapper.writeValueAsBytes(request);
+        responseBytes = responseWriter.writeValueAsBytes(response);
+        System.out.printf("报文字节 %s/%d: 请求 %d, 响应 %d%n", format, responseChars,
+            requestBytes.length, responseBytes.length);
+    }
+
+    @Benchmark
+    public byte[] writeResponse() throws IOException {
+        return responseWriter.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public ChatRequest readRequest() throws IOException {
+        return requestReader.readValue(requestBytes);
+    }
+
+    @Benchmark
+    public ChatResponse readResponse() throws IOException {
+        return responseReader.readValue(responseBytes);
+    }
+}
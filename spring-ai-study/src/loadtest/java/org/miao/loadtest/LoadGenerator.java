@@ -0,0 +1,369 @@
+package org.miao.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+import org.miao.SpringAiApplication;
+import org.miao.dto.ChatRequest;
+import org.miao.replay.TrafficLog;
+import org.miao.replay.TrafficRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 开环压测工具
+ * 按固定到达率发出请求：第i个请求的计划发出时间是 start + i / rate，发出后不等待响应。
+ * 响应时间从计划发出时间算起，发送线程落后于计划时的等待也计入，避免协调遗漏（coordinated omission）；
+ * 同时记录从实际发出算起的服务时间，两者的差距反映压测机自身的排队。
+ * 所有完成的请求不论状态码都计入响应时间和服务时间，非2xx响应、连接错误和超时另外计入错误响应时间；
+ * 在途请求达到上限而未发出的请求（过载）按请求超时计入响应时间。否则系统越慢、拒绝越多，百分位反而越好看。
+ * 存在过载、等待结束后仍有未完成的请求，或错误比例超过loadtest.max-error-ratio时，
+ * 结果被标记为无效（summary.json中valid=false），进程以非0状态退出。
+ *
+ * 未指定loadtest.target时在本进程内以stub profile启动应用，上游由UpstreamStubServer模拟，
+ * 其它命令行参数（例如--upstream-stub.latency-distribution=lognormal）原样传给应用。
+ * 指定loadtest.replay-file时按录制的真实流量发送用户消息，上游同时回放录制的响应和耗时。
+ *
+ * 运行方式：mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--loadtest.rate=200 --loadtest.label=build-42"
+ * 报告写入loadtest.report-directory：summary.json、各直方图的.hgrm百分位分布和每秒响应时间的.hlog
+ */
+public class LoadGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+
+    private static final String CHAT_PATH = "/api/chat";
+    private static final String STREAM_PATH = "/api/chat/stream";
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final LoadTestProperties properties;
+    private final boolean streaming;
+    private final HttpClient httpClient;
+    private final URI uri;
+    private final List<HttpRequest> requests = new ArrayList<>();
+
+    private final Recorder responseTime = new Recorder(SIGNIFICANT_DIGITS);
+    private final Recorder serviceTime = new Recorder(SIGNIFICANT_DIGITS);
+    private final Recorder firstByteTime = new Recorder(SIGNIFICANT_DIGITS);
+    private final Recorder errorTime = new Recorder(SIGNIFICANT_DIGITS);
+    private final Histogram responseTotal = new Histogram(SIGNIFICANT_DIGITS);
+    private final Histogram serviceTotal = new Histogram(SIGNIFICANT_DIGITS);
+    private final Histogram firstByteTotal = new Histogram(SIGNIFICANT_DIGITS);
+    private final Histogram errorTotal = new Histogram(SIGNIFICANT_DIGITS);
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder overload = new LongAdder();
+    private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+    public LoadGenerator(LoadTestProperties properties, String target) throws IOException {
+        if (properties.getRate() <= 0 || properties.getDurationSeconds() <= 0 || properties.getWarmupSeconds() < 0) {
+            throw new IllegalArgumentException("压测参数无效: rate=" + properties.getRate()
+                + ", durationSeconds=" + properties.getDurationSeconds() + ", warmupSeconds=" + properties.getWarmupSeconds());
+        }
+        if (!LoadTestProperties.ENDPOINT_CHAT.equals(properties.getEndpoint())
+                && !LoadTestProperties.ENDPOINT_STREAM.equals(properties.getEndpoint())) {
+            throw new IllegalArgumentException("未知的压测接口: " + properties.getEndpoint());
+        }
+        this.properties = properties;
+        this.streaming = LoadTestProperties.ENDPOINT_STREAM.equals(properties.getEndpoint());
+        this.httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+        this.uri = URI.create(target + (streaming ? STREAM_PATH : CHAT_PATH));
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<ChatRequest> chatRequests = StringUtils.hasText(properties.getReplayFile())
+            ? replayRequests(Path.of(properties.getReplayFile()), objectMapper)
+            : List.of(new ChatRequest(properties.getMessage(),
+                StringUtils.hasText(properties.getModel()) ? properties.getModel() : null));
+        for (ChatRequest chatRequest : chatRequests) {
+            requests.add(HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(properties.getDrainTimeoutSeconds()))
+                .header("Content-Type", "application/json")
+                .header("Accept", streaming ? "text/event-stream" : "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(chatRequest)))
+                .build());
+        }
+    }
+
+    /**
+     * 取录制的每个上游请求中最后一条用户消息和模型
+     */
+    static List<ChatRequest> replayRequests(Path file, ObjectMapper objectMapper) throws IOException {
+        List<ChatRequest> chatRequests = new ArrayList<>();
+        for (TrafficRecord record : TrafficLog.read(file)) {
+            JsonNode request = objectMapper.readTree(record.getRequestBody());
+            String message = null;
+            for (JsonNode item : request.path("messages")) {
+                if ("user".equals(item.path("role").asText())) {
+                    message = text(item.path("content"));
+                }
+            }
+            if (StringUtils.hasText(message)) {
+                String model = request.path("model").asText("");
+                chatRequests.add(new ChatRequest(message, StringUtils.hasText(model) ? model : null));
+            }
+        }
+        if (chatRequests.isEmpty()) {
+            throw new IllegalArgumentException("流量录制文件中没有可用的用户消息: " + file);
+        }
+        logger.info("从录制文件读取{}条请求: {}", chatRequests.size(), file);
+        return chatRequests;
+    }
+
+    /**
+     * content为字符串或多段内容数组，多段时拼接其中的文本
+     */
+    private static String text(JsonNode content) {
+        if (content.isTextual()) {
+            return content.asText();
+        }
+        StringBuilder text = new StringBuilder();
+        for (JsonNode part : content) {
+            text.append(part.path("text").asText(""));
+        }
+        return text.toString();
+    }
+
+    /**
+     * 执行压测并返回结果，每秒的响应时间直方图写入intervalLog
+     */
+    public LoadReport run(PrintStream intervalLog) throws InterruptedException {
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / properties.getRate());
+        long startNanos = System.nanoTime();
+        long measureStartNanos = startNanos + TimeUnit.SECONDS.toNanos(properties.getWarmupSeconds());
+        long endNanos = measureStartNanos + TimeUnit.SECONDS.toNanos(properties.getDurationSeconds());
+        Instant startedAt = Instant.now();
+        logger.info("开始压测 {}，预热{}秒，请求种类: {}", uri, properties.getWarmupSeconds(), requests.size());
+
+        HistogramLogWriter logWriter = new HistogramLogWriter(intervalLog);
+        logWriter.outputLogFormatVersion();
+        logWriter.outputStartTime(startedAt.toEpochMilli());
+        logWriter.setBaseTime(startedAt.toEpochMilli());
+        logWriter.outputLegend();
+        ScheduledExecutorService harvester = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "loadtest-harvester");
+            thread.setDaemon(true);
+            return thread;
+        });
+        harvester.scheduleAtFixedRate(() -> harvest(logWriter), 1, 1, TimeUnit.SECONDS);
+
+        for (long i = 0; ; i++) {
+            long intendedNanos = startNanos + i * intervalNanos;
+            if (intendedNanos >= endNanos) {
+                break;
+            }
+            waitUntil(intendedNanos);
+            fire(requests.get((int) (i % requests.size())), intendedNanos, intendedNanos >= measureStartNanos);
+        }
+
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(properties.getDrainTimeoutSeconds());
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        harvester.shutdown();
+        harvester.awaitTermination(5, TimeUnit.SECONDS);
+        harvest(logWriter);
+        int unfinished = inFlight.get();
+        if (unfinished > 0) {
+            logger.warn("等待超时，仍有{}个请求未完成", unfinished);
+        }
+
+        Map<Integer, Long> statusCounts = new TreeMap<>();
+        statuses.forEach((status, count) -> statusCounts.put(status, count.sum()));
+        return new LoadReport(properties, uri.toString(), startedAt, sent.sum(), succeeded.sum(),
+            failed.sum(), overload.sum(), unfinished, statusCounts, responseTotal, serviceTotal,
+            streaming ? firstByteTotal : null, errorTotal);
+    }
+
+    private void fire(HttpRequest request, long intendedNanos, boolean measured) {
+        if (inFlight.incrementAndGet() > properties.getMaxInFlight()) {
+            inFlight.decrementAndGet();
+            if (measured) {
+                overload.increment();
+                // 未发出的请求至少要等到请求超时，不能从直方图中消失
+                responseTime.recordValue(TimeUnit.SECONDS.toMicros(properties.getDrainTimeoutSeconds()));
+            }
+            return;
+        }
+        if (measured) {
+            sent.increment();
+        }
+        long sentNanos = System.nanoTime();
+        FirstByteSubscriber body = new FirstByteSubscriber();
+        httpClient.sendAsync(request, info -> HttpResponse.BodySubscribers.fromSubscriber(body))
+            .whenComplete((response, error) -> {
+                long now = System.nanoTime();
+                inFlight.decrementAndGet();
+                if (!measured) {
+                    return;
+                }
+                // 连接错误、超时和非2xx响应同样是调用方等到的结果，按实际等待时间计入
+                long responseMicros = TimeUnit.NANOSECONDS.toMicros(now - intendedNanos);
+                responseTime.recordValue(responseMicros);
+                serviceTime.recordValue(TimeUnit.NANOSECONDS.toMicros(now - sentNanos));
+                if (error != null) {
+                    failed.increment();
+                    errorTime.recordValue(responseMicros);
+                    return;
+                }
+                statuses.computeIfAbsent(response.statusCode(), status -> new LongAdder()).increment();
+                if (response.statusCode() / 100 != 2) {
+                    errorTime.recordValue(responseMicros);
+                    return;
+                }
+                succeeded.increment();
+                if (streaming && body.firstByteNanos > 0) {
+                    firstByteTime.recordValue(TimeUnit.NANOSECONDS.toMicros(body.firstByteNanos - intendedNanos));
+                }
+            });
+    }
+
+    /**
+     * 将最近一秒的直方图累加到总计，响应时间同时写入区间日志
+     */
+    private synchronized void harvest(HistogramLogWriter logWriter) {
+        Histogram interval = responseTime.getIntervalHistogram();
+        responseTotal.add(interval);
+        serviceTotal.add(serviceTime.getIntervalHistogram());
+        firstByteTotal.add(firstByteTime.getIntervalHistogram());
+        errorTotal.add(errorTime.getIntervalHistogram());
+        if (interval.getTotalCount() > 0) {
+            logWriter.outputIntervalHistogram(interval);
+            logger.info("完成: {}/s, p50: {}ms, p99: {}ms, 未完成: {}", interval.getTotalCount(),
+                interval.getValueAtPercentile(50) / 1000.0, interval.getValueAtPercentile(99) / 1000.0, inFlight.get());
+        }
+    }
+
+    private static void waitUntil(long deadlineNanos) {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    /**
+     * 读取并丢弃响应体，记录收到首个字节的时间（流式接口即首个SSE片段）
+     */
+    private static final class FirstByteSubscriber implements Flow.Subscriber<List<ByteBuffer>> {
+
+        private volatile long firstByteNanos;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            if (firstByteNanos == 0) {
+                firstByteNanos = System.nanoTime();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    /**
+     * 回放时让本进程内的桩服务回放同一个录制文件，命令行已指定upstream-stub.replay-file时以命令行为准
+     */
+    private static String[] applicationArgs(String[] args, LoadTestProperties properties) {
+        if (!StringUtils.hasText(properties.getReplayFile())) {
+            return args;
+        }
+        for (String arg : args) {
+            if (arg.startsWith("--upstream-stub.replay-file=")) {
+                return args;
+            }
+        }
+        String[] applicationArgs = Arrays.copyOf(args, args.length + 1);
+        applicationArgs[args.length] = "--upstream-stub.replay-file=" + properties.getReplayFile();
+        return applicationArgs;
+    }
+
+    public static void main(String[] args) throws Exception {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new SimpleCommandLinePropertySource(args));
+        LoadTestProperties properties = Binder.get(environment)
+            .bind("loadtest", LoadTestProperties.class)
+            .orElseGet(LoadTestProperties::new);
+        logger.info("压测配置: {}", properties);
+
+        ConfigurableApplicationContext context = null;
+        String target = properties.getTarget();
+        if (!StringUtils.hasText(target)) {
+            SpringApplication application = new SpringApplication(SpringAiApplication.class);
+            application.setAdditionalProfiles("stub");
+            application.setDefaultProperties(Map.of("server.port", "0"));
+            context = application.run(applicationArgs(args, properties));
+            target = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+        }
+
+        boolean valid;
+        try {
+            Path directory = Path.of(properties.getReportDirectory());
+            Files.createDirectories(directory);
+            LoadReport report;
+            try (PrintStream intervalLog = new PrintStream(
+                    Files.newOutputStream(directory.resolve(properties.getLabel() + "-response-time.hlog")),
+                    false, StandardCharsets.UTF_8)) {
+                report = new LoadGenerator(properties, target).run(intervalLog);
+            }
+            report.write(directory);
+            report.print(System.out);
+            if (StringUtils.hasText(properties.getBaseline())) {
+                report.compare(Path.of(properties.getBaseline()), System.out);
+            }
+            valid = report.isValid();
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+        if (!valid) {
+            System.exit(2);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package org.miao.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 一次压测的结果
+ * 写出 {label}-summary.json（请求计数、吞吐和各百分位）和各直方图的 .hgrm 百分位分布，
+ * summary.json可以作为下一次压测的基线进行对比。延迟单位为毫秒。
+ * 出现过载（压测机未能按计划发出请求）或结束时仍有未完成的请求时，到达率没有按计划维持，
+ * 错误（非2xx响应和连接错误）比例超过loadtest.max-error-ratio时，百分位反映的是拒绝而不是服务，
+ * 两种情况下结果都标记为无效。
+ */
+public class LoadReport {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] PERCENTILE_KEYS = {"p50", "p90", "p99", "p999"};
+
+    private final LoadTestProperties properties;
+    private final String uri;
+    private final Instant startedAt;
+    private final long sent;
+    private final long succeeded;
+    private final long failed;
+    private final long overload;
+    private final long unfinished;
+    private final Map<Integer, Long> statuses;
+    private final Histogram responseTime;
+    private final Histogram serviceTime;
+    private final Histogram firstByteTime;
+    private final Histogram errorTime;
+
+    public LoadReport(LoadTestProperties properties, String uri, Instant startedAt, long sent, long succeeded,
+                      long failed, long overload, long unfinished, Map<Integer, Long> statuses,
+                      Histogram responseTime, Histogram serviceTime, Histogram firstByteTime, Histogram errorTime) {
+        this.properties = properties;
+        this.uri = uri;
+        this.startedAt = startedAt;
+        this.sent = sent;
+        this.succeeded = succeeded;
+        this.failed = failed;
+        this.overload = overload;
+        this.unfinished = unfinished;
+        this.statuses = statuses;
+        this.responseTime = responseTime;
+        this.serviceTime = serviceTime;
+        this.firstByteTime = firstByteTime;
+        this.errorTime = errorTime;
+    }
+
+    /**
+     * 统计窗口内每秒成功的请求数
+     */
+    public double throughput() {
+        return (double) succeeded / properties.getDurationSeconds();
+    }
+
+    /**
+     * 已完成的请求中非2xx响应和连接错误的比例
+     */
+    public double errorRatio() {
+        long completed = sent - unfinished;
+        return completed > 0 ? (double) errorTime.getTotalCount() / completed : 0;
+    }
+
+    /**
+     * 没有过载、没有未完成的请求，且错误比例不超过上限时结果有效
+     */
+    public boolean isValid() {
+        return overload == 0 && unfinished == 0 && errorRatio() <= properties.getMaxErrorRatio();
+    }
+
+    public Map<String, Object> summary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("label", properties.getLabel());
+        summary.put("uri", uri);
+        summary.put("startedAt", startedAt.toString());
+        summary.put("targetRate", properties.getRate());
+        summary.put("durationSeconds", properties.getDurationSeconds());
+        summary.put("valid", isValid());
+        Map<String, Object> requests = new LinkedHashMap<>();
+        requests.put("sent", sent);
+        requests.put("succeeded", succeeded);
+        requests.put("failed", failed);
+        requests.put("overload", overload);
+        requests.put("unfinished", unfinished);
+        requests.put("errorRatio", round(errorRatio()));
+        Map<String, Long> statusCounts = new LinkedHashMap<>();
+        statuses.forEach((status, count) -> statusCounts.put(String.valueOf(status), count));
+        requests.put("statuses", statusCounts);
+        summary.put("requests", requests);
+        summary.put("throughput", round(throughput()));
+        summary.put("responseTimeMillis", percentiles(responseTime));
+        summary.put("serviceTimeMillis", percentiles(serviceTime));
+        if (firstByteTime != null) {
+            summary.put("firstByteMillis", percentiles(firstByteTime));
+        }
+        summary.put("errorTimeMillis", percentiles(errorTime));
+        return summary;
+    }
+
+    public void write(Path directory) throws IOException {
+        String label = properties.getLabel();
+        new ObjectMapper().writerWithDefaultPrettyPrinter()
+            .writeValue(directory.resolve(label + "-summary.json").toFile(), summary());
+        writeDistribution(directory.resolve(label + "-response-time.hgrm"), responseTime);
+        writeDistribution(directory.resolve(label + "-service-time.hgrm"), serviceTime);
+        if (firstByteTime != null) {
+            writeDistribution(directory.resolve(label + "-first-byte.hgrm"), firstByteTime);
+        }
+        writeDistribution(directory.resolve(label + "-error-time.hgrm"), errorTime);
+    }
+
+    public void print(PrintStream out) {
+        out.printf("%s  目标 %.1f req/s，实际 %.1f req/s，成功 %d，失败 %d，过载 %d，未完成 %d，状态码 %s%n",
+            uri, properties.getRate(), throughput(), succeeded, failed, overload, unfinished, statuses);
+        if (!isValid()) {
+            out.printf("  结果无效：过载 %d，未完成 %d，错误比例 %.2f%%（上限 %.2f%%），百分位不可信%n",
+                overload, unfinished, errorRatio() * 100, properties.getMaxErrorRatio() * 100);
+        }
+        printPercentiles(out, "响应时间", responseTime);
+        printPercentiles(out, "服务时间", serviceTime);
+        if (firstByteTime != null) {
+            printPercentiles(out, "首字节", firstByteTime);
+        }
+        if (errorTime.getTotalCount() > 0) {
+            printPercentiles(out, "错误响应", errorTime);
+        }
+    }
+
+    /**
+     * 与基线summary.json对比吞吐和响应时间百分位，输出变化百分比
+     */
+    public void compare(Path baselineFile, PrintStream out) throws IOException {
+        JsonNode baseline = new ObjectMapper().readTree(baselineFile.toFile());
+        out.printf("与基线 %s 对比:%n", baseline.path("label").asText(baselineFile.toString()));
+        if (!isValid() || !baseline.path("valid").asBoolean(true)) {
+            out.println("  注意：本次或基线结果无效，对比仅供参考");
+        }
+        printChange(out, "throughput", baseline.path("throughput").asDouble(), throughput());
+        JsonNode baselineResponse = baseline.path("responseTimeMillis");
+        Map<String, Double> current = percentiles(responseTime);
+        for (Map.Entry<String, Double> entry : current.entrySet()) {
+            printChange(out, "responseTime." + entry.getKey(), baselineResponse.path(entry.getKey()).asDouble(),
+                entry.getValue());
+        }
+    }
+
+    private static void printChange(PrintStream out, String name, double before, double after) {
+        String change = before > 0 ? String.format("%+.1f%%", (after - before) * 100 / before) : "n/a";
+        out.printf("  %-22s %10.3f -> %10.3f  %s%n", name, before, after, change);
+    }
+
+    private static void printPercentiles(PrintStream out, String name, Histogram histogram) {
+        StringBuilder line = new StringBuilder("  ").append(name).append("(ms)");
+        percentiles(histogram).forEach((key, value) -> line.append("  ").append(key).append('=').append(value));
+        out.println(line);
+    }
+
+    private static Map<String, Double> percentiles(Histogram histogram) {
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            percentiles.put(PERCENTILE_KEYS[i], round(histogram.getValueAtPercentile(PERCENTILES[i]) / MICROS_PER_MILLI));
+        }
+        percentiles.put("max", round(histogram.getMaxValue() / MICROS_PER_MILLI));
+        percentiles.put("mean", round(histogram.getMean() / MICROS_PER_MILLI));
+        return percentiles;
+    }
+
+    private static void writeDistribution(Path file, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8)) {
+            histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+        }
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
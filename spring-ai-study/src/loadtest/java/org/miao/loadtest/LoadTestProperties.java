@@ -0,0 +1,214 @@
+package org.miao.loadtest;
+
+/**
+ * 压测参数
+ * 由LoadGenerator从命令行参数、系统属性或环境变量中的loadtest.*绑定
+ */
+public class LoadTestProperties {
+
+    public static final String ENDPOINT_CHAT = "chat";
+    public static final String ENDPOINT_STREAM = "stream";
+
+    /**
+     * 被测服务地址，例如http://127.0.0.1:8080；为空时在本进程内以stub profile启动应用
+     */
+    private String target = "";
+
+    /**
+     * 压测的接口：chat（/api/chat）或stream（/api/chat/stream）
+     */
+    private String endpoint = ENDPOINT_CHAT;
+
+    /**
+     * 每秒发出的请求数，按固定间隔发出，不等待之前的响应（开环）
+     */
+    private double rate = 50;
+
+    /**
+     * 计入统计的压测时长（秒）
+     */
+    private int durationSeconds = 60;
+
+    /**
+     * 预热时长（秒），预热期间的请求照常发出但不计入统计
+     */
+    private int warmupSeconds = 10;
+
+    /**
+     * 同时未完成的请求上限，超出时该请求记为overload而不发出，避免压测机自身耗尽连接
+     */
+    private int maxInFlight = 2000;
+
+    /**
+     * 发送结束后等待未完成请求的最长时间（秒）
+     */
+    private int drainTimeoutSeconds = 60;
+
+    /**
+     * 非2xx响应和连接错误占已发出请求的比例上限，超过时结果标记为无效
+     */
+    private double maxErrorRatio = 0.01;
+
+    /**
+     * 请求的消息内容
+     */
+    private String message = "请用三句话介绍一下Spring AI的ChatClient";
+
+    /**
+     * 请求的模型，为空时使用服务的默认模型
+     */
+    private String model = "";
+
+    /**
+     * 报告输出目录
+     */
+    private String reportDirectory = "target/loadtest";
+
+    /**
+     * 报告文件名前缀，例如构建号或提交号
+     */
+    private String label = "current";
+
+    /**
+     * 用于对比的基线summary.json路径，为空时不对比
+     */
+    private String baseline = "";
+
+    /**
+     * 流量录制文件，设置后按录制顺序循环发送其中的用户消息和模型，代替message和model；
+     * 本进程内启动应用时同时作为upstream-stub.replay-file，上游按录制的响应和耗时回放
+     */
+    private String replayFile = "";
+
+    public String getTarget() {
+        return target;
+    }
+
+    public void setTarget(String target) {
+        this.target = target;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public void setDurationSeconds(int durationSeconds) {
+        this.durationSeconds = durationSeconds;
+    }
+
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public void setWarmupSeconds(int warmupSeconds) {
+        this.warmupSeconds = warmupSeconds;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    public int getDrainTimeoutSeconds() {
+        return drainTimeoutSeconds;
+    }
+
+    public void setDrainTimeoutSeconds(int drainTimeoutSeconds) {
+        this.drainTimeoutSeconds = drainTimeoutSeconds;
+    }
+
+    public double getMaxErrorRatio() {
+        return maxErrorRatio;
+    }
+
+    public void setMaxErrorRatio(double maxErrorRatio) {
+        this.maxErrorRatio = maxErrorRatio;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public void setModel(String model) {
+        this.model = model;
+    }
+
+    public String getReportDirectory() {
+        return reportDirectory;
+    }
+
+    public void setReportDirectory(String reportDirectory) {
+        this.reportDirectory = reportDirectory;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public void setLabel(String label) {
+        this.label = label;
+    }
+
+    public String getBaseline() {
+        return baseline;
+    }
+
+    public void setBaseline(String baseline) {
+        this.baseline = baseline;
+    }
+
+    public String getReplayFile() {
+        return replayFile;
+    }
+
+    public void setReplayFile(String replayFile) {
+        this.replayFile = replayFile;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadTestProperties{" +
+                "target='" + target + '\'' +
+                ", endpoint='" + endpoint + '\'' +
+                ", rate=" + rate +
+                ", durationSeconds=" + durationSeconds +
+                ", warmupSeconds=" + warmupSeconds +
+                ", maxInFlight=" + maxInFlight +
+                ", drainTimeoutSeconds=" + drainTimeoutSeconds +
+                ", maxErrorRatio=" + maxErrorRatio +
+                ", message='" + message + '\'' +
+                ", model='" + model + '\'' +
+                ", reportDirectory='" + reportDirectory + '\'' +
+                ", label='" + label + '\'' +
+                ", baseline='" + baseline + '\'' +
+                ", replayFile='" + replayFile + '\'' +
+                '}';
+    }
+}
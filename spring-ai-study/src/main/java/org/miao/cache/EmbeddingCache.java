@@ -0,0 +1,276 @@
+package org.miao.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 嵌入向量缓存
+ * 以"模型标识 + 文本"的SHA-256内容哈希为键，分两层：
+ * 内存层为按访问顺序淘汰的LRU；持久层为追加写入的向量文件，内存中只保存键到文件偏移的索引，
+ * 命中持久层时按位置读取向量并提升到内存层。
+ *
+ * 持久层记录格式：[long 哈希高位][long 哈希低位][int 维度][维度个float]。
+ * 写入不逐条刷盘，进程异常退出时可能丢失末尾的记录，打开时截断不完整的尾部记录。
+ */
+public class EmbeddingCache implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingCache.class);
+
+    private static final int RECORD_HEADER_BYTES = 2 * Long.BYTES + Integer.BYTES;
+    private static final int MAX_DIMENSION = 1 << 16;
+
+    private final Map<Key, float[]> memory;
+    private final ConcurrentMap<Key, Long> diskIndex = new ConcurrentHashMap<>();
+    private final FileChannel channel;
+    private long end;
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param maxEntries 内存层最大条目数
+     * @param file       持久层文件，为null时只使用内存层
+     */
+    public EmbeddingCache(int maxEntries, Path file) throws IOException {
+        this.memory = new LinkedHashMap<>(Math.min(maxEntries, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, float[]> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        if (file == null) {
+            this.channel = null;
+            return;
+        }
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        this.end = load();
+    }
+
+    /**
+     * 计算缓存键
+     *
+     * @param namespace 嵌入模型标识，不同模型的向量互不复用
+     */
+    public static Key key(String namespace, String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(namespace.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(text.getBytes(StandardCharsets.UTF_8));
+            ByteBuffer hash = ByteBuffer.wrap(digest.digest());
+            return new Key(hash.getLong(), hash.getLong());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    }
+
+    /**
+     * 查询缓存，未命中返回null
+     */
+    public float[] get(Key key) {
+        float[] vector;
+        synchronized (memory) {
+            vector = memory.get(key);
+        }
+        if (vector != null) {
+            memoryHits.increment();
+            return vector;
+        }
+        Long offset = diskIndex.get(key);
+        if (offset != null) {
+            try {
+                vector = read(key, offset);
+            } catch (IOException e) {
+                logger.warn("读取嵌入缓存文件失败 - {}", e.getMessage());
+            }
+            if (vector != null) {
+                diskHits.increment();
+                synchronized (memory) {
+                    memory.put(key, vector);
+                }
+                return vector;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * 写入缓存，持久层中已有的键不重复写入
+     */
+    public void put(Key key, float[] vector) {
+        synchronized (memory) {
+            memory.put(key, vector);
+        }
+        if (channel == null || diskIndex.containsKey(key)) {
+            return;
+        }
+        try {
+            append(key, vector);
+        } catch (IOException e) {
+            logger.warn("写入嵌入缓存文件失败 - {}", e.getMessage());
+        }
+    }
+
+    public int memorySize() {
+        synchronized (memory) {
+            return memory.size();
+        }
+    }
+
+    public int diskSize() {
+        return diskIndex.size();
+    }
+
+    public long getMemoryHits() {
+        return memoryHits.sum();
+    }
+
+    public long getDiskHits() {
+        return diskHits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * 命中率（两层合计），尚无请求时为0
+     */
+    public double hitRatio() {
+        long hits = memoryHits.sum() + diskHits.sum();
+        long total = hits + misses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public synchronized void flush() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+            channel.close();
+        }
+    }
+
+    private synchronized void append(Key key, float[] vector) throws IOException {
+        if (diskIndex.containsKey(key)) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_BYTES + vector.length * Float.BYTES);
+        buffer.putLong(key.high).putLong(key.low).putInt(vector.length);
+        buffer.asFloatBuffer().put(vector);
+        buffer.position(0);
+        long offset = end;
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        end = position;
+        diskIndex.put(key, offset);
+    }
+
+    private float[] read(Key key, long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        readFully(header, offset);
+        if (header.getLong(0) != key.high || header.getLong(8) != key.low) {
+            return null;
+        }
+        ByteBuffer body = ByteBuffer.allocate(header.getInt(16) * Float.BYTES);
+        readFully(body, offset + RECORD_HEADER_BYTES);
+        float[] vector = new float[body.capacity() / Float.BYTES];
+        body.asFloatBuffer().get(vector);
+        return vector;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("嵌入缓存文件不完整");
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * 扫描持久层文件重建索引，返回有效数据的末尾位置
+     */
+    private long load() throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        while (position + RECORD_HEADER_BYTES <= size) {
+            header.clear();
+            readFully(header, position);
+            int dimension = header.getInt(16);
+            long next = position + RECORD_HEADER_BYTES + (long) dimension * Float.BYTES;
+            if (dimension <= 0 || dimension > MAX_DIMENSION || next > size) {
+                break;
+            }
+            diskIndex.put(new Key(header.getLong(0), header.getLong(8)), position);
+            position = next;
+        }
+        if (position < size) {
+            logger.warn("嵌入缓存文件尾部不完整，截断 {} 字节", size - position);
+            channel.truncate(position);
+        }
+        logger.info("嵌入缓存持久层已加载 - 条目数: {}, 大小: {}KB", diskIndex.size(), position / 1024);
+        return position;
+    }
+
+    /**
+     * 内容哈希，取SHA-256的前128位
+     */
+    public static final class Key {
+
+        private final long high;
+        private final long low;
+
+        private Key(long high, long low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return high == other.high && low == other.low;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(high * 31 + low);
+        }
+    }
+}
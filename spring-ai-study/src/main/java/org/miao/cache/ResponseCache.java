@@ -0,0 +1,118 @@
+package org.miao.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.miao.config.ChatProperties;
+import org.miao.support.HashedTimerWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 聊天响应缓存
+ * 缓存无会话请求的响应，条目的过期由时间轮驱动，不需要扫描整个Map
+ */
+@Component
+public class ResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponseCache.class);
+
+    private final ChatProperties chatProperties;
+    private final HashedTimerWheel timerWheel;
+    private final ConcurrentMap<String, CacheEntry> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    @Autowired
+    public ResponseCache(ChatProperties chatProperties, HashedTimerWheel timerWheel, MeterRegistry meterRegistry) {
+        this.chatProperties = chatProperties;
+        this.timerWheel = timerWheel;
+
+        FunctionCounter.builder("chat.cache.requests", hits, LongAdder::sum)
+            .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("chat.cache.requests", misses, LongAdder::sum)
+            .tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("chat.cache.expirations", expirations, LongAdder::sum)
+            .register(meterRegistry);
+        Gauge.builder("chat.cache.size", entries, ConcurrentMap::size)
+            .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return chatProperties.isCacheEnabled();
+    }
+
+    /**
+     * 查询缓存
+     *
+     * @return 缓存的响应，未命中或未启用时返回null
+     */
+    public String get(String model, String message) {
+        if (!isEnabled()) {
+            return null;
+        }
+        CacheEntry entry = entries.get(key(model, message));
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.response;
+    }
+
+    /**
+     * 写入缓存，达到容量上限时不再写入，已有条目重新计时
+     */
+    public void put(String model, String message, String response) {
+        if (!isEnabled() || response == null) {
+            return;
+        }
+        String key = key(model, message);
+        if (entries.size() >= chatProperties.getCacheMaxEntries() && !entries.containsKey(key)) {
+            logger.debug("响应缓存已满，跳过写入: {}", chatProperties.getCacheMaxEntries());
+            return;
+        }
+        CacheEntry entry = new CacheEntry(response);
+        entry.timeout = timerWheel.newTimeout(() -> {
+            if (entries.remove(key, entry)) {
+                expirations.increment();
+            }
+        }, chatProperties.getCacheTtlSeconds(), TimeUnit.SECONDS);
+
+        CacheEntry previous = entries.put(key, entry);
+        if (previous != null) {
+            previous.timeout.cancel();
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.values().forEach(entry -> entry.timeout.cancel());
+        entries.clear();
+    }
+
+    private static String key(String model, String message) {
+        return model + '\u0000' + message;
+    }
+
+    private static final class CacheEntry {
+        private final String response;
+        private volatile HashedTimerWheel.Timeout timeout;
+
+        private CacheEntry(String response) {
+            this.response = response;
+        }
+    }
+}
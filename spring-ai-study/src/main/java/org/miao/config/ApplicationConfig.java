@@ -1,16 +1,27 @@
 package org.miao.config;
 
+import org.miao.fault.FaultInjection;
+import org.miao.fault.FaultInjector;
+import org.miao.replay.TrafficCapture;
+import org.miao.replay.TrafficRecorder;
+import org.miao.tracing.TracePropagation;
+import org.miao.tracing.Tracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.model.function.FunctionCallbackContext;
 import org.springframework.ai.openai.OpenAiChatModel;
 import org.springframework.ai.openai.OpenAiChatOptions;
 import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
 
 import java.time.Duration;
 
@@ -42,22 +53,43 @@ public class ApplicationConfig {
     /**
      * 配置OpenAI API客户端，指向OpenRouter
      * OpenRouter兼容OpenAI API格式
+     * 同步和流式调用都会带上当前span的traceparent头；faults profile下挂载故障注入，
+     * 启用流量录制时在故障注入之内挂载录制层（先注册的在外层），注入的错误、重置和黑洞不会被当作真实流量录制和回放。
+     * 两种客户端的连接和读超时都取openrouter.timeout-seconds
      */
     @Bean
-    public OpenAiApi openAiApi() {
+    public OpenAiApi openAiApi(Tracer tracer, ObjectProvider<TrafficRecorder> trafficRecorder,
+                               ObjectProvider<FaultInjector> faultInjector) {
         logger.info("配置OpenAI API客户端，基础URL: {}, 默认模型: {}", 
                    openRouterProperties.getBaseUrl(), 
                    openRouterProperties.getDefaultModel());
         
+        Duration timeout = Duration.ofSeconds(openRouterProperties.getTimeoutSeconds());
+        RestClient.Builder restClientBuilder = UpstreamClients.restClientBuilder(timeout)
+            .requestInterceptor(TracePropagation.restClientInterceptor(tracer));
+        WebClient.Builder webClientBuilder = UpstreamClients.webClientBuilder(timeout)
+            .filter(TracePropagation.webClientFilter(tracer));
+        faultInjector.ifAvailable(injector -> {
+            restClientBuilder.requestInterceptor(FaultInjection.restClientInterceptor(injector));
+            webClientBuilder.filter(FaultInjection.webClientFilter(injector));
+        });
+        trafficRecorder.ifAvailable(recorder -> {
+            restClientBuilder.requestInterceptor(TrafficCapture.restClientInterceptor(recorder));
+            webClientBuilder.filter(TrafficCapture.webClientFilter(recorder));
+        });
         return new OpenAiApi(
             openRouterProperties.getBaseUrl(),
-            openRouterProperties.getApiKey()
+            openRouterProperties.getApiKey(),
+            restClientBuilder,
+            webClientBuilder
         );
     }
 
     /**
      * 配置OpenAI聊天模型
      * 使用OpenRouter作为后端服务
+     * 重试由ChatServiceImpl统一负责（带截止时间、指标和span），模型自身只调用一次，
+     * 避免Spring AI默认的重试（最多10次、退避最长3分钟）嵌套在外层重试之内
      */
     @Bean
     public OpenAiChatModel openAiChatModel(OpenAiApi openAiApi) {
@@ -69,7 +101,8 @@ public class ApplicationConfig {
             .withMaxTokens(1000)
             .build();
 
-        return new OpenAiChatModel(openAiApi, defaultOptions);
+        return new OpenAiChatModel(openAiApi, defaultOptions, (FunctionCallbackContext) null,
+            RetryTemplate.builder().maxAttempts(1).build());
     }
 
     /**
@@ -0,0 +1,147 @@
+package org.miao.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * 聊天服务运行时配置属性类
+ * 用于绑定application.properties中chat前缀的配置（请求截止时间、响应缓存、时间轮、并发限制）
+ */
+@Component
+@ConfigurationProperties(prefix = "chat")
+@Validated
+public class ChatProperties {
+
+    /**
+     * 单个请求（含所有重试和退避等待）的截止时间（秒）
+     */
+    private int requestDeadlineSeconds = 120;
+
+    /**
+     * 是否启用无会话请求的响应缓存
+     */
+    private boolean cacheEnabled = false;
+
+    /**
+     * 响应缓存条目的存活时间（秒）
+     */
+    private int cacheTtlSeconds = 300;
+
+    /**
+     * 响应缓存的最大条目数
+     */
+    private int cacheMaxEntries = 10000;
+
+    /**
+     * 时间轮每个槽位的时长（毫秒）
+     */
+    private long timerTickMillis = 10;
+
+    /**
+     * 时间轮槽位数量
+     */
+    private int timerWheelSize = 512;
+
+    /**
+     * 同时调用上游模型的最大请求数，0表示不限制
+     */
+    private int maxConcurrentRequests = 0;
+
+    /**
+     * 请求排队等待调用许可的最长时间（毫秒）
+     */
+    private long queueTimeoutMillis = 10000;
+
+    /**
+     * 是否为聊天接口返回Server-Timing响应头
+     */
+    private boolean serverTimingEnabled = true;
+
+    public int getRequestDeadlineSeconds() {
+        return requestDeadlineSeconds;
+    }
+
+    public void setRequestDeadlineSeconds(int requestDeadlineSeconds) {
+        this.requestDeadlineSeconds = requestDeadlineSeconds;
+    }
+
+    public boolean isCacheEnabled() {
+        return cacheEnabled;
+    }
+
+    public void setCacheEnabled(boolean cacheEnabled) {
+        this.cacheEnabled = cacheEnabled;
+    }
+
+    public int getCacheTtlSeconds() {
+        return cacheTtlSeconds;
+    }
+
+    public void setCacheTtlSeconds(int cacheTtlSeconds) {
+        this.cacheTtlSeconds = cacheTtlSeconds;
+    }
+
+    public int getCacheMaxEntries() {
+        return cacheMaxEntries;
+    }
+
+    public void setCacheMaxEntries(int cacheMaxEntries) {
+        this.cacheMaxEntries = cacheMaxEntries;
+    }
+
+    public long getTimerTickMillis() {
+        return timerTickMillis;
+    }
+
+    public void setTimerTickMillis(long timerTickMillis) {
+        this.timerTickMillis = timerTickMillis;
+    }
+
+    public int getTimerWheelSize() {
+        return timerWheelSize;
+    }
+
+    public void setTimerWheelSize(int timerWheelSize) {
+        this.timerWheelSize = timerWheelSize;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    public long getQueueTimeoutMillis() {
+        return queueTimeoutMillis;
+    }
+
+    public void setQueueTimeoutMillis(long queueTimeoutMillis) {
+        this.queueTimeoutMillis = queueTimeoutMillis;
+    }
+
+    public boolean isServerTimingEnabled() {
+        return serverTimingEnabled;
+    }
+
+    public void setServerTimingEnabled(boolean serverTimingEnabled) {
+        this.serverTimingEnabled = serverTimingEnabled;
+    }
+
+    @Override
+    public String toString() {
+        return "ChatProperties{" +
+                "requestDeadlineSeconds=" + requestDeadlineSeconds +
+                ", cacheEnabled=" + cacheEnabled +
+                ", cacheTtlSeconds=" + cacheTtlSeconds +
+                ", cacheMaxEntries=" + cacheMaxEntries +
+                ", timerTickMillis=" + timerTickMillis +
+                ", timerWheelSize=" + timerWheelSize +
+                ", maxConcurrentRequests=" + maxConcurrentRequests +
+                ", queueTimeoutMillis=" + queueTimeoutMillis +
+                ", serverTimingEnabled=" + serverTimingEnabled +
+                '}';
+    }
+}
@@ -0,0 +1,161 @@
+package org.miao.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * 会话存储配置属性类
+ * 用于绑定application.properties中conversation前缀的配置
+ */
+@Component
+@ConfigurationProperties(prefix = "conversation")
+@Validated
+public class ConversationProperties {
+
+    /**
+     * 是否启用会话日志持久化（预写日志）
+     */
+    private boolean persistenceEnabled = true;
+
+    /**
+     * 会话日志目录
+     */
+    private String logDirectory = "data/conversations";
+
+    /**
+     * 批量刷盘间隔（毫秒），同一间隔内的写入合并为一次fsync
+     */
+    private long flushIntervalMillis = 20;
+
+    /**
+     * 单批次最大写入条数
+     */
+    private int maxBatchSize = 512;
+
+    /**
+     * 单个日志段的最大字节数，超过后滚动到新段
+     */
+    private long segmentSizeBytes = 16L * 1024 * 1024;
+
+    /**
+     * 触发压缩的已封存日志段数量
+     */
+    private int compactionThreshold = 4;
+
+    /**
+     * 每个会话保留的最大轮次（消息条数）
+     */
+    private int maxTurns = 20;
+
+    /**
+     * 会话空闲超时（分钟），超时未访问的会话会被淘汰
+     */
+    private long idleTimeoutMinutes = 60;
+
+    /**
+     * 会话空闲多久（分钟）后压缩为冷存储，0表示不压缩
+     */
+    private long coldAfterMinutes = 5;
+
+    /**
+     * 冷存储的Deflate压缩级别（0-9）
+     */
+    private int compressionLevel = 1;
+
+    public boolean isPersistenceEnabled() {
+        return persistenceEnabled;
+    }
+
+    public void setPersistenceEnabled(boolean persistenceEnabled) {
+        this.persistenceEnabled = persistenceEnabled;
+    }
+
+    public String getLogDirectory() {
+        return logDirectory;
+    }
+
+    public void setLogDirectory(String logDirectory) {
+        this.logDirectory = logDirectory;
+    }
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    public void setFlushIntervalMillis(long flushIntervalMillis) {
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public long getSegmentSizeBytes() {
+        return segmentSizeBytes;
+    }
+
+    public void setSegmentSizeBytes(long segmentSizeBytes) {
+        this.segmentSizeBytes = segmentSizeBytes;
+    }
+
+    public int getCompactionThreshold() {
+        return compactionThreshold;
+    }
+
+    public void setCompactionThreshold(int compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    public int getMaxTurns() {
+        return maxTurns;
+    }
+
+    public void setMaxTurns(int maxTurns) {
+        this.maxTurns = maxTurns;
+    }
+
+    public long getIdleTimeoutMinutes() {
+        return idleTimeoutMinutes;
+    }
+
+    public void setIdleTimeoutMinutes(long idleTimeoutMinutes) {
+        this.idleTimeoutMinutes = idleTimeoutMinutes;
+    }
+
+    public long getColdAfterMinutes() {
+        return coldAfterMinutes;
+    }
+
+    public void setColdAfterMinutes(long coldAfterMinutes) {
+        this.coldAfterMinutes = coldAfterMinutes;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    @Override
+    public String toString() {
+        return "ConversationProperties{" +
+                "persistenceEnabled=" + persistenceEnabled +
+                ", logDirectory='" + logDirectory + '\'' +
+                ", flushIntervalMillis=" + flushIntervalMillis +
+                ", maxBatchSize=" + maxBatchSize +
+                ", segmentSizeBytes=" + segmentSizeBytes +
+                ", compactionThreshold=" + compactionThreshold +
+                ", maxTurns=" + maxTurns +
+                ", idleTimeoutMinutes=" + idleTimeoutMinutes +
+                ", coldAfterMinutes=" + coldAfterMinutes +
+                ", compressionLevel=" + compressionLevel +
+                '}';
+    }
+}
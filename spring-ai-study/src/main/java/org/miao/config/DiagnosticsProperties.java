@@ -0,0 +1,95 @@
+package org.miao.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * 诊断配置属性类
+ * 用于绑定application.properties中diagnostics前缀的配置（慢请求采集和管理端点访问令牌）
+ */
+@Component
+@ConfigurationProperties(prefix = "diagnostics")
+@Validated
+public class DiagnosticsProperties {
+
+    /**
+     * 是否采集慢请求和失败请求
+     */
+    private boolean slowRequestEnabled = true;
+
+    /**
+     * 耗时超过该值（毫秒）的请求视为慢请求
+     */
+    private long slowRequestThresholdMillis = 5000;
+
+    /**
+     * 保留最近多少条慢请求或失败请求
+     */
+    private int slowRequestCapacity = 100;
+
+    /**
+     * 采集的提示词最多保留的字符数
+     */
+    private int promptPreviewChars = 200;
+
+    /**
+     * 访问诊断端点需要在X-Admin-Token请求头中提供的令牌，为空时诊断端点不可访问
+     */
+    private String adminToken = "";
+
+    public boolean isSlowRequestEnabled() {
+        return slowRequestEnabled;
+    }
+
+    public void setSlowRequestEnabled(boolean slowRequestEnabled) {
+        this.slowRequestEnabled = slowRequestEnabled;
+    }
+
+    public long getSlowRequestThresholdMillis() {
+        return slowRequestThresholdMillis;
+    }
+
+    public void setSlowRequestThresholdMillis(long slowRequestThresholdMillis) {
+        this.slowRequestThresholdMillis = slowRequestThresholdMillis;
+    }
+
+    public int getSlowRequestCapacity() {
+        return slowRequestCapacity;
+    }
+
+    public void setSlowRequestCapacity(int slowRequestCapacity) {
+        this.slowRequestCapacity = slowRequestCapacity;
+    }
+
+    public int getPromptPreviewChars() {
+        return promptPreviewChars;
+    }
+
+    public void setPromptPreviewChars(int promptPreviewChars) {
+        this.promptPreviewChars = promptPreviewChars;
+    }
+
+    public boolean isAdminTokenConfigured() {
+        return adminToken != null && !adminToken.trim().isEmpty();
+    }
+
+    public String getAdminToken() {
+        return adminToken;
+    }
+
+    public void setAdminToken(String adminToken) {
+        this.adminToken = adminToken;
+    }
+
+    @Override
+    public String toString() {
+        return "DiagnosticsProperties{" +
+                "slowRequestEnabled=" + slowRequestEnabled +
+                ", slowRequestThresholdMillis=" + slowRequestThresholdMillis +
+                ", slowRequestCapacity=" + slowRequestCapacity +
+                ", promptPreviewChars=" + promptPreviewChars +
+                ", adminTokenConfigured=" + isAdminTokenConfigured() +
+                '}';
+    }
+}
@@ -0,0 +1,147 @@
+package org.miao.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * 嵌入服务配置属性类
+ * 用于绑定application.properties中embedding前缀的配置（向量缓存、微批合并）
+ */
+@Component
+@ConfigurationProperties(prefix = "embedding")
+@Validated
+public class EmbeddingProperties {
+
+    /**
+     * 嵌入模型标识，参与缓存键计算；更换嵌入模型后修改此值，旧模型的缓存不再命中
+     */
+    private String modelId = "default";
+
+    /**
+     * 是否启用嵌入向量缓存
+     */
+    private boolean cacheEnabled = true;
+
+    /**
+     * 内存层最大条目数
+     */
+    private int cacheMaxEntries = 50000;
+
+    /**
+     * 是否启用持久层（向量追加写入本地文件，重启后仍可命中）
+     */
+    private boolean persistenceEnabled = true;
+
+    /**
+     * 持久层文件路径
+     */
+    private String cacheFile = "data/embeddings/cache.dat";
+
+    /**
+     * 单次嵌入调用的最大文本数
+     */
+    private int maxBatchSize = 64;
+
+    /**
+     * 并发的单条请求合并成批的最长等待时间（毫秒）
+     */
+    private long maxWaitMillis = 5;
+
+    /**
+     * 同时进行的嵌入调用数
+     */
+    private int maxConcurrentBatches = 4;
+
+    /**
+     * 单条请求等待嵌入结果的超时时间（秒）
+     */
+    private int timeoutSeconds = 30;
+
+    public String getModelId() {
+        return modelId;
+    }
+
+    public void setModelId(String modelId) {
+        this.modelId = modelId;
+    }
+
+    public boolean isCacheEnabled() {
+        return cacheEnabled;
+    }
+
+    public void setCacheEnabled(boolean cacheEnabled) {
+        this.cacheEnabled = cacheEnabled;
+    }
+
+    public int getCacheMaxEntries() {
+        return cacheMaxEntries;
+    }
+
+    public void setCacheMaxEntries(int cacheMaxEntries) {
+        this.cacheMaxEntries = cacheMaxEntries;
+    }
+
+    public boolean isPersistenceEnabled() {
+        return persistenceEnabled;
+    }
+
+    public void setPersistenceEnabled(boolean persistenceEnabled) {
+        this.persistenceEnabled = persistenceEnabled;
+    }
+
+    public String getCacheFile() {
+        return cacheFile;
+    }
+
+    public void setCacheFile(String cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    public void setMaxWaitMillis(long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    public int getMaxConcurrentBatches() {
+        return maxConcurrentBatches;
+    }
+
+    public void setMaxConcurrentBatches(int maxConcurrentBatches) {
+        this.maxConcurrentBatches = maxConcurrentBatches;
+    }
+
+    public int getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    public void setTimeoutSeconds(int timeoutSeconds) {
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    @Override
+    public String toString() {
+        return "EmbeddingProperties{" +
+                "modelId='" + modelId + '\'' +
+                ", cacheEnabled=" + cacheEnabled +
+                ", cacheMaxEntries=" + cacheMaxEntries +
+                ", persistenceEnabled=" + persistenceEnabled +
+                ", cacheFile='" + cacheFile + '\'' +
+                ", maxBatchSize=" + maxBatchSize +
+                ", maxWaitMillis=" + maxWaitMillis +
+                ", maxConcurrentBatches=" + maxConcurrentBatches +
+                ", timeoutSeconds=" + timeoutSeconds +
+                '}';
+    }
+}
@@ -0,0 +1,108 @@
+package org.miao.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 模型评测配置属性类
+ * 用于绑定application.properties中eval前缀的配置（提示词集、参与评测的模型、并发数、重复次数和报告目录）
+ */
+@Component
+@ConfigurationProperties(prefix = "eval")
+@Validated
+public class EvalProperties {
+
+    /**
+     * 提示词集文件，支持classpath:前缀
+     */
+    private String suite = "classpath:eval/example-suite.json";
+
+    /**
+     * 参与评测的模型，为空时评测openrouter.available-models中的全部模型
+     */
+    private List<String> models = new ArrayList<>();
+
+    /**
+     * 同时执行的请求数（所有模型共享）
+     */
+    private int concurrency = 4;
+
+    /**
+     * 每个提示词在每个模型上的执行次数
+     */
+    private int repetitions = 1;
+
+    /**
+     * 报告输出目录
+     */
+    private String reportDirectory = "target/eval";
+
+    /**
+     * 报告文件名前缀
+     */
+    private String label = "current";
+
+    public String getSuite() {
+        return suite;
+    }
+
+    public void setSuite(String suite) {
+        this.suite = suite;
+    }
+
+    public List<String> getModels() {
+        return models;
+    }
+
+    public void setModels(List<String> models) {
+        this.models = models;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public int getRepetitions() {
+        return repetitions;
+    }
+
+    public void setRepetitions(int repetitions) {
+        this.repetitions = repetitions;
+    }
+
+    public String getReportDirectory() {
+        return reportDirectory;
+    }
+
+    public void setReportDirectory(String reportDirectory) {
+        this.reportDirectory = reportDirectory;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public void setLabel(String label) {
+        this.label = label;
+    }
+
+    @Override
+    public String toString() {
+        return "EvalProperties{" +
+                "suite='" + suite + '\'' +
+                ", models=" + models +
+                ", concurrency=" + concurrency +
+                ", repetitions=" + repetitions +
+                ", reportDirectory='" + reportDirectory + '\'' +
+                ", label='" + label + '\'' +
+                '}';
+    }
+}
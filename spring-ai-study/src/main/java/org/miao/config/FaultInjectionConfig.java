@@ -0,0 +1,21 @@
+package org.miao.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.miao.fault.FaultInjector;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * 故障注入配置类
+ * 只在faults profile下创建FaultInjector，ApplicationConfig据此在上游客户端上挂载故障注入层
+ */
+@Configuration
+@Profile("faults")
+public class FaultInjectionConfig {
+
+    @Bean
+    public FaultInjector faultInjector(FaultInjectionProperties faultInjectionProperties, MeterRegistry meterRegistry) {
+        return new FaultInjector(faultInjectionProperties, meterRegistry);
+    }
+}
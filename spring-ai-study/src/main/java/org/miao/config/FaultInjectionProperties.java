@@ -0,0 +1,209 @@
+package org.miao.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 故障注入配置属性类
+ * 用于绑定application.properties中fault-injection前缀的配置，只在faults profile下生效。
+ * 故障按场景脚本注入：每个场景在应用启动后的[startMillis, startMillis + durationMillis)内生效，
+ * 同一时刻取第一个生效的场景
+ */
+@Component
+@ConfigurationProperties(prefix = "fault-injection")
+@Validated
+public class FaultInjectionProperties {
+
+    /**
+     * 随机数种子，第n次上游调用注入的故障只由种子和n决定
+     */
+    private long seed = 42;
+
+    /**
+     * 脚本结束后是否从头循环，所有场景都有持续时间时才生效
+     */
+    private boolean loop = false;
+
+    /**
+     * 故障场景脚本
+     */
+    private List<Scenario> scenarios = new ArrayList<>();
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public boolean isLoop() {
+        return loop;
+    }
+
+    public void setLoop(boolean loop) {
+        this.loop = loop;
+    }
+
+    public List<Scenario> getScenarios() {
+        return scenarios;
+    }
+
+    public void setScenarios(List<Scenario> scenarios) {
+        this.scenarios = scenarios;
+    }
+
+    @Override
+    public String toString() {
+        return "FaultInjectionProperties{" +
+                "seed=" + seed +
+                ", loop=" + loop +
+                ", scenarios=" + scenarios +
+                '}';
+    }
+
+    /**
+     * 故障场景
+     * 错误、黑洞和连接重置互斥，按各自的比例抽取；延迟尖峰独立抽取，可以叠加在其它故障之前
+     */
+    public static class Scenario {
+
+        private String name = "";
+
+        /**
+         * 相对应用启动的开始时间（毫秒）
+         */
+        private long startMillis;
+
+        /**
+         * 持续时间（毫秒），0表示一直持续
+         */
+        private long durationMillis;
+
+        /**
+         * 直接返回错误状态码的调用比例
+         */
+        private double errorRate;
+
+        private int errorStatus = 503;
+
+        /**
+         * 调用前额外等待latencySpikeMillis的比例
+         */
+        private double latencySpikeRate;
+
+        private long latencySpikeMillis = 2000;
+
+        /**
+         * 请求被改发到只接受连接、从不响应的本地端口的比例，调用由客户端的读超时结束
+         */
+        private double blackholeRate;
+
+        /**
+         * 响应体读到resetAfterBytes字节后连接被重置的比例（流式响应按片段粒度判断）
+         */
+        private double resetRate;
+
+        private long resetAfterBytes = 64;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        public void setStartMillis(long startMillis) {
+            this.startMillis = startMillis;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        public void setDurationMillis(long durationMillis) {
+            this.durationMillis = durationMillis;
+        }
+
+        public double getErrorRate() {
+            return errorRate;
+        }
+
+        public void setErrorRate(double errorRate) {
+            this.errorRate = errorRate;
+        }
+
+        public int getErrorStatus() {
+            return errorStatus;
+        }
+
+        public void setErrorStatus(int errorStatus) {
+            this.errorStatus = errorStatus;
+        }
+
+        public double getLatencySpikeRate() {
+            return latencySpikeRate;
+        }
+
+        public void setLatencySpikeRate(double latencySpikeRate) {
+            this.latencySpikeRate = latencySpikeRate;
+        }
+
+        public long getLatencySpikeMillis() {
+            return latencySpikeMillis;
+        }
+
+        public void setLatencySpikeMillis(long latencySpikeMillis) {
+            this.latencySpikeMillis = latencySpikeMillis;
+        }
+
+        public double getBlackholeRate() {
+            return blackholeRate;
+        }
+
+        public void setBlackholeRate(double blackholeRate) {
+            this.blackholeRate = blackholeRate;
+        }
+
+        public double getResetRate() {
+            return resetRate;
+        }
+
+        public void setResetRate(double resetRate) {
+            this.resetRate = resetRate;
+        }
+
+        public long getResetAfterBytes() {
+            return resetAfterBytes;
+        }
+
+        public void setResetAfterBytes(long resetAfterBytes) {
+            this.resetAfterBytes = resetAfterBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "Scenario{" +
+                    "name='" + name + '\'' +
+                    ", startMillis=" + startMillis +
+                    ", durationMillis=" + durationMillis +
+                    ", errorRate=" + errorRate +
+                    ", errorStatus=" + errorStatus +
+                    ", latencySpikeRate=" + latencySpikeRate +
+                    ", latencySpikeMillis=" + latencySpikeMillis +
+                    ", blackholeRate=" + blackholeRate +
+                    ", resetRate=" + resetRate +
+                    ", resetAfterBytes=" + resetAfterBytes +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package org.miao.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 文档导入流水线配置属性类
+ * 用于绑定application.properties中ingestion前缀的配置
+ */
+@Component
+@ConfigurationProperties(prefix = "ingestion")
+@Validated
+public class IngestionProperties {
+
+    /**
+     * 导入的文件扩展名
+     */
+    private List<String> extensions = Arrays.asList("pdf", "txt", "md");
+
+    /**
+     * 单个文件的最大字节数，超过的文件跳过
+     */
+    private long maxFileBytes = 50L * 1024 * 1024;
+
+    /**
+     * 读取阶段线程数
+     */
+    private int readerThreads = 2;
+
+    /**
+     * 预读文件数量（读取阶段输入队列容量），决定流水线中同时驻留内存的原始文件数
+     */
+    private int readAheadFiles = 8;
+
+    /**
+     * 文本提取阶段线程数
+     */
+    private int extractorThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    /**
+     * 切分阶段线程数
+     */
+    private int chunkerThreads = 1;
+
+    /**
+     * 嵌入阶段并发调用数
+     */
+    private int embedderThreads = 2;
+
+    /**
+     * 索引阶段线程数
+     */
+    private int indexerThreads = 2;
+
+    /**
+     * 提取、切分、嵌入、索引阶段之间的队列容量
+     */
+    private int queueCapacity = 256;
+
+    /**
+     * 单次嵌入调用的最大片段数
+     */
+    private int embedBatchSize = 32;
+
+    /**
+     * 凑满一批的最长等待时间（毫秒）
+     */
+    private long embedMaxWaitMillis = 200;
+
+    /**
+     * 片段最大字符数
+     */
+    private int chunkSize = 800;
+
+    /**
+     * 相邻片段的重叠字符数
+     */
+    private int chunkOverlap = 100;
+
+    /**
+     * 允许导入的根目录，请求中的目录必须位于其下（按真实路径判断，符号链接不能跳出）；
+     * 未配置时拒绝所有导入请求
+     */
+    private String rootDirectory = "";
+
+    /**
+     * 检查点文件路径
+     */
+    private String checkpointFile = "data/ingestion/checkpoint.log";
+
+    /**
+     * 检查点提交间隔（秒），提交时先保存向量索引再记录已完成的文件
+     */
+    private long checkpointIntervalSeconds = 30;
+
+    public String getRootDirectory() {
+        return rootDirectory;
+    }
+
+    public void setRootDirectory(String rootDirectory) {
+        this.rootDirectory = rootDirectory;
+    }
+
+    public boolean isRootDirectoryConfigured() {
+        return rootDirectory != null && !rootDirectory.isBlank();
+    }
+
+    public List<String> getExtensions() {
+        return extensions;
+    }
+
+    public void setExtensions(List<String> extensions) {
+        this.extensions = extensions;
+    }
+
+    public long getMaxFileBytes() {
+        return maxFileBytes;
+    }
+
+    public void setMaxFileBytes(long maxFileBytes) {
+        this.maxFileBytes = maxFileBytes;
+    }
+
+    public int getReaderThreads() {
+        return readerThreads;
+    }
+
+    public void setReaderThreads(int readerThreads) {
+        this.readerThreads = readerThreads;
+    }
+
+    public int getReadAheadFiles() {
+        return readAheadFiles;
+    }
+
+    public void setReadAheadFiles(int readAheadFiles) {
+        this.readAheadFiles = readAheadFiles;
+    }
+
+    public int getExtractorThreads() {
+        return extractorThreads;
+    }
+
+    public void setExtractorThreads(int extractorThreads) {
+        this.extractorThreads = extractorThreads;
+    }
+
+    public int getChunkerThreads() {
+        return chunkerThreads;
+    }
+
+    public void setChunkerThreads(int chunkerThreads) {
+        this.chunkerThreads = chunkerThreads;
+    }
+
+    public int getEmbedderThreads() {
+        return embedderThreads;
+    }
+
+    public void setEmbedderThreads(int embedderThreads) {
+        this.embedderThreads = embedderThreads;
+    }
+
+    public int getIndexerThreads() {
+        return indexerThreads;
+    }
+
+    public void setIndexerThreads(int indexerThreads) {
+        this.indexerThreads = indexerThreads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getEmbedBatchSize() {
+        return embedBatchSize;
+    }
+
+    public void setEmbedBatchSize(int embedBatchSize) {
+        this.embedBatchSize = embedBatchSize;
+    }
+
+    public long getEmbedMaxWaitMillis() {
+        return embedMaxWaitMillis;
+    }
+
+    public void setEmbedMaxWaitMillis(long embedMaxWaitMillis) {
+        this.embedMaxWaitMillis = embedMaxWaitMillis;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public int getChunkOverlap() {
+        return chunkOverlap;
+    }
+
+    public void setChunkOverlap(int chunkOverlap) {
+        this.chunkOverlap = chunkOverlap;
+    }
+
+    public String getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    public void setCheckpointFile(String checkpointFile) {
+        this.checkpointFile = checkpointFile;
+    }
+
+    public long getCheckpointIntervalSeconds() {
+        return checkpointIntervalSeconds;
+    }
+
+    public void setCheckpointIntervalSeconds(long checkpointIntervalSeconds) {
+        this.checkpointIntervalSeconds = checkpointIntervalSeconds;
+    }
+
+    @Override
+    public String toString() {
+        return "IngestionProperties{" +
+                "extensions=" + extensions +
+                ", maxFileBytes=" + maxFileBytes +
+                ", readerThreads=" + readerThreads +
+                ", readAheadFiles=" + readAheadFiles +
+                ", extractorThreads=" + extractorThreads +
+                ", chunkerThreads=" + chunkerThreads +
+                ", embedderThreads=" + embedderThreads +
+                ", indexerThreads=" + indexerThreads +
+                ", queueCapacity=" + queueCapacity +
+                ", embedBatchSize=" + embedBatchSize +
+                ", embedMaxWaitMillis=" + embedMaxWaitMillis +
+                ", chunkSize=" + chunkSize +
+                ", chunkOverlap=" + chunkOverlap +
+                ", rootDirectory='" + rootDirectory + '\'' +
+                ", checkpointFile='" + checkpointFile + '\'' +
+                ", checkpointIntervalSeconds=" + checkpointIntervalSeconds +
+                '}';
+    }
+}
@@ -33,7 +33,7 @@ public class OpenRouterProperties {
     private String defaultModel = "openai/gpt-3.5-turbo";
 
     /**
-     * 请求超时时间（秒）
+     * 上游连接超时和读超时（秒），流式调用为读取响应时相邻两次读取的最长间隔
      */
     private int timeoutSeconds = 30;
 
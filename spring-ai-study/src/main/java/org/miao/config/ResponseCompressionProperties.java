@@ -0,0 +1,112 @@
+package org.miao.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 响应压缩配置属性类
+ * 用于绑定application.properties中response-compression前缀的配置（压缩阈值、内容类型和压缩级别）
+ */
+@Component
+@ConfigurationProperties(prefix = "response-compression")
+@Validated
+public class ResponseCompressionProperties {
+
+    /**
+     * 是否按Accept-Encoding压缩响应
+     */
+    private boolean enabled = true;
+
+    /**
+     * 响应体达到该字节数才压缩，流式响应不受此限制
+     */
+    private int minResponseSize = 2048;
+
+    /**
+     * 需要压缩的内容类型
+     */
+    private List<String> mimeTypes = new ArrayList<>(Arrays.asList(
+        "application/json", "text/event-stream", "application/x-ndjson",
+        "text/html", "text/plain", "text/css", "text/javascript", "application/javascript",
+        "application/x-jackson-smile", "application/cbor"));
+
+    /**
+     * gzip压缩级别（1-9）
+     */
+    private int gzipLevel = 5;
+
+    /**
+     * 客户端支持br且brotli本地库可用时是否优先使用brotli
+     */
+    private boolean brotliEnabled = true;
+
+    /**
+     * brotli压缩质量（0-11），动态内容取4左右，压缩率接近gzip高级别而CPU开销更低
+     */
+    private int brotliQuality = 4;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMinResponseSize() {
+        return minResponseSize;
+    }
+
+    public void setMinResponseSize(int minResponseSize) {
+        this.minResponseSize = minResponseSize;
+    }
+
+    public List<String> getMimeTypes() {
+        return mimeTypes;
+    }
+
+    public void setMimeTypes(List<String> mimeTypes) {
+        this.mimeTypes = mimeTypes;
+    }
+
+    public int getGzipLevel() {
+        return gzipLevel;
+    }
+
+    public void setGzipLevel(int gzipLevel) {
+        this.gzipLevel = gzipLevel;
+    }
+
+    public boolean isBrotliEnabled() {
+        return brotliEnabled;
+    }
+
+    public void setBrotliEnabled(boolean brotliEnabled) {
+        this.brotliEnabled = brotliEnabled;
+    }
+
+    public int getBrotliQuality() {
+        return brotliQuality;
+    }
+
+    public void setBrotliQuality(int brotliQuality) {
+        this.brotliQuality = brotliQuality;
+    }
+
+    @Override
+    public String toString() {
+        return "ResponseCompressionProperties{" +
+                "enabled=" + enabled +
+                ", minResponseSize=" + minResponseSize +
+                ", mimeTypes=" + mimeTypes +
+                ", gzipLevel=" + gzipLevel +
+                ", brotliEnabled=" + brotliEnabled +
+                ", brotliQuality=" + brotliQuality +
+                '}';
+    }
+}
@@ -0,0 +1,291 @@
+package org.miao.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * 检索增强配置属性类
+ * 用于绑定application.properties中retrieval前缀的配置
+ */
+@Component
+@ConfigurationProperties(prefix = "retrieval")
+@Validated
+public class RetrievalProperties {
+
+    public static final String INDEX_FLAT = "flat";
+    public static final String INDEX_HNSW = "hnsw";
+    public static final String INDEX_PQ = "pq";
+
+    /**
+     * 是否在聊天请求中注入检索到的文档片段
+     */
+    private boolean enabled = false;
+
+    /**
+     * 每次检索返回的最大片段数
+     */
+    private int topK = 4;
+
+    /**
+     * 片段的最低相似度，低于该值的片段不注入提示词
+     */
+    private double minScore = 0.3;
+
+    /**
+     * 向量维度，需与嵌入模型的输出一致
+     */
+    private int dimension = 1536;
+
+    /**
+     * 注入提示词的片段总字符数上限
+     */
+    private int maxContextChars = 4000;
+
+    /**
+     * 向量索引类型：flat（暴力检索）、hnsw（近似最近邻）或pq（乘积量化压缩）
+     */
+    private String indexType = INDEX_HNSW;
+
+    /**
+     * HNSW每层的最大邻居数（第0层为其两倍）
+     */
+    private int hnswM = 16;
+
+    /**
+     * HNSW建图时的候选集大小
+     */
+    private int hnswEfConstruction = 200;
+
+    /**
+     * HNSW检索时的候选集大小
+     */
+    private int hnswEfSearch = 64;
+
+    /**
+     * 乘积量化的子空间数，即每个向量的编码字节数，必须整除向量维度
+     */
+    private int pqSubspaces = 192;
+
+    /**
+     * 训练乘积量化码本使用的向量数，达到之前精确检索
+     */
+    private int pqTrainingSize = 8192;
+
+    /**
+     * 重排序候选数相对topK的倍数，候选用全精度向量重新计算相似度，0表示不重排序
+     */
+    private int pqRerankFactor = 10;
+
+    /**
+     * 是否把HNSW或PQ索引保存到磁盘，启动时直接打开
+     */
+    private boolean persistenceEnabled = true;
+
+    /**
+     * 向量索引文件目录
+     */
+    private String indexDirectory = "data/retrieval";
+
+    /**
+     * 是否启用BM25关键词检索，与向量检索结果融合
+     */
+    private boolean keywordEnabled = true;
+
+    /**
+     * 关键词检索的最低BM25得分，只命中少量常见词的片段不参与融合
+     */
+    private double keywordMinScore = 1.0;
+
+    /**
+     * 关键词检索结果相对最高得分的最低比例，过滤最佳命中之后的长尾弱匹配
+     */
+    private double keywordMinScoreRatio = 0.2;
+
+    /**
+     * 融合前每路检索取的候选数量
+     */
+    private int fusionCandidates = 20;
+
+    /**
+     * 倒数排名融合的平滑常数
+     */
+    private int rrfK = 60;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    public void setTopK(int topK) {
+        this.topK = topK;
+    }
+
+    public double getMinScore() {
+        return minScore;
+    }
+
+    public void setMinScore(double minScore) {
+        this.minScore = minScore;
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public void setDimension(int dimension) {
+        this.dimension = dimension;
+    }
+
+    public int getMaxContextChars() {
+        return maxContextChars;
+    }
+
+    public void setMaxContextChars(int maxContextChars) {
+        this.maxContextChars = maxContextChars;
+    }
+
+    public String getIndexType() {
+        return indexType;
+    }
+
+    public void setIndexType(String indexType) {
+        this.indexType = indexType;
+    }
+
+    public int getHnswM() {
+        return hnswM;
+    }
+
+    public void setHnswM(int hnswM) {
+        this.hnswM = hnswM;
+    }
+
+    public int getHnswEfConstruction() {
+        return hnswEfConstruction;
+    }
+
+    public void setHnswEfConstruction(int hnswEfConstruction) {
+        this.hnswEfConstruction = hnswEfConstruction;
+    }
+
+    public int getHnswEfSearch() {
+        return hnswEfSearch;
+    }
+
+    public void setHnswEfSearch(int hnswEfSearch) {
+        this.hnswEfSearch = hnswEfSearch;
+    }
+
+    public int getPqSubspaces() {
+        return pqSubspaces;
+    }
+
+    public void setPqSubspaces(int pqSubspaces) {
+        this.pqSubspaces = pqSubspaces;
+    }
+
+    public int getPqTrainingSize() {
+        return pqTrainingSize;
+    }
+
+    public void setPqTrainingSize(int pqTrainingSize) {
+        this.pqTrainingSize = pqTrainingSize;
+    }
+
+    public int getPqRerankFactor() {
+        return pqRerankFactor;
+    }
+
+    public void setPqRerankFactor(int pqRerankFactor) {
+        this.pqRerankFactor = pqRerankFactor;
+    }
+
+    public boolean isPersistenceEnabled() {
+        return persistenceEnabled;
+    }
+
+    public void setPersistenceEnabled(boolean persistenceEnabled) {
+        this.persistenceEnabled = persistenceEnabled;
+    }
+
+    public String getIndexDirectory() {
+        return indexDirectory;
+    }
+
+    public void setIndexDirectory(String indexDirectory) {
+        this.indexDirectory = indexDirectory;
+    }
+
+    public boolean isKeywordEnabled() {
+        return keywordEnabled;
+    }
+
+    public void setKeywordEnabled(boolean keywordEnabled) {
+        this.keywordEnabled = keywordEnabled;
+    }
+
+    public double getKeywordMinScore() {
+        return keywordMinScore;
+    }
+
+    public void setKeywordMinScore(double keywordMinScore) {
+        this.keywordMinScore = keywordMinScore;
+    }
+
+    public double getKeywordMinScoreRatio() {
+        return keywordMinScoreRatio;
+    }
+
+    public void setKeywordMinScoreRatio(double keywordMinScoreRatio) {
+        this.keywordMinScoreRatio = keywordMinScoreRatio;
+    }
+
+    public int getFusionCandidates() {
+        return fusionCandidates;
+    }
+
+    public void setFusionCandidates(int fusionCandidates) {
+        this.fusionCandidates = fusionCandidates;
+    }
+
+    public int getRrfK() {
+        return rrfK;
+    }
+
+    public void setRrfK(int rrfK) {
+        this.rrfK = rrfK;
+    }
+
+    @Override
+    public String toString() {
+        return "RetrievalProperties{" +
+                "enabled=" + enabled +
+                ", topK=" + topK +
+                ", minScore=" + minScore +
+                ", dimension=" + dimension +
+                ", maxContextChars=" + maxContextChars +
+                ", indexType='" + indexType + '\'' +
+                ", hnswM=" + hnswM +
+                ", hnswEfConstruction=" + hnswEfConstruction +
+                ", hnswEfSearch=" + hnswEfSearch +
+                ", pqSubspaces=" + pqSubspaces +
+                ", pqTrainingSize=" + pqTrainingSize +
+                ", pqRerankFactor=" + pqRerankFactor +
+                ", persistenceEnabled=" + persistenceEnabled +
+                ", indexDirectory='" + indexDirectory + '\'' +
+                ", keywordEnabled=" + keywordEnabled +
+                ", keywordMinScore=" + keywordMinScore +
+                ", keywordMinScoreRatio=" + keywordMinScoreRatio +
+                ", fusionCandidates=" + fusionCandidates +
+                ", rrfK=" + rrfK +
+                '}';
+    }
+}
@@ -0,0 +1,54 @@
+package org.miao.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.miao.support.HashedTimerWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 时间轮配置类
+ * 提供会话空闲淘汰、缓存过期和请求截止时间共用的时间轮，并注册到期数量和延迟指标
+ */
+@Configuration
+public class TimerConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(TimerConfig.class);
+
+    /**
+     * 配置共享的哈希时间轮
+     * 到期延迟（实际执行时间与期望时间之差）记录为chat.timer.lag
+     */
+    @Bean(destroyMethod = "close")
+    public HashedTimerWheel hashedTimerWheel(ChatProperties chatProperties, MeterRegistry meterRegistry) {
+        logger.info("配置时间轮，tick: {}ms, 槽位数: {}",
+                   chatProperties.getTimerTickMillis(), chatProperties.getTimerWheelSize());
+
+        Timer lagTimer = Timer.builder("chat.timer.lag")
+            .description("定时任务实际到期时间与期望时间的差值")
+            .publishPercentiles(0.5, 0.99, 0.999)
+            .register(meterRegistry);
+
+        HashedTimerWheel timerWheel = new HashedTimerWheel("chat-timer-wheel",
+            chatProperties.getTimerTickMillis(), chatProperties.getTimerWheelSize(),
+            lagNanos -> lagTimer.record(lagNanos, TimeUnit.NANOSECONDS));
+
+        FunctionCounter.builder("chat.timer.expirations", timerWheel, HashedTimerWheel::getExpiredTimeouts)
+            .description("已到期执行的定时任务数量")
+            .register(meterRegistry);
+        FunctionCounter.builder("chat.timer.cancellations", timerWheel, HashedTimerWheel::getCancelledTimeouts)
+            .description("已取消的定时任务数量")
+            .register(meterRegistry);
+        Gauge.builder("chat.timer.pending", timerWheel, HashedTimerWheel::getPendingTimeouts)
+            .description("尚未到期的定时任务数量")
+            .register(meterRegistry);
+
+        return timerWheel;
+    }
+}
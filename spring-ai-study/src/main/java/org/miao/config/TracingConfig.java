@@ -0,0 +1,40 @@
+package org.miao.config;
+
+import org.miao.tracing.FileSpanExporter;
+import org.miao.tracing.InMemorySpanExporter;
+import org.miao.tracing.SpanExporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * 链路追踪配置类
+ * 按tracing.exporter创建span导出器，追踪未启用时不创建文件
+ */
+@Configuration
+public class TracingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(TracingConfig.class);
+
+    @Bean
+    public SpanExporter spanExporter(TracingProperties tracingProperties) throws IOException {
+        logger.info("配置链路追踪，启用: {}, 导出方式: {}", tracingProperties.isEnabled(), tracingProperties.getExporter());
+        if (!tracingProperties.isEnabled()) {
+            return span -> { };
+        }
+        switch (tracingProperties.getExporter()) {
+            case TracingProperties.EXPORTER_MEMORY:
+                return new InMemorySpanExporter();
+            case TracingProperties.EXPORTER_NONE:
+                return span -> { };
+            case TracingProperties.EXPORTER_FILE:
+                return new FileSpanExporter(Paths.get(tracingProperties.getFile()), tracingProperties.getQueueSize());
+            default:
+                throw new IllegalStateException("不支持的span导出方式: " + tracingProperties.getExporter());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.miao.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * 链路追踪配置属性类
+ * 用于绑定application.properties中tracing前缀的配置
+ */
+@Component
+@ConfigurationProperties(prefix = "tracing")
+@Validated
+public class TracingProperties {
+
+    public static final String EXPORTER_FILE = "file";
+    public static final String EXPORTER_MEMORY = "memory";
+    public static final String EXPORTER_NONE = "none";
+
+    /**
+     * 是否记录span并向上游传播traceparent
+     */
+    private boolean enabled = true;
+
+    /**
+     * span导出方式：file（本地JSON行文件）、memory（内存，用于测试）、none（丢弃）。
+     * file导出的文件只追加不滚动，默认不开启
+     */
+    private String exporter = EXPORTER_NONE;
+
+    /**
+     * file导出方式的文件路径
+     */
+    private String file = "data/traces/spans.jsonl";
+
+    /**
+     * file导出方式的待写出队列容量，队列满时丢弃新的span
+     */
+    private int queueSize = 8192;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getExporter() {
+        return exporter;
+    }
+
+    public void setExporter(String exporter) {
+        this.exporter = exporter;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    @Override
+    public String toString() {
+        return "TracingProperties{" +
+                "enabled=" + enabled +
+                ", exporter='" + exporter + '\'' +
+                ", file='" + file + '\'' +
+                ", queueSize=" + queueSize +
+                '}';
+    }
+}
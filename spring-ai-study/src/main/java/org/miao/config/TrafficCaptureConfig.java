@@ -0,0 +1,34 @@
+package org.miao.config;
+
+import org.miao.replay.TrafficRecorder;
+import org.miao.replay.TrafficSanitizer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 上游流量录制配置类
+ * traffic-capture.enabled=true时创建TrafficRecorder，ApplicationConfig据此在上游客户端上挂载录制层；
+ * 录制文件可通过upstream-stub.replay-file交给桩服务回放
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "traffic-capture", name = "enabled", havingValue = "true")
+public class TrafficCaptureConfig {
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    @Bean(destroyMethod = "close")
+    public TrafficRecorder trafficRecorder(TrafficCaptureProperties trafficCaptureProperties) throws IOException {
+        Path file = Paths.get(trafficCaptureProperties.getDirectory())
+            .resolve("capture-" + LocalDateTime.now().format(FILE_TIMESTAMP) + ".trf");
+        return new TrafficRecorder(file, trafficCaptureProperties.getQueueSize(),
+            trafficCaptureProperties.getSampleRate(), trafficCaptureProperties.getMaxBodyBytes(),
+            new TrafficSanitizer(trafficCaptureProperties.isRedactContent()));
+    }
+}
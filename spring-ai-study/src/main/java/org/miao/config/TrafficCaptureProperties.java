@@ -0,0 +1,105 @@
+package org.miao.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * 上游流量录制配置属性类
+ * 用于绑定application.properties中traffic-capture前缀的配置（录制目录、采样率、脱敏、队列和大小上限）
+ */
+@Component
+@ConfigurationProperties(prefix = "traffic-capture")
+@Validated
+public class TrafficCaptureProperties {
+
+    /**
+     * 是否录制上游请求和响应
+     */
+    private boolean enabled = false;
+
+    /**
+     * 录制文件目录，每次启动写入一个capture-时间戳.trf文件
+     */
+    private String directory = "data/traffic";
+
+    /**
+     * 录制的上游调用比例
+     */
+    private double sampleRate = 1.0;
+
+    /**
+     * 是否把消息内容替换为等长的占位字符，关闭后录制原文
+     */
+    private boolean redactContent = true;
+
+    /**
+     * 等待写入的记录队列长度，队列满时丢弃新记录
+     */
+    private int queueSize = 1024;
+
+    /**
+     * 单条记录请求体和响应体的总字节数上限，超过时不录制
+     */
+    private int maxBodyBytes = 4 * 1024 * 1024;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public boolean isRedactContent() {
+        return redactContent;
+    }
+
+    public void setRedactContent(boolean redactContent) {
+        this.redactContent = redactContent;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public int getMaxBodyBytes() {
+        return maxBodyBytes;
+    }
+
+    public void setMaxBodyBytes(int maxBodyBytes) {
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "TrafficCaptureProperties{" +
+                "enabled=" + enabled +
+                ", directory='" + directory + '\'' +
+                ", sampleRate=" + sampleRate +
+                ", redactContent=" + redactContent +
+                ", queueSize=" + queueSize +
+                ", maxBodyBytes=" + maxBodyBytes +
+                '}';
+    }
+}
@@ -0,0 +1,43 @@
+package org.miao.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.boot.web.client.ClientHttpRequestFactories;
+import org.springframework.boot.web.client.ClientHttpRequestFactorySettings;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+
+/**
+ * 上游HTTP客户端构建工具
+ * 同步调用（RestClient）和流式调用（WebClient）设置相同的连接超时和读超时，
+ * 聊天调用（ApplicationConfig）和健康探测（UpstreamHealthMonitor）各自在返回的Builder上挂载需要的拦截器。
+ */
+public final class UpstreamClients {
+
+    private UpstreamClients() {
+    }
+
+    /**
+     * 同步调用的客户端，连接超时和读超时
+     */
+    public static RestClient.Builder restClientBuilder(Duration timeout) {
+        return RestClient.builder()
+            .requestFactory(ClientHttpRequestFactories.get(ClientHttpRequestFactorySettings.DEFAULTS
+                .withConnectTimeout(timeout)
+                .withReadTimeout(timeout)));
+    }
+
+    /**
+     * 流式调用的客户端
+     * responseTimeout是读取响应期间相邻两次网络读取的最长间隔，逐token输出的长响应不会因总时长超时
+     */
+    public static WebClient.Builder webClientBuilder(Duration timeout) {
+        HttpClient httpClient = HttpClient.create()
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) timeout.toMillis())
+            .responseTimeout(timeout);
+        return WebClient.builder().clientConnector(new ReactorClientHttpConnector(httpClient));
+    }
+}
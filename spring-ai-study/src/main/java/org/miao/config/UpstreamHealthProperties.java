@@ -0,0 +1,147 @@
+package org.miao.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * 上游健康探测配置属性类
+ * 用于绑定application.properties中upstream-health前缀的配置（探测周期、超时、滚动窗口和判定阈值）
+ */
+@Component
+@ConfigurationProperties(prefix = "upstream-health")
+@Validated
+public class UpstreamHealthProperties {
+
+    /**
+     * 是否定时探测上游模型
+     */
+    private boolean enabled = true;
+
+    /**
+     * 启动后首次探测的延迟（秒）
+     */
+    private long initialDelaySeconds = 10;
+
+    /**
+     * 探测周期（秒），每个周期依次探测所有配置的模型
+     */
+    private long intervalSeconds = 60;
+
+    /**
+     * 探测客户端的连接超时和读超时（秒），超时由HTTP客户端触发并记为一次失败
+     */
+    private long timeoutSeconds = 10;
+
+    /**
+     * 同时进行的探测数上限；每个模型同一时间最多一个探测，上一次未结束时跳过该模型的本轮探测
+     */
+    private int maxConcurrentProbes = 4;
+
+    /**
+     * 每个模型保留最近多少次探测结果用于统计
+     */
+    private int windowSize = 20;
+
+    /**
+     * 探测延迟的p95超过该值（毫秒）时判定为降级
+     */
+    private long degradedLatencyMillis = 5000;
+
+    /**
+     * 窗口内错误率达到该值时判定为降级
+     */
+    private double degradedErrorRate = 0.2;
+
+    /**
+     * 连续失败达到该次数时判定为不可用
+     */
+    private int downAfterFailures = 3;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getInitialDelaySeconds() {
+        return initialDelaySeconds;
+    }
+
+    public void setInitialDelaySeconds(long initialDelaySeconds) {
+        this.initialDelaySeconds = initialDelaySeconds;
+    }
+
+    public long getIntervalSeconds() {
+        return intervalSeconds;
+    }
+
+    public void setIntervalSeconds(long intervalSeconds) {
+        this.intervalSeconds = intervalSeconds;
+    }
+
+    public long getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    public void setTimeoutSeconds(long timeoutSeconds) {
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    public int getMaxConcurrentProbes() {
+        return maxConcurrentProbes;
+    }
+
+    public void setMaxConcurrentProbes(int maxConcurrentProbes) {
+        this.maxConcurrentProbes = maxConcurrentProbes;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public void setWindowSize(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    public long getDegradedLatencyMillis() {
+        return degradedLatencyMillis;
+    }
+
+    public void setDegradedLatencyMillis(long degradedLatencyMillis) {
+        this.degradedLatencyMillis = degradedLatencyMillis;
+    }
+
+    public double getDegradedErrorRate() {
+        return degradedErrorRate;
+    }
+
+    public void setDegradedErrorRate(double degradedErrorRate) {
+        this.degradedErrorRate = degradedErrorRate;
+    }
+
+    public int getDownAfterFailures() {
+        return downAfterFailures;
+    }
+
+    public void setDownAfterFailures(int downAfterFailures) {
+        this.downAfterFailures = downAfterFailures;
+    }
+
+    @Override
+    public String toString() {
+        return "UpstreamHealthProperties{" +
+                "enabled=" + enabled +
+                ", initialDelaySeconds=" + initialDelaySeconds +
+                ", intervalSeconds=" + intervalSeconds +
+                ", timeoutSeconds=" + timeoutSeconds +
+                ", maxConcurrentProbes=" + maxConcurrentProbes +
+                ", windowSize=" + windowSize +
+                ", degradedLatencyMillis=" + degradedLatencyMillis +
+                ", degradedErrorRate=" + degradedErrorRate +
+                ", downAfterFailures=" + downAfterFailures +
+                '}';
+    }
+}
@@ -0,0 +1,20 @@
+package org.miao.config;
+
+import org.miao.stub.UpstreamStubServer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 上游桩服务配置类
+ * upstream-stub.enabled=true时在本进程内启动OpenAI兼容的桩服务，配合stub profile将openrouter.base-url指向它
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "upstream-stub", name = "enabled", havingValue = "true")
+public class UpstreamStubConfig {
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public UpstreamStubServer upstreamStubServer(UpstreamStubProperties upstreamStubProperties) {
+        return new UpstreamStubServer(upstreamStubProperties);
+    }
+}
@@ -0,0 +1,222 @@
+package org.miao.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * 上游桩服务配置属性类
+ * 用于绑定application.properties中upstream-stub前缀的配置（端口、延迟分布、错误和限流注入、流式片段节奏）
+ */
+@Component
+@ConfigurationProperties(prefix = "upstream-stub")
+@Validated
+public class UpstreamStubProperties {
+
+    public static final String LATENCY_FIXED = "fixed";
+    public static final String LATENCY_UNIFORM = "uniform";
+    public static final String LATENCY_LOGNORMAL = "lognormal";
+
+    /**
+     * 是否在本进程内启动上游桩服务
+     */
+    private boolean enabled = false;
+
+    /**
+     * 桩服务监听端口，0表示随机端口
+     */
+    private int port = 18080;
+
+    /**
+     * 处理请求的线程数，延迟期间线程处于睡眠，需不小于压测的并发数
+     */
+    private int workerThreads = 256;
+
+    /**
+     * 响应延迟分布：fixed（固定）、uniform（均匀）、lognormal（对数正态，长尾）
+     */
+    private String latencyDistribution = LATENCY_FIXED;
+
+    /**
+     * fixed的延迟、uniform的下限、lognormal的中位数（毫秒）
+     */
+    private long latencyMillis = 200;
+
+    /**
+     * uniform的上限，同时是所有分布的截断值（毫秒）
+     */
+    private long latencyMaxMillis = 2000;
+
+    /**
+     * lognormal的形状参数，越大尾部越长
+     */
+    private double latencySigma = 0.5;
+
+    /**
+     * 返回500的请求比例
+     */
+    private double errorRate = 0.0;
+
+    /**
+     * 返回429的请求比例
+     */
+    private double rateLimitRate = 0.0;
+
+    /**
+     * 429响应的Retry-After头（秒）
+     */
+    private int retryAfterSeconds = 1;
+
+    /**
+     * 流式响应的内容片段数，非流式响应的内容由同样数量的片段拼接
+     */
+    private int streamChunks = 20;
+
+    /**
+     * 流式响应相邻片段的间隔（毫秒），首个片段在采样的延迟之后发出
+     */
+    private long streamChunkIntervalMillis = 20;
+
+    /**
+     * 随机数种子，第n个请求的延迟和错误注入只由种子和n决定，便于复现
+     */
+    private long seed = 42;
+
+    /**
+     * 回放的流量录制文件（见traffic-capture），为空时生成合成响应；
+     * 回放时按录制的状态码、响应体和耗时返回，流式和非流式请求各自按顺序循环使用录制的记录
+     */
+    private String replayFile = "";
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
+    public String getLatencyDistribution() {
+        return latencyDistribution;
+    }
+
+    public void setLatencyDistribution(String latencyDistribution) {
+        this.latencyDistribution = latencyDistribution;
+    }
+
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    public long getLatencyMaxMillis() {
+        return latencyMaxMillis;
+    }
+
+    public void setLatencyMaxMillis(long latencyMaxMillis) {
+        this.latencyMaxMillis = latencyMaxMillis;
+    }
+
+    public double getLatencySigma() {
+        return latencySigma;
+    }
+
+    public void setLatencySigma(double latencySigma) {
+        this.latencySigma = latencySigma;
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    public double getRateLimitRate() {
+        return rateLimitRate;
+    }
+
+    public void setRateLimitRate(double rateLimitRate) {
+        this.rateLimitRate = rateLimitRate;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public void setRetryAfterSeconds(int retryAfterSeconds) {
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getStreamChunks() {
+        return streamChunks;
+    }
+
+    public void setStreamChunks(int streamChunks) {
+        this.streamChunks = streamChunks;
+    }
+
+    public long getStreamChunkIntervalMillis() {
+        return streamChunkIntervalMillis;
+    }
+
+    public void setStreamChunkIntervalMillis(long streamChunkIntervalMillis) {
+        this.streamChunkIntervalMillis = streamChunkIntervalMillis;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public String getReplayFile() {
+        return replayFile;
+    }
+
+    public void setReplayFile(String replayFile) {
+        this.replayFile = replayFile;
+    }
+
+    @Override
+    public String toString() {
+        return "UpstreamStubProperties{" +
+                "enabled=" + enabled +
+                ", port=" + port +
+                ", workerThreads=" + workerThreads +
+                ", latencyDistribution='" + latencyDistribution + '\'' +
+                ", latencyMillis=" + latencyMillis +
+                ", latencyMaxMillis=" + latencyMaxMillis +
+                ", latencySigma=" + latencySigma +
+                ", errorRate=" + errorRate +
+                ", rateLimitRate=" + rateLimitRate +
+                ", retryAfterSeconds=" + retryAfterSeconds +
+                ", streamChunks=" + streamChunks +
+                ", streamChunkIntervalMillis=" + streamChunkIntervalMillis +
+                ", seed=" + seed +
+                ", replayFile='" + replayFile + '\'' +
+                '}';
+    }
+}
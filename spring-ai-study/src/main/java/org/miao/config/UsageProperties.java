@@ -0,0 +1,116 @@
+package org.miao.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * token用量与费用统计配置属性类
+ * 用于绑定application.properties中usage前缀的配置（各模型的单价）
+ *
+ * 模型名含有"/"和":"，配置时需用方括号，例如 usage.prices.[openai/gpt-4].prompt-per-million=30
+ */
+@Component
+@ConfigurationProperties(prefix = "usage")
+@Validated
+public class UsageProperties {
+
+    /**
+     * 是否统计token用量和费用
+     */
+    private boolean enabled = true;
+
+    /**
+     * 价格表未配置的模型使用的输入单价（美元/百万token）
+     */
+    private double defaultPromptPerMillion = 0;
+
+    /**
+     * 价格表未配置的模型使用的输出单价（美元/百万token）
+     */
+    private double defaultCompletionPerMillion = 0;
+
+    /**
+     * 各模型的单价，键为模型名
+     */
+    private Map<String, Price> prices = new HashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getDefaultPromptPerMillion() {
+        return defaultPromptPerMillion;
+    }
+
+    public void setDefaultPromptPerMillion(double defaultPromptPerMillion) {
+        this.defaultPromptPerMillion = defaultPromptPerMillion;
+    }
+
+    public double getDefaultCompletionPerMillion() {
+        return defaultCompletionPerMillion;
+    }
+
+    public void setDefaultCompletionPerMillion(double defaultCompletionPerMillion) {
+        this.defaultCompletionPerMillion = defaultCompletionPerMillion;
+    }
+
+    public Map<String, Price> getPrices() {
+        return prices;
+    }
+
+    public void setPrices(Map<String, Price> prices) {
+        this.prices = prices;
+    }
+
+    @Override
+    public String toString() {
+        return "UsageProperties{" +
+                "enabled=" + enabled +
+                ", defaultPromptPerMillion=" + defaultPromptPerMillion +
+                ", defaultCompletionPerMillion=" + defaultCompletionPerMillion +
+                ", prices=" + prices +
+                '}';
+    }
+
+    /**
+     * 单个模型的单价（美元/百万token）
+     */
+    public static class Price {
+
+        private double promptPerMillion;
+
+        private double completionPerMillion;
+
+        public double getPromptPerMillion() {
+            return promptPerMillion;
+        }
+
+        public void setPromptPerMillion(double promptPerMillion) {
+            this.promptPerMillion = promptPerMillion;
+        }
+
+        public double getCompletionPerMillion() {
+            return completionPerMillion;
+        }
+
+        public void setCompletionPerMillion(double completionPerMillion) {
+            this.completionPerMillion = completionPerMillion;
+        }
+
+        @Override
+        public String toString() {
+            return "Price{" +
+                    "promptPerMillion=" + promptPerMillion +
+                    ", completionPerMillion=" + completionPerMillion +
+                    '}';
+        }
+    }
+}
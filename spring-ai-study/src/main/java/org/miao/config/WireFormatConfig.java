@@ -0,0 +1,39 @@
+package org.miao.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * 二进制传输格式配置类
+ * 内部服务可以用Smile（application/x-jackson-smile）或CBOR（application/cbor）代替JSON调用/api接口：
+ * 请求体按Content-Type解析，响应按Accept协商，未指定时仍返回JSON。
+ * 两种格式的ObjectMapper与JSON共用spring.jackson配置（日期格式、模块等），只是不缩进；
+ * 字段和结构与JSON完全一致，客户端用对应格式的Jackson ObjectMapper读写同样的DTO即可。
+ * 流式接口仍以SSE返回，请求体同样可以使用二进制格式。
+ */
+@Configuration
+public class WireFormatConfig {
+
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+    public static final String CBOR_VALUE = "application/cbor";
+
+    /**
+     * 注册为Bean后替换Spring MVC默认的Smile转换器，排在JSON转换器之后
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(
+            builder.factory(new SmileFactory()).indentOutput(false).build());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(
+            builder.factory(new CBORFactory()).indentOutput(false).build());
+    }
+}
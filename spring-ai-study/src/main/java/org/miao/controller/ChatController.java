@@ -2,12 +2,15 @@ package org.miao.controller;
 
 import org.miao.dto.ChatRequest;
 import org.miao.dto.ChatResponse;
+import org.miao.metrics.RequestTimings;
 import org.miao.service.ChatService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 
 import java.util.List;
 
@@ -34,22 +37,46 @@ public class ChatController {
      * 处理聊天消息的POST端点
      * 
      * @param request 聊天请求对象
+     * @param timings 为true时在响应体中附带各阶段耗时（不含序列化和总耗时，这两项只在Server-Timing响应头中）
      * @return 聊天响应
      */
     @PostMapping("/chat")
-    public ResponseEntity<ChatResponse> chat(@RequestBody ChatRequest request) {
-        logger.info("收到聊天请求 - 消息长度: {}, 指定模型: {}", 
+    public ResponseEntity<ChatResponse> chat(@RequestBody ChatRequest request,
+                                             @RequestParam(defaultValue = "false") boolean timings) {
+        // 过滤器开始计时到进入控制器：请求读取和JSON反序列化
+        RequestTimings.recordSinceStart("parse");
+        logger.debug("收到聊天请求 - 消息长度: {}, 指定模型: {}", 
                    request.getMessage() != null ? request.getMessage().length() : 0,
                    request.getModel());
         
         ChatResponse response = chatService.sendMessage(request);
-        logger.info("聊天请求处理成功 - 响应长度: {}, 使用模型: {}", 
+        logger.debug("聊天请求处理成功 - 响应长度: {}, 使用模型: {}", 
                    response.getResponse() != null ? response.getResponse().length() : 0,
                    response.getModel());
         
+        RequestTimings current = RequestTimings.current();
+        if (timings && current != null) {
+            response.setTimings(current.toMillis());
+        }
+        RequestTimings.handlerCompleted();
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * 流式聊天的POST端点，以Server-Sent Events逐段返回响应内容
+     * 
+     * @param request 聊天请求对象
+     * @return 响应内容片段流
+     */
+    @PostMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<String> chatStream(@RequestBody ChatRequest request) {
+        logger.debug("收到流式聊天请求 - 消息长度: {}, 指定模型: {}", 
+                   request.getMessage() != null ? request.getMessage().length() : 0,
+                   request.getModel());
+        
+        return chatService.streamMessage(request);
+    }
+
     /**
      * 获取可用模型列表的GET端点
      * 
@@ -0,0 +1,53 @@
+package org.miao.controller;
+
+import org.miao.dto.IngestionRequest;
+import org.miao.ingestion.IngestionJob;
+import org.miao.ingestion.IngestionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * 文档导入REST API控制器
+ * 提交目录导入任务并查询任务进度
+ */
+@RestController
+@RequestMapping("/api/ingestion")
+public class IngestionController {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestionController.class);
+
+    private final IngestionService ingestionService;
+
+    @Autowired
+    public IngestionController(IngestionService ingestionService) {
+        this.ingestionService = ingestionService;
+    }
+
+    /**
+     * 启动目录导入任务，任务在后台运行
+     *
+     * @param request 导入请求
+     * @return 新建的导入任务
+     */
+    @PostMapping
+    public ResponseEntity<IngestionJob> start(@RequestBody IngestionRequest request) {
+        logger.info("收到文档导入请求 - 目录: {}", request.getDirectory());
+        IngestionJob job = ingestionService.start(request.getDirectory());
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+
+    /**
+     * 查询当前导入任务的进度和各阶段吞吐
+     *
+     * @return 当前任务，未运行过导入时返回204
+     */
+    @GetMapping
+    public ResponseEntity<IngestionJob> current() {
+        IngestionJob job = ingestionService.getCurrentJob();
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,123 @@
+package org.miao.conversation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * 内存中的单个会话
+ * 只保留最近的若干条消息，所有访问都在对象锁内完成。
+ * 会话有热、冷两种形态：空闲一段时间后消息被压缩为字节数组（冷），下次访问时再解压（热）。
+ */
+public class Conversation {
+
+    /**
+     * 冷热转换的监听器，用于统计各层大小和解压耗时
+     */
+    public interface TierListener {
+
+        void compressed(int rawBytes, int compressedBytes);
+
+        void rehydrated(int rawBytes, int compressedBytes, long nanos);
+    }
+
+    private final String id;
+    private final int maxTurns;
+    private TierListener listener;
+    private Deque<ConversationTurn> turns = new ArrayDeque<>();
+    private byte[] compressed;
+    private int rawBytes;
+    private volatile long lastAccessMillis;
+
+    public Conversation(String id, int maxTurns, TierListener listener) {
+        this.id = id;
+        this.maxTurns = maxTurns;
+        this.listener = listener;
+        this.lastAccessMillis = System.currentTimeMillis();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public long getLastAccessMillis() {
+        return lastAccessMillis;
+    }
+
+    public void touch() {
+        lastAccessMillis = System.currentTimeMillis();
+    }
+
+    public synchronized void add(ConversationTurn turn) {
+        rehydrate();
+        turns.addLast(turn);
+        while (turns.size() > maxTurns) {
+            turns.removeFirst();
+        }
+    }
+
+    public synchronized List<ConversationTurn> snapshot() {
+        rehydrate();
+        return new ArrayList<>(turns);
+    }
+
+    public synchronized boolean isCold() {
+        return compressed != null;
+    }
+
+    /**
+     * 冷存储占用的字节数，热会话返回0
+     */
+    public synchronized int getCompressedBytes() {
+        return compressed != null ? compressed.length : 0;
+    }
+
+    /**
+     * 冷存储对应的未压缩字节数，热会话返回0
+     */
+    public synchronized int getRawBytes() {
+        return compressed != null ? rawBytes : 0;
+    }
+
+    /**
+     * 在空闲时间仍满足条件时压缩会话
+     * 在锁内重新检查最后访问时间，避免与刚到达的请求竞争
+     *
+     * @return 是否进行了压缩
+     */
+    public synchronized boolean compressIfIdle(long idleMillis, int level) {
+        if (compressed != null || turns.isEmpty()
+                || System.currentTimeMillis() - lastAccessMillis < idleMillis) {
+            return false;
+        }
+        ConversationCodec.Encoded encoded = ConversationCodec.encode(turns, level);
+        compressed = encoded.getBytes();
+        rawBytes = encoded.getRawBytes();
+        turns = null;
+        if (listener != null) {
+            listener.compressed(rawBytes, compressed.length);
+        }
+        return true;
+    }
+
+    /**
+     * 会话被移除后调用，不再产生冷热统计回调
+     */
+    public synchronized void detach() {
+        listener = null;
+    }
+
+    private void rehydrate() {
+        if (compressed == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        turns = new ArrayDeque<>(ConversationCodec.decode(compressed));
+        int compressedBytes = compressed.length;
+        compressed = null;
+        if (listener != null) {
+            listener.rehydrated(rawBytes, compressedBytes, System.nanoTime() - start);
+        }
+    }
+}
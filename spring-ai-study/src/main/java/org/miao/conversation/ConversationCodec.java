@@ -0,0 +1,113 @@
+package org.miao.conversation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 会话历史编解码器
+ * 把消息列表序列化为紧凑的二进制格式并用Deflate压缩，用于冷存储空闲会话
+ *
+ * 未压缩格式：[int 消息数]，每条消息为[byte 角色][long 时间戳][int 内容长度][UTF-8内容]
+ */
+public final class ConversationCodec {
+
+    private ConversationCodec() {
+    }
+
+    /**
+     * 压缩消息列表
+     *
+     * @param turns 消息列表
+     * @param level Deflate压缩级别（0-9）
+     */
+    public static Encoded encode(Collection<ConversationTurn> turns, int level) {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(raw)) {
+            out.writeInt(turns.size());
+            for (ConversationTurn turn : turns) {
+                byte[] content = turn.getContent() != null
+                    ? turn.getContent().getBytes(StandardCharsets.UTF_8) : new byte[0];
+                out.writeByte(turn.getRole().ordinal());
+                out.writeLong(turn.getTimestamp());
+                out.writeInt(content.length);
+                out.write(content);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Deflater deflater = new Deflater(level);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, raw.size() / 2));
+        try (DeflaterOutputStream out = new DeflaterOutputStream(compressed, deflater)) {
+            raw.writeTo(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deflater.end();
+        }
+        return new Encoded(compressed.toByteArray(), raw.size());
+    }
+
+    /**
+     * 解压消息列表
+     */
+    public static List<ConversationTurn> decode(byte[] compressed) {
+        Inflater inflater = new Inflater();
+        try (DataInputStream in = new DataInputStream(
+                new InflaterInputStream(new ByteArrayInputStream(compressed), inflater))) {
+            int count = in.readInt();
+            List<ConversationTurn> turns = new ArrayList<>(count);
+            ConversationTurn.Role[] roles = ConversationTurn.Role.values();
+            for (int i = 0; i < count; i++) {
+                ConversationTurn.Role role = roles[in.readByte()];
+                long timestamp = in.readLong();
+                byte[] content = new byte[in.readInt()];
+                in.readFully(content);
+                turns.add(new ConversationTurn(role, new String(content, StandardCharsets.UTF_8), timestamp));
+            }
+            return turns;
+        } catch (IOException e) {
+            throw new UncheckedIOException("会话历史解压失败", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * 压缩结果
+     */
+    public static final class Encoded {
+
+        private final byte[] bytes;
+        private final int rawBytes;
+
+        private Encoded(byte[] bytes, int rawBytes) {
+            this.bytes = bytes;
+            this.rawBytes = rawBytes;
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        public int getRawBytes() {
+            return rawBytes;
+        }
+
+        public double getRatio() {
+            return bytes.length == 0 ? 1.0 : (double) rawBytes / bytes.length;
+        }
+    }
+}
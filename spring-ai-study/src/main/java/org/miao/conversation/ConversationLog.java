@@ -0,0 +1,614 @@
+package org.miao.conversation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * 会话预写日志（WAL）
+ * 以追加方式把会话消息写入分段日志文件，由后台线程按批次合并写入并统一fsync（group commit），
+ * 调用方只需入队即可返回，不会为每条消息等待磁盘同步。
+ *
+ * 记录格式：[int 负载长度][int CRC32][负载]，
+ * 负载为：[long 序号][long 时间戳][byte 类型][byte 角色][int 会话ID长度][会话ID][int 内容长度][内容]。
+ * 日志段以首条记录的序号命名，重放时按序号顺序读取，遇到损坏的尾部记录会截断。
+ * 已封存的日志段数量达到阈值时会被压缩为一个段，只保留未删除会话的最近若干条消息。
+ */
+public class ConversationLog implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationLog.class);
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String COMPACTING_SUFFIX = ".compacting";
+    private static final int HEADER_BYTES = 8;
+    private static final int FIXED_PAYLOAD_BYTES = 8 + 8 + 1 + 1 + 4 + 4;
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+    private static final int QUEUE_CAPACITY = 65536;
+    private static final long ENQUEUE_RETRY_MILLIS = 100;
+
+    private static final byte TYPE_APPEND = 1;
+    private static final byte TYPE_DELETE = 2;
+
+    private final Path directory;
+    private final long segmentSizeBytes;
+    private final int maxBatchSize;
+    private final long flushIntervalNanos;
+    private final int compactionThreshold;
+    private final int maxTurnsPerConversation;
+
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+
+    // 以下字段在start()之后只由写线程访问
+    private final List<Path> sealedSegments = new ArrayList<>();
+    private Path activeSegment;
+    private FileChannel activeChannel;
+    private long nextSequence = 1;
+    private boolean opened;
+
+    private volatile boolean running;
+    private volatile int segmentCount;
+    private volatile long lastFlushNanos;
+    private Thread writerThread;
+
+    private final AtomicLong appendedEntries = new AtomicLong();
+    private final AtomicLong flushedBatches = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+
+    public ConversationLog(Path directory, long segmentSizeBytes, int maxBatchSize,
+                           long flushIntervalMillis, int compactionThreshold, int maxTurnsPerConversation) {
+        if (segmentSizeBytes <= 0 || maxBatchSize <= 0 || flushIntervalMillis < 0
+                || compactionThreshold < 2 || maxTurnsPerConversation <= 0) {
+            throw new IllegalArgumentException("会话日志参数无效");
+        }
+        this.directory = directory;
+        this.segmentSizeBytes = segmentSizeBytes;
+        this.maxBatchSize = maxBatchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMillis));
+        this.compactionThreshold = compactionThreshold;
+        this.maxTurnsPerConversation = maxTurnsPerConversation;
+    }
+
+    /**
+     * 重放日志中的全部有效记录，必须在start()之前调用
+     *
+     * @param consumer 按序号顺序接收记录
+     * @return 重放的记录数量
+     */
+    public synchronized long replay(Consumer<Entry> consumer) throws IOException {
+        if (running || opened) {
+            throw new IllegalStateException("会话日志已启动，不能再重放");
+        }
+        Files.createDirectories(directory);
+        deleteStaleCompactionFiles();
+
+        List<Path> segments = listSegments();
+        long[] lastApplied = {0};
+        long[] replayed = {0};
+        for (int i = 0; i < segments.size(); i++) {
+            Path segment = segments.get(i);
+            long validLength = readSegment(segment, entry -> {
+                // 压缩过程中崩溃可能留下与压缩段重复的旧段，按序号去重
+                if (entry.sequence <= lastApplied[0]) {
+                    return;
+                }
+                lastApplied[0] = entry.sequence;
+                replayed[0]++;
+                consumer.accept(entry);
+            });
+            if (validLength < Files.size(segment)) {
+                logger.warn("会话日志段存在损坏的尾部记录，截断到 {} 字节: {}", validLength, segment);
+                try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                    channel.truncate(validLength);
+                    channel.force(true);
+                }
+            }
+        }
+
+        nextSequence = lastApplied[0] + 1;
+        openSegments(segments);
+        logger.info("会话日志重放完成 - 日志段: {}, 记录数: {}, 下一序号: {}",
+                   segments.size(), replayed[0], nextSequence);
+        return replayed[0];
+    }
+
+    /**
+     * 启动后台写线程
+     */
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        if (!opened) {
+            replay(entry -> { });
+        }
+        running = true;
+        writerThread = new Thread(this::runWriter, "conversation-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * 追加一条记录，立即返回
+     * 返回的Future在记录所在批次fsync完成后完成；与close()并发时Future以异常完成，不会一直挂起
+     */
+    public CompletableFuture<Void> append(Entry entry) {
+        if (!running) {
+            throw new IllegalStateException("会话日志未启动");
+        }
+        PendingWrite write = new PendingWrite(entry);
+        try {
+            // 队列已满时阻塞调用方形成背压，但定期检查是否已关闭，避免关闭后永远等待
+            while (!queue.offer(write, ENQUEUE_RETRY_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (!running) {
+                    write.future.completeExceptionally(new IllegalStateException("会话日志已关闭"));
+                    return write.future;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            write.future.completeExceptionally(e);
+            return write.future;
+        }
+        // 入队前close()可能已经清空了队列，此时写线程和close()都不会再处理这条记录；
+        // 由remove()和close()中的poll()决定谁来完成Future，保证恰好完成一次
+        if (!running && queue.remove(write)) {
+            write.future.completeExceptionally(new IllegalStateException("会话日志已关闭"));
+        }
+        return write.future;
+    }
+
+    /**
+     * 停止写线程，写完队列中剩余的记录后关闭文件
+     */
+    @Override
+    public synchronized void close() {
+        if (running) {
+            running = false;
+            try {
+                // 不能中断写线程，否则FileChannel会因ClosedByInterruptException被关闭
+                writerThread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        PendingWrite remaining;
+        while ((remaining = queue.poll()) != null) {
+            remaining.future.completeExceptionally(new IllegalStateException("会话日志已关闭"));
+        }
+        closeActiveChannel();
+    }
+
+    public long getAppendedEntries() {
+        return appendedEntries.get();
+    }
+
+    public long getFlushedBatches() {
+        return flushedBatches.get();
+    }
+
+    public long getCompactions() {
+        return compactions.get();
+    }
+
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    public int getPendingWrites() {
+        return queue.size();
+    }
+
+    public long getLastFlushNanos() {
+        return lastFlushNanos;
+    }
+
+    private void runWriter() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    maybeCompact();
+                    continue;
+                }
+                batch.add(first);
+                // 在刷盘间隔内尽量攒批，合并为一次fsync
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < maxBatchSize && running) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                queue.drainTo(batch, maxBatchSize - batch.size());
+                writeBatch(batch);
+                maybeCompact();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.error("会话日志写线程被中断");
+                failAll(batch, e);
+                return;
+            } catch (IOException | RuntimeException e) {
+                logger.error("会话日志写入失败: {}", e.getMessage(), e);
+                failAll(batch, e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingWrite> batch) throws IOException {
+        long start = System.nanoTime();
+        long startSequence = nextSequence;
+        long startPosition = activeChannel.position();
+        try {
+            ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+            for (int i = 0; i < batch.size(); i++) {
+                buffers[i] = encode(batch.get(i).entry, nextSequence++);
+            }
+            long remaining = 0;
+            for (ByteBuffer buffer : buffers) {
+                remaining += buffer.remaining();
+            }
+            while (remaining > 0) {
+                remaining -= activeChannel.write(buffers);
+            }
+            activeChannel.force(false);
+        } catch (IOException | RuntimeException e) {
+            discardFailedBatch(startPosition, startSequence);
+            throw e;
+        }
+
+        lastFlushNanos = System.nanoTime() - start;
+        appendedEntries.addAndGet(batch.size());
+        flushedBatches.incrementAndGet();
+        for (PendingWrite write : batch) {
+            write.future.complete(null);
+        }
+
+        if (activeChannel.size() >= segmentSizeBytes) {
+            rollSegment();
+        }
+    }
+
+    /**
+     * 批次写入或fsync失败后回退：截断掉已写出的部分记录并回退序号。
+     * 否则残缺记录留在日志段中间，重放时会在此处截断，之后成功写入的记录全部丢失
+     */
+    private void discardFailedBatch(long startPosition, long startSequence) {
+        nextSequence = startSequence;
+        try {
+            activeChannel.truncate(startPosition);
+            activeChannel.position(startPosition);
+            return;
+        } catch (IOException e) {
+            logger.warn("回退会话日志段失败，改为滚动到新日志段: {}", e.getMessage());
+        }
+        try {
+            if (startPosition == 0) {
+                // 日志段中只有本批次的数据，新段会与它同名，直接重建
+                closeActiveChannel();
+                activeChannel = FileChannel.open(activeSegment, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            } else {
+                // 残缺记录留在封存段尾部，重放时截断，不影响新段中的记录
+                rollSegment();
+            }
+        } catch (IOException e) {
+            logger.error("滚动会话日志段失败: {}", e.getMessage(), e);
+        }
+    }
+
+    private void rollSegment() throws IOException {
+        closeActiveChannel();
+        sealedSegments.add(activeSegment);
+        activeSegment = segmentPath(nextSequence);
+        activeChannel = openForAppend(activeSegment);
+        segmentCount = sealedSegments.size() + 1;
+        logger.debug("会话日志段滚动: {}", activeSegment.getFileName());
+    }
+
+    private void maybeCompact() throws IOException {
+        if (sealedSegments.size() >= compactionThreshold) {
+            compact();
+        }
+    }
+
+    /**
+     * 把全部已封存日志段压缩为一个段
+     * 压缩结果先写入临时文件并fsync，再原子替换第一个段，最后删除其余旧段
+     */
+    private void compact() throws IOException {
+        long start = System.nanoTime();
+        List<Path> segments = new ArrayList<>(sealedSegments);
+
+        Map<String, Deque<Entry>> live = new LinkedHashMap<>();
+        long[] lastApplied = {0};
+        int before = 0;
+        for (Path segment : segments) {
+            readSegment(segment, entry -> {
+                if (entry.sequence <= lastApplied[0]) {
+                    return;
+                }
+                lastApplied[0] = entry.sequence;
+                if (entry.isDelete()) {
+                    live.remove(entry.conversationId);
+                    return;
+                }
+                Deque<Entry> turns = live.computeIfAbsent(entry.conversationId, id -> new ArrayDeque<>());
+                turns.addLast(entry);
+                while (turns.size() > maxTurnsPerConversation) {
+                    turns.removeFirst();
+                }
+            });
+            before++;
+        }
+
+        List<Entry> survivors = new ArrayList<>();
+        for (Deque<Entry> turns : live.values()) {
+            survivors.addAll(turns);
+        }
+        survivors.sort(Comparator.comparingLong(entry -> entry.sequence));
+
+        Path target = segments.get(0);
+        Path temp = directory.resolve(target.getFileName() + COMPACTING_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Entry entry : survivors) {
+                ByteBuffer buffer = encode(entry, entry.sequence);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        for (int i = 1; i < segments.size(); i++) {
+            Files.deleteIfExists(segments.get(i));
+        }
+
+        sealedSegments.clear();
+        sealedSegments.add(target);
+        segmentCount = sealedSegments.size() + 1;
+        compactions.incrementAndGet();
+        logger.info("会话日志压缩完成 - 合并日志段: {}, 保留会话: {}, 保留记录: {}, 耗时: {}ms",
+                   before, live.size(), survivors.size(),
+                   TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void openSegments(List<Path> segments) throws IOException {
+        sealedSegments.clear();
+        if (segments.isEmpty() || Files.size(segments.get(segments.size() - 1)) >= segmentSizeBytes) {
+            sealedSegments.addAll(segments);
+            activeSegment = segmentPath(nextSequence);
+        } else {
+            sealedSegments.addAll(segments.subList(0, segments.size() - 1));
+            activeSegment = segments.get(segments.size() - 1);
+        }
+        activeChannel = openForAppend(activeSegment);
+        segmentCount = sealedSegments.size() + 1;
+        opened = true;
+    }
+
+    /**
+     * 以追加方式打开日志段，测试中可覆盖以注入写入失败
+     */
+    FileChannel openForAppend(Path segment) throws IOException {
+        FileChannel channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        return channel;
+    }
+
+    private void closeActiveChannel() {
+        if (activeChannel != null && activeChannel.isOpen()) {
+            try {
+                activeChannel.force(false);
+                activeChannel.close();
+            } catch (IOException e) {
+                logger.warn("关闭会话日志段失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                segments.add(path);
+            }
+        }
+        segments.sort(Comparator.comparingLong(ConversationLog::segmentBase));
+        return segments;
+    }
+
+    private void deleteStaleCompactionFiles() throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + COMPACTING_SUFFIX)) {
+            for (Path path : stream) {
+                logger.warn("删除未完成的压缩文件: {}", path);
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private Path segmentPath(long baseSequence) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, baseSequence, SEGMENT_SUFFIX));
+    }
+
+    private static long segmentBase(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * 顺序读取一个日志段
+     *
+     * @return 最后一条有效记录结束处的字节偏移
+     */
+    private static long readSegment(Path segment, Consumer<Entry> consumer) throws IOException {
+        long position = 0;
+        CRC32 crc = new CRC32();
+        try (InputStream input = Files.newInputStream(segment);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(input, 64 * 1024))) {
+            while (true) {
+                int length;
+                int checksum;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    if (length < FIXED_PAYLOAD_BYTES || length > MAX_RECORD_BYTES) {
+                        return position;
+                    }
+                    checksum = in.readInt();
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    return position;
+                }
+                crc.reset();
+                crc.update(payload, 0, payload.length);
+                if ((int) crc.getValue() != checksum) {
+                    return position;
+                }
+                consumer.accept(decode(ByteBuffer.wrap(payload)));
+                position += HEADER_BYTES + length;
+            }
+        }
+    }
+
+    private static ByteBuffer encode(Entry entry, long sequence) {
+        byte[] id = entry.conversationId.getBytes(StandardCharsets.UTF_8);
+        byte[] content = entry.turn != null && entry.turn.getContent() != null
+            ? entry.turn.getContent().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        int length = FIXED_PAYLOAD_BYTES + id.length + content.length;
+        if (length > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("会话日志记录过大: " + length + " 字节");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + length);
+        buffer.position(HEADER_BYTES);
+        buffer.putLong(sequence);
+        buffer.putLong(entry.turn != null ? entry.turn.getTimestamp() : System.currentTimeMillis());
+        buffer.put(entry.isDelete() ? TYPE_DELETE : TYPE_APPEND);
+        buffer.put(entry.turn != null ? (byte) entry.turn.getRole().ordinal() : 0);
+        buffer.putInt(id.length);
+        buffer.put(id);
+        buffer.putInt(content.length);
+        buffer.put(content);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_BYTES, length);
+        buffer.putInt(0, length);
+        buffer.putInt(4, (int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    private static Entry decode(ByteBuffer payload) {
+        long sequence = payload.getLong();
+        long timestamp = payload.getLong();
+        byte type = payload.get();
+        byte role = payload.get();
+        byte[] id = new byte[payload.getInt()];
+        payload.get(id);
+        byte[] content = new byte[payload.getInt()];
+        payload.get(content);
+
+        String conversationId = new String(id, StandardCharsets.UTF_8);
+        if (type == TYPE_DELETE) {
+            return new Entry(sequence, conversationId, null);
+        }
+        ConversationTurn turn = new ConversationTurn(ConversationTurn.Role.values()[role],
+            new String(content, StandardCharsets.UTF_8), timestamp);
+        return new Entry(sequence, conversationId, turn);
+    }
+
+    private static void failAll(List<PendingWrite> batch, Throwable cause) {
+        for (PendingWrite write : batch) {
+            write.future.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * 日志记录：追加一条会话消息，或删除整个会话（turn为null）
+     */
+    public static final class Entry {
+
+        private final long sequence;
+        private final String conversationId;
+        private final ConversationTurn turn;
+
+        private Entry(long sequence, String conversationId, ConversationTurn turn) {
+            this.sequence = sequence;
+            this.conversationId = conversationId;
+            this.turn = turn;
+        }
+
+        public static Entry append(String conversationId, ConversationTurn turn) {
+            return new Entry(0, conversationId, turn);
+        }
+
+        public static Entry delete(String conversationId) {
+            return new Entry(0, conversationId, null);
+        }
+
+        public boolean isDelete() {
+            return turn == null;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public String getConversationId() {
+            return conversationId;
+        }
+
+        public ConversationTurn getTurn() {
+            return turn;
+        }
+    }
+
+    private static final class PendingWrite {
+        private final Entry entry;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private PendingWrite(Entry entry) {
+            this.entry = entry;
+        }
+    }
+}
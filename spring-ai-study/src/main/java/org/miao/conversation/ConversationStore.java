@@ -0,0 +1,311 @@
+package org.miao.conversation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.miao.config.ConversationProperties;
+import org.miao.support.HashedTimerWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 会话存储
+ * 在内存中维护多轮对话历史，并通过预写日志异步持久化，应用重启时从日志重放恢复会话。
+ * 空闲淘汰由时间轮驱动：每个会话只挂一个定时任务，到期时若期间被访问过则按剩余时间重新挂上。
+ * 空闲超过cold-after-minutes的会话被压缩为冷存储，下次访问时自动解压，淘汰前仍可恢复。
+ */
+@Component
+public class ConversationStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationStore.class);
+
+    private final ConversationProperties properties;
+    private final HashedTimerWheel timerWheel;
+    private final ConcurrentMap<String, Conversation> conversations = new ConcurrentHashMap<>();
+    private final Counter evictions;
+    private final DistributionSummary compressionRatio;
+    private final Timer rehydrationTimer;
+    private final AtomicLong coldConversations = new AtomicLong();
+    private final AtomicLong coldBytes = new AtomicLong();
+    private final AtomicLong coldRawBytes = new AtomicLong();
+    private final Conversation.TierListener tierListener = new TierStats();
+    private final ExecutorService compressionExecutor;
+    private ConversationLog conversationLog;
+
+    @Autowired
+    public ConversationStore(ConversationProperties properties, HashedTimerWheel timerWheel,
+                             MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.timerWheel = timerWheel;
+        this.evictions = Counter.builder("chat.conversation.evictions")
+            .description("因空闲超时被淘汰的会话数量")
+            .register(meterRegistry);
+        Gauge.builder("chat.conversation.active", conversations, ConcurrentMap::size)
+            .description("内存中的会话数量")
+            .register(meterRegistry);
+        Gauge.builder("chat.conversation.tier.size", this, store -> store.size() - store.coldConversations.get())
+            .tag("tier", "hot")
+            .register(meterRegistry);
+        Gauge.builder("chat.conversation.tier.size", coldConversations, AtomicLong::get)
+            .tag("tier", "cold")
+            .register(meterRegistry);
+        Gauge.builder("chat.conversation.cold.bytes", coldBytes, AtomicLong::get)
+            .description("冷存储压缩后占用的字节数")
+            .baseUnit("bytes")
+            .tag("form", "compressed")
+            .register(meterRegistry);
+        Gauge.builder("chat.conversation.cold.bytes", coldRawBytes, AtomicLong::get)
+            .description("冷存储会话压缩前的字节数")
+            .baseUnit("bytes")
+            .tag("form", "raw")
+            .register(meterRegistry);
+        this.compressionRatio = DistributionSummary.builder("chat.conversation.compression.ratio")
+            .description("会话压缩比（压缩前/压缩后）")
+            .register(meterRegistry);
+        this.rehydrationTimer = Timer.builder("chat.conversation.rehydration")
+            .description("冷存储会话的解压耗时")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        // 压缩放到独立线程执行，避免占用时间轮线程
+        this.compressionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "conversation-compressor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 打开会话日志并重放历史记录
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        if (!properties.isPersistenceEnabled()) {
+            logger.info("会话持久化未启用，会话仅保存在内存中");
+            return;
+        }
+        conversationLog = new ConversationLog(
+            Paths.get(properties.getLogDirectory()),
+            properties.getSegmentSizeBytes(),
+            properties.getMaxBatchSize(),
+            properties.getFlushIntervalMillis(),
+            properties.getCompactionThreshold(),
+            properties.getMaxTurns());
+        conversationLog.replay(this::apply);
+        conversationLog.start();
+        logger.info("会话存储初始化完成 - 恢复会话数: {}, 配置: {}", conversations.size(), properties);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        compressionExecutor.shutdownNow();
+        if (conversationLog != null) {
+            conversationLog.close();
+        }
+    }
+
+    /**
+     * 获取会话历史，会话不存在时返回空列表
+     */
+    public List<ConversationTurn> getHistory(String conversationId) {
+        Conversation conversation = conversations.get(conversationId);
+        if (conversation == null) {
+            return Collections.emptyList();
+        }
+        conversation.touch();
+        return conversation.snapshot();
+    }
+
+    /**
+     * 记录一次完整的问答
+     */
+    public void appendExchange(String conversationId, String userMessage, String assistantMessage) {
+        append(conversationId, ConversationTurn.user(userMessage));
+        append(conversationId, ConversationTurn.assistant(assistantMessage));
+    }
+
+    /**
+     * 删除会话，并在日志中写入删除记录
+     */
+    public boolean remove(String conversationId) {
+        Conversation removed = conversations.remove(conversationId);
+        if (removed != null) {
+            discard(removed);
+            logDelete(conversationId);
+        }
+        return removed != null;
+    }
+
+    public boolean contains(String conversationId) {
+        return conversations.containsKey(conversationId);
+    }
+
+    public int size() {
+        return conversations.size();
+    }
+
+    public long getColdConversations() {
+        return coldConversations.get();
+    }
+
+    public long getColdBytes() {
+        return coldBytes.get();
+    }
+
+    public long getColdRawBytes() {
+        return coldRawBytes.get();
+    }
+
+    private void append(String conversationId, ConversationTurn turn) {
+        Conversation conversation = getOrCreate(conversationId);
+        conversation.add(turn);
+        conversation.touch();
+        if (conversationLog != null) {
+            conversationLog.append(ConversationLog.Entry.append(conversationId, turn))
+                .exceptionally(e -> {
+                    logger.error("会话日志写入失败 [{}] - {}", conversationId, e.getMessage());
+                    return null;
+                });
+        }
+    }
+
+    private void logDelete(String conversationId) {
+        if (conversationLog != null) {
+            conversationLog.append(ConversationLog.Entry.delete(conversationId));
+        }
+    }
+
+    private void apply(ConversationLog.Entry entry) {
+        if (entry.isDelete()) {
+            Conversation removed = conversations.remove(entry.getConversationId());
+            if (removed != null) {
+                discard(removed);
+            }
+            return;
+        }
+        getOrCreate(entry.getConversationId()).add(entry.getTurn());
+    }
+
+    private Conversation getOrCreate(String conversationId) {
+        Conversation conversation = conversations.get(conversationId);
+        if (conversation != null) {
+            return conversation;
+        }
+        Conversation created = new Conversation(conversationId, properties.getMaxTurns(), tierListener);
+        conversation = conversations.putIfAbsent(conversationId, created);
+        if (conversation != null) {
+            return conversation;
+        }
+        long coldAfterMillis = coldAfterMillis();
+        scheduleIdleCheck(created, coldAfterMillis > 0
+            ? Math.min(coldAfterMillis, idleTimeoutMillis()) : idleTimeoutMillis());
+        return created;
+    }
+
+    private void scheduleIdleCheck(Conversation conversation, long delayMillis) {
+        timerWheel.newTimeout(() -> checkIdle(conversation), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 在时间轮线程上执行：空闲超时则淘汰，达到冷存储阈值则压缩，否则按剩余时间重新挂上
+     */
+    private void checkIdle(Conversation conversation) {
+        long timeoutMillis = idleTimeoutMillis();
+        long coldAfterMillis = coldAfterMillis();
+        long idleMillis = System.currentTimeMillis() - conversation.getLastAccessMillis();
+        if (idleMillis >= timeoutMillis) {
+            if (conversations.remove(conversation.getId(), conversation)) {
+                discard(conversation);
+                logDelete(conversation.getId());
+                evictions.increment();
+                logger.debug("会话空闲超时被淘汰: {}", conversation.getId());
+            }
+            return;
+        }
+        if (conversations.get(conversation.getId()) != conversation) {
+            return;
+        }
+        if (coldAfterMillis > 0 && idleMillis >= coldAfterMillis) {
+            compressAsync(conversation, coldAfterMillis);
+            scheduleIdleCheck(conversation, timeoutMillis - idleMillis);
+        } else if (coldAfterMillis > 0) {
+            scheduleIdleCheck(conversation, Math.min(coldAfterMillis, timeoutMillis) - idleMillis);
+        } else {
+            scheduleIdleCheck(conversation, timeoutMillis - idleMillis);
+        }
+    }
+
+    private void compressAsync(Conversation conversation, long coldAfterMillis) {
+        try {
+            compressionExecutor.execute(() -> {
+                if (conversations.get(conversation.getId()) == conversation) {
+                    conversation.compressIfIdle(coldAfterMillis, properties.getCompressionLevel());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("会话压缩线程已停止，跳过压缩: {}", conversation.getId());
+        }
+    }
+
+    /**
+     * 会话被移除时扣减冷存储统计
+     */
+    private void discard(Conversation conversation) {
+        synchronized (conversation) {
+            int compressedBytes = conversation.getCompressedBytes();
+            if (compressedBytes > 0) {
+                coldConversations.decrementAndGet();
+                coldBytes.addAndGet(-compressedBytes);
+                coldRawBytes.addAndGet(-conversation.getRawBytes());
+            }
+            conversation.detach();
+        }
+    }
+
+    private long coldAfterMillis() {
+        return TimeUnit.MINUTES.toMillis(properties.getColdAfterMinutes());
+    }
+
+    private long idleTimeoutMillis() {
+        return TimeUnit.MINUTES.toMillis(properties.getIdleTimeoutMinutes());
+    }
+
+    /**
+     * 冷热层统计
+     */
+    private final class TierStats implements Conversation.TierListener {
+
+        @Override
+        public void compressed(int rawBytes, int compressedBytes) {
+            coldConversations.incrementAndGet();
+            coldBytes.addAndGet(compressedBytes);
+            coldRawBytes.addAndGet(rawBytes);
+            compressionRatio.record(compressedBytes == 0 ? 1.0 : (double) rawBytes / compressedBytes);
+        }
+
+        @Override
+        public void rehydrated(int rawBytes, int compressedBytes, long nanos) {
+            coldConversations.decrementAndGet();
+            coldBytes.addAndGet(-compressedBytes);
+            coldRawBytes.addAndGet(-rawBytes);
+            rehydrationTimer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
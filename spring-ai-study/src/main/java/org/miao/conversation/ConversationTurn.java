@@ -0,0 +1,55 @@
+package org.miao.conversation;
+
+/**
+ * 会话中的单条消息
+ * 记录发言角色、内容和时间戳，是会话日志和内存会话的基本单元
+ */
+public final class ConversationTurn {
+
+    /**
+     * 发言角色
+     */
+    public enum Role {
+        USER,
+        ASSISTANT
+    }
+
+    private final Role role;
+    private final String content;
+    private final long timestamp;
+
+    public ConversationTurn(Role role, String content, long timestamp) {
+        this.role = role;
+        this.content = content;
+        this.timestamp = timestamp;
+    }
+
+    public static ConversationTurn user(String content) {
+        return new ConversationTurn(Role.USER, content, System.currentTimeMillis());
+    }
+
+    public static ConversationTurn assistant(String content) {
+        return new ConversationTurn(Role.ASSISTANT, content, System.currentTimeMillis());
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "ConversationTurn{" +
+                "role=" + role +
+                ", contentLength=" + (content != null ? content.length() : 0) +
+                ", timestamp=" + timestamp +
+                '}';
+    }
+}
@@ -0,0 +1,179 @@
+package org.miao.diagnostics;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单个请求的诊断记录
+ * 请求处理过程中在处理线程上逐步填充，结束后由SlowRequestRecorder判断是否保留；
+ * 保留后不再修改，可以被诊断端点并发读取。
+ */
+public final class RequestTrace {
+
+    private final String requestId;
+    private final String model;
+    private final boolean streaming;
+    private final Instant startedAt = Instant.now();
+    private final List<Attempt> attempts = new ArrayList<>(2);
+    private String prompt;
+    private int messageChars;
+    private int historyTurns;
+    private int contextChars;
+    private int responseChars;
+    private String outcome;
+    private String error;
+    private long durationMillis;
+    private Map<String, Double> timings = Collections.emptyMap();
+
+    RequestTrace(String requestId, String model, String message, boolean streaming) {
+        this.requestId = requestId;
+        this.model = model;
+        this.prompt = message;
+        this.messageChars = message != null ? message.length() : 0;
+        this.streaming = streaming;
+    }
+
+    /**
+     * 记录请求附带的上下文大小
+     */
+    public void context(int historyTurns, int contextChars) {
+        this.historyTurns = historyTurns;
+        this.contextChars = contextChars;
+    }
+
+    /**
+     * 记录一次上游调用
+     *
+     * @param status 上游HTTP状态码，无法确定时为null
+     */
+    public void attempt(int attempt, long durationNanos, Integer status, String error) {
+        attempts.add(new Attempt(attempt, durationNanos / 1_000_000, status, error));
+    }
+
+    public void response(int responseChars) {
+        this.responseChars = responseChars;
+    }
+
+    public void failed(String error) {
+        this.error = error;
+    }
+
+    /**
+     * 记录请求结果
+     */
+    public void complete(String outcome, long durationNanos) {
+        this.outcome = outcome;
+        this.durationMillis = durationNanos / 1_000_000;
+    }
+
+    /**
+     * 保留前截断提示词并附上阶段耗时
+     */
+    void seal(int promptPreviewChars, Map<String, Double> timings) {
+        if (prompt != null && prompt.length() > promptPreviewChars) {
+            prompt = prompt.substring(0, promptPreviewChars) + "...";
+        }
+        if (timings != null) {
+            this.timings = timings;
+        }
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public String getOutcome() {
+        return outcome;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * 截断后的提示词
+     */
+    public String getPrompt() {
+        return prompt;
+    }
+
+    public int getMessageChars() {
+        return messageChars;
+    }
+
+    public int getHistoryTurns() {
+        return historyTurns;
+    }
+
+    public int getContextChars() {
+        return contextChars;
+    }
+
+    public int getResponseChars() {
+        return responseChars;
+    }
+
+    public List<Attempt> getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * 各阶段耗时（毫秒），请求未经过ServerTimingFilter时为空
+     */
+    public Map<String, Double> getTimings() {
+        return timings;
+    }
+
+    /**
+     * 一次上游调用
+     */
+    public static final class Attempt {
+
+        private final int attempt;
+        private final long durationMillis;
+        private final Integer status;
+        private final String error;
+
+        Attempt(int attempt, long durationMillis, Integer status, String error) {
+            this.attempt = attempt;
+            this.durationMillis = durationMillis;
+            this.status = status;
+            this.error = error;
+        }
+
+        public int getAttempt() {
+            return attempt;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        public Integer getStatus() {
+            return status;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
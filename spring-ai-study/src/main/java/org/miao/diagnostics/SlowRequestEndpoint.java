@@ -0,0 +1,36 @@
+package org.miao.diagnostics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 慢请求Actuator端点
+ * GET /actuator/slowrequests 返回最近采集的慢请求和失败请求（从新到旧），DELETE清空。
+ * 记录中包含截断的提示词，访问需要管理令牌，见AdminEndpointFilter。
+ */
+@Component
+@Endpoint(id = "slowrequests")
+public class SlowRequestEndpoint {
+
+    private final SlowRequestRecorder slowRequestRecorder;
+
+    @Autowired
+    public SlowRequestEndpoint(SlowRequestRecorder slowRequestRecorder) {
+        this.slowRequestRecorder = slowRequestRecorder;
+    }
+
+    @ReadOperation
+    public List<RequestTrace> slowRequests() {
+        return slowRequestRecorder.recent();
+    }
+
+    @DeleteOperation
+    public void clear() {
+        slowRequestRecorder.clear();
+    }
+}
@@ -0,0 +1,122 @@
+package org.miao.diagnostics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.miao.config.DiagnosticsProperties;
+import org.miao.metrics.ChatMetrics;
+import org.miao.metrics.RequestTimings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 慢请求采集
+ * 耗时超过阈值或重试后仍失败的请求保留完整的诊断记录（阶段耗时、各次上游调用、状态码、载荷大小、截断的提示词），
+ * 替代在DEBUG级别逐条打印请求内容。
+ *
+ * 保留最近slow-request-capacity条，存放在固定大小的环形数组中：写入时用原子序号领取槽位，
+ * 覆盖最旧的记录，不加锁；读取时按序号从新到旧返回。
+ */
+@Component
+public class SlowRequestRecorder {
+
+    /**
+     * Spring AI的错误处理器抛出的异常消息以状态码开头，例如 "429 - {...}"
+     */
+    private static final Pattern STATUS_PREFIX = Pattern.compile("^(\\d{3}) - ");
+
+    private final DiagnosticsProperties diagnosticsProperties;
+    private final AtomicReferenceArray<RequestTrace> slots;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Autowired
+    public SlowRequestRecorder(DiagnosticsProperties diagnosticsProperties, MeterRegistry meterRegistry) {
+        this.diagnosticsProperties = diagnosticsProperties;
+        this.slots = new AtomicReferenceArray<>(Math.max(1, diagnosticsProperties.getSlowRequestCapacity()));
+        FunctionCounter.builder("chat.slow.captured", sequence, AtomicLong::get)
+            .description("采集的慢请求和失败请求数")
+            .register(meterRegistry);
+    }
+
+    /**
+     * 开始记录一个请求
+     */
+    public RequestTrace start(String requestId, String model, String message, boolean streaming) {
+        return new RequestTrace(requestId, model, message, streaming);
+    }
+
+    /**
+     * 请求结束后调用，慢请求或失败请求写入环形数组
+     *
+     * @param timings 请求的阶段耗时，没有时为null
+     * @return 是否保留
+     */
+    public boolean offer(RequestTrace trace, RequestTimings timings) {
+        if (!diagnosticsProperties.isSlowRequestEnabled() || !shouldCapture(trace)) {
+            return false;
+        }
+        trace.seal(diagnosticsProperties.getPromptPreviewChars(), timings != null ? timings.toMillis() : null);
+        long index = sequence.getAndIncrement();
+        slots.set((int) (index % slots.length()), trace);
+        return true;
+    }
+
+    private boolean shouldCapture(RequestTrace trace) {
+        return ChatMetrics.OUTCOME_ERROR.equals(trace.getOutcome())
+            || trace.getDurationMillis() >= diagnosticsProperties.getSlowRequestThresholdMillis();
+    }
+
+    /**
+     * 最近保留的记录，从新到旧
+     */
+    public List<RequestTrace> recent() {
+        long end = sequence.get();
+        int capacity = slots.length();
+        List<RequestTrace> traces = new ArrayList<>(capacity);
+        for (long index = end - 1; index >= Math.max(0, end - capacity); index--) {
+            RequestTrace trace = slots.get((int) (index % capacity));
+            if (trace != null) {
+                traces.add(trace);
+            }
+        }
+        return traces;
+    }
+
+    public void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, null);
+        }
+    }
+
+    /**
+     * 从上游异常中提取HTTP状态码，无法确定时返回null
+     */
+    public static Integer statusOf(Throwable error) {
+        for (Throwable current = error; current != null; current = current.getCause()) {
+            if (current instanceof RestClientResponseException) {
+                return ((RestClientResponseException) current).getStatusCode().value();
+            }
+            if (current instanceof WebClientResponseException) {
+                return ((WebClientResponseException) current).getStatusCode().value();
+            }
+            if (current.getMessage() != null) {
+                Matcher matcher = STATUS_PREFIX.matcher(current.getMessage());
+                if (matcher.find()) {
+                    return Integer.valueOf(matcher.group(1));
+                }
+            }
+            if (current.getCause() == current) {
+                break;
+            }
+        }
+        return null;
+    }
+}
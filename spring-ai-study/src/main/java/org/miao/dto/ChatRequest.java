@@ -13,6 +13,11 @@ public class ChatRequest {
     
 
     private String model;
+
+    /**
+     * 会话ID（可选），携带时服务端会关联并保存多轮对话历史
+     */
+    private String conversationId;
     
     public ChatRequest() {}
     
@@ -41,11 +46,20 @@ public class ChatRequest {
         this.model = model;
     }
     
+    public String getConversationId() {
+        return conversationId;
+    }
+    
+    public void setConversationId(String conversationId) {
+        this.conversationId = conversationId;
+    }
+    
     @Override
     public String toString() {
         return "ChatRequest{" +
                 "message='" + message + '\'' +
                 ", model='" + model + '\'' +
+                ", conversationId='" + conversationId + '\'' +
                 '}';
     }
 }
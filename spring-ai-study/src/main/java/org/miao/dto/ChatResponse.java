@@ -1,6 +1,9 @@
 package org.miao.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.time.LocalDateTime;
+import java.util.Map;
 
 /**
  * 聊天响应数据传输对象
@@ -13,6 +16,11 @@ public class ChatResponse {
     private LocalDateTime timestamp;
     private boolean success;
     private String error;
+    private String conversationId;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<String, Double> timings;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private TokenUsage usage;
     
     public ChatResponse() {
         this.timestamp = LocalDateTime.now();
@@ -76,6 +84,36 @@ public class ChatResponse {
         this.error = error;
     }
     
+    public String getConversationId() {
+        return conversationId;
+    }
+    
+    public void setConversationId(String conversationId) {
+        this.conversationId = conversationId;
+    }
+    
+    /**
+     * 各阶段耗时（毫秒），仅在请求要求时返回
+     */
+    public Map<String, Double> getTimings() {
+        return timings;
+    }
+    
+    public void setTimings(Map<String, Double> timings) {
+        this.timings = timings;
+    }
+    
+    /**
+     * token用量和费用，上游未返回用量时（包括命中缓存）为null
+     */
+    public TokenUsage getUsage() {
+        return usage;
+    }
+    
+    public void setUsage(TokenUsage usage) {
+        this.usage = usage;
+    }
+    
     @Override
     public String toString() {
         return "ChatResponse{" +
@@ -84,6 +122,9 @@ public class ChatResponse {
                 ", timestamp=" + timestamp +
                 ", success=" + success +
                 ", error='" + error + '\'' +
+                ", conversationId='" + conversationId + '\'' +
+                ", timings=" + timings +
+                ", usage=" + usage +
                 '}';
     }
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package org.miao.dto;
+
+/**
+ * 文档导入请求数据传输对象
+ */
+public class IngestionRequest {
+
+    /**
+     * 服务端本地的文档目录
+     */
+    private String directory;
+
+    public IngestionRequest() {}
+
+    public IngestionRequest(String directory) {
+        this.directory = directory;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public String toString() {
+        return "IngestionRequest{" +
+                "directory='" + directory + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,60 @@
+package org.miao.dto;
+
+/**
+ * 单个请求的token用量和费用
+ */
+public class TokenUsage {
+
+    private long promptTokens;
+    private long completionTokens;
+    private double cost;
+
+    public TokenUsage() {
+    }
+
+    public TokenUsage(long promptTokens, long completionTokens, double cost) {
+        this.promptTokens = promptTokens;
+        this.completionTokens = completionTokens;
+        this.cost = cost;
+    }
+
+    public long getPromptTokens() {
+        return promptTokens;
+    }
+
+    public void setPromptTokens(long promptTokens) {
+        this.promptTokens = promptTokens;
+    }
+
+    public long getCompletionTokens() {
+        return completionTokens;
+    }
+
+    public void setCompletionTokens(long completionTokens) {
+        this.completionTokens = completionTokens;
+    }
+
+    public long getTotalTokens() {
+        return promptTokens + completionTokens;
+    }
+
+    /**
+     * 按价格表计算的费用（美元）
+     */
+    public double getCost() {
+        return cost;
+    }
+
+    public void setCost(double cost) {
+        this.cost = cost;
+    }
+
+    @Override
+    public String toString() {
+        return "TokenUsage{" +
+                "promptTokens=" + promptTokens +
+                ", completionTokens=" + completionTokens +
+                ", cost=" + cost +
+                '}';
+    }
+}
@@ -0,0 +1,67 @@
+package org.miao.eval;
+
+/**
+ * 提示词集中的一条提示词
+ * scorer和expected同时配置时对响应评分，否则只统计延迟、吞吐和费用
+ */
+public class EvalPrompt {
+
+    private String id;
+    private String message;
+    private String scorer;
+    private String expected;
+
+    public EvalPrompt() {
+    }
+
+    public EvalPrompt(String id, String message, String scorer, String expected) {
+        this.id = id;
+        this.message = message;
+        this.scorer = scorer;
+        this.expected = expected;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    /**
+     * 评分方式，见EvalScorer
+     */
+    public String getScorer() {
+        return scorer;
+    }
+
+    public void setScorer(String scorer) {
+        this.scorer = scorer;
+    }
+
+    public String getExpected() {
+        return expected;
+    }
+
+    public void setExpected(String expected) {
+        this.expected = expected;
+    }
+
+    @Override
+    public String toString() {
+        return "EvalPrompt{" +
+                "id='" + id + '\'' +
+                ", scorer='" + scorer + '\'' +
+                ", expected='" + expected + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,166 @@
+package org.miao.eval;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.miao.config.EvalProperties;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 一次模型评测的结果
+ * 按模型汇总首个片段时间（TTFT）、总耗时、生成速度、费用和评分，写出 {label}-eval.json（汇总和每次执行的明细）。
+ * 延迟单位为毫秒，百分位按最近排名法计算；费用单位为美元，按usage.prices价格表计算。
+ */
+public class EvalReport {
+
+    private static final double[] PERCENTILES = {50, 90};
+    private static final String[] PERCENTILE_KEYS = {"p50", "p90"};
+
+    private final EvalProperties properties;
+    private final String suite;
+    private final List<String> models;
+    private final Instant startedAt;
+    private final long wallNanos;
+    private final List<EvalResult> results;
+
+    public EvalReport(EvalProperties properties, String suite, List<String> models, Instant startedAt,
+                      long wallNanos, List<EvalResult> results) {
+        this.properties = properties;
+        this.suite = suite;
+        this.models = models;
+        this.startedAt = startedAt;
+        this.wallNanos = wallNanos;
+        this.results = results;
+    }
+
+    public List<EvalResult> getResults() {
+        return results;
+    }
+
+    public Map<String, Object> summary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("label", properties.getLabel());
+        summary.put("suite", suite);
+        summary.put("startedAt", startedAt.toString());
+        summary.put("wallSeconds", round(wallNanos / 1e9));
+        summary.put("concurrency", properties.getConcurrency());
+        summary.put("repetitions", properties.getRepetitions());
+        Map<String, Object> perModel = new LinkedHashMap<>();
+        for (String model : models) {
+            perModel.put(model, modelSummary(model));
+        }
+        summary.put("models", perModel);
+        return summary;
+    }
+
+    /**
+     * 单个模型的汇总，延迟、速度、费用和评分只统计成功的执行
+     */
+    public Map<String, Object> modelSummary(String model) {
+        List<EvalResult> runs = new ArrayList<>();
+        List<EvalResult> succeeded = new ArrayList<>();
+        for (EvalResult result : results) {
+            if (result.getModel().equals(model)) {
+                runs.add(result);
+                if (result.isSuccess()) {
+                    succeeded.add(result);
+                }
+            }
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("runs", runs.size());
+        summary.put("succeeded", succeeded.size());
+        summary.put("failed", runs.size() - succeeded.size());
+        summary.put("ttftMillis", distribution(values(succeeded, EvalResult::getTtftMillis)));
+        summary.put("totalMillis", distribution(values(succeeded, EvalResult::getTotalMillis)));
+        summary.put("tokensPerSecond", distribution(values(succeeded, EvalResult::getTokensPerSecond)));
+        double[] costs = values(succeeded, EvalResult::getCost);
+        Map<String, Object> cost = new LinkedHashMap<>();
+        cost.put("total", costs.length > 0 ? Arrays.stream(costs).sum() : null);
+        cost.put("perPrompt", costs.length > 0 ? Arrays.stream(costs).average().orElse(0) : null);
+        summary.put("cost", cost);
+        double[] completionTokens = values(succeeded,
+            result -> result.getCompletionTokens() != null ? result.getCompletionTokens().doubleValue() : null);
+        summary.put("completionTokens", (long) Arrays.stream(completionTokens).sum());
+        double[] scores = values(succeeded, EvalResult::getScore);
+        summary.put("scored", scores.length);
+        summary.put("score", scores.length > 0 ? round(Arrays.stream(scores).average().orElse(0)) : null);
+        return summary;
+    }
+
+    public void write(Path directory) throws IOException {
+        Map<String, Object> report = summary();
+        report.put("results", results);
+        new ObjectMapper().writerWithDefaultPrettyPrinter()
+            .writeValue(directory.resolve(properties.getLabel() + "-eval.json").toFile(), report);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void print(PrintStream out) {
+        out.printf("提示词集 %s，%d个模型，每个提示词执行%d次，并发%d，耗时%.1f秒%n",
+            suite, models.size(), properties.getRepetitions(), properties.getConcurrency(), wallNanos / 1e9);
+        out.printf("  %-32s %9s %10s %10s %10s %10s %9s %11s %7s%n", "模型", "成功/总数", "TTFT p50", "TTFT p90",
+            "总耗时p50", "总耗时p90", "token/s", "费用/次($)", "得分");
+        for (String model : models) {
+            Map<String, Object> summary = modelSummary(model);
+            Map<String, Object> ttft = (Map<String, Object>) summary.get("ttftMillis");
+            Map<String, Object> total = (Map<String, Object>) summary.get("totalMillis");
+            Map<String, Object> speed = (Map<String, Object>) summary.get("tokensPerSecond");
+            Map<String, Object> cost = (Map<String, Object>) summary.get("cost");
+            out.printf("  %-32s %9s %10s %10s %10s %10s %9s %11s %7s%n", model,
+                summary.get("succeeded") + "/" + summary.get("runs"),
+                format("%.1f", ttft.get("p50")), format("%.1f", ttft.get("p90")),
+                format("%.1f", total.get("p50")), format("%.1f", total.get("p90")),
+                format("%.1f", speed.get("p50")), format("%.6f", cost.get("perPrompt")),
+                format("%.3f", summary.get("score")));
+        }
+    }
+
+    private static String format(String pattern, Object value) {
+        return value != null ? String.format(pattern, ((Number) value).doubleValue()) : "n/a";
+    }
+
+    private static double[] values(List<EvalResult> results, Function<EvalResult, Double> metric) {
+        return results.stream().map(metric).filter(value -> value != null).mapToDouble(Double::doubleValue).toArray();
+    }
+
+    private static Map<String, Object> distribution(double[] values) {
+        Map<String, Object> distribution = new LinkedHashMap<>();
+        if (values.length == 0) {
+            for (String key : PERCENTILE_KEYS) {
+                distribution.put(key, null);
+            }
+            distribution.put("max", null);
+            distribution.put("mean", null);
+            return distribution;
+        }
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            distribution.put(PERCENTILE_KEYS[i], round(percentile(sorted, PERCENTILES[i])));
+        }
+        distribution.put("max", round(sorted[sorted.length - 1]));
+        distribution.put("mean", round(Arrays.stream(sorted).average().orElse(0)));
+        return distribution;
+    }
+
+    /**
+     * 最近排名法：不小于p%的样本所在位置的值
+     */
+    static double percentile(double[] sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
@@ -0,0 +1,118 @@
+package org.miao.eval;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.miao.dto.TokenUsage;
+
+/**
+ * 一条提示词在一个模型上执行一次的结果
+ * 时间从发起请求算起：ttftMillis为收到首个内容片段，totalMillis为流结束。
+ * tokensPerSecond为生成速度（输出token数 / 首个片段之后的耗时），上游未返回用量时token、速度和费用为null。
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class EvalResult {
+
+    private final String model;
+    private final String promptId;
+    private final int repetition;
+    private final boolean success;
+    private final String error;
+    private final Double ttftMillis;
+    private final Double totalMillis;
+    private final Long promptTokens;
+    private final Long completionTokens;
+    private final Double tokensPerSecond;
+    private final Double cost;
+    private final Double score;
+    private final int responseChars;
+
+    private EvalResult(String model, String promptId, int repetition, boolean success, String error,
+                       Double ttftMillis, Double totalMillis, TokenUsage usage, Double tokensPerSecond,
+                       Double score, int responseChars) {
+        this.model = model;
+        this.promptId = promptId;
+        this.repetition = repetition;
+        this.success = success;
+        this.error = error;
+        this.ttftMillis = ttftMillis;
+        this.totalMillis = totalMillis;
+        this.promptTokens = usage != null ? usage.getPromptTokens() : null;
+        this.completionTokens = usage != null ? usage.getCompletionTokens() : null;
+        this.tokensPerSecond = tokensPerSecond;
+        this.cost = usage != null ? usage.getCost() : null;
+        this.score = score;
+        this.responseChars = responseChars;
+    }
+
+    static EvalResult success(String model, String promptId, int repetition, long ttftNanos, long totalNanos,
+                              TokenUsage usage, Double score, int responseChars) {
+        Double tokensPerSecond = null;
+        if (usage != null && usage.getCompletionTokens() > 0) {
+            // 只有一个片段时首个片段之后的耗时为0，退回按总耗时计算
+            long generationNanos = totalNanos - ttftNanos > 0 ? totalNanos - ttftNanos : totalNanos;
+            tokensPerSecond = generationNanos > 0 ? usage.getCompletionTokens() * 1e9 / generationNanos : null;
+        }
+        return new EvalResult(model, promptId, repetition, true, null, millis(ttftNanos), millis(totalNanos),
+            usage, tokensPerSecond, score, responseChars);
+    }
+
+    static EvalResult failure(String model, String promptId, int repetition, long totalNanos, String error) {
+        return new EvalResult(model, promptId, repetition, false, error, null, millis(totalNanos),
+            null, null, null, 0);
+    }
+
+    private static Double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public String getPromptId() {
+        return promptId;
+    }
+
+    public int getRepetition() {
+        return repetition;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public Double getTtftMillis() {
+        return ttftMillis;
+    }
+
+    public Double getTotalMillis() {
+        return totalMillis;
+    }
+
+    public Long getPromptTokens() {
+        return promptTokens;
+    }
+
+    public Long getCompletionTokens() {
+        return completionTokens;
+    }
+
+    public Double getTokensPerSecond() {
+        return tokensPerSecond;
+    }
+
+    public Double getCost() {
+        return cost;
+    }
+
+    public Double getScore() {
+        return score;
+    }
+
+    public int getResponseChars() {
+        return responseChars;
+    }
+}
@@ -0,0 +1,169 @@
+package org.miao.eval;
+
+import org.miao.SpringAiApplication;
+import org.miao.config.EvalProperties;
+import org.miao.dto.ChatRequest;
+import org.miao.dto.TokenUsage;
+import org.miao.service.ChatService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.ResourceUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 模型评测工具
+ * 把提示词集中的每条提示词在每个模型上执行eval.repetitions次，经ChatService的流式接口调用，
+ * 与真实请求走同样的校验、检索、并发控制和计费路径；流式请求不使用响应缓存，每次执行都会访问上游。
+ * 任务按"重复次数、提示词、模型"交错提交到eval.concurrency个线程，各模型在相近的时间段内执行，
+ * 上游负载的波动对各模型的影响大致相同。设置了chat.max-concurrent-requests时eval.concurrency不应超过它，否则多出的请求会排队。
+ *
+ * 运行方式（不启动Web服务）：
+ * mvn exec:java -Dexec.mainClass=org.miao.eval.EvalRunner -Dexec.args="--eval.suite=suites/faq.json --eval.models=openai/gpt-4,anthropic/claude-3-haiku"
+ * 离线验证时加上--spring.profiles.active=stub。报告写入eval.report-directory/{label}-eval.json。
+ * 启动时总是激活eval profile：会话日志和健康探测关闭，索引、缓存等文件写入本次评测的临时目录，
+ * 与同一目录下运行中的服务互不干扰。
+ */
+public class EvalRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(EvalRunner.class);
+
+    static final String EVAL_PROFILE = "eval";
+
+    private final ChatService chatService;
+    private final EvalProperties properties;
+
+    public EvalRunner(ChatService chatService, EvalProperties properties) {
+        if (properties.getConcurrency() <= 0 || properties.getRepetitions() <= 0) {
+            throw new IllegalArgumentException("评测参数无效: concurrency=" + properties.getConcurrency()
+                + ", repetitions=" + properties.getRepetitions());
+        }
+        this.chatService = chatService;
+        this.properties = properties;
+    }
+
+    /**
+     * 执行评测，单次执行失败只记录在结果中，不中断评测
+     */
+    public EvalReport run(EvalSuite suite, List<String> models) throws InterruptedException {
+        if (models.isEmpty()) {
+            throw new IllegalArgumentException("没有参与评测的模型");
+        }
+        for (String model : models) {
+            if (!chatService.isModelAvailable(model)) {
+                throw new IllegalArgumentException("模型 '" + model + "' 不可用，支持的模型: "
+                    + chatService.getAvailableModels());
+            }
+        }
+        AtomicInteger workers = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(properties.getConcurrency(), runnable -> {
+            Thread thread = new Thread(runnable, "eval-worker-" + workers.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("开始评测 - 提示词集: {}, 提示词: {}, 模型: {}, 重复: {}, 并发: {}", suite.getName(),
+            suite.getPrompts().size(), models, properties.getRepetitions(), properties.getConcurrency());
+        Instant startedAt = Instant.now();
+        long startNanos = System.nanoTime();
+        List<Future<EvalResult>> futures = new ArrayList<>();
+        try {
+            for (int repetition = 0; repetition < properties.getRepetitions(); repetition++) {
+                for (EvalPrompt prompt : suite.getPrompts()) {
+                    for (String model : models) {
+                        int current = repetition;
+                        futures.add(executor.submit(() -> runOne(model, prompt, current)));
+                    }
+                }
+            }
+            List<EvalResult> results = new ArrayList<>(futures.size());
+            for (Future<EvalResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("评测任务异常", e.getCause());
+                }
+            }
+            return new EvalReport(properties, suite.getName(), models, startedAt,
+                System.nanoTime() - startNanos, results);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    EvalResult runOne(String model, EvalPrompt prompt, int repetition) {
+        AtomicReference<TokenUsage> usage = new AtomicReference<>();
+        StringBuilder content = new StringBuilder();
+        long[] firstNanos = {0};
+        long startNanos = System.nanoTime();
+        try {
+            chatService.streamMessage(new ChatRequest(prompt.getMessage(), model), usage::set)
+                .doOnNext(piece -> {
+                    if (firstNanos[0] == 0) {
+                        firstNanos[0] = System.nanoTime();
+                    }
+                    content.append(piece);
+                })
+                .blockLast();
+            long endNanos = System.nanoTime();
+            long ttftNanos = (firstNanos[0] != 0 ? firstNanos[0] : endNanos) - startNanos;
+            String response = content.toString();
+            return EvalResult.success(model, prompt.getId(), repetition, ttftNanos, endNanos - startNanos,
+                usage.get(), EvalScorer.score(prompt, response), response.length());
+        } catch (RuntimeException e) {
+            logger.warn("评测请求失败 - 模型: {}, 提示词: {}, 错误: {}", model, prompt.getId(), e.getMessage());
+            return EvalResult.failure(model, prompt.getId(), repetition, System.nanoTime() - startNanos,
+                e.getMessage());
+        }
+    }
+
+    /**
+     * eval.suite以classpath:开头时从类路径读取，否则按文件路径读取
+     */
+    private static EvalSuite loadSuite(ConfigurableApplicationContext context, String location) throws IOException {
+        try (InputStream in = location.startsWith(ResourceUtils.CLASSPATH_URL_PREFIX)
+                ? context.getResource(location).getInputStream() : Files.newInputStream(Path.of(location))) {
+            return EvalSuite.load(in);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path dataDirectory = Files.createTempDirectory("spring-ai-eval");
+        SpringApplication application = new SpringApplication(SpringAiApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        application.setAdditionalProfiles(EVAL_PROFILE);
+        application.setDefaultProperties(Map.of("eval.data-directory", dataDirectory.toString()));
+        try (ConfigurableApplicationContext context = application.run(args)) {
+            EvalProperties properties = context.getBean(EvalProperties.class);
+            ChatService chatService = context.getBean(ChatService.class);
+            logger.info("评测配置: {}", properties);
+            EvalSuite suite = loadSuite(context, properties.getSuite());
+            List<String> models = properties.getModels().isEmpty()
+                ? chatService.getAvailableModels() : properties.getModels();
+
+            EvalReport report = new EvalRunner(chatService, properties).run(suite, models);
+            Path directory = Path.of(properties.getReportDirectory());
+            Files.createDirectories(directory);
+            report.write(directory);
+            report.print(System.out);
+        } finally {
+            FileSystemUtils.deleteRecursively(dataDirectory);
+        }
+    }
+}
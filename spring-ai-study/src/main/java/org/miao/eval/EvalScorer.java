@@ -0,0 +1,84 @@
+package org.miao.eval;
+
+import org.springframework.util.StringUtils;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * 响应评分方式，分数在0到1之间
+ */
+public enum EvalScorer {
+
+    /**
+     * 去掉首尾空白后与expected完全相同
+     */
+    EXACT {
+        @Override
+        double score(String expected, String response) {
+            return expected.trim().equals(response.trim()) ? 1.0 : 0.0;
+        }
+    },
+
+    /**
+     * 包含expected（忽略大小写）
+     */
+    CONTAINS {
+        @Override
+        double score(String expected, String response) {
+            return response.toLowerCase(Locale.ROOT).contains(expected.toLowerCase(Locale.ROOT)) ? 1.0 : 0.0;
+        }
+    },
+
+    /**
+     * 能找到匹配正则表达式expected的片段
+     */
+    REGEX {
+        @Override
+        double score(String expected, String response) {
+            return Pattern.compile(expected).matcher(response).find() ? 1.0 : 0.0;
+        }
+    },
+
+    /**
+     * expected为逗号分隔的关键词，分数为响应中出现的关键词比例（忽略大小写）
+     */
+    KEYWORDS {
+        @Override
+        double score(String expected, String response) {
+            String lower = response.toLowerCase(Locale.ROOT);
+            int total = 0;
+            int found = 0;
+            for (String keyword : expected.split(",")) {
+                String trimmed = keyword.trim().toLowerCase(Locale.ROOT);
+                if (!trimmed.isEmpty()) {
+                    total++;
+                    if (lower.contains(trimmed)) {
+                        found++;
+                    }
+                }
+            }
+            return total == 0 ? 0.0 : (double) found / total;
+        }
+    };
+
+    abstract double score(String expected, String response);
+
+    /**
+     * 按提示词配置的评分方式评分，没有配置时返回null
+     */
+    public static Double score(EvalPrompt prompt, String response) {
+        if (!StringUtils.hasText(prompt.getScorer()) || prompt.getExpected() == null) {
+            return null;
+        }
+        return of(prompt.getScorer()).score(prompt.getExpected(), response != null ? response : "");
+    }
+
+    public static EvalScorer of(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("未知的评分方式: " + name);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.miao.eval;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 提示词集
+ * JSON格式：{"name": "...", "prompts": [{"id": "...", "message": "...", "scorer": "contains", "expected": "..."}]}
+ */
+public class EvalSuite {
+
+    private String name = "";
+    private List<EvalPrompt> prompts = new ArrayList<>();
+
+    public EvalSuite() {
+    }
+
+    public EvalSuite(String name, List<EvalPrompt> prompts) {
+        this.name = name;
+        this.prompts = prompts;
+    }
+
+    /**
+     * 读取并校验提示词集：id不能为空且不能重复，消息不能为空，评分方式必须有效
+     */
+    public static EvalSuite load(InputStream in) throws IOException {
+        EvalSuite suite = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .readValue(in, EvalSuite.class);
+        suite.validate();
+        return suite;
+    }
+
+    void validate() {
+        if (prompts == null || prompts.isEmpty()) {
+            throw new IllegalArgumentException("提示词集为空");
+        }
+        Set<String> ids = new HashSet<>();
+        for (EvalPrompt prompt : prompts) {
+            if (!StringUtils.hasText(prompt.getId()) || !ids.add(prompt.getId())) {
+                throw new IllegalArgumentException("提示词的id为空或重复: " + prompt);
+            }
+            if (!StringUtils.hasText(prompt.getMessage())) {
+                throw new IllegalArgumentException("提示词的消息为空: " + prompt.getId());
+            }
+            if (StringUtils.hasText(prompt.getScorer())) {
+                EvalScorer scorer = EvalScorer.of(prompt.getScorer());
+                if (prompt.getExpected() == null) {
+                    throw new IllegalArgumentException("提示词配置了评分方式但没有expected: " + prompt.getId());
+                }
+                if (scorer == EvalScorer.REGEX) {
+                    Pattern.compile(prompt.getExpected());
+                }
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public List<EvalPrompt> getPrompts() {
+        return prompts;
+    }
+
+    public void setPrompts(List<EvalPrompt> prompts) {
+        this.prompts = prompts;
+    }
+}
@@ -0,0 +1,119 @@
+package org.miao.fault;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 只接受连接、从不响应的本地TCP服务
+ * BLACKHOLE故障把上游请求改发到这里，连接建立、请求发出后再没有任何响应，调用由客户端自己的读超时结束。
+ * 单线程非阻塞：读取并丢弃请求数据，客户端超时断开后关闭对应连接，不会堆积连接。
+ */
+final class BlackholeServer implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlackholeServer.class);
+
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final InetSocketAddress address;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    BlackholeServer() throws IOException {
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        this.address = (InetSocketAddress) server.getLocalAddress();
+        this.worker = new Thread(this::run, "fault-blackhole");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    InetSocketAddress getAddress() {
+        return address;
+    }
+
+    private void run() {
+        ByteBuffer discard = ByteBuffer.allocate(8192);
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.isReadable()) {
+                        discard.clear();
+                        drain(key, discard);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("黑洞服务异常退出: {}", e.getMessage());
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key.channel());
+            }
+            closeQuietly(selector);
+            closeQuietly(server);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel != null) {
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ);
+        }
+    }
+
+    private static void drain(SelectionKey key, ByteBuffer discard) {
+        SocketChannel channel = (SocketChannel) key.channel();
+        try {
+            if (channel.read(discard) < 0) {
+                key.cancel();
+                channel.close();
+            }
+        } catch (IOException e) {
+            key.cancel();
+            closeQuietly(channel);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            logger.debug("关闭黑洞连接失败: {}", e.getMessage());
+        }
+    }
+}
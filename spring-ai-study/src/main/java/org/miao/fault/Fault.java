@@ -0,0 +1,68 @@
+package org.miao.fault;
+
+/**
+ * 对单次上游调用注入的故障
+ * latencyMillis是调用前的额外等待，可以与其它类型叠加
+ */
+public final class Fault {
+
+    public enum Type {
+
+        NONE,
+
+        /**
+         * 不访问上游，直接返回错误状态码
+         */
+        ERROR,
+
+        /**
+         * 不访问上游，请求发到从不响应的本地端口，由客户端读超时结束
+         */
+        BLACKHOLE,
+
+        /**
+         * 正常访问上游，响应体读到一定字节数后连接被重置
+         */
+        RESET
+    }
+
+    public static final Fault NONE = new Fault(Type.NONE, 0, 0, 0);
+
+    private final Type type;
+    private final long latencyMillis;
+    private final int errorStatus;
+    private final long resetAfterBytes;
+
+    Fault(Type type, long latencyMillis, int errorStatus, long resetAfterBytes) {
+        this.type = type;
+        this.latencyMillis = latencyMillis;
+        this.errorStatus = errorStatus;
+        this.resetAfterBytes = resetAfterBytes;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public int getErrorStatus() {
+        return errorStatus;
+    }
+
+    public long getResetAfterBytes() {
+        return resetAfterBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "Fault{" +
+                "type=" + type +
+                ", latencyMillis=" + latencyMillis +
+                ", errorStatus=" + errorStatus +
+                ", resetAfterBytes=" + resetAfterBytes +
+                '}';
+    }
+}
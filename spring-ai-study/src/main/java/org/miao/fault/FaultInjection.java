@@ -0,0 +1,322 @@
+package org.miao.fault;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.support.HttpRequestWrapper;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 在上游HTTP调用上注入故障
+ * 同步调用（RestClient）在请求线程上等待，流式调用（WebClient）用定时信号等待，不占用线程。
+ * 注入的错误响应与OpenAI的错误格式一致，由Spring AI的错误处理器按真实响应处理。
+ * 黑洞故障把请求改发到FaultInjector的BlackholeServer，由客户端真实的连接和读超时（openrouter.timeout-seconds）结束调用。
+ * 在途调用数从进入故障层算到响应体读完（同步调用关闭响应、流式调用响应体结束）为止，长时间输出的流式调用全程计入。
+ */
+public final class FaultInjection {
+
+    private FaultInjection() {
+    }
+
+    public static ClientHttpRequestInterceptor restClientInterceptor(FaultInjector injector) {
+        return (request, body, execution) -> {
+            Fault fault = injector.next();
+            injector.enter();
+            try {
+                return new InFlightResponse(respond(fault, request, body, execution, injector), injector);
+            } catch (IOException | RuntimeException e) {
+                injector.exit();
+                throw e;
+            }
+        };
+    }
+
+    private static ClientHttpResponse respond(Fault fault, HttpRequest request, byte[] body,
+                                              ClientHttpRequestExecution execution, FaultInjector injector)
+            throws IOException {
+        sleep(fault.getLatencyMillis());
+        switch (fault.getType()) {
+            case ERROR:
+                return new InjectedResponse(fault.getErrorStatus());
+            case BLACKHOLE:
+                URI redirected = blackhole(request.getURI(), injector.blackholeAddress());
+                return execution.execute(new HttpRequestWrapper(request) {
+                    @Override
+                    public URI getURI() {
+                        return redirected;
+                    }
+                }, body);
+            case RESET:
+                return new ResettingResponse(execution.execute(request, body), fault.getResetAfterBytes());
+            default:
+                return execution.execute(request, body);
+        }
+    }
+
+    public static ExchangeFilterFunction webClientFilter(FaultInjector injector) {
+        return (request, next) -> Mono.defer(() -> {
+            Fault fault = injector.next();
+            Mono<ClientResponse> response;
+            switch (fault.getType()) {
+                case ERROR:
+                    response = Mono.just(ClientResponse.create(HttpStatusCode.valueOf(fault.getErrorStatus()))
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body(errorBody(fault.getErrorStatus()))
+                        .build());
+                    break;
+                case BLACKHOLE:
+                    response = Mono.fromCallable(injector::blackholeAddress)
+                        .flatMap(address -> next.exchange(ClientRequest.from(request)
+                            .url(blackhole(request.url(), address))
+                            .build()));
+                    break;
+                case RESET:
+                    response = next.exchange(request).map(clientResponse -> clientResponse.mutate()
+                        .body(body -> resetAfter(body, fault.getResetAfterBytes()))
+                        .build());
+                    break;
+                default:
+                    response = next.exchange(request);
+            }
+            if (fault.getLatencyMillis() > 0) {
+                response = Mono.delay(Duration.ofMillis(fault.getLatencyMillis())).then(response);
+            }
+            // 收到响应头后由响应体结束时离开故障层；响应头之前出错或取消时在这里离开
+            AtomicBoolean exited = new AtomicBoolean();
+            AtomicBoolean responded = new AtomicBoolean();
+            Runnable exit = () -> {
+                if (exited.compareAndSet(false, true)) {
+                    injector.exit();
+                }
+            };
+            return response
+                .map(clientResponse -> {
+                    responded.set(true);
+                    return clientResponse.mutate()
+                        .body(responseBody -> responseBody.doFinally(signal -> exit.run()))
+                        .build();
+                })
+                .doOnSubscribe(subscription -> injector.enter())
+                .doFinally(signal -> {
+                    if (!responded.get()) {
+                        exit.run();
+                    }
+                });
+        });
+    }
+
+    /**
+     * 累计字节数超过阈值的片段被丢弃，随后以连接重置结束
+     */
+    private static Flux<DataBuffer> resetAfter(Flux<DataBuffer> body, long resetAfterBytes) {
+        AtomicLong remaining = new AtomicLong(resetAfterBytes);
+        return body.handle((buffer, sink) -> {
+            if (remaining.addAndGet(-buffer.readableByteCount()) < 0) {
+                DataBufferUtils.release(buffer);
+                sink.error(new SocketException("Connection reset (injected)"));
+            } else {
+                sink.next(buffer);
+            }
+        });
+    }
+
+    /**
+     * 保留路径和查询参数，改为以明文HTTP访问黑洞服务
+     */
+    private static URI blackhole(URI target, InetSocketAddress address) {
+        return URI.create("http://" + address.getHostString() + ":" + address.getPort()
+            + (target.getRawPath() != null ? target.getRawPath() : "")
+            + (target.getRawQuery() != null ? "?" + target.getRawQuery() : ""));
+    }
+
+    private static String errorBody(int status) {
+        return "{\"error\":{\"message\":\"Upstream fault (injected)\",\"type\":\"server_error\",\"code\":" + status + "}}";
+    }
+
+    private static void sleep(long millis) throws InterruptedIOException {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("故障注入等待被中断");
+        }
+    }
+
+    /**
+     * 关闭时离开故障层的响应，只离开一次
+     */
+    private static final class InFlightResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse delegate;
+        private final FaultInjector injector;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        InFlightResponse(ClientHttpResponse delegate, FaultInjector injector) {
+            this.delegate = delegate;
+            this.injector = injector;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public void close() {
+            try {
+                delegate.close();
+            } finally {
+                if (closed.compareAndSet(false, true)) {
+                    injector.exit();
+                }
+            }
+        }
+    }
+
+    /**
+     * 不访问上游的错误响应
+     */
+    private static final class InjectedResponse implements ClientHttpResponse {
+
+        private final int status;
+        private final HttpHeaders headers = new HttpHeaders();
+
+        InjectedResponse(int status) {
+            this.status = status;
+            this.headers.setContentType(MediaType.APPLICATION_JSON);
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() {
+            return HttpStatusCode.valueOf(status);
+        }
+
+        @Override
+        public String getStatusText() {
+            return "Injected Fault";
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(errorBody(status).getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * 响应体读到resetAfterBytes字节后抛出连接重置
+     */
+    private static final class ResettingResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse delegate;
+        private final long resetAfterBytes;
+
+        ResettingResponse(ClientHttpResponse delegate, long resetAfterBytes) {
+            this.delegate = delegate;
+            this.resetAfterBytes = resetAfterBytes;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return new FilterInputStream(delegate.getBody()) {
+
+                private long remaining = resetAfterBytes;
+
+                @Override
+                public int read() throws IOException {
+                    checkReset();
+                    int b = super.read();
+                    if (b >= 0) {
+                        remaining--;
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    checkReset();
+                    int n = super.read(buffer, offset, (int) Math.min(length, remaining));
+                    if (n > 0) {
+                        remaining -= n;
+                    }
+                    return n;
+                }
+
+                private void checkReset() throws SocketException {
+                    if (remaining <= 0) {
+                        throw new SocketException("Connection reset (injected)");
+                    }
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
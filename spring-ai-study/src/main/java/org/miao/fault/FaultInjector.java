@@ -0,0 +1,194 @@
+package org.miao.fault;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.miao.config.FaultInjectionProperties;
+import org.miao.config.FaultInjectionProperties.Scenario;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 按场景脚本为上游调用抽取故障
+ * 由FaultInjection包装的RestClient拦截器和WebClient过滤器在每次上游调用前调用next()。
+ * 场景时间从构造（应用启动）或restart()时算起；第n次调用的抽取结果只由seed和n决定。
+ * 同时统计经过故障层的在途上游调用数及其峰值，用于验证调用并发是否受限。
+ * 首次注入黑洞时在本地启动BlackholeServer，close()时关闭。
+ */
+public class FaultInjector implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FaultInjector.class);
+
+    private final FaultInjectionProperties properties;
+    private final LongSupplier nanoClock;
+    private final long periodMillis;
+    private final Map<Fault.Type, Counter> injected = new EnumMap<>(Fault.Type.class);
+    private final Counter latencySpikes;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private volatile long startNanos;
+    private BlackholeServer blackhole;
+
+    public FaultInjector(FaultInjectionProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, System::nanoTime);
+    }
+
+    FaultInjector(FaultInjectionProperties properties, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        for (Scenario scenario : properties.getScenarios()) {
+            validate(scenario);
+        }
+        this.properties = properties;
+        this.nanoClock = nanoClock;
+        this.periodMillis = properties.isLoop() ? period(properties.getScenarios()) : 0;
+        for (Fault.Type type : Fault.Type.values()) {
+            if (type != Fault.Type.NONE) {
+                injected.put(type, Counter.builder("chat.fault.injected")
+                    .description("注入的上游故障次数")
+                    .tag("type", type.name().toLowerCase())
+                    .register(meterRegistry));
+            }
+        }
+        this.latencySpikes = Counter.builder("chat.fault.injected")
+            .description("注入的上游故障次数")
+            .tag("type", "latency")
+            .register(meterRegistry);
+        this.startNanos = nanoClock.getAsLong();
+        logger.warn("上游故障注入已启用，场景数: {}，循环: {}", properties.getScenarios().size(), properties.isLoop());
+    }
+
+    /**
+     * 从现在起重新开始场景脚本
+     */
+    public void restart() {
+        startNanos = nanoClock.getAsLong();
+    }
+
+    /**
+     * 当前生效的场景，没有时返回null
+     */
+    public Scenario activeScenario() {
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(nanoClock.getAsLong() - startNanos);
+        if (periodMillis > 0) {
+            elapsedMillis %= periodMillis;
+        }
+        for (Scenario scenario : properties.getScenarios()) {
+            if (elapsedMillis >= scenario.getStartMillis()
+                    && (scenario.getDurationMillis() == 0
+                        || elapsedMillis < scenario.getStartMillis() + scenario.getDurationMillis())) {
+                return scenario;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 为下一次上游调用抽取故障
+     */
+    public Fault next() {
+        Scenario scenario = activeScenario();
+        if (scenario == null) {
+            return Fault.NONE;
+        }
+        SplittableRandom random = new SplittableRandom(properties.getSeed() + sequence.getAndIncrement());
+        long latencyMillis = random.nextDouble() < scenario.getLatencySpikeRate() ? scenario.getLatencySpikeMillis() : 0;
+        double roll = random.nextDouble();
+        Fault.Type type;
+        if (roll < scenario.getErrorRate()) {
+            type = Fault.Type.ERROR;
+        } else if (roll < scenario.getErrorRate() + scenario.getBlackholeRate()) {
+            type = Fault.Type.BLACKHOLE;
+        } else if (roll < scenario.getErrorRate() + scenario.getBlackholeRate() + scenario.getResetRate()) {
+            type = Fault.Type.RESET;
+        } else {
+            type = Fault.Type.NONE;
+        }
+        if (latencyMillis > 0) {
+            latencySpikes.increment();
+        }
+        if (type == Fault.Type.NONE) {
+            return latencyMillis > 0 ? new Fault(Fault.Type.NONE, latencyMillis, 0, 0) : Fault.NONE;
+        }
+        injected.get(type).increment();
+        return new Fault(type, latencyMillis, scenario.getErrorStatus(), scenario.getResetAfterBytes());
+    }
+
+    /**
+     * 上游调用进入故障层
+     */
+    public void enter() {
+        int current = inFlight.incrementAndGet();
+        peakInFlight.accumulateAndGet(current, Math::max);
+    }
+
+    /**
+     * 上游调用离开故障层
+     */
+    public void exit() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * 黑洞服务的本地地址，首次调用时启动
+     */
+    public synchronized InetSocketAddress blackholeAddress() throws IOException {
+        if (blackhole == null) {
+            blackhole = new BlackholeServer();
+            logger.info("黑洞服务已启动: {}", blackhole.getAddress());
+        }
+        return blackhole.getAddress();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (blackhole != null) {
+            blackhole.close();
+            blackhole = null;
+        }
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int getPeakInFlight() {
+        return peakInFlight.get();
+    }
+
+    private static void validate(Scenario scenario) {
+        double total = scenario.getErrorRate() + scenario.getBlackholeRate() + scenario.getResetRate();
+        if (scenario.getErrorRate() < 0 || scenario.getBlackholeRate() < 0 || scenario.getResetRate() < 0
+                || total > 1.0 || scenario.getLatencySpikeRate() < 0 || scenario.getLatencySpikeRate() > 1.0) {
+            throw new IllegalArgumentException("故障场景的比例无效: " + scenario);
+        }
+        if (scenario.getStartMillis() < 0 || scenario.getDurationMillis() < 0 || scenario.getErrorStatus() < 400
+                || scenario.getErrorStatus() > 599) {
+            throw new IllegalArgumentException("故障场景参数无效: " + scenario);
+        }
+    }
+
+    /**
+     * 循环周期为脚本中最晚的结束时间；任一场景一直持续时不循环
+     */
+    private static long period(List<Scenario> scenarios) {
+        long period = 0;
+        for (Scenario scenario : scenarios) {
+            if (scenario.getDurationMillis() == 0) {
+                return 0;
+            }
+            period = Math.max(period, scenario.getStartMillis() + scenario.getDurationMillis());
+        }
+        return period;
+    }
+}
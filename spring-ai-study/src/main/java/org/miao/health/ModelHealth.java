@@ -0,0 +1,102 @@
+package org.miao.health;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 单个模型最近若干次探测的滚动统计
+ * 探测线程写入、健康检查和路由逻辑读取，频率很低，直接使用对象锁。
+ */
+final class ModelHealth {
+
+    private final long[] latencyNanos;
+    private final boolean[] failed;
+    private int size;
+    private int next;
+    private int consecutiveFailures;
+    private long lastProbeMillis;
+    private String lastError;
+
+    ModelHealth(int windowSize) {
+        this.latencyNanos = new long[Math.max(1, windowSize)];
+        this.failed = new boolean[latencyNanos.length];
+    }
+
+    synchronized void record(boolean success, long durationNanos, String error, long nowMillis) {
+        latencyNanos[next] = durationNanos;
+        failed[next] = !success;
+        next = (next + 1) % latencyNanos.length;
+        size = Math.min(size + 1, latencyNanos.length);
+        consecutiveFailures = success ? 0 : consecutiveFailures + 1;
+        lastProbeMillis = nowMillis;
+        if (!success) {
+            lastError = error;
+        }
+    }
+
+    /**
+     * 按阈值判定状态：连续失败达到downAfterFailures为不可用，
+     * 错误率或成功探测的p95延迟超过阈值为降级，尚无探测结果为未知
+     */
+    synchronized ModelState state(int downAfterFailures, double degradedErrorRate, long degradedLatencyNanos) {
+        if (size == 0) {
+            return ModelState.UNKNOWN;
+        }
+        if (consecutiveFailures >= downAfterFailures) {
+            return ModelState.DOWN;
+        }
+        if (errorRate() >= degradedErrorRate || percentile(0.95) > degradedLatencyNanos) {
+            return ModelState.DEGRADED;
+        }
+        return ModelState.UP;
+    }
+
+    synchronized Map<String, Object> details() {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("samples", size);
+        details.put("errorRate", Math.round(errorRate() * 1000) / 1000.0);
+        details.put("p50Millis", percentile(0.5) / 1_000_000);
+        details.put("p95Millis", percentile(0.95) / 1_000_000);
+        details.put("consecutiveFailures", consecutiveFailures);
+        if (lastProbeMillis > 0) {
+            details.put("lastProbe", Instant.ofEpochMilli(lastProbeMillis).toString());
+        }
+        if (lastError != null) {
+            details.put("lastError", lastError);
+        }
+        return details;
+    }
+
+    private double errorRate() {
+        if (size == 0) {
+            return 0;
+        }
+        int failures = 0;
+        for (int i = 0; i < size; i++) {
+            if (failed[i]) {
+                failures++;
+            }
+        }
+        return (double) failures / size;
+    }
+
+    /**
+     * 成功探测延迟的百分位（纳秒），没有成功探测时返回0
+     */
+    private long percentile(double quantile) {
+        long[] successful = new long[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (!failed[i]) {
+                successful[count++] = latencyNanos[i];
+            }
+        }
+        if (count == 0) {
+            return 0;
+        }
+        Arrays.sort(successful, 0, count);
+        return successful[Math.min(count - 1, (int) Math.ceil(quantile * count) - 1)];
+    }
+}
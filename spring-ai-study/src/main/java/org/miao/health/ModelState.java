@@ -0,0 +1,21 @@
+package org.miao.health;
+
+/**
+ * 上游模型的健康状态
+ */
+public enum ModelState {
+
+    UP,
+
+    /**
+     * 可用但错误率或延迟超过阈值，路由时应尽量避开
+     */
+    DEGRADED,
+
+    DOWN,
+
+    /**
+     * 尚无探测结果
+     */
+    UNKNOWN
+}
@@ -0,0 +1,63 @@
+package org.miao.health;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 上游模型健康检查（/actuator/health中的upstream组件）
+ * 只读取UpstreamHealthMonitor的探测结果，不在健康检查请求中访问上游。
+ *
+ * 所有已探测模型均不可用时为DOWN，任一模型降级或不可用时为DEGRADED，尚无探测结果时为UNKNOWN。
+ * /actuator/health按show-details=when-authorized只显示状态，
+ * 每个模型的详情通过upstream健康组查看：GET /actuator/health/upstream。
+ */
+@Component
+public class UpstreamHealthIndicator implements HealthIndicator {
+
+    public static final Status DEGRADED = new Status("DEGRADED", "部分上游模型错误率或延迟超过阈值");
+
+    private final UpstreamHealthMonitor monitor;
+
+    @Autowired
+    public UpstreamHealthIndicator(UpstreamHealthMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    @Override
+    public Health health() {
+        if (!monitor.isEnabled()) {
+            return Health.unknown().withDetail("reason", "上游健康探测未启用").build();
+        }
+        Map<String, Map<String, Object>> models = monitor.details();
+        int known = 0;
+        int down = 0;
+        int degraded = 0;
+        for (Map<String, Object> model : models.values()) {
+            ModelState state = ModelState.valueOf((String) model.get("status"));
+            if (state != ModelState.UNKNOWN) {
+                known++;
+            }
+            if (state == ModelState.DOWN) {
+                down++;
+            } else if (state == ModelState.DEGRADED) {
+                degraded++;
+            }
+        }
+        Status status;
+        if (known == 0) {
+            status = Status.UNKNOWN;
+        } else if (down == known) {
+            status = Status.DOWN;
+        } else if (down > 0 || degraded > 0) {
+            status = DEGRADED;
+        } else {
+            status = Status.UP;
+        }
+        return Health.status(status).withDetail("models", models).build();
+    }
+}
@@ -0,0 +1,259 @@
+package org.miao.health;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.miao.config.OpenRouterProperties;
+import org.miao.config.UpstreamClients;
+import org.miao.config.UpstreamHealthProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.model.function.FunctionCallbackContext;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上游模型健康探测
+ * 在独立线程上定时向每个配置的模型发送最小请求（max_tokens=1），记录延迟和错误的滚动统计，
+ * 不占用聊天请求的并发许可。健康检查和路由逻辑通过state/isAvailable读取结果。
+ * 探测使用单独的客户端：不经过故障注入和流量录制，连接和读超时取upstream-health.timeout-seconds，
+ * 超时由HTTP客户端触发；探测线程数有上限，同一模型上一次探测未结束时跳过本轮。
+ *
+ * 每个模型的状态同时发布为chat.upstream.health指标：1为正常，0.5为降级，0为不可用，-1为未知。
+ */
+@Component
+public class UpstreamHealthMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamHealthMonitor.class);
+
+    private static final String PROBE_MESSAGE = "ping";
+
+    /**
+     * 对单个模型发起一次探测，失败时抛出异常
+     */
+    @FunctionalInterface
+    interface ModelProbe {
+        void probe(String model) throws Exception;
+    }
+
+    private final OpenRouterProperties openRouterProperties;
+    private final UpstreamHealthProperties properties;
+    private final ModelProbe probe;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, ModelHealth> models = new ConcurrentHashMap<>();
+    private final Set<String> probing = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService scheduler;
+    private ExecutorService probeExecutor;
+
+    @Autowired
+    public UpstreamHealthMonitor(OpenRouterProperties openRouterProperties, UpstreamHealthProperties properties,
+                                 MeterRegistry meterRegistry) {
+        this(openRouterProperties, properties, chatProbe(probeClient(openRouterProperties, properties)),
+            meterRegistry);
+    }
+
+    UpstreamHealthMonitor(OpenRouterProperties openRouterProperties, UpstreamHealthProperties properties,
+                          ModelProbe probe, MeterRegistry meterRegistry) {
+        this.openRouterProperties = openRouterProperties;
+        this.properties = properties;
+        this.probe = probe;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            logger.info("上游健康探测未启用");
+            return;
+        }
+        probeExecutor = Executors.newFixedThreadPool(properties.getMaxConcurrentProbes(), daemon("upstream-probe"));
+        scheduler = Executors.newSingleThreadScheduledExecutor(daemon("upstream-health"));
+        scheduler.scheduleWithFixedDelay(this::probeAll,
+            properties.getInitialDelaySeconds(), properties.getIntervalSeconds(), TimeUnit.SECONDS);
+        logger.info("上游健康探测已启动，周期: {}秒, 模型: {}",
+                   properties.getIntervalSeconds(), openRouterProperties.getAvailableModels());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            probeExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 把所有配置的模型提交到探测线程池，上一次探测仍在进行的模型跳过本轮
+     */
+    void probeAll() {
+        for (String model : openRouterProperties.getAvailableModels()) {
+            if (probeExecutor == null) {
+                // 未启动定时探测（测试或手动调用）时在当前线程探测
+                probeOnce(model);
+                continue;
+            }
+            if (!probing.add(model)) {
+                logger.warn("上一次探测尚未结束，跳过本轮 - 模型: {}", model);
+                continue;
+            }
+            try {
+                probeExecutor.execute(() -> {
+                    try {
+                        probeOnce(model);
+                    } finally {
+                        probing.remove(model);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                probing.remove(model);
+            }
+        }
+    }
+
+    /**
+     * 在当前线程探测单个模型并记录结果
+     */
+    void probeOnce(String model) {
+        ModelHealth health = health(model);
+        long start = System.nanoTime();
+        String error = null;
+        try {
+            probe.probe(model);
+        } catch (Exception e) {
+            if (Thread.currentThread().isInterrupted()) {
+                // 停止时被中断，不计入统计
+                return;
+            }
+            error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        }
+        long duration = System.nanoTime() - start;
+        health.record(error == null, duration, error, System.currentTimeMillis());
+        if (error != null) {
+            logger.warn("上游探测失败 - 模型: {}, 耗时: {}ms, 错误: {}",
+                       model, TimeUnit.NANOSECONDS.toMillis(duration), error);
+        } else {
+            logger.debug("上游探测成功 - 模型: {}, 耗时: {}ms", model, TimeUnit.NANOSECONDS.toMillis(duration));
+        }
+    }
+
+    /**
+     * 模型当前的健康状态
+     */
+    public ModelState state(String model) {
+        ModelHealth health = models.get(model);
+        if (health == null) {
+            return ModelState.UNKNOWN;
+        }
+        return health.state(properties.getDownAfterFailures(), properties.getDegradedErrorRate(),
+            TimeUnit.MILLISECONDS.toNanos(properties.getDegradedLatencyMillis()));
+    }
+
+    /**
+     * 模型是否可以接收请求（未被判定为不可用）
+     */
+    public boolean isAvailable(String model) {
+        return state(model) != ModelState.DOWN;
+    }
+
+    /**
+     * 各模型的状态和统计，按配置的模型顺序
+     */
+    public Map<String, Map<String, Object>> details() {
+        Map<String, Map<String, Object>> details = new LinkedHashMap<>();
+        for (String model : openRouterProperties.getAvailableModels()) {
+            Map<String, Object> modelDetails = new LinkedHashMap<>();
+            modelDetails.put("status", state(model).name());
+            ModelHealth health = models.get(model);
+            if (health != null) {
+                modelDetails.putAll(health.details());
+            }
+            details.put(model, modelDetails);
+        }
+        return details;
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    private ModelHealth health(String model) {
+        return models.computeIfAbsent(model, key -> {
+            Gauge.builder("chat.upstream.health", this, monitor -> stateValue(monitor.state(key)))
+                .description("上游模型健康状态：1正常，0.5降级，0不可用，-1未知")
+                .tag("model", key)
+                .register(meterRegistry);
+            return new ModelHealth(properties.getWindowSize());
+        });
+    }
+
+    /**
+     * 探测专用的ChatClient：不挂载故障注入和流量录制，超时取upstream-health.timeout-seconds，模型自身不重试
+     */
+    private static ChatClient probeClient(OpenRouterProperties openRouterProperties,
+                                          UpstreamHealthProperties properties) {
+        Duration timeout = Duration.ofSeconds(properties.getTimeoutSeconds());
+        OpenAiApi openAiApi = new OpenAiApi(
+            openRouterProperties.getBaseUrl(),
+            openRouterProperties.getApiKey(),
+            UpstreamClients.restClientBuilder(timeout),
+            UpstreamClients.webClientBuilder(timeout));
+        OpenAiChatModel chatModel = new OpenAiChatModel(openAiApi,
+            OpenAiChatOptions.builder()
+                .withModel(openRouterProperties.getDefaultModel())
+                .withMaxTokens(1)
+                .build(),
+            (FunctionCallbackContext) null, RetryTemplate.builder().maxAttempts(1).build());
+        return ChatClient.builder(chatModel).build();
+    }
+
+    private static ModelProbe chatProbe(ChatClient chatClient) {
+        return model -> chatClient.prompt()
+            .user(PROBE_MESSAGE)
+            .options(OpenAiChatOptions.builder()
+                .withModel(model)
+                .withMaxTokens(1)
+                .build())
+            .call()
+            .content();
+    }
+
+    private static double stateValue(ModelState state) {
+        switch (state) {
+            case UP:
+                return 1;
+            case DEGRADED:
+                return 0.5;
+            case DOWN:
+                return 0;
+            default:
+                return -1;
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,41 @@
+package org.miao.ingestion;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.reader.pdf.PagePdfDocumentReader;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * 文档文本提取
+ * PDF使用Spring AI的按页读取器提取文本，其他文件按UTF-8文本处理
+ */
+final class DocumentExtractor {
+
+    private DocumentExtractor() {
+    }
+
+    static String extract(String fileName, byte[] content) {
+        if (fileName.toLowerCase(Locale.ROOT).endsWith(".pdf")) {
+            return extractPdf(fileName, content);
+        }
+        return new String(content, StandardCharsets.UTF_8);
+    }
+
+    private static String extractPdf(String fileName, byte[] content) {
+        ByteArrayResource resource = new ByteArrayResource(content) {
+            @Override
+            public String getFilename() {
+                return fileName;
+            }
+        };
+        StringBuilder text = new StringBuilder();
+        for (Document page : new PagePdfDocumentReader(resource).get()) {
+            if (page.getContent() != null) {
+                text.append(page.getContent()).append("\n\n");
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,75 @@
+package org.miao.ingestion;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 导入进度检查点
+ * 已完成导入的文件以"路径|大小|修改时间"为键逐行追加到检查点文件并刷盘，
+ * 中断后重新运行时跳过这些文件；文件被修改后键随之变化，会重新导入。
+ */
+public final class IngestionCheckpoint implements Closeable {
+
+    private final Set<String> completed = ConcurrentHashMap.newKeySet();
+    private final FileChannel channel;
+
+    public IngestionCheckpoint(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        if (Files.exists(file)) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    completed.add(line);
+                }
+            }
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND);
+    }
+
+    public static String key(Path path, long size, long lastModifiedMillis) {
+        return path.toAbsolutePath().normalize() + "|" + size + "|" + lastModifiedMillis;
+    }
+
+    public boolean isCompleted(String key) {
+        return completed.contains(key);
+    }
+
+    public int completedCount() {
+        return completed.size();
+    }
+
+    /**
+     * 记录一组已完成的文件，写入后刷盘
+     */
+    public synchronized void markCompleted(Collection<String> keys) throws IOException {
+        if (keys.isEmpty()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder();
+        for (String key : keys) {
+            lines.append(key).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        completed.addAll(keys);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,102 @@
+package org.miao.ingestion;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一次导入任务的状态与进度
+ */
+public class IngestionJob {
+
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    private final String directory;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private final AtomicLong filesSkipped = new AtomicLong();
+    private final AtomicLong filesCompleted = new AtomicLong();
+    private final AtomicLong chunksIndexed = new AtomicLong();
+    private volatile Status status = Status.RUNNING;
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+    private volatile List<StageStats> stages = List.of();
+
+    public IngestionJob(String directory) {
+        this.directory = directory;
+    }
+
+    void fileSkipped() {
+        filesSkipped.incrementAndGet();
+    }
+
+    void fileCompleted() {
+        filesCompleted.incrementAndGet();
+    }
+
+    void chunkIndexed() {
+        chunksIndexed.incrementAndGet();
+    }
+
+    void attach(List<StageStats> stages) {
+        this.stages = stages;
+    }
+
+    void complete() {
+        finishedAt = LocalDateTime.now();
+        status = Status.COMPLETED;
+    }
+
+    void fail(String error) {
+        this.error = error;
+        finishedAt = LocalDateTime.now();
+        status = Status.FAILED;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * 检查点中已记录、本次跳过的文件数
+     */
+    public long getFilesSkipped() {
+        return filesSkipped.get();
+    }
+
+    public long getFilesCompleted() {
+        return filesCompleted.get();
+    }
+
+    public long getChunksIndexed() {
+        return chunksIndexed.get();
+    }
+
+    /**
+     * 各阶段的吞吐统计
+     */
+    public List<StageStats> getStages() {
+        return stages;
+    }
+
+    public boolean isRunning() {
+        return status == Status.RUNNING;
+    }
+}
@@ -0,0 +1,361 @@
+package org.miao.ingestion;
+
+import jakarta.annotation.PreDestroy;
+import org.miao.config.IngestionProperties;
+import org.miao.exception.InvalidRequestException;
+import org.miao.retrieval.DocumentChunk;
+import org.miao.retrieval.HybridRetriever;
+import org.miao.retrieval.VectorStore;
+import org.miao.service.EmbeddingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 文档批量导入服务
+ * 把目录下的文档经过 读取 → 文本提取 → 切分 → 批量嵌入 → 索引 五个阶段写入检索索引，
+ * 各阶段由有界队列连接并行运行，目录遍历是惰性的，内存占用与文档总量无关。
+ *
+ * 进度以文件为单位记录到检查点：文件的所有片段都写入索引后，先保存向量索引再追加检查点，
+ * 中断后重新运行会跳过已完成的文件。片段ID由文件键和序号确定，
+ * 未完成的文件重新导入时已写入的片段不会重复嵌入和索引。
+ */
+@Service
+public class IngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestionService.class);
+
+    private final IngestionProperties properties;
+    private final HybridRetriever hybridRetriever;
+    private final EmbeddingService embeddingService;
+    private final VectorStore vectorStore;
+    private volatile IngestionJob currentJob;
+    private volatile Thread worker;
+
+    @Autowired
+    public IngestionService(IngestionProperties properties, HybridRetriever hybridRetriever,
+                            EmbeddingService embeddingService, VectorStore vectorStore) {
+        this.properties = properties;
+        this.hybridRetriever = hybridRetriever;
+        this.embeddingService = embeddingService;
+        this.vectorStore = vectorStore;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Thread running = worker;
+        if (running != null) {
+            running.interrupt();
+        }
+    }
+
+    /**
+     * 在后台启动一次目录导入
+     *
+     * @param directory 文档目录
+     * @return 新建的导入任务
+     */
+    public synchronized IngestionJob start(String directory) {
+        if (directory == null || directory.isBlank()) {
+            throw new InvalidRequestException("导入目录不能为空");
+        }
+        if (currentJob != null && currentJob.isRunning()) {
+            throw new InvalidRequestException("已有导入任务正在运行: " + currentJob.getDirectory());
+        }
+        Path root = resolveDirectory(directory);
+        IngestionJob job = new IngestionJob(root.toString());
+        Thread thread = new Thread(() -> run(job, root), "ingestion-job");
+        thread.setDaemon(true);
+        currentJob = job;
+        worker = thread;
+        thread.start();
+        logger.info("文档导入任务已启动 - 目录: {}, 配置: {}", root, properties);
+        return job;
+    }
+
+    /**
+     * 把请求中的目录解析为真实路径，并确认位于ingestion.root-directory之下。
+     * 相对路径按根目录解析；..和符号链接都先解析再比较，不能借此跳出根目录
+     */
+    private Path resolveDirectory(String directory) {
+        if (!properties.isRootDirectoryConfigured()) {
+            throw new InvalidRequestException("未配置ingestion.root-directory，不允许导入");
+        }
+        Path allowedRoot;
+        Path root;
+        try {
+            allowedRoot = Paths.get(properties.getRootDirectory()).toRealPath();
+            root = allowedRoot.resolve(directory).toRealPath();
+        } catch (IOException | InvalidPathException e) {
+            throw new InvalidRequestException("导入目录不存在: " + directory);
+        }
+        if (!root.startsWith(allowedRoot)) {
+            throw new InvalidRequestException("导入目录不在允许的根目录下: " + directory);
+        }
+        if (!Files.isDirectory(root)) {
+            throw new InvalidRequestException("导入目录不存在: " + directory);
+        }
+        return root;
+    }
+
+    /**
+     * 当前（或最近一次）导入任务，未运行过时返回null
+     */
+    public IngestionJob getCurrentJob() {
+        return currentJob;
+    }
+
+    private void run(IngestionJob job, Path root) {
+        Set<String> extensions = properties.getExtensions().stream()
+            .map(extension -> extension.toLowerCase(Locale.ROOT))
+            .collect(Collectors.toSet());
+        TextChunker chunker = new TextChunker(properties.getChunkSize(), properties.getChunkOverlap());
+        ConcurrentLinkedQueue<String> pending = new ConcurrentLinkedQueue<>();
+        ScheduledExecutorService committer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ingestion-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try (IngestionCheckpoint checkpoint = new IngestionCheckpoint(Paths.get(properties.getCheckpointFile()));
+             Stream<Path> files = Files.walk(root)) {
+            Iterator<SourceFile> source = files
+                .filter(Files::isRegularFile)
+                .filter(path -> extensions.contains(extension(path)))
+                .map(path -> SourceFile.of(root, path))
+                .filter(Objects::nonNull)
+                .filter(file -> {
+                    if (checkpoint.isCompleted(file.key)) {
+                        job.fileSkipped();
+                        return false;
+                    }
+                    return true;
+                })
+                .iterator();
+
+            Pipeline<FileContent> read = Pipeline.from("walk", source)
+                .then("read", properties.getReaderThreads(), properties.getReadAheadFiles(), (file, emit) -> {
+                    if (file.size > properties.getMaxFileBytes()) {
+                        throw new IOException("文件超过大小限制: " + file.source);
+                    }
+                    emit.accept(new FileContent(file, Files.readAllBytes(file.path)));
+                });
+            Pipeline<ChunkTask> chunked = read
+                .<FileText>then("extract", properties.getExtractorThreads(), properties.getQueueCapacity(),
+                    (content, emit) -> emit.accept(new FileText(content.file,
+                        DocumentExtractor.extract(content.file.source, content.bytes))))
+                .then("chunk", properties.getChunkerThreads(), properties.getQueueCapacity(), (text, emit) -> {
+                    List<String> pieces = chunker.split(text.text);
+                    FileProgress progress = new FileProgress(text.file.key, pieces.size());
+                    if (pieces.isEmpty()) {
+                        fileCompleted(job, pending, progress);
+                        return;
+                    }
+                    for (int i = 0; i < pieces.size(); i++) {
+                        String id = UUID.nameUUIDFromBytes(
+                            (text.file.key + "#" + i).getBytes(StandardCharsets.UTF_8)).toString();
+                        emit.accept(new ChunkTask(progress, new DocumentChunk(id, text.file.source, pieces.get(i))));
+                    }
+                });
+            Pipeline<EmbeddedChunk> pipeline = chunked
+                .batch("embed", properties.getEmbedderThreads(), properties.getQueueCapacity(),
+                    properties.getEmbedBatchSize(), properties.getEmbedMaxWaitMillis(), (batch, emit) -> {
+                        List<ChunkTask> missing = new ArrayList<>(batch.size());
+                        for (ChunkTask task : batch) {
+                            if (vectorStore.contains(task.chunk.getId())) {
+                                emit.accept(new EmbeddedChunk(task, null));
+                            } else {
+                                missing.add(task);
+                            }
+                        }
+                        if (missing.isEmpty()) {
+                            return;
+                        }
+                        List<String> texts = new ArrayList<>(missing.size());
+                        for (ChunkTask task : missing) {
+                            texts.add(task.chunk.getText());
+                        }
+                        List<float[]> embeddings = embeddingService.embedAll(texts);
+                        for (int i = 0; i < missing.size(); i++) {
+                            emit.accept(new EmbeddedChunk(missing.get(i), embeddings.get(i)));
+                        }
+                    });
+            pipeline.then("index", properties.getIndexerThreads(), properties.getQueueCapacity(), (embedded, emit) -> {
+                if (embedded.embedding != null) {
+                    hybridRetriever.index(embedded.task.chunk, embedded.embedding);
+                    job.chunkIndexed();
+                }
+                if (embedded.task.progress.remaining.decrementAndGet() == 0) {
+                    fileCompleted(job, pending, embedded.task.progress);
+                }
+            });
+            job.attach(pipeline.stats());
+
+            long interval = properties.getCheckpointIntervalSeconds();
+            committer.scheduleWithFixedDelay(() -> commit(checkpoint, pending), interval, interval, TimeUnit.SECONDS);
+            pipeline.run();
+            committer.shutdown();
+            committer.awaitTermination(1, TimeUnit.MINUTES);
+            commit(checkpoint, pending);
+            job.complete();
+            logger.info("文档导入完成 - 目录: {}, 完成文件: {}, 跳过文件: {}, 写入片段: {}",
+                root, job.getFilesCompleted(), job.getFilesSkipped(), job.getChunksIndexed());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.fail("导入任务被中断");
+            logger.warn("文档导入任务被中断 - 目录: {}", root);
+        } catch (Exception e) {
+            job.fail(e.getMessage());
+            logger.error("文档导入失败 - 目录: {}, 错误: {}", root, e.getMessage(), e);
+        } finally {
+            committer.shutdownNow();
+            worker = null;
+        }
+    }
+
+    private static void fileCompleted(IngestionJob job, ConcurrentLinkedQueue<String> pending, FileProgress progress) {
+        pending.add(progress.key);
+        job.fileCompleted();
+    }
+
+    /**
+     * 先保存向量索引，再把期间完成的文件写入检查点，保证检查点记录的文件已持久化
+     */
+    private synchronized void commit(IngestionCheckpoint checkpoint, ConcurrentLinkedQueue<String> pending) {
+        List<String> keys = new ArrayList<>();
+        for (String key = pending.poll(); key != null; key = pending.poll()) {
+            keys.add(key);
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+        try {
+            vectorStore.save();
+            checkpoint.markCompleted(keys);
+            logger.debug("导入检查点已更新 - 本次文件数: {}, 累计: {}", keys.size(), checkpoint.completedCount());
+        } catch (IOException e) {
+            // 放回待提交队列，下次提交时重试
+            pending.addAll(keys);
+            logger.error("导入检查点写入失败 - {}", e.getMessage(), e);
+        }
+    }
+
+    private static String extension(Path path) {
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 待导入的文件
+     */
+    private static final class SourceFile {
+
+        private final Path path;
+        private final String source;
+        private final long size;
+        private final String key;
+
+        private SourceFile(Path path, String source, long size, String key) {
+            this.path = path;
+            this.source = source;
+            this.size = size;
+            this.key = key;
+        }
+
+        private static SourceFile of(Path root, Path path) {
+            try {
+                long size = Files.size(path);
+                long modified = Files.getLastModifiedTime(path).toMillis();
+                return new SourceFile(path, root.relativize(path).toString(), size,
+                    IngestionCheckpoint.key(path, size, modified));
+            } catch (IOException e) {
+                logger.warn("读取文件属性失败，跳过: {} - {}", path, e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    private static final class FileContent {
+
+        private final SourceFile file;
+        private final byte[] bytes;
+
+        private FileContent(SourceFile file, byte[] bytes) {
+            this.file = file;
+            this.bytes = bytes;
+        }
+    }
+
+    private static final class FileText {
+
+        private final SourceFile file;
+        private final String text;
+
+        private FileText(SourceFile file, String text) {
+            this.file = file;
+            this.text = text;
+        }
+    }
+
+    /**
+     * 单个文件尚未写入索引的片段数，归零时文件完成
+     */
+    private static final class FileProgress {
+
+        private final String key;
+        private final AtomicInteger remaining;
+
+        private FileProgress(String key, int chunks) {
+            this.key = key;
+            this.remaining = new AtomicInteger(chunks);
+        }
+    }
+
+    private static final class ChunkTask {
+
+        private final FileProgress progress;
+        private final DocumentChunk chunk;
+
+        private ChunkTask(FileProgress progress, DocumentChunk chunk) {
+            this.progress = progress;
+            this.chunk = chunk;
+        }
+    }
+
+    /**
+     * 嵌入结果，embedding为null表示片段已在索引中
+     */
+    private static final class EmbeddedChunk {
+
+        private final ChunkTask task;
+        private final float[] embedding;
+
+        private EmbeddedChunk(ChunkTask task, float[] embedding) {
+            this.task = task;
+            this.embedding = embedding;
+        }
+    }
+}
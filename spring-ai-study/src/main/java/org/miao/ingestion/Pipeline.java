@@ -0,0 +1,262 @@
+package org.miao.ingestion;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 并行流式处理流水线
+ * 由一个数据源和若干串联阶段组成，阶段之间通过有界队列连接：
+ * 下游处理不过来时上游的emit会阻塞，整条流水线占用的内存由队列容量决定，与数据总量无关。
+ * 每个阶段可配置独立的线程数；批处理阶段把多个输入合并为一批（达到批大小或等待超时）再处理。
+ * 单条输入处理失败只计入失败数，不影响其他输入。
+ *
+ * 使用示例：
+ * <pre>
+ * Pipeline.from("list", files)
+ *     .then("read", 2, 8, readFunction)
+ *     .batch("embed", 2, 64, 32, 100, embedFunction)
+ *     .run();
+ * </pre>
+ */
+public final class Pipeline<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(Pipeline.class);
+
+    /**
+     * 数据结束标记
+     */
+    private static final Object END = new Object();
+
+    private final String sourceName;
+    private final Iterator<?> source;
+    private final List<Stage> stages;
+
+    private Pipeline(String sourceName, Iterator<?> source, List<Stage> stages) {
+        this.sourceName = sourceName;
+        this.source = source;
+        this.stages = stages;
+    }
+
+    public static <T> Pipeline<T> from(String name, Iterator<T> source) {
+        return new Pipeline<>(name, source, new ArrayList<>());
+    }
+
+    /**
+     * 追加一个逐条处理的阶段
+     *
+     * @param threads       工作线程数
+     * @param queueCapacity 该阶段输入队列的容量
+     */
+    public <O> Pipeline<O> then(String name, int threads, int queueCapacity, StageFunction<? super T, O> function) {
+        stages.add(new Stage(name, threads, queueCapacity, 1, 0, function));
+        return new Pipeline<>(sourceName, source, stages);
+    }
+
+    /**
+     * 追加一个批处理阶段
+     *
+     * @param batchSize     每批最大条数
+     * @param maxWaitMillis 凑批的最长等待时间，超时后以当前已收到的条数处理
+     */
+    public <O> Pipeline<O> batch(String name, int threads, int queueCapacity, int batchSize, long maxWaitMillis,
+                                 StageFunction<List<T>, O> function) {
+        stages.add(new Stage(name, threads, queueCapacity, batchSize, maxWaitMillis, function));
+        return new Pipeline<>(sourceName, source, stages);
+    }
+
+    /**
+     * 各阶段的实时统计，运行中也可调用
+     */
+    public List<StageStats> stats() {
+        List<StageStats> stats = new ArrayList<>(stages.size());
+        for (Stage stage : stages) {
+            stats.add(stage.stats);
+        }
+        return Collections.unmodifiableList(stats);
+    }
+
+    /**
+     * 运行流水线，直到数据源耗尽且所有阶段处理完毕
+     * 调用线程被中断时停止所有工作线程
+     */
+    public List<StageStats> run() throws InterruptedException {
+        if (stages.isEmpty()) {
+            throw new IllegalStateException("流水线至少需要一个阶段");
+        }
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < stages.size(); i++) {
+            Stage stage = stages.get(i);
+            BlockingQueue<Object> output = i + 1 < stages.size() ? stages.get(i + 1).input : null;
+            threads.addAll(stage.start(output));
+        }
+        Thread feeder = new Thread(this::feed, "pipeline-" + sourceName);
+        feeder.setDaemon(true);
+        threads.add(feeder);
+        feeder.start();
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+            throw e;
+        }
+        for (Stage stage : stages) {
+            logger.info("流水线阶段完成 - {}", stage.stats);
+        }
+        return stats();
+    }
+
+    private void feed() {
+        BlockingQueue<Object> first = stages.get(0).input;
+        try {
+            while (source.hasNext()) {
+                first.put(source.next());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (RuntimeException e) {
+            logger.error("流水线数据源读取失败 [{}] - {}", sourceName, e.getMessage(), e);
+        }
+        try {
+            first.put(END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 流水线阶段
+     */
+    private static final class Stage {
+
+        private final String name;
+        private final int threads;
+        private final int batchSize;
+        private final long maxWaitNanos;
+        @SuppressWarnings("rawtypes")
+        private final StageFunction function;
+        private final BlockingQueue<Object> input;
+        private final StageStats stats;
+        private final AtomicInteger running;
+
+        private Stage(String name, int threads, int queueCapacity, int batchSize, long maxWaitMillis,
+                      StageFunction<?, ?> function) {
+            if (threads <= 0 || queueCapacity <= 0 || batchSize <= 0) {
+                throw new IllegalArgumentException("阶段 " + name + " 的线程数、队列容量和批大小必须大于0");
+            }
+            this.name = name;
+            this.threads = threads;
+            this.batchSize = batchSize;
+            this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+            this.function = function;
+            this.input = new ArrayBlockingQueue<>(queueCapacity);
+            this.stats = new StageStats(name, threads, input);
+            this.running = new AtomicInteger(threads);
+        }
+
+        private List<Thread> start(BlockingQueue<Object> output) {
+            List<Thread> started = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                Thread thread = new Thread(() -> work(output), "pipeline-" + name + "-" + i);
+                thread.setDaemon(true);
+                started.add(thread);
+            }
+            stats.started();
+            started.forEach(Thread::start);
+            return started;
+        }
+
+        private void work(BlockingQueue<Object> output) {
+            Consumer<Object> emit = item -> {
+                stats.emitted();
+                if (output != null) {
+                    try {
+                        output.put(item);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new PipelineInterruptedException();
+                    }
+                }
+            };
+            try {
+                boolean finished = false;
+                while (!finished) {
+                    Object item = input.take();
+                    if (item == END) {
+                        break;
+                    }
+                    if (batchSize == 1) {
+                        process(item, 1, emit);
+                        continue;
+                    }
+                    List<Object> batch = new ArrayList<>(batchSize);
+                    batch.add(item);
+                    long deadline = System.nanoTime() + maxWaitNanos;
+                    while (batch.size() < batchSize) {
+                        Object next = input.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        if (next == END) {
+                            finished = true;
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                    process(batch, batch.size(), emit);
+                }
+                // 把结束标记留给同阶段的其他线程
+                input.put(END);
+                if (running.decrementAndGet() == 0) {
+                    input.clear();
+                    stats.finished();
+                    if (output != null) {
+                        output.put(END);
+                    }
+                }
+            } catch (InterruptedException | PipelineInterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void process(Object item, int count, Consumer<Object> emit) {
+            stats.received(count);
+            long start = System.nanoTime();
+            try {
+                function.apply(item, emit);
+            } catch (PipelineInterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                stats.failed(count);
+                logger.warn("流水线阶段处理失败 [{}] - {}", name, e.getMessage());
+            } finally {
+                stats.busy(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * 向下游队列写入时被中断
+     */
+    private static final class PipelineInterruptedException extends RuntimeException {
+
+        private PipelineInterruptedException() {
+            super(null, null, false, false);
+        }
+    }
+}
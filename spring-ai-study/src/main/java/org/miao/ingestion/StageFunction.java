@@ -0,0 +1,13 @@
+package org.miao.ingestion;
+
+import java.util.function.Consumer;
+
+/**
+ * 流水线阶段的处理函数
+ * 一个输入可以产生零个或多个输出，通过emit交给下一阶段；下游队列已满时emit会阻塞（背压）
+ */
+@FunctionalInterface
+public interface StageFunction<I, O> {
+
+    void apply(I input, Consumer<O> emit) throws Exception;
+}
@@ -0,0 +1,119 @@
+package org.miao.ingestion;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个流水线阶段的运行统计
+ */
+public final class StageStats {
+
+    private final String name;
+    private final int threads;
+    private final BlockingQueue<Object> input;
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong emitted = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private volatile long startNanos;
+    private volatile long endNanos;
+
+    StageStats(String name, int threads, BlockingQueue<Object> input) {
+        this.name = name;
+        this.threads = threads;
+        this.input = input;
+    }
+
+    void started() {
+        startNanos = System.nanoTime();
+    }
+
+    void finished() {
+        endNanos = System.nanoTime();
+    }
+
+    void received(int count) {
+        received.addAndGet(count);
+        batches.incrementAndGet();
+    }
+
+    void emitted() {
+        emitted.incrementAndGet();
+    }
+
+    void failed(int count) {
+        failed.addAndGet(count);
+    }
+
+    void busy(long nanos) {
+        busyNanos.addAndGet(nanos);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public long getReceived() {
+        return received.get();
+    }
+
+    public long getEmitted() {
+        return emitted.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * 平均每次处理的输入条数，批处理阶段即平均批大小
+     */
+    public double getAverageBatchSize() {
+        long count = batches.get();
+        return count == 0 ? 0 : (double) received.get() / count;
+    }
+
+    /**
+     * 输入队列中等待处理的条数
+     */
+    public int getQueueDepth() {
+        return input != null ? input.size() : 0;
+    }
+
+    public long getElapsedMillis() {
+        if (startNanos == 0) {
+            return 0;
+        }
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        return (end - startNanos) / 1_000_000;
+    }
+
+    /**
+     * 每秒处理的输入条数
+     */
+    public double getThroughput() {
+        long elapsed = getElapsedMillis();
+        return elapsed == 0 ? 0 : received.get() * 1000.0 / elapsed;
+    }
+
+    /**
+     * 工作线程的忙碌比例，接近1说明该阶段是瓶颈
+     */
+    public double getUtilization() {
+        long elapsed = getElapsedMillis();
+        return elapsed == 0 ? 0 : busyNanos.get() / 1e6 / (elapsed * (double) threads);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s{threads=%d, received=%d, emitted=%d, failed=%d, throughput=%.1f/s, "
+                + "utilization=%.0f%%, avgBatch=%.1f, queued=%d}",
+            name, threads, getReceived(), getEmitted(), getFailed(), getThroughput(),
+            getUtilization() * 100, getAverageBatchSize(), getQueueDepth());
+    }
+}
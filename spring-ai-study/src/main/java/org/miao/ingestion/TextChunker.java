@@ -0,0 +1,66 @@
+package org.miao.ingestion;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 文本切分器
+ * 按字符数切分文本，尽量在段落或句子边界处断开，相邻片段保留一定重叠以免语义被截断
+ */
+public final class TextChunker {
+
+    private final int chunkSize;
+    private final int overlap;
+
+    public TextChunker(int chunkSize, int overlap) {
+        if (chunkSize <= 0 || overlap < 0 || overlap >= chunkSize) {
+            throw new IllegalArgumentException("片段大小必须大于0且大于重叠长度: " + chunkSize + ", " + overlap);
+        }
+        this.chunkSize = chunkSize;
+        this.overlap = overlap;
+    }
+
+    public List<String> split(String text) {
+        List<String> chunks = new ArrayList<>();
+        if (text == null) {
+            return chunks;
+        }
+        String normalized = text.replace("\r\n", "\n").replaceAll("[ \\t\\x0B\\f]+", " ").trim();
+        int length = normalized.length();
+        int start = 0;
+        while (start < length) {
+            int end = Math.min(start + chunkSize, length);
+            if (end < length) {
+                end = boundary(normalized, start + chunkSize / 2, end);
+            }
+            String chunk = normalized.substring(start, end).trim();
+            if (!chunk.isEmpty()) {
+                chunks.add(chunk);
+            }
+            if (end >= length) {
+                break;
+            }
+            start = Math.max(end - overlap, start + 1);
+        }
+        return chunks;
+    }
+
+    /**
+     * 在[from, to)内从后向前寻找段落边界，其次是句子边界，都没有时直接在to处断开
+     */
+    private int boundary(String text, int from, int to) {
+        int paragraph = text.lastIndexOf("\n\n", to - 1);
+        if (paragraph >= from) {
+            return paragraph + 2;
+        }
+        for (int i = to - 1; i >= from; i--) {
+            char c = text.charAt(i);
+            if (c == '。' || c == '！' || c == '？' || c == '；' || c == '\n'
+                    || ((c == '.' || c == '!' || c == '?') && i + 1 < text.length()
+                        && Character.isWhitespace(text.charAt(i + 1)))) {
+                return i + 1;
+            }
+        }
+        return to;
+    }
+}
@@ -0,0 +1,35 @@
+package org.miao.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * 重试前的退避等待事件
+ */
+@Name("org.miao.chat.Backoff")
+@Label("Retry Backoff")
+@Category({"Spring AI Study", "Chat"})
+@Description("上游调用失败后重试前的等待")
+@StackTrace(false)
+public class BackoffEvent extends Event {
+
+    @Label("Request Id")
+    public String requestId;
+
+    @Label("Attempt")
+    @Description("刚失败的尝试次数")
+    public int attempt;
+
+    @Label("Planned Wait")
+    @Timespan(Timespan.MILLISECONDS)
+    public long plannedMillis;
+
+    @Label("Deadline Expired")
+    @Description("等待期间请求截止时间已到")
+    public boolean deadlineExpired;
+}
@@ -0,0 +1,40 @@
+package org.miao.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 缓存命中事件（瞬时事件）
+ */
+@Name("org.miao.chat.CacheHit")
+@Label("Cache Hit")
+@Category({"Spring AI Study", "Cache"})
+@Description("响应缓存或嵌入缓存命中")
+@StackTrace(false)
+public class CacheHitEvent extends Event {
+
+    public static final String RESPONSE = "response";
+    public static final String EMBEDDING = "embedding";
+
+    @Label("Cache")
+    public String cache;
+
+    @Label("Model")
+    public String model;
+
+    /**
+     * 记录一次命中，事件未启用时只有一次isEnabled检查
+     */
+    public static void emit(String cache, String model) {
+        CacheHitEvent event = new CacheHitEvent();
+        if (event.isEnabled()) {
+            event.cache = cache;
+            event.model = model;
+            event.commit();
+        }
+    }
+}
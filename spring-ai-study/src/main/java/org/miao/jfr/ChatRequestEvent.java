@@ -0,0 +1,39 @@
+package org.miao.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 聊天请求事件
+ * 从收到请求开始计时到返回（或流式输出结束），与GC、线程阻塞等JDK事件按时间轴对照
+ */
+@Name("org.miao.chat.Request")
+@Label("Chat Request")
+@Category({"Spring AI Study", "Chat"})
+@Description("一次聊天请求从接收到完成的全过程")
+@StackTrace(false)
+public class ChatRequestEvent extends Event {
+
+    @Label("Request Id")
+    public String requestId;
+
+    @Label("Model")
+    public String model;
+
+    @Label("Message Length")
+    public int messageLength;
+
+    @Label("Streaming")
+    public boolean streaming;
+
+    @Label("Conversation")
+    @Description("是否携带会话历史")
+    public boolean conversation;
+
+    @Label("Outcome")
+    public String outcome;
+}
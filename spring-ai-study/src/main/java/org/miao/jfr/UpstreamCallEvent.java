@@ -0,0 +1,35 @@
+package org.miao.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 上游模型调用事件，每次重试单独记录
+ */
+@Name("org.miao.chat.UpstreamCall")
+@Label("Upstream Call")
+@Category({"Spring AI Study", "Chat"})
+@Description("一次对上游模型API的调用")
+@StackTrace(false)
+public class UpstreamCallEvent extends Event {
+
+    @Label("Request Id")
+    public String requestId;
+
+    @Label("Model")
+    public String model;
+
+    @Label("Attempt")
+    public int attempt;
+
+    @Label("Status")
+    @Description("success或error")
+    public String status;
+
+    @Label("Error")
+    public String error;
+}
@@ -0,0 +1,33 @@
+package org.miao.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 有界异步日志appender
+ * 请求线程只把事件放入固定容量的队列，由后台线程编码和输出；队列满时直接丢弃，不阻塞请求线程。
+ * 需配置neverBlock=true，丢弃的条数通过droppedCount()暴露为chat.logging.dropped指标。
+ *
+ * 丢弃计数在入队前按剩余容量判断，并发写满的瞬间可能有少量偏差。
+ */
+public class BoundedAsyncAppender extends AsyncAppender {
+
+    private static final LongAdder DROPPED = new LongAdder();
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        if (isStarted() && getRemainingCapacity() == 0) {
+            DROPPED.increment();
+        }
+        super.append(event);
+    }
+
+    /**
+     * 进程启动以来因队列已满丢弃的日志条数
+     */
+    public static long droppedCount() {
+        return DROPPED.sum();
+    }
+}
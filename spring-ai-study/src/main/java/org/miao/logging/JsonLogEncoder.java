@@ -0,0 +1,143 @@
+package org.miao.logging;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+import ch.qos.logback.core.encoder.EncoderBase;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 单行JSON日志编码器
+ * 每条日志输出为一行JSON：ts（毫秒时间戳）、level、thread、logger、message、MDC字段、exception，以及配置的静态字段。
+ *
+ * 为减少每条日志的分配：静态字段在start时拼好，logger字段按logger名缓存转义后的片段，
+ * 拼接使用每个线程复用的StringBuilder；时间戳直接输出数字，不做日期格式化。
+ */
+public class JsonLogEncoder extends EncoderBase<ILoggingEvent> {
+
+    private static final int MAX_RETAINED_BUFFER = 16 * 1024;
+
+    private final ThreadLocal<StringBuilder> buffers = ThreadLocal.withInitial(() -> new StringBuilder(512));
+    private final Map<String, String> loggerFields = new ConcurrentHashMap<>();
+    private String staticFields = "";
+    private String staticFieldsSpec;
+
+    /**
+     * 静态字段，格式为 key=value,key2=value2，每条日志都会附带
+     */
+    public void setStaticFields(String staticFieldsSpec) {
+        this.staticFieldsSpec = staticFieldsSpec;
+    }
+
+    @Override
+    public void start() {
+        StringBuilder fields = new StringBuilder();
+        if (staticFieldsSpec != null) {
+            for (String pair : staticFieldsSpec.split(",")) {
+                int separator = pair.indexOf('=');
+                if (separator <= 0) {
+                    continue;
+                }
+                fields.append(",\"");
+                escape(pair.substring(0, separator).trim(), fields);
+                fields.append("\":\"");
+                escape(pair.substring(separator + 1).trim(), fields);
+                fields.append('"');
+            }
+        }
+        staticFields = fields.toString();
+        super.start();
+    }
+
+    @Override
+    public byte[] headerBytes() {
+        return null;
+    }
+
+    @Override
+    public byte[] encode(ILoggingEvent event) {
+        StringBuilder json = buffers.get();
+        json.setLength(0);
+        json.append("{\"ts\":").append(event.getTimeStamp())
+            .append(",\"level\":\"").append(event.getLevel().levelStr)
+            .append("\",\"thread\":\"");
+        escape(event.getThreadName(), json);
+        json.append('"')
+            .append(loggerFields.computeIfAbsent(event.getLoggerName(), JsonLogEncoder::loggerField))
+            .append(",\"message\":\"");
+        escape(event.getFormattedMessage(), json);
+        json.append('"');
+        Map<String, String> mdc = event.getMDCPropertyMap();
+        if (mdc != null && !mdc.isEmpty()) {
+            for (Map.Entry<String, String> entry : mdc.entrySet()) {
+                json.append(",\"");
+                escape(entry.getKey(), json);
+                json.append("\":\"");
+                escape(entry.getValue(), json);
+                json.append('"');
+            }
+        }
+        IThrowableProxy throwable = event.getThrowableProxy();
+        if (throwable != null) {
+            json.append(",\"exception\":\"");
+            escape(ThrowableProxyUtil.asString(throwable), json);
+            json.append('"');
+        }
+        json.append(staticFields).append("}\n");
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        if (json.capacity() > MAX_RETAINED_BUFFER) {
+            // 偶尔的超长日志（异常堆栈）不让缓冲区一直占着内存
+            buffers.remove();
+        }
+        return bytes;
+    }
+
+    @Override
+    public byte[] footerBytes() {
+        return null;
+    }
+
+    private static String loggerField(String loggerName) {
+        StringBuilder field = new StringBuilder(loggerName.length() + 12).append(",\"logger\":\"");
+        escape(loggerName, field);
+        return field.append('"').toString();
+    }
+
+    /**
+     * 按JSON字符串规则转义，null输出为空字符串
+     */
+    static void escape(String value, StringBuilder out) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.miao.logging;
+
+import org.slf4j.MDC;
+
+/**
+ * 请求日志上下文
+ * 只携带requestId和model两个字段，以不可变对象的形式在线程之间传递。
+ * activate把字段写入当前线程的MDC，返回的Scope关闭时恢复之前的值，
+ * 因此在复用的线程（线程池、Reactor调度线程、虚拟线程的载体）上不会遗留上一个请求的字段。
+ *
+ * 响应式链路中回调线程不固定，需要在回调里用run/wrap重新激活捕获的上下文。
+ */
+public final class LogContext {
+
+    public static final String REQUEST_ID = "requestId";
+    public static final String MODEL = "model";
+
+    private final String requestId;
+    private final String model;
+
+    private LogContext(String requestId, String model) {
+        this.requestId = requestId;
+        this.model = model;
+    }
+
+    public static LogContext of(String requestId, String model) {
+        return new LogContext(requestId, model);
+    }
+
+    /**
+     * 读取当前线程MDC中的上下文
+     */
+    public static LogContext current() {
+        return new LogContext(MDC.get(REQUEST_ID), MDC.get(MODEL));
+    }
+
+    /**
+     * 在当前线程激活上下文
+     */
+    public Scope activate() {
+        String previousRequestId = MDC.get(REQUEST_ID);
+        String previousModel = MDC.get(MODEL);
+        put(REQUEST_ID, requestId);
+        put(MODEL, model);
+        return () -> {
+            put(REQUEST_ID, previousRequestId);
+            put(MODEL, previousModel);
+        };
+    }
+
+    /**
+     * 在激活的上下文中执行
+     */
+    public void run(Runnable action) {
+        try (Scope ignored = activate()) {
+            action.run();
+        }
+    }
+
+    /**
+     * 包装为在执行时激活本上下文的Runnable，用于提交到其他线程
+     */
+    public Runnable wrap(Runnable action) {
+        return () -> run(action);
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    private static void put(String key, String value) {
+        if (value == null) {
+            MDC.remove(key);
+        } else {
+            MDC.put(key, value);
+        }
+    }
+
+    /**
+     * 激活范围，关闭时恢复激活前的MDC
+     */
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,208 @@
+package org.miao.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.miao.logging.BoundedAsyncAppender;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 聊天链路指标
+ * 按模型和结果记录请求耗时、上游调用耗时、重试、排队等待、首个token耗时、token用量和吞吐，
+ * 耗时类指标同时发布客户端百分位和直方图桶，Prometheus可以跨实例聚合百分位。
+ *
+ * model标签只应传入已校验的模型名，未知模型统一记为UNKNOWN_MODEL，避免标签基数失控。
+ */
+@Component
+public class ChatMetrics {
+
+    public static final String UNKNOWN_MODEL = "unknown";
+
+    public static final String OUTCOME_SUCCESS = "success";
+    public static final String OUTCOME_CACHE_HIT = "cache_hit";
+    public static final String OUTCOME_CLIENT_ERROR = "client_error";
+    public static final String OUTCOME_REJECTED = "rejected";
+    public static final String OUTCOME_CANCELLED = "cancelled";
+    public static final String OUTCOME_ERROR = "error";
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Timer queueWait;
+
+    @Autowired
+    public ChatMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.queueWait = Timer.builder("chat.queue.wait")
+            .description("请求等待上游调用许可的时间")
+            .publishPercentiles(PERCENTILES)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        Gauge.builder("chat.requests.queued", queued, AtomicInteger::get)
+            .description("正在等待上游调用许可的请求数")
+            .register(meterRegistry);
+        FunctionCounter.builder("chat.logging.dropped", this, metrics -> BoundedAsyncAppender.droppedCount())
+            .description("异步日志队列已满而丢弃的日志条数")
+            .register(meterRegistry);
+    }
+
+    /**
+     * 开始记录一个请求，在途请求数加一
+     */
+    public RequestSample start(String model) {
+        inFlight(model).incrementAndGet();
+        return new RequestSample(model, System.nanoTime());
+    }
+
+    /**
+     * 请求进入等待队列
+     *
+     * @return 进入队列的时间点（纳秒），传给leaveQueue
+     */
+    public long enterQueue() {
+        queued.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * 请求离开等待队列（取得许可或等待超时）
+     */
+    public void leaveQueue(long enteredNanos) {
+        queued.decrementAndGet();
+        queueWait.record(System.nanoTime() - enteredNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录一次上游调用（每次重试单独记录）
+     */
+    public void recordAttempt(String model, String outcome, long durationNanos) {
+        Timer.builder("chat.upstream.requests")
+            .description("单次上游模型调用耗时")
+            .tag("model", model)
+            .tag("outcome", outcome)
+            .publishPercentiles(PERCENTILES)
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRetry(String model) {
+        Counter.builder("chat.retries")
+            .description("上游调用失败后的重试次数")
+            .tag("model", model)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    /**
+     * 记录token用量
+     *
+     * @param generationNanos 生成completion所用的时间，用于计算每秒输出token数，不大于0时不记录吞吐
+     */
+    public void recordUsage(String model, long promptTokens, long completionTokens, long generationNanos) {
+        tokens(model, "prompt").record(promptTokens);
+        tokens(model, "completion").record(completionTokens);
+        if (completionTokens > 0 && generationNanos > 0) {
+            DistributionSummary.builder("chat.tokens.throughput")
+                .description("每秒输出的completion token数")
+                .baseUnit("tokens/s")
+                .tag("model", model)
+                .publishPercentiles(PERCENTILES)
+                .register(meterRegistry)
+                .record(completionTokens * 1e9 / generationNanos);
+        }
+    }
+
+    private DistributionSummary tokens(String model, String type) {
+        return DistributionSummary.builder("chat.tokens")
+            .description("每个请求的token数")
+            .baseUnit("tokens")
+            .tag("model", model)
+            .tag("type", type)
+            .publishPercentiles(PERCENTILES)
+            .register(meterRegistry);
+    }
+
+    private AtomicInteger inFlight(String model) {
+        return inFlight.computeIfAbsent(model, key -> {
+            AtomicInteger counter = new AtomicInteger();
+            Gauge.builder("chat.requests.active", counter, AtomicInteger::get)
+                .description("正在处理的请求数")
+                .tag("model", key)
+                .register(meterRegistry);
+            return counter;
+        });
+    }
+
+    /**
+     * 单个请求的计时，finish只生效一次
+     */
+    public final class RequestSample {
+
+        private final String model;
+        private final long startNanos;
+        private final AtomicInteger state = new AtomicInteger();
+        private volatile long firstTokenNanos;
+
+        private RequestSample(String model, long startNanos) {
+            this.model = model;
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * 收到第一个输出token时调用，重复调用只记录第一次
+         */
+        public void firstToken() {
+            if (state.compareAndSet(0, 1)) {
+                firstTokenNanos = System.nanoTime();
+                Timer.builder("chat.ttft")
+                    .description("从收到请求到输出第一个token的时间")
+                    .tag("model", model)
+                    .publishPercentiles(PERCENTILES)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(firstTokenNanos - startNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        /**
+         * 第一个token之后经过的时间，尚未收到token时返回0
+         */
+        public long sinceFirstTokenNanos() {
+            return firstTokenNanos == 0 ? 0 : System.nanoTime() - firstTokenNanos;
+        }
+
+        /**
+         * 结束计时，在途请求数减一
+         *
+         * @return 请求耗时（纳秒）
+         */
+        public long finish(String outcome) {
+            long duration = System.nanoTime() - startNanos;
+            if (state.getAndSet(2) == 2) {
+                return duration;
+            }
+            inFlight(model).decrementAndGet();
+            Timer.builder("chat.requests")
+                .description("聊天请求端到端耗时")
+                .tag("model", model)
+                .tag("outcome", outcome)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(duration, TimeUnit.NANOSECONDS);
+            return duration;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.miao.metrics;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 单个请求各阶段的耗时
+ * 由ServerTimingFilter在请求线程上绑定，请求链路中各处用静态方法记录阶段耗时，
+ * 当前线程未绑定时记录为空操作。同名阶段多次记录时累加（例如多次重试的上游调用和退避等待）。
+ *
+ * 只在绑定的请求线程上读写，不做同步；阶段按首次记录的顺序输出。
+ */
+public final class RequestTimings {
+
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+    private static final int INITIAL_PHASES = 12;
+
+    private final long startNanos;
+    private String[] names = new String[INITIAL_PHASES];
+    private long[] nanos = new long[INITIAL_PHASES];
+    private int size;
+    private long handlerCompletedNanos;
+
+    private RequestTimings(long startNanos) {
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * 在当前线程上开始记录
+     */
+    public static RequestTimings begin() {
+        RequestTimings timings = new RequestTimings(System.nanoTime());
+        CURRENT.set(timings);
+        return timings;
+    }
+
+    /**
+     * 解除当前线程的绑定
+     */
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 当前线程绑定的记录，未绑定时返回null
+     */
+    public static RequestTimings current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 记录从startNanos到现在的耗时
+     */
+    public static void record(String phase, long startNanos) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.add(phase, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * 记录从请求开始到现在的耗时
+     */
+    public static void recordSinceStart(String phase) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.add(phase, System.nanoTime() - timings.startNanos);
+        }
+    }
+
+    /**
+     * 控制器方法返回前调用，此后到响应写完的时间记为序列化耗时
+     */
+    public static void handlerCompleted() {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.handlerCompletedNanos = System.nanoTime();
+        }
+    }
+
+    public void add(String phase, long durationNanos) {
+        for (int i = 0; i < size; i++) {
+            if (names[i].equals(phase)) {
+                nanos[i] += durationNanos;
+                return;
+            }
+        }
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            nanos = Arrays.copyOf(nanos, size * 2);
+        }
+        names[size] = phase;
+        nanos[size] = durationNanos;
+        size++;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * 控制器方法返回的时间点，未记录时为0
+     */
+    public long getHandlerCompletedNanos() {
+        return handlerCompletedNanos;
+    }
+
+    /**
+     * 各阶段耗时（毫秒，保留三位小数）
+     */
+    public Map<String, Double> toMillis() {
+        Map<String, Double> millis = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            millis.put(names[i], Math.round(nanos[i] / 1000.0) / 1000.0);
+        }
+        return millis;
+    }
+
+    /**
+     * 格式化为Server-Timing响应头，例如 upstream;dur=812.503, total;dur=830.1
+     */
+    public String toServerTiming() {
+        StringBuilder header = new StringBuilder(size * 24);
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                header.append(", ");
+            }
+            header.append(names[i]).append(";dur=").append(Math.round(nanos[i] / 1000.0) / 1000.0);
+        }
+        return header.toString();
+    }
+}
@@ -0,0 +1,173 @@
+package org.miao.replay;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.reactive.ClientHttpRequestDecorator;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在上游HTTP调用上录制请求和响应
+ * 同步调用（RestClient）把响应体读入内存后交给调用方，记录收到响应头和读完响应体的时间；
+ * 流式调用（WebClient）在响应体经过时按SSE事件切分，记录每个事件完整到达的时间，不改变响应的节奏。
+ * 只记录请求体、状态码和响应体，不记录请求头。
+ */
+public final class TrafficCapture {
+
+    private TrafficCapture() {
+    }
+
+    public static ClientHttpRequestInterceptor restClientInterceptor(TrafficRecorder recorder) {
+        return (request, body, execution) -> {
+            if (!recorder.sample()) {
+                return execution.execute(request, body);
+            }
+            long startNanos = System.nanoTime();
+            ClientHttpResponse response = execution.execute(request, body);
+            long headersMicros = micros(startNanos);
+            byte[] responseBody;
+            try (InputStream in = response.getBody()) {
+                responseBody = in.readAllBytes();
+            }
+            recorder.record(startNanos, false, response.getStatusCode().value(), headersMicros, body,
+                List.of(new TrafficRecord.Frame(micros(startNanos), responseBody)));
+            return new BufferedResponse(response, responseBody);
+        };
+    }
+
+    public static ExchangeFilterFunction webClientFilter(TrafficRecorder recorder) {
+        return (request, next) -> {
+            if (!recorder.sample()) {
+                return next.exchange(request);
+            }
+            return Mono.defer(() -> {
+                long startNanos = System.nanoTime();
+                ByteArrayOutputStream requestBody = new ByteArrayOutputStream();
+                ClientRequest capturing = ClientRequest.from(request)
+                    .body((outputMessage, context) -> request.body().insert(
+                        new ClientHttpRequestDecorator(outputMessage) {
+                            @Override
+                            public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                                return super.writeWith(Flux.from(body).doOnNext(buffer -> copy(buffer, requestBody)));
+                            }
+                        }, context))
+                    .build();
+                return next.exchange(capturing).map(response -> {
+                    long headersMicros = micros(startNanos);
+                    SseFrames frames = new SseFrames(startNanos);
+                    return response.mutate()
+                        .body(body -> body.doOnNext(frames::append)
+                            .doOnComplete(() -> recorder.record(startNanos, true, response.statusCode().value(),
+                                headersMicros, requestBody.toByteArray(), frames.finish())))
+                        .build();
+                });
+            });
+        };
+    }
+
+    private static long micros(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * 复制可读字节，不改变缓冲区的读位置
+     */
+    private static void copy(DataBuffer buffer, ByteArrayOutputStream target) {
+        byte[] bytes = new byte[buffer.readableByteCount()];
+        int position = buffer.readPosition();
+        buffer.read(bytes);
+        buffer.readPosition(position);
+        target.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * 按空行把响应体切分为SSE事件，事件的时间为其最后一个字节到达的时间
+     */
+    private static final class SseFrames {
+
+        private final long startNanos;
+        private final List<TrafficRecord.Frame> frames = new ArrayList<>();
+        private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+        SseFrames(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        synchronized void append(DataBuffer buffer) {
+            long offsetMicros = micros(startNanos);
+            copy(buffer, pending);
+            byte[] bytes = pending.toByteArray();
+            int start = 0;
+            for (int i = 1; i < bytes.length; i++) {
+                if (bytes[i] == '\n' && bytes[i - 1] == '\n') {
+                    frames.add(new TrafficRecord.Frame(offsetMicros, Arrays.copyOfRange(bytes, start, i + 1)));
+                    start = i + 1;
+                }
+            }
+            pending.reset();
+            pending.write(bytes, start, bytes.length - start);
+        }
+
+        synchronized List<TrafficRecord.Frame> finish() {
+            if (pending.size() > 0) {
+                frames.add(new TrafficRecord.Frame(micros(startNanos), pending.toByteArray()));
+                pending.reset();
+            }
+            return frames;
+        }
+    }
+
+    /**
+     * 响应体已读入内存的响应
+     */
+    private static final class BufferedResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse delegate;
+        private final byte[] body;
+
+        BufferedResponse(ClientHttpResponse delegate, byte[] body) {
+            this.delegate = delegate;
+            this.body = body;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package org.miao.replay;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 流量录制文件的二进制格式
+ * 文件头：[int 魔数][int 版本]；之后每条记录为[int 负载长度][int CRC32][负载]，负载用Deflate压缩。
+ * 解压后的负载为：[long 开始偏移][byte 是否流式][short 状态码][long 响应头耗时][int 请求长度][请求体]
+ * [int 片段数]，每个片段为[long 到达偏移][int 长度][数据]。
+ * 录制进程崩溃时最后一条记录可能不完整，读取时遇到损坏的记录即停止。
+ */
+public final class TrafficLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrafficLog.class);
+
+    static final int MAGIC = 0x54524146;
+    static final int VERSION = 1;
+    private static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+
+    private TrafficLog() {
+    }
+
+    public static void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    /**
+     * 写入一条记录
+     */
+    public static void write(DataOutputStream out, TrafficRecord record) throws IOException {
+        byte[] payload = encode(record);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        out.writeInt(payload.length);
+        out.writeInt((int) crc.getValue());
+        out.write(payload);
+    }
+
+    /**
+     * 读取录制文件中的全部有效记录
+     */
+    public static List<TrafficRecord> read(Path file) throws IOException {
+        List<TrafficRecord> records = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("不是流量录制文件: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("不支持的流量录制文件版本: " + version);
+            }
+            while (true) {
+                TrafficRecord record = readRecord(in);
+                if (record == null) {
+                    break;
+                }
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * 读取下一条记录，文件结束或记录损坏时返回null
+     */
+    private static TrafficRecord readRecord(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        try {
+            int checksum = in.readInt();
+            if (length <= 0 || length > MAX_RECORD_BYTES) {
+                logger.warn("流量录制文件存在损坏的记录（长度{}），忽略之后的内容", length);
+                return null;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                logger.warn("流量录制文件存在校验失败的记录，忽略之后的内容");
+                return null;
+            }
+            return decode(payload);
+        } catch (EOFException e) {
+            logger.warn("流量录制文件的最后一条记录不完整，已忽略");
+            return null;
+        }
+    }
+
+    static byte[] encode(TrafficRecord record) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(
+            Math.max(64, (record.getRequestBody().length + record.getResponseBytes()) / 4));
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(compressed, deflater))) {
+            out.writeLong(record.getStartOffsetMicros());
+            out.writeBoolean(record.isStream());
+            out.writeShort(record.getStatus());
+            out.writeLong(record.getHeadersMicros());
+            out.writeInt(record.getRequestBody().length);
+            out.write(record.getRequestBody());
+            out.writeInt(record.getFrames().size());
+            for (TrafficRecord.Frame frame : record.getFrames()) {
+                out.writeLong(frame.getOffsetMicros());
+                out.writeInt(frame.getData().length);
+                out.write(frame.getData());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deflater.end();
+        }
+        return compressed.toByteArray();
+    }
+
+    static TrafficRecord decode(byte[] payload) throws IOException {
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(payload)))) {
+            long startOffsetMicros = in.readLong();
+            boolean stream = in.readBoolean();
+            int status = in.readUnsignedShort();
+            long headersMicros = in.readLong();
+            byte[] requestBody = readBytes(in);
+            int frameCount = in.readInt();
+            List<TrafficRecord.Frame> frames = new ArrayList<>(frameCount);
+            for (int i = 0; i < frameCount; i++) {
+                long offsetMicros = in.readLong();
+                frames.add(new TrafficRecord.Frame(offsetMicros, readBytes(in)));
+            }
+            return new TrafficRecord(startOffsetMicros, stream, status, headersMicros, requestBody, frames);
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_RECORD_BYTES) {
+            throw new IOException("流量录制记录的长度无效: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,92 @@
+package org.miao.replay;
+
+import java.util.List;
+
+/**
+ * 一次上游调用的录制记录
+ * 时间均为微秒：startOffsetMicros相对录制开始，headersMicros和各片段的offsetMicros相对本次调用发出。
+ * 非流式响应只有一个片段（完整响应体），流式响应每个SSE事件一个片段，片段的时间为事件完整到达的时间。
+ */
+public final class TrafficRecord {
+
+    private final long startOffsetMicros;
+    private final boolean stream;
+    private final int status;
+    private final long headersMicros;
+    private final byte[] requestBody;
+    private final List<Frame> frames;
+
+    public TrafficRecord(long startOffsetMicros, boolean stream, int status, long headersMicros,
+                         byte[] requestBody, List<Frame> frames) {
+        this.startOffsetMicros = startOffsetMicros;
+        this.stream = stream;
+        this.status = status;
+        this.headersMicros = headersMicros;
+        this.requestBody = requestBody;
+        this.frames = List.copyOf(frames);
+    }
+
+    public long getStartOffsetMicros() {
+        return startOffsetMicros;
+    }
+
+    public boolean isStream() {
+        return stream;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public long getHeadersMicros() {
+        return headersMicros;
+    }
+
+    public byte[] getRequestBody() {
+        return requestBody;
+    }
+
+    public List<Frame> getFrames() {
+        return frames;
+    }
+
+    /**
+     * 响应体总字节数
+     */
+    public int getResponseBytes() {
+        int bytes = 0;
+        for (Frame frame : frames) {
+            bytes += frame.getData().length;
+        }
+        return bytes;
+    }
+
+    /**
+     * 最后一个片段到达的时间，即本次调用的总耗时
+     */
+    public long getTotalMicros() {
+        return frames.isEmpty() ? headersMicros : frames.get(frames.size() - 1).getOffsetMicros();
+    }
+
+    /**
+     * 响应体片段
+     */
+    public static final class Frame {
+
+        private final long offsetMicros;
+        private final byte[] data;
+
+        public Frame(long offsetMicros, byte[] data) {
+            this.offsetMicros = offsetMicros;
+            this.data = data;
+        }
+
+        public long getOffsetMicros() {
+            return offsetMicros;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+    }
+}
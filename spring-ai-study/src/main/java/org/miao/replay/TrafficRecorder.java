@@ -0,0 +1,167 @@
+package org.miao.replay;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 上游流量录制器
+ * 请求线程只把原始请求和响应放入有界队列，脱敏、压缩和写文件都在后台线程完成；
+ * 队列满时丢弃，不阻塞请求。每次启动写入一个新文件，由TrafficLog读取，供桩服务回放。
+ */
+public class TrafficRecorder implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrafficRecorder.class);
+
+    private static final int MAX_BATCH = 64;
+
+    private final Path file;
+    private final double sampleRate;
+    private final int maxBodyBytes;
+    private final TrafficSanitizer sanitizer;
+    private final BlockingQueue<TrafficRecord> queue;
+    private final long startNanos = System.nanoTime();
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final DataOutputStream out;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    public TrafficRecorder(Path file, int queueSize, double sampleRate, int maxBodyBytes,
+                           TrafficSanitizer sanitizer) throws IOException {
+        if (sampleRate < 0 || sampleRate > 1.0 || queueSize <= 0 || maxBodyBytes <= 0) {
+            throw new IllegalArgumentException("流量录制参数无效: sampleRate=" + sampleRate
+                + ", queueSize=" + queueSize + ", maxBodyBytes=" + maxBodyBytes);
+        }
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.file = file;
+        this.sampleRate = sampleRate;
+        this.maxBodyBytes = maxBodyBytes;
+        this.sanitizer = sanitizer;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+        TrafficLog.writeHeader(out);
+        out.flush();
+        this.worker = new Thread(this::drain, "traffic-recorder");
+        this.worker.setDaemon(true);
+        this.worker.start();
+        logger.info("上游流量录制到文件: {}，采样率: {}", file.toAbsolutePath(), sampleRate);
+    }
+
+    /**
+     * 本次调用是否录制
+     */
+    public boolean sample() {
+        return sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    /**
+     * 提交一次上游调用的原始请求和响应，立即返回
+     *
+     * @param requestStartNanos 调用发出时的System.nanoTime()
+     * @param headersMicros     收到响应头的耗时
+     * @param frames            原始响应体片段，时间相对调用发出
+     */
+    public void record(long requestStartNanos, boolean stream, int status, long headersMicros,
+                       byte[] requestBody, List<TrafficRecord.Frame> frames) {
+        TrafficRecord record = new TrafficRecord(TimeUnit.NANOSECONDS.toMicros(requestStartNanos - startNanos),
+            stream, status, headersMicros, requestBody, frames);
+        if (requestBody.length + record.getResponseBytes() > maxBodyBytes) {
+            skipped.increment();
+            return;
+        }
+        if (!queue.offer(record)) {
+            dropped.increment();
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * 已写入文件的记录数
+     */
+    public long getRecordedCount() {
+        return recorded.sum();
+    }
+
+    /**
+     * 因队列已满丢弃的记录数
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * 因超过大小上限未录制的记录数
+     */
+    public long getSkippedCount() {
+        return skipped.sum();
+    }
+
+    private void drain() {
+        List<TrafficRecord> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                TrafficRecord first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                for (TrafficRecord record : batch) {
+                    TrafficLog.write(out, sanitize(record));
+                }
+                out.flush();
+                recorded.add(batch.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                logger.warn("写入流量录制失败，丢弃{}条 - {}", batch.size(), e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private TrafficRecord sanitize(TrafficRecord record) {
+        List<TrafficRecord.Frame> frames = new ArrayList<>(record.getFrames().size());
+        for (TrafficRecord.Frame frame : record.getFrames()) {
+            byte[] data = record.isStream()
+                ? sanitizer.sanitizeEvent(frame.getData()) : sanitizer.sanitizeResponse(frame.getData());
+            frames.add(new TrafficRecord.Frame(frame.getOffsetMicros(), data));
+        }
+        return new TrafficRecord(record.getStartOffsetMicros(), record.isStream(), record.getStatus(),
+            record.getHeadersMicros(), sanitizer.sanitizeRequest(record.getRequestBody()), frames);
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        out.close();
+        logger.info("上游流量录制结束，写入: {}，丢弃: {}，超过大小上限: {}",
+            getRecordedCount(), getDroppedCount(), getSkippedCount());
+    }
+}
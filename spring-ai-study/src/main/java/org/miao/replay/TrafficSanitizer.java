@@ -0,0 +1,152 @@
+package org.miao.replay;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 录制内容脱敏
+ * 消息内容按字符替换为UTF-8字节数相同的占位字符，保留空白，使脱敏后的请求和响应大小、分词粒度与原始流量一致。
+ * 请求中的user字段（终端用户标识）直接删除；请求头（包括API密钥）从不录制。
+ * 无法解析为JSON的内容整体按同样规则替换。
+ */
+public final class TrafficSanitizer {
+
+    private static final String DATA_PREFIX = "data:";
+    private static final String[] FILLERS = {"x", "\u00e9", "\u4e00", "\ud83d\ude00"};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final boolean redactContent;
+
+    public TrafficSanitizer(boolean redactContent) {
+        this.redactContent = redactContent;
+    }
+
+    /**
+     * 脱敏上游请求体（chat-completions请求）
+     */
+    public byte[] sanitizeRequest(byte[] body) {
+        JsonNode request = parse(body);
+        if (!(request instanceof ObjectNode)) {
+            return redactContent ? redact(body) : body;
+        }
+        ((ObjectNode) request).remove("user");
+        if (redactContent) {
+            for (JsonNode message : request.path("messages")) {
+                redactField(message, "content");
+            }
+        }
+        return write(request);
+    }
+
+    /**
+     * 脱敏非流式响应体
+     */
+    public byte[] sanitizeResponse(byte[] body) {
+        if (!redactContent || body.length == 0) {
+            return body;
+        }
+        JsonNode response = parse(body);
+        if (!(response instanceof ObjectNode)) {
+            return redact(body);
+        }
+        for (JsonNode choice : response.path("choices")) {
+            redactField(choice.path("message"), "content");
+        }
+        return write(response);
+    }
+
+    /**
+     * 脱敏一个SSE事件，只处理data行，注释行和[DONE]保持不变
+     */
+    public byte[] sanitizeEvent(byte[] event) {
+        if (!redactContent) {
+            return event;
+        }
+        String[] lines = new String(event, StandardCharsets.UTF_8).split("\n", -1);
+        StringBuilder sanitized = new StringBuilder(event.length);
+        for (int i = 0; i < lines.length; i++) {
+            if (i > 0) {
+                sanitized.append('\n');
+            }
+            String line = lines[i];
+            String data = line.startsWith(DATA_PREFIX) ? line.substring(DATA_PREFIX.length()).trim() : null;
+            JsonNode chunk = data != null && data.startsWith("{") ? parse(data.getBytes(StandardCharsets.UTF_8)) : null;
+            if (chunk == null) {
+                sanitized.append(line);
+                continue;
+            }
+            for (JsonNode choice : chunk.path("choices")) {
+                redactField(choice.path("delta"), "content");
+            }
+            sanitized.append(DATA_PREFIX).append(' ').append(new String(write(chunk), StandardCharsets.UTF_8));
+        }
+        return sanitized.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 按字符替换为UTF-8字节数相同的占位字符，空白保持不变
+     */
+    static String redact(String text) {
+        StringBuilder redacted = new StringBuilder(text.length());
+        text.codePoints().forEach(codePoint -> {
+            if (Character.isWhitespace(codePoint)) {
+                redacted.appendCodePoint(codePoint);
+            } else {
+                redacted.append(FILLERS[utf8Length(codePoint) - 1]);
+            }
+        });
+        return redacted.toString();
+    }
+
+    private static byte[] redact(byte[] body) {
+        return redact(new String(body, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int utf8Length(int codePoint) {
+        if (codePoint < 0x80) {
+            return 1;
+        }
+        if (codePoint < 0x800) {
+            return 2;
+        }
+        return codePoint < 0x10000 ? 3 : 4;
+    }
+
+    /**
+     * content为字符串或多段内容数组（[{"type":"text","text":...}]）
+     */
+    private static void redactField(JsonNode node, String field) {
+        if (!(node instanceof ObjectNode)) {
+            return;
+        }
+        JsonNode value = node.get(field);
+        if (value != null && value.isTextual()) {
+            ((ObjectNode) node).set(field, TextNode.valueOf(redact(value.asText())));
+        } else if (value != null && value.isArray()) {
+            for (JsonNode part : value) {
+                redactField(part, "text");
+            }
+        }
+    }
+
+    private JsonNode parse(byte[] body) {
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private byte[] write(JsonNode node) {
+        try {
+            return objectMapper.writeValueAsBytes(node);
+        } catch (IOException e) {
+            throw new IllegalStateException("录制内容序列化失败", e);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.miao.retrieval;
+
+/**
+ * 文档片段
+ * 检索和注入提示词的最小单位
+ */
+public final class DocumentChunk {
+
+    private final String id;
+    private final String source;
+    private final String text;
+
+    public DocumentChunk(String id, String source, String text) {
+        this.id = id;
+        this.source = source;
+        this.text = text;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return "DocumentChunk{" +
+                "id='" + id + '\'' +
+                ", source='" + source + '\'' +
+                ", length=" + (text != null ? text.length() : 0) +
+                '}';
+    }
+}
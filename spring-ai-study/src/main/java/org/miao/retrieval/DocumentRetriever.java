@@ -0,0 +1,12 @@
+package org.miao.retrieval;
+
+import java.util.List;
+
+/**
+ * 文档检索器
+ * 根据用户消息返回相关的文档片段，按相关性从高到低排列
+ */
+public interface DocumentRetriever {
+
+    List<RetrievedChunk> retrieve(String query, int topK);
+}
@@ -0,0 +1,116 @@
+package org.miao.retrieval;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 暴力检索的向量索引
+ * 向量归一化后按块连续存放在float数组中（每块固定数量的向量），检索时顺序扫描所有块，
+ * 点积由SimilarityKernel计算，可用时使用JDK Vector API。
+ * 写入持有写锁，检索持有读锁，多个检索可以并发执行。
+ */
+public class FlatVectorIndex implements VectorIndex {
+
+    /**
+     * 每块存放的向量数量，按块扩容避免大数组整体复制
+     */
+    static final int BLOCK_VECTORS = 4096;
+
+    private final int dimension;
+    private final SimilarityKernel kernel;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private float[][] blocks = new float[0][];
+    private int size;
+
+    public FlatVectorIndex(int dimension) {
+        this(dimension, SimilarityKernels.best());
+    }
+
+    public FlatVectorIndex(int dimension, SimilarityKernel kernel) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("向量维度必须大于0: " + dimension);
+        }
+        this.dimension = dimension;
+        this.kernel = kernel;
+    }
+
+    @Override
+    public int add(float[] vector) {
+        checkDimension(vector);
+        lock.writeLock().lock();
+        try {
+            int block = size / BLOCK_VECTORS;
+            if (block == blocks.length) {
+                blocks = Arrays.copyOf(blocks, block + 1);
+                blocks[block] = new float[BLOCK_VECTORS * dimension];
+            }
+            int offset = (size % BLOCK_VECTORS) * dimension;
+            float[] target = blocks[block];
+            System.arraycopy(vector, 0, target, offset, dimension);
+            normalize(target, offset);
+            return size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public TopK search(float[] query, int k) {
+        checkDimension(query);
+        float[] normalized = query.clone();
+        SimilarityKernels.normalize(normalized);
+        TopK topK = new TopK(k);
+        lock.readLock().lock();
+        try {
+            int remaining = size;
+            for (int block = 0; remaining > 0; block++) {
+                float[] data = blocks[block];
+                int count = Math.min(remaining, BLOCK_VECTORS);
+                int base = block * BLOCK_VECTORS;
+                for (int i = 0, offset = 0; i < count; i++, offset += dimension) {
+                    topK.offer(base + i, kernel.dot(normalized, 0, data, offset, dimension));
+                }
+                remaining -= count;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return topK.sortDescending();
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public SimilarityKernel getKernel() {
+        return kernel;
+    }
+
+    private void normalize(float[] data, int offset) {
+        float norm = (float) Math.sqrt(kernel.dot(data, offset, data, offset, dimension));
+        if (norm > 0f) {
+            for (int i = offset; i < offset + dimension; i++) {
+                data[i] /= norm;
+            }
+        }
+    }
+
+    private void checkDimension(float[] vector) {
+        if (vector == null || vector.length != dimension) {
+            throw new IllegalArgumentException(String.format("向量维度不匹配，期望 %d，实际 %s",
+                dimension, vector == null ? "null" : String.valueOf(vector.length)));
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package org.miao.retrieval;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * HNSW索引的磁盘格式
+ * 文件通过内存映射只读打开，打开时只解析文件头，向量和邻接表在检索时按需从映射区读取，
+ * 因此启动加载耗时与索引规模无关。
+ *
+ * 文件布局（小端序）：
+ * [文件头 64字节: magic, version, dimension, m, maxM0, count, entryId, entryLevel]
+ * [向量区: count * dimension 个float，已归一化]
+ * [第0层: 每个节点定长记录 (level, upperPointer, n, maxM0个邻居)]
+ * [上层: 每个上层节点按层连续存放 (n, m个邻居)，upperPointer指向其第1层记录，无上层时为-1]
+ */
+final class HnswGraphFile {
+
+    static final int MAGIC = 0x484E5357;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+
+    /**
+     * 单个映射区的最大字节数，MappedByteBuffer以int寻址，大文件拆分为多个映射区
+     */
+    private static final long MAX_REGION_BYTES = 1L << 30;
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    private final int dimension;
+    private final int m;
+    private final int maxM0;
+    private final int count;
+    private final int entryId;
+    private final int entryLevel;
+    private final int recordInts;
+    private final int vectorsPerRegion;
+    private final int recordsPerRegion;
+    private final FloatBuffer[] vectorRegions;
+    private final IntBuffer[] level0Regions;
+    private final IntBuffer upper;
+
+    private HnswGraphFile(FileChannel channel) throws IOException {
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("不是HNSW索引文件");
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IOException("不支持的HNSW索引文件版本: " + header.getInt(4));
+        }
+        this.dimension = header.getInt(8);
+        this.m = header.getInt(12);
+        this.maxM0 = header.getInt(16);
+        this.count = header.getInt(20);
+        this.entryId = header.getInt(24);
+        this.entryLevel = header.getInt(28);
+        this.recordInts = 3 + maxM0;
+
+        long vectorBytes = (long) count * dimension * Float.BYTES;
+        long level0Bytes = (long) count * recordInts * Integer.BYTES;
+        long vectorsOffset = HEADER_BYTES;
+        long level0Offset = vectorsOffset + vectorBytes;
+        long upperOffset = level0Offset + level0Bytes;
+        if (channel.size() < upperOffset) {
+            throw new IOException("HNSW索引文件不完整");
+        }
+
+        this.vectorsPerRegion = (int) Math.max(1, MAX_REGION_BYTES / ((long) dimension * Float.BYTES));
+        this.vectorRegions = new FloatBuffer[regions(count, vectorsPerRegion)];
+        for (int r = 0; r < vectorRegions.length; r++) {
+            int vectors = Math.min(vectorsPerRegion, count - r * vectorsPerRegion);
+            vectorRegions[r] = map(channel, vectorsOffset + (long) r * vectorsPerRegion * dimension * Float.BYTES,
+                (long) vectors * dimension * Float.BYTES).asFloatBuffer();
+        }
+
+        this.recordsPerRegion = (int) Math.max(1, MAX_REGION_BYTES / ((long) recordInts * Integer.BYTES));
+        this.level0Regions = new IntBuffer[regions(count, recordsPerRegion)];
+        for (int r = 0; r < level0Regions.length; r++) {
+            int records = Math.min(recordsPerRegion, count - r * recordsPerRegion);
+            level0Regions[r] = map(channel, level0Offset + (long) r * recordsPerRegion * recordInts * Integer.BYTES,
+                (long) records * recordInts * Integer.BYTES).asIntBuffer();
+        }
+
+        this.upper = map(channel, upperOffset, channel.size() - upperOffset).asIntBuffer();
+    }
+
+    /**
+     * 以内存映射方式打开索引文件
+     */
+    static HnswGraphFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // 映射区在通道关闭后仍然有效
+            return new HnswGraphFile(channel);
+        }
+    }
+
+    int dimension() {
+        return dimension;
+    }
+
+    int m() {
+        return m;
+    }
+
+    int maxM0() {
+        return maxM0;
+    }
+
+    int count() {
+        return count;
+    }
+
+    int entryId() {
+        return entryId;
+    }
+
+    int entryLevel() {
+        return entryLevel;
+    }
+
+    int level(int id) {
+        return level0Regions[id / recordsPerRegion].get((id % recordsPerRegion) * recordInts);
+    }
+
+    /**
+     * 把节点向量复制到dst中
+     */
+    void readVector(int id, float[] dst) {
+        vectorRegions[id / vectorsPerRegion].get((id % vectorsPerRegion) * dimension, dst, 0, dimension);
+    }
+
+    int[] neighbours(int id, int level) {
+        IntBuffer buffer;
+        int offset;
+        if (level == 0) {
+            buffer = level0Regions[id / recordsPerRegion];
+            offset = (id % recordsPerRegion) * recordInts + 2;
+        } else {
+            buffer = upper;
+            offset = level0Regions[id / recordsPerRegion].get((id % recordsPerRegion) * recordInts + 1)
+                + (level - 1) * (1 + m);
+        }
+        int[] result = new int[buffer.get(offset)];
+        buffer.get(offset + 1, result);
+        return result;
+    }
+
+    /**
+     * 把索引写入文件
+     * 先写临时文件并刷盘，再原子替换目标文件；已映射的旧文件在替换后仍可继续读取
+     */
+    static void write(HnswIndex index, Path path) throws IOException {
+        int count = index.allocated();
+        int dimension = index.dimension();
+        int m = index.m();
+        int maxM0 = index.maxM0();
+        HnswIndex.EntryPoint entry = index.entryPoint();
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(dimension).putInt(m).putInt(maxM0).putInt(count)
+                .putInt(entry != null ? entry.id : -1).putInt(entry != null ? entry.level : -1);
+            while (buffer.position() < HEADER_BYTES) {
+                buffer.put((byte) 0);
+            }
+
+            float[] vector = new float[dimension];
+            for (int id = 0; id < count; id++) {
+                float[] source = index.vector(id, vector);
+                for (int i = 0; i < dimension; i++) {
+                    ensureRemaining(channel, buffer, Float.BYTES);
+                    buffer.putFloat(source[i]);
+                }
+            }
+
+            int upperPointer = 0;
+            for (int id = 0; id < count; id++) {
+                int level = index.level(id);
+                ensureRemaining(channel, buffer, (3 + maxM0) * Integer.BYTES);
+                buffer.putInt(level).putInt(level > 0 ? upperPointer : -1);
+                putNeighbours(buffer, index.neighbours(id, 0), maxM0);
+                upperPointer += level * (1 + m);
+            }
+
+            for (int id = 0; id < count; id++) {
+                for (int level = 1; level <= index.level(id); level++) {
+                    ensureRemaining(channel, buffer, (1 + m) * Integer.BYTES);
+                    putNeighbours(buffer, index.neighbours(id, level), m);
+                }
+            }
+
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void putNeighbours(ByteBuffer buffer, int[] neighbours, int capacity) {
+        if (neighbours.length > capacity) {
+            throw new IllegalStateException("邻居数量超过上限: " + neighbours.length + " > " + capacity);
+        }
+        buffer.putInt(neighbours.length);
+        for (int i = 0; i < capacity; i++) {
+            buffer.putInt(i < neighbours.length ? neighbours[i] : -1);
+        }
+    }
+
+    private static void ensureRemaining(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, long offset, long length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static int regions(int items, int perRegion) {
+        return Math.max(1, (items + perRegion - 1) / perRegion);
+    }
+}
@@ -0,0 +1,554 @@
+package org.miao.retrieval;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * HNSW（分层可导航小世界图）近似最近邻索引
+ *
+ * 并发模型：
+ * - 检索不加锁。每个节点的邻接表是不可变数组，写入方复制后整体替换（写时复制），
+ *   读取方通过AtomicReferenceArray读到的总是某个完整版本。
+ * - 写入可以并发进行，修改某个节点的邻接表时持有该节点所在分段的锁。
+ * - 节点先发布到节点表，再被其他节点的邻接表引用，因此检索中遇到的节点一定可读。
+ *
+ * 从磁盘打开的索引以内存映射文件作为只读基础层，之后写入的节点和被修改的邻接表保存在堆内覆盖层，
+ * 未修改的基础节点直接从映射区读取。
+ */
+public class HnswIndex implements VectorIndex {
+
+    private static final int PAGE_BITS = 14;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int LOCK_STRIPES = 1024;
+    private static final int MAX_LEVEL = 16;
+    private static final int[] EMPTY = new int[0];
+
+    private final int dimension;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private volatile int efSearch;
+    private final double levelMultiplier;
+    private final SimilarityKernel kernel;
+    private final HnswGraphFile base;
+    private final int baseCount;
+    private final AtomicInteger nextId;
+    private final AtomicInteger size;
+    private final AtomicReference<EntryPoint> entryPoint = new AtomicReference<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final Object growLock = new Object();
+    private volatile AtomicReferenceArray<Node>[] pages;
+    private final ThreadLocal<SearchContext> contexts;
+
+    public HnswIndex(int dimension, int m, int efConstruction, int efSearch) {
+        this(dimension, m, efConstruction, efSearch, SimilarityKernels.best(), null);
+    }
+
+    public HnswIndex(int dimension, int m, int efConstruction, int efSearch, SimilarityKernel kernel) {
+        this(dimension, m, efConstruction, efSearch, kernel, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private HnswIndex(int dimension, int m, int efConstruction, int efSearch,
+                      SimilarityKernel kernel, HnswGraphFile base) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("向量维度必须大于0: " + dimension);
+        }
+        if (m < 2) {
+            throw new IllegalArgumentException("HNSW参数m必须不小于2: " + m);
+        }
+        this.dimension = dimension;
+        this.m = m;
+        this.maxM0 = base != null ? base.maxM0() : 2 * m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.efSearch = efSearch;
+        this.levelMultiplier = 1.0 / Math.log(m);
+        this.kernel = kernel;
+        this.base = base;
+        this.baseCount = base != null ? base.count() : 0;
+        this.nextId = new AtomicInteger(baseCount);
+        this.size = new AtomicInteger(baseCount);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        this.pages = new AtomicReferenceArray[0];
+        if (baseCount > 0) {
+            ensurePage(baseCount - 1);
+            entryPoint.set(new EntryPoint(base.entryId(), base.entryLevel()));
+        }
+        this.contexts = ThreadLocal.withInitial(() -> new SearchContext(dimension, Math.max(efConstruction, efSearch)));
+    }
+
+    /**
+     * 以内存映射方式打开磁盘上的索引，只读取文件头，不重建图
+     */
+    public static HnswIndex open(Path path, int efConstruction, int efSearch, SimilarityKernel kernel)
+            throws IOException {
+        HnswGraphFile file = HnswGraphFile.open(path);
+        return new HnswIndex(file.dimension(), file.m(), efConstruction, efSearch, kernel, file);
+    }
+
+    /**
+     * 把索引保存到磁盘
+     * 保存期间不应有并发写入，检索不受影响
+     */
+    public void save(Path path) throws IOException {
+        HnswGraphFile.write(this, path);
+    }
+
+    @Override
+    public int add(float[] vector) {
+        checkDimension(vector);
+        float[] normalized = vector.clone();
+        SimilarityKernels.normalize(normalized);
+
+        int id = nextId.getAndIncrement();
+        ensurePage(id);
+        Node node = new Node(normalized, randomLevel());
+        page(id).set(id & PAGE_MASK, node);
+        insert(id, node, contexts.get());
+        size.incrementAndGet();
+        return id;
+    }
+
+    @Override
+    public TopK search(float[] query, int k) {
+        checkDimension(query);
+        TopK topK = new TopK(k);
+        EntryPoint entry = entryPoint.get();
+        if (entry == null) {
+            return topK;
+        }
+        float[] normalized = query.clone();
+        SimilarityKernels.normalize(normalized);
+        SearchContext context = contexts.get();
+
+        int current = entry.id;
+        float currentScore = score(normalized, current, context);
+        for (int level = entry.level; level > 0; level--) {
+            int best = greedyStep(normalized, current, currentScore, level, context);
+            currentScore = context.greedyScore;
+            current = best;
+        }
+        NeighborQueue results = searchLayer(normalized, current, currentScore, Math.max(efSearch, k), 0, context);
+        for (int i = 0; i < results.size(); i++) {
+            topK.offer(results.idAt(i), results.scoreAt(i));
+        }
+        return topK.sortDescending();
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * 已完成插入的节点数量
+     */
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    public int getEfSearch() {
+        return efSearch;
+    }
+
+    /**
+     * 调整检索时的候选集大小，越大召回率越高、延迟越高
+     */
+    public void setEfSearch(int efSearch) {
+        this.efSearch = efSearch;
+    }
+
+    /**
+     * 来自内存映射基础层的节点数量
+     */
+    public int getBaseCount() {
+        return baseCount;
+    }
+
+    int m() {
+        return m;
+    }
+
+    int maxM0() {
+        return maxM0;
+    }
+
+    /**
+     * 已分配序号的节点数量（包括正在插入的节点）
+     */
+    int allocated() {
+        return nextId.get();
+    }
+
+    EntryPoint entryPoint() {
+        return entryPoint.get();
+    }
+
+    int level(int id) {
+        Node node = node(id);
+        return node != null ? node.level : base.level(id);
+    }
+
+    int[] neighbours(int id, int level) {
+        Node node = node(id);
+        if (node != null) {
+            int[] links = node.links.get(level);
+            return links != null ? links : EMPTY;
+        }
+        return base.neighbours(id, level);
+    }
+
+    /**
+     * 获取节点向量，基础层节点的向量复制到scratch中返回
+     */
+    float[] vector(int id, float[] scratch) {
+        Node node = node(id);
+        if (node != null && node.vector != null) {
+            return node.vector;
+        }
+        base.readVector(id, scratch);
+        return scratch;
+    }
+
+    private void insert(int id, Node node, SearchContext context) {
+        EntryPoint entry = entryPoint.get();
+        if (entry == null) {
+            if (entryPoint.compareAndSet(null, new EntryPoint(id, node.level))) {
+                return;
+            }
+            entry = entryPoint.get();
+        }
+        float[] vector = node.vector;
+        int current = entry.id;
+        float currentScore = score(vector, current, context);
+        for (int level = entry.level; level > node.level; level--) {
+            current = greedyStep(vector, current, currentScore, level, context);
+            currentScore = context.greedyScore;
+        }
+
+        for (int level = Math.min(node.level, entry.level); level >= 0; level--) {
+            NeighborQueue results = searchLayer(vector, current, currentScore, efConstruction, level, context);
+            int count = results.size();
+            int[] candidates = new int[count];
+            float[] scores = new float[count];
+            // 结果集是最小堆，逆序弹出得到按得分降序排列的候选
+            for (int i = count - 1; i >= 0; i--) {
+                candidates[i] = results.topId();
+                scores[i] = results.topScore();
+                results.pop();
+            }
+            int[] selected = selectNeighbours(candidates, scores, count, maxConnections(level), context);
+            mergeLinks(id, level, selected, context);
+            for (int neighbour : selected) {
+                mergeLinks(neighbour, level, new int[]{id}, context);
+            }
+            if (count > 0) {
+                current = candidates[0];
+                currentScore = scores[0];
+            }
+        }
+
+        while (node.level > entry.level) {
+            if (entryPoint.compareAndSet(entry, new EntryPoint(id, node.level))) {
+                break;
+            }
+            entry = entryPoint.get();
+        }
+    }
+
+    /**
+     * 在某一层上贪心移动到得分最高的邻居，直到无法改进
+     */
+    private int greedyStep(float[] query, int current, float currentScore, int level, SearchContext context) {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int neighbour : neighbours(current, level)) {
+                float score = score(query, neighbour, context);
+                if (score > currentScore) {
+                    currentScore = score;
+                    current = neighbour;
+                    changed = true;
+                }
+            }
+        }
+        context.greedyScore = currentScore;
+        return current;
+    }
+
+    /**
+     * 在某一层上做束搜索，返回至多ef个得分最高的节点（最小堆）
+     */
+    private NeighborQueue searchLayer(float[] query, int entry, float entryScore, int ef, int level,
+                                      SearchContext context) {
+        context.beginVisit(nextId.get());
+        NeighborQueue candidates = context.candidates;
+        NeighborQueue results = context.results;
+        candidates.clear();
+        results.clear();
+        context.visit(entry);
+        candidates.push(entry, entryScore);
+        results.push(entry, entryScore);
+
+        while (!candidates.isEmpty()) {
+            float candidateScore = candidates.topScore();
+            if (results.size() >= ef && candidateScore < results.topScore()) {
+                break;
+            }
+            int candidate = candidates.topId();
+            candidates.pop();
+            for (int neighbour : neighbours(candidate, level)) {
+                if (!context.visit(neighbour)) {
+                    continue;
+                }
+                float score = score(query, neighbour, context);
+                if (results.size() < ef || score > results.topScore()) {
+                    candidates.push(neighbour, score);
+                    results.push(neighbour, score);
+                    if (results.size() > ef) {
+                        results.pop();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 启发式邻居选择：候选按得分降序遍历，只保留比已选邻居更接近目标的候选，
+     * 使邻居分布在不同方向上，提高图的连通性
+     */
+    private int[] selectNeighbours(int[] candidates, float[] scores, int count, int max, SearchContext context) {
+        int[] selected = new int[Math.min(count, max)];
+        int selectedCount = 0;
+        for (int i = 0; i < count && selectedCount < max; i++) {
+            float[] candidateVector = vector(candidates[i], context.scratchA);
+            boolean keep = true;
+            for (int j = 0; j < selectedCount; j++) {
+                float[] selectedVector = vector(selected[j], context.scratchB);
+                if (kernel.dot(candidateVector, 0, selectedVector, 0, dimension) > scores[i]) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected[selectedCount++] = candidates[i];
+            }
+        }
+        return selectedCount == selected.length ? selected : Arrays.copyOf(selected, selectedCount);
+    }
+
+    /**
+     * 把additions合并进节点的邻接表，超过上限时按启发式规则裁剪，然后整体替换
+     */
+    private void mergeLinks(int id, int level, int[] additions, SearchContext context) {
+        synchronized (locks[id & (LOCK_STRIPES - 1)]) {
+            Node node = overlay(id);
+            int[] current = node.links.get(level);
+            if (current == null) {
+                current = EMPTY;
+            }
+            int[] merged = Arrays.copyOf(current, current.length + additions.length);
+            int count = current.length;
+            for (int addition : additions) {
+                if (addition != id && !contains(merged, count, addition)) {
+                    merged[count++] = addition;
+                }
+            }
+            if (count == current.length) {
+                return;
+            }
+            int max = maxConnections(level);
+            if (count <= max) {
+                node.links.set(level, count == merged.length ? merged : Arrays.copyOf(merged, count));
+                return;
+            }
+            float[] nodeVector = vector(id, context.scratchQuery);
+            float[] scores = new float[count];
+            for (int i = 0; i < count; i++) {
+                scores[i] = kernel.dot(nodeVector, 0, vector(merged[i], context.scratchA), 0, dimension);
+            }
+            sortByScoreDescending(merged, scores, count);
+            node.links.set(level, selectNeighbours(merged, scores, count, max, context));
+        }
+    }
+
+    /**
+     * 获取可写的节点，基础层节点第一次被修改时复制其邻接表到覆盖层
+     * 调用方必须持有该节点的分段锁
+     */
+    private Node overlay(int id) {
+        AtomicReferenceArray<Node> page = page(id);
+        Node node = page.get(id & PAGE_MASK);
+        if (node != null) {
+            return node;
+        }
+        int level = base.level(id);
+        Node copy = new Node(null, level);
+        for (int l = 0; l <= level; l++) {
+            copy.links.set(l, base.neighbours(id, l));
+        }
+        page.set(id & PAGE_MASK, copy);
+        return copy;
+    }
+
+    private float score(float[] query, int id, SearchContext context) {
+        return kernel.dot(query, 0, vector(id, context.scratchVector), 0, dimension);
+    }
+
+    private int maxConnections(int level) {
+        return level == 0 ? maxM0 : m;
+    }
+
+    private int randomLevel() {
+        double random = 1.0 - ThreadLocalRandom.current().nextDouble();
+        return Math.min((int) (-Math.log(random) * levelMultiplier), MAX_LEVEL);
+    }
+
+    private Node node(int id) {
+        return page(id).get(id & PAGE_MASK);
+    }
+
+    private AtomicReferenceArray<Node> page(int id) {
+        return pages[id >>> PAGE_BITS];
+    }
+
+    @SuppressWarnings("unchecked")
+    private void ensurePage(int id) {
+        int pageIndex = id >>> PAGE_BITS;
+        if (pageIndex < pages.length) {
+            return;
+        }
+        synchronized (growLock) {
+            AtomicReferenceArray<Node>[] current = pages;
+            if (pageIndex < current.length) {
+                return;
+            }
+            AtomicReferenceArray<Node>[] grown = Arrays.copyOf(current, pageIndex + 1);
+            for (int i = current.length; i < grown.length; i++) {
+                grown[i] = new AtomicReferenceArray<>(PAGE_SIZE);
+            }
+            pages = grown;
+        }
+    }
+
+    private void checkDimension(float[] vector) {
+        if (vector == null || vector.length != dimension) {
+            throw new IllegalArgumentException(String.format("向量维度不匹配，期望 %d，实际 %s",
+                dimension, vector == null ? "null" : String.valueOf(vector.length)));
+        }
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void sortByScoreDescending(int[] ids, float[] scores, int count) {
+        // 邻居数量很小，插入排序即可
+        for (int i = 1; i < count; i++) {
+            int id = ids[i];
+            float score = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] < score) {
+                ids[j + 1] = ids[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            ids[j + 1] = id;
+            scores[j + 1] = score;
+        }
+    }
+
+    /**
+     * 图节点，vector为null表示向量在内存映射基础层中
+     */
+    private static final class Node {
+
+        private final float[] vector;
+        private final int level;
+        private final AtomicReferenceArray<int[]> links;
+
+        private Node(float[] vector, int level) {
+            this.vector = vector;
+            this.level = level;
+            this.links = new AtomicReferenceArray<>(level + 1);
+        }
+    }
+
+    /**
+     * 图的入口节点及其层数，整体替换
+     */
+    static final class EntryPoint {
+
+        final int id;
+        final int level;
+
+        EntryPoint(int id, int level) {
+            this.id = id;
+            this.level = level;
+        }
+    }
+
+    /**
+     * 每个线程复用的检索状态：访问标记、候选队列和向量缓冲区
+     */
+    private static final class SearchContext {
+
+        private final NeighborQueue candidates;
+        private final NeighborQueue results;
+        private final float[] scratchVector;
+        private final float[] scratchQuery;
+        private final float[] scratchA;
+        private final float[] scratchB;
+        private int[] visited = new int[0];
+        private int generation;
+        private float greedyScore;
+
+        private SearchContext(int dimension, int ef) {
+            this.candidates = new NeighborQueue(ef * 2, true);
+            this.results = new NeighborQueue(ef + 1, false);
+            this.scratchVector = new float[dimension];
+            this.scratchQuery = new float[dimension];
+            this.scratchA = new float[dimension];
+            this.scratchB = new float[dimension];
+        }
+
+        void beginVisit(int capacity) {
+            if (visited.length < capacity) {
+                visited = Arrays.copyOf(visited, Math.max(capacity, visited.length * 2));
+            }
+            if (++generation == 0) {
+                Arrays.fill(visited, 0);
+                generation = 1;
+            }
+        }
+
+        /**
+         * 标记节点已访问，首次访问返回true
+         */
+        boolean visit(int id) {
+            if (id >= visited.length) {
+                visited = Arrays.copyOf(visited, Math.max(id + 1, visited.length * 2));
+            }
+            if (visited[id] == generation) {
+                return false;
+            }
+            visited[id] = generation;
+            return true;
+        }
+    }
+}
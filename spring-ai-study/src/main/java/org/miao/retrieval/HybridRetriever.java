@@ -0,0 +1,71 @@
+package org.miao.retrieval;
+
+import org.miao.config.RetrievalProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 混合检索器
+ * 分别取向量检索和BM25关键词检索的候选，用倒数排名融合合并为最终结果。
+ * 向量检索失败（例如未配置嵌入模型）时退化为只用关键词检索。
+ */
+@Primary
+@Component
+public class HybridRetriever implements DocumentRetriever {
+
+    private static final Logger logger = LoggerFactory.getLogger(HybridRetriever.class);
+
+    private final VectorRetriever vectorRetriever;
+    private final KeywordRetriever keywordRetriever;
+    private final RetrievalProperties properties;
+
+    @Autowired
+    public HybridRetriever(VectorRetriever vectorRetriever, KeywordRetriever keywordRetriever,
+                           RetrievalProperties properties) {
+        this.vectorRetriever = vectorRetriever;
+        this.keywordRetriever = keywordRetriever;
+        this.properties = properties;
+    }
+
+    @Override
+    public List<RetrievedChunk> retrieve(String query, int topK) {
+        int candidates = Math.max(topK, properties.getFusionCandidates());
+        List<List<RetrievedChunk>> rankings = new ArrayList<>(2);
+        try {
+            rankings.add(vectorRetriever.retrieve(query, candidates));
+        } catch (Exception e) {
+            logger.warn("向量检索失败，仅使用关键词检索 - {}", e.getMessage());
+        }
+        if (properties.isKeywordEnabled()) {
+            rankings.add(keywordRetriever.retrieve(query, candidates));
+        }
+        List<RetrievedChunk> fused = ReciprocalRankFusion.fuse(rankings, properties.getRrfK(), topK);
+        logger.debug("混合检索完成 - 检索路数: {}, 融合结果: {}", rankings.size(), fused.size());
+        return fused;
+    }
+
+    /**
+     * 切分好的文档片段同时写入向量索引和关键词索引
+     */
+    public DocumentChunk addDocument(String source, String text) {
+        DocumentChunk chunk = new DocumentChunk(UUID.randomUUID().toString(), source, text);
+        vectorRetriever.index(chunk);
+        keywordRetriever.index(chunk);
+        return chunk;
+    }
+
+    /**
+     * 写入已计算好嵌入向量的片段，供批量导入使用
+     */
+    public void index(DocumentChunk chunk, float[] embedding) {
+        vectorRetriever.index(chunk, embedding);
+        keywordRetriever.index(chunk);
+    }
+}
@@ -0,0 +1,177 @@
+package org.miao.retrieval;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 基于BM25打分的倒排索引
+ * 文档按写入顺序分配从0开始的序号，倒排列表以变长整数压缩存储。
+ * 写入持有写锁，检索持有读锁，多个检索可以并发执行。
+ */
+public class InvertedIndex {
+
+    private final float k1;
+    private final float b;
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<ScoreBuffer> buffers = ThreadLocal.withInitial(ScoreBuffer::new);
+    private int[] documentLengths = new int[1024];
+    private int documentCount;
+    private long totalLength;
+
+    public InvertedIndex() {
+        this(1.2f, 0.75f);
+    }
+
+    /**
+     * @param k1 词频饱和参数
+     * @param b  文档长度归一化参数
+     */
+    public InvertedIndex(float k1, float b) {
+        this.k1 = k1;
+        this.b = b;
+    }
+
+    /**
+     * 写入文档
+     *
+     * @return 文档序号
+     */
+    public int add(String text) {
+        List<String> tokens = Tokenizer.tokenize(text);
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        lock.writeLock().lock();
+        try {
+            int document = documentCount++;
+            if (document == documentLengths.length) {
+                documentLengths = Arrays.copyOf(documentLengths, document * 2);
+            }
+            documentLengths[document] = tokens.size();
+            totalLength += tokens.size();
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), key -> new PostingList())
+                    .add(document, entry.getValue());
+            }
+            return document;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 检索BM25得分最高的k个文档
+     */
+    public TopK search(String query, int k) {
+        Set<String> terms = new LinkedHashSet<>(Tokenizer.tokenize(query));
+        TopK topK = new TopK(k);
+        lock.readLock().lock();
+        try {
+            if (documentCount == 0 || terms.isEmpty()) {
+                return topK;
+            }
+            ScoreBuffer buffer = buffers.get();
+            buffer.reset(documentCount);
+            float averageLength = (float) totalLength / documentCount;
+            for (String term : terms) {
+                PostingList list = postings.get(term);
+                if (list == null) {
+                    continue;
+                }
+                float idf = idf(list.documentFrequency());
+                PostingList.Cursor cursor = list.cursor();
+                while (cursor.next()) {
+                    int document = cursor.document();
+                    int tf = cursor.termFrequency();
+                    float norm = k1 * (1 - b + b * documentLengths[document] / averageLength);
+                    buffer.add(document, idf * tf * (k1 + 1) / (tf + norm));
+                }
+            }
+            for (int i = 0; i < buffer.touchedCount; i++) {
+                int document = buffer.touched[i];
+                topK.offer(document, buffer.scores[document]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return topK.sortDescending();
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 所有倒排列表压缩后的总字节数
+     */
+    public long postingBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (PostingList list : postings.values()) {
+                bytes += list.sizeInBytes();
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private float idf(int documentFrequency) {
+        return (float) Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    /**
+     * 每个线程复用的得分累加区，只清理本次检索命中的文档
+     */
+    private static final class ScoreBuffer {
+
+        private float[] scores = new float[0];
+        private int[] touched = new int[0];
+        private int touchedCount;
+
+        void reset(int documents) {
+            for (int i = 0; i < touchedCount; i++) {
+                if (touched[i] < scores.length) {
+                    scores[touched[i]] = 0f;
+                }
+            }
+            touchedCount = 0;
+            if (scores.length < documents) {
+                scores = new float[Math.max(documents, scores.length * 2)];
+            }
+        }
+
+        void add(int document, float score) {
+            if (scores[document] == 0f) {
+                if (touchedCount == touched.length) {
+                    touched = Arrays.copyOf(touched, Math.max(16, touchedCount * 2));
+                }
+                touched[touchedCount++] = document;
+            }
+            scores[document] += score;
+        }
+    }
+}
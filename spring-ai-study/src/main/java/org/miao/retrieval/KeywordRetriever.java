@@ -0,0 +1,94 @@
+package org.miao.retrieval;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.miao.config.RetrievalProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于BM25关键词匹配的文档检索器
+ * 弥补向量检索对错误码、类名等精确标识符不敏感的问题。
+ * 倒排索引只保存在内存中，启动时根据向量存储中已有的片段重建。
+ * 与向量检索的min-score相对应，得分低于retrieval.keyword-min-score或低于最高分一定比例的片段不返回，
+ * 只和查询共享一两个常见词的片段不会被融合进提示词。
+ */
+@Component
+public class KeywordRetriever implements DocumentRetriever {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeywordRetriever.class);
+
+    private final VectorStore vectorStore;
+    private final RetrievalProperties properties;
+    private final InvertedIndex index = new InvertedIndex();
+    private final ConcurrentMap<Integer, DocumentChunk> chunks = new ConcurrentHashMap<>();
+    private final Timer searchTimer;
+
+    @Autowired
+    public KeywordRetriever(VectorStore vectorStore, RetrievalProperties properties, MeterRegistry meterRegistry) {
+        this.vectorStore = vectorStore;
+        this.properties = properties;
+        this.searchTimer = Timer.builder("chat.retrieval.search")
+            .description("关键词检索耗时")
+            .tag("index", "bm25")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+    }
+
+    /**
+     * 根据向量存储中的片段重建倒排索引
+     */
+    @PostConstruct
+    public void init() {
+        long start = System.nanoTime();
+        vectorStore.forEachChunk(this::index);
+        if (index.size() > 0) {
+            logger.info("关键词索引重建完成 - 片段数: {}, 词项数: {}, 倒排列表: {}KB, 耗时: {}ms",
+                index.size(), index.termCount(), index.postingBytes() / 1024,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    @Override
+    public List<RetrievedChunk> retrieve(String query, int topK) {
+        long start = System.nanoTime();
+        try {
+            TopK result = index.search(query, topK);
+            List<RetrievedChunk> results = new ArrayList<>(result.size());
+            if (result.size() == 0) {
+                return results;
+            }
+            double minScore = Math.max(properties.getKeywordMinScore(),
+                result.getScore(0) * properties.getKeywordMinScoreRatio());
+            for (int i = 0; i < result.size() && result.getScore(i) >= minScore; i++) {
+                DocumentChunk chunk = chunks.get(result.getId(i));
+                if (chunk != null) {
+                    results.add(new RetrievedChunk(chunk, result.getScore(i)));
+                }
+            }
+            return results;
+        } finally {
+            searchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 把片段写入倒排索引
+     */
+    public void index(DocumentChunk chunk) {
+        chunks.put(index.add(chunk.getText()), chunk);
+    }
+
+    public int size() {
+        return index.size();
+    }
+}
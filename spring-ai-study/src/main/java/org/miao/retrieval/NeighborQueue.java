@@ -0,0 +1,107 @@
+package org.miao.retrieval;
+
+import java.util.Arrays;
+
+/**
+ * 图检索使用的候选队列
+ * 基本类型数组实现的二叉堆，可按最大堆（候选集）或最小堆（结果集）使用
+ */
+final class NeighborQueue {
+
+    private final boolean maxHeap;
+    private int[] ids;
+    private float[] scores;
+    private int size;
+
+    NeighborQueue(int initialCapacity, boolean maxHeap) {
+        this.maxHeap = maxHeap;
+        this.ids = new int[Math.max(1, initialCapacity)];
+        this.scores = new float[Math.max(1, initialCapacity)];
+    }
+
+    void push(int id, float score) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            scores = Arrays.copyOf(scores, size * 2);
+        }
+        ids[size] = id;
+        scores[size] = score;
+        int index = size++;
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!before(index, parent)) {
+                break;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    /**
+     * 移除堆顶元素
+     */
+    void pop() {
+        size--;
+        if (size > 0) {
+            ids[0] = ids[size];
+            scores[0] = scores[size];
+            int index = 0;
+            while (true) {
+                int left = 2 * index + 1;
+                if (left >= size) {
+                    break;
+                }
+                int child = left + 1 < size && before(left + 1, left) ? left + 1 : left;
+                if (!before(child, index)) {
+                    break;
+                }
+                swap(index, child);
+                index = child;
+            }
+        }
+    }
+
+    int topId() {
+        return ids[0];
+    }
+
+    float topScore() {
+        return scores[0];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * 按堆内存储顺序访问元素（非排序顺序）
+     */
+    int idAt(int index) {
+        return ids[index];
+    }
+
+    float scoreAt(int index) {
+        return scores[index];
+    }
+
+    private boolean before(int a, int b) {
+        return maxHeap ? scores[a] > scores[b] : scores[a] < scores[b];
+    }
+
+    private void swap(int a, int b) {
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
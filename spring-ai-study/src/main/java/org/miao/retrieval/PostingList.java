@@ -0,0 +1,100 @@
+package org.miao.retrieval;
+
+import java.util.Arrays;
+
+/**
+ * 压缩的倒排列表
+ * 文档按序号递增追加，每条记录为[文档序号差值][词频]，均使用变长整数（VByte）编码，
+ * 常见词的列表通常每条只占2~3个字节。
+ */
+final class PostingList {
+
+    private byte[] data = new byte[8];
+    private int length;
+    private int documentFrequency;
+    private int lastDocument = -1;
+
+    /**
+     * 追加一条记录，文档序号必须大于之前的所有序号
+     */
+    void add(int document, int termFrequency) {
+        if (document <= lastDocument) {
+            throw new IllegalArgumentException("文档序号必须递增: " + document + " <= " + lastDocument);
+        }
+        ensureCapacity(10);
+        writeVarInt(document - lastDocument);
+        writeVarInt(termFrequency);
+        lastDocument = document;
+        documentFrequency++;
+    }
+
+    int documentFrequency() {
+        return documentFrequency;
+    }
+
+    /**
+     * 编码后的字节数
+     */
+    int sizeInBytes() {
+        return length;
+    }
+
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > data.length) {
+            data = Arrays.copyOf(data, Math.max(length + extra, data.length * 2));
+        }
+    }
+
+    private void writeVarInt(int value) {
+        while ((value & ~0x7F) != 0) {
+            data[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+
+    /**
+     * 顺序解码倒排列表
+     */
+    final class Cursor {
+
+        private final byte[] bytes = data;
+        private final int end = length;
+        private int position;
+        private int document = -1;
+        private int termFrequency;
+
+        boolean next() {
+            if (position >= end) {
+                return false;
+            }
+            document += readVarInt();
+            termFrequency = readVarInt();
+            return true;
+        }
+
+        int document() {
+            return document;
+        }
+
+        int termFrequency() {
+            return termFrequency;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+}
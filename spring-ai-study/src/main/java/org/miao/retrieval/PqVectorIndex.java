@@ -0,0 +1,350 @@
+package org.miao.retrieval;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 乘积量化压缩的向量索引
+ * 堆内只保存每个向量subspaces字节的编码，1536维向量从6KB压缩到几十到几百字节；
+ * 全精度向量写入RawVectorFile留在磁盘和页缓存中。
+ * 检索时先用查询的内积表顺序扫描所有编码，取rerankFactor * k个候选，
+ * 再读取候选的全精度向量重新计算相似度得到最终的k个结果；rerankFactor为0时直接返回近似结果。
+ *
+ * 写入的前trainingSize个向量暂存在堆内并精确检索，数量达到后由触发训练的写入线程在锁外训练码本，
+ * 训练期间的写入继续进入暂存区，训练完成后在写锁内编码剩余向量并释放暂存区。
+ */
+public class PqVectorIndex implements VectorIndex, Closeable {
+
+    static final int MAGIC = 0x50514958;
+    static final int VERSION = 1;
+    static final int TRAINING_ITERATIONS = 10;
+    private static final long TRAINING_SEED = 42;
+
+    private final int dimension;
+    private final int subspaces;
+    private final int trainingSize;
+    private final int rerankFactor;
+    private final SimilarityKernel kernel;
+    private final RawVectorFile rawVectors;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile ProductQuantizer quantizer;
+    private float[][] pending;
+    private boolean training;
+    private byte[][] blocks = new byte[0][];
+    private int size;
+
+    /**
+     * @param subspaces    子空间数，即每个向量的编码字节数，必须整除向量维度
+     * @param trainingSize 训练码本使用的向量数
+     * @param rerankFactor 重排序候选数相对k的倍数，0表示不重排序
+     * @param rawFile      全精度向量文件
+     */
+    public PqVectorIndex(int dimension, int subspaces, int trainingSize, int rerankFactor, Path rawFile)
+            throws IOException {
+        this(dimension, subspaces, trainingSize, rerankFactor, rawFile, SimilarityKernels.best());
+    }
+
+    public PqVectorIndex(int dimension, int subspaces, int trainingSize, int rerankFactor, Path rawFile,
+                         SimilarityKernel kernel) throws IOException {
+        if (dimension <= 0 || trainingSize <= 0 || rerankFactor < 0) {
+            throw new IllegalArgumentException("向量维度和训练样本数必须大于0，重排序倍数不能为负");
+        }
+        ProductQuantizer.checkSubspaces(dimension, subspaces);
+        this.dimension = dimension;
+        this.subspaces = subspaces;
+        this.trainingSize = trainingSize;
+        this.rerankFactor = rerankFactor;
+        this.kernel = kernel;
+        this.rawVectors = new RawVectorFile(rawFile, dimension);
+        this.pending = new float[Math.min(trainingSize, 1024)][];
+    }
+
+    /**
+     * 打开已保存的索引，未完成训练的索引从全精度向量文件恢复暂存区
+     */
+    public static PqVectorIndex open(Path file, Path rawFile, int trainingSize, int rerankFactor,
+                                     SimilarityKernel kernel) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("不是PQ索引文件");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("不支持的PQ索引文件版本: " + version);
+            }
+            int dimension = in.readInt();
+            int subspaces = in.readInt();
+            int size = in.readInt();
+            boolean trained = in.readBoolean();
+            PqVectorIndex index = new PqVectorIndex(dimension, subspaces, trainingSize, rerankFactor, rawFile, kernel);
+            try {
+                if (index.rawVectors.count() < size) {
+                    throw new IOException("全精度向量文件缺少向量: " + index.rawVectors.count() + " < " + size);
+                }
+                if (trained) {
+                    index.quantizer = ProductQuantizer.read(in);
+                    index.pending = null;
+                    for (int id = 0; id < size; id++) {
+                        in.readFully(index.codeBlock(id), offset(id, subspaces), subspaces);
+                        index.size++;
+                    }
+                } else {
+                    for (int id = 0; id < size; id++) {
+                        index.addPending(index.rawVectors.read(id, new float[dimension]));
+                        index.size++;
+                    }
+                    if (index.size >= trainingSize) {
+                        index.training = true;
+                        index.train(index.pending, index.size);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                index.close();
+                throw e;
+            }
+            return index;
+        }
+    }
+
+    @Override
+    public int add(float[] vector) {
+        checkDimension(vector);
+        float[] normalized = vector.clone();
+        SimilarityKernels.normalize(normalized);
+        // 编码在锁外完成，写锁内只做拷贝
+        ProductQuantizer current = quantizer;
+        byte[] codes = null;
+        if (current != null) {
+            codes = new byte[subspaces];
+            current.encode(normalized, codes, 0);
+        }
+        float[][] trainingSamples = null;
+        int trainingCount = 0;
+        int id;
+        lock.writeLock().lock();
+        try {
+            id = size;
+            rawVectors.write(id, normalized);
+            if (quantizer == null) {
+                addPending(normalized);
+                size++;
+                if (!training && size >= trainingSize) {
+                    training = true;
+                    trainingSamples = pending;
+                    trainingCount = size;
+                }
+            } else {
+                if (codes == null) {
+                    codes = new byte[subspaces];
+                    quantizer.encode(normalized, codes, 0);
+                }
+                System.arraycopy(codes, 0, codeBlock(id), offset(id, subspaces), subspaces);
+                size++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("全精度向量写入失败", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (trainingSamples != null) {
+            train(trainingSamples, trainingCount);
+        }
+        return id;
+    }
+
+    @Override
+    public TopK search(float[] query, int k) {
+        checkDimension(query);
+        float[] normalized = query.clone();
+        SimilarityKernels.normalize(normalized);
+        lock.readLock().lock();
+        try {
+            ProductQuantizer current = quantizer;
+            if (current == null) {
+                TopK topK = new TopK(k);
+                for (int id = 0; id < size; id++) {
+                    topK.offer(id, kernel.dot(normalized, 0, pending[id], 0, dimension));
+                }
+                return topK.sortDescending();
+            }
+            float[] table = current.table(normalized);
+            TopK candidates = new TopK(rerankFactor > 0 ? k * rerankFactor : k);
+            int remaining = size;
+            for (int block = 0; remaining > 0; block++) {
+                byte[] codes = blocks[block];
+                int count = Math.min(remaining, FlatVectorIndex.BLOCK_VECTORS);
+                int base = block * FlatVectorIndex.BLOCK_VECTORS;
+                for (int i = 0, offset = 0; i < count; i++, offset += subspaces) {
+                    candidates.offer(base + i, current.score(table, codes, offset));
+                }
+                remaining -= count;
+            }
+            if (rerankFactor == 0) {
+                return candidates.sortDescending();
+            }
+            return rerank(normalized, candidates, k);
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取全精度向量失败", e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 保存码本和编码，全精度向量文件同时刷盘
+     */
+    public void save(Path file) throws IOException {
+        lock.readLock().lock();
+        try {
+            rawVectors.force();
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(dimension);
+                out.writeInt(subspaces);
+                out.writeInt(size);
+                out.writeBoolean(quantizer != null);
+                if (quantizer != null) {
+                    quantizer.write(out);
+                    int remaining = size;
+                    for (int block = 0; remaining > 0; block++) {
+                        int count = Math.min(remaining, FlatVectorIndex.BLOCK_VECTORS);
+                        out.write(blocks[block], 0, count * subspaces);
+                        remaining -= count;
+                    }
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isTrained() {
+        return quantizer != null;
+    }
+
+    public int getSubspaces() {
+        return subspaces;
+    }
+
+    /**
+     * 堆内占用的字节数：训练前为暂存的全精度向量，训练后为编码和码本
+     */
+    public long heapBytes() {
+        lock.readLock().lock();
+        try {
+            ProductQuantizer current = quantizer;
+            if (current == null) {
+                return (long) size * dimension * Float.BYTES;
+            }
+            return (long) size * subspaces + current.codebookBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        rawVectors.close();
+    }
+
+    private TopK rerank(float[] query, TopK candidates, int k) throws IOException {
+        TopK topK = new TopK(k);
+        float[] vector = new float[dimension];
+        for (int i = 0; i < candidates.size(); i++) {
+            int id = candidates.getId(i);
+            topK.offer(id, kernel.dot(query, 0, rawVectors.read(id, vector), 0, dimension));
+        }
+        return topK.sortDescending();
+    }
+
+    /**
+     * 用暂存区前count个向量训练码本并编码，训练期间新写入的向量在写锁内补充编码
+     */
+    private void train(float[][] samples, int count) {
+        try {
+            ProductQuantizer trained = ProductQuantizer.train(samples, count, subspaces, TRAINING_ITERATIONS,
+                TRAINING_SEED);
+            byte[] codes = new byte[count * subspaces];
+            for (int id = 0; id < count; id++) {
+                trained.encode(samples[id], codes, id * subspaces);
+            }
+            lock.writeLock().lock();
+            try {
+                for (int id = 0; id < size; id++) {
+                    if (id < count) {
+                        System.arraycopy(codes, id * subspaces, codeBlock(id), offset(id, subspaces), subspaces);
+                    } else {
+                        trained.encode(pending[id], codeBlock(id), offset(id, subspaces));
+                    }
+                }
+                pending = null;
+                quantizer = trained;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            lock.writeLock().lock();
+            try {
+                training = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void addPending(float[] vector) {
+        if (size == pending.length) {
+            int length = pending.length < trainingSize ? Math.min(trainingSize, pending.length * 2) : pending.length * 2;
+            pending = Arrays.copyOf(pending, length);
+        }
+        pending[size] = vector;
+    }
+
+    private byte[] codeBlock(int id) {
+        int block = id / FlatVectorIndex.BLOCK_VECTORS;
+        if (block == blocks.length) {
+            blocks = Arrays.copyOf(blocks, block + 1);
+            blocks[block] = new byte[FlatVectorIndex.BLOCK_VECTORS * subspaces];
+        }
+        return blocks[block];
+    }
+
+    private static int offset(int id, int subspaces) {
+        return (id % FlatVectorIndex.BLOCK_VECTORS) * subspaces;
+    }
+
+    private void checkDimension(float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("向量维度不匹配: 期望 " + dimension + ", 实际 " + vector.length);
+        }
+    }
+}
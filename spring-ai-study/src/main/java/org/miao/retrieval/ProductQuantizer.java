@@ -0,0 +1,246 @@
+package org.miao.retrieval;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * 乘积量化器
+ * 把向量等分为若干子空间，每个子空间用k-means训练最多256个中心，
+ * 向量编码为每个子空间最近中心的序号（每个子空间1字节）。
+ * 检索时先为查询计算一张内积表（子空间数 × 中心数），编码向量与查询的近似内积即为查表求和。
+ */
+public final class ProductQuantizer {
+
+    /**
+     * 每个子空间的最大中心数，编码以无符号字节存放
+     */
+    static final int MAX_CENTROIDS = 256;
+
+    private final int dimension;
+    private final int subspaces;
+    private final int subDimension;
+    private final int centroids;
+    /**
+     * 码本，按[子空间][中心][子维度]连续存放
+     */
+    private final float[] codebooks;
+    /**
+     * 每个中心的平方范数，按[子空间][中心]存放，用于编码时计算距离
+     */
+    private final float[] norms;
+
+    private ProductQuantizer(int dimension, int subspaces, int centroids, float[] codebooks) {
+        this.dimension = dimension;
+        this.subspaces = subspaces;
+        this.subDimension = dimension / subspaces;
+        this.centroids = centroids;
+        this.codebooks = codebooks;
+        this.norms = new float[subspaces * centroids];
+        for (int s = 0; s < subspaces; s++) {
+            for (int c = 0; c < centroids; c++) {
+                int offset = centroidOffset(s, c);
+                norms[s * centroids + c] = dot(codebooks, offset, codebooks, offset, subDimension);
+            }
+        }
+    }
+
+    /**
+     * 用样本向量训练码本
+     *
+     * @param samples    训练样本，至少一个
+     * @param count      使用samples中的前count个向量
+     * @param subspaces  子空间数，必须整除向量维度
+     * @param iterations k-means迭代次数
+     */
+    public static ProductQuantizer train(float[][] samples, int count, int subspaces, int iterations, long seed) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("训练样本不能为空");
+        }
+        int dimension = samples[0].length;
+        checkSubspaces(dimension, subspaces);
+        int subDimension = dimension / subspaces;
+        int centroids = Math.min(MAX_CENTROIDS, count);
+        float[] codebooks = new float[subspaces * centroids * subDimension];
+        SplittableRandom random = new SplittableRandom(seed);
+        float[] data = new float[count * subDimension];
+        int[] assignment = new int[count];
+        for (int s = 0; s < subspaces; s++) {
+            for (int i = 0; i < count; i++) {
+                System.arraycopy(samples[i], s * subDimension, data, i * subDimension, subDimension);
+            }
+            kmeans(data, count, subDimension, centroids, iterations, random, assignment,
+                codebooks, s * centroids * subDimension);
+        }
+        return new ProductQuantizer(dimension, subspaces, centroids, codebooks);
+    }
+
+    public static ProductQuantizer read(DataInput in) throws IOException {
+        int dimension = in.readInt();
+        int subspaces = in.readInt();
+        int centroids = in.readInt();
+        checkSubspaces(dimension, subspaces);
+        float[] codebooks = new float[subspaces * centroids * (dimension / subspaces)];
+        for (int i = 0; i < codebooks.length; i++) {
+            codebooks[i] = in.readFloat();
+        }
+        return new ProductQuantizer(dimension, subspaces, centroids, codebooks);
+    }
+
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(dimension);
+        out.writeInt(subspaces);
+        out.writeInt(centroids);
+        for (float value : codebooks) {
+            out.writeFloat(value);
+        }
+    }
+
+    /**
+     * 把向量编码为subspaces个字节，写入codes的offset处
+     */
+    public void encode(float[] vector, byte[] codes, int offset) {
+        for (int s = 0; s < subspaces; s++) {
+            int vectorOffset = s * subDimension;
+            int best = 0;
+            float bestDistance = Float.POSITIVE_INFINITY;
+            for (int c = 0; c < centroids; c++) {
+                // ||x - c||² 去掉与中心无关的 ||x||² 项
+                float distance = norms[s * centroids + c]
+                    - 2 * dot(vector, vectorOffset, codebooks, centroidOffset(s, c), subDimension);
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    best = c;
+                }
+            }
+            codes[offset + s] = (byte) best;
+        }
+    }
+
+    /**
+     * 由编码还原近似向量
+     */
+    public float[] decode(byte[] codes, int offset) {
+        float[] vector = new float[dimension];
+        for (int s = 0; s < subspaces; s++) {
+            System.arraycopy(codebooks, centroidOffset(s, codes[offset + s] & 0xFF), vector, s * subDimension,
+                subDimension);
+        }
+        return vector;
+    }
+
+    /**
+     * 计算查询向量与每个子空间各中心的内积表
+     */
+    public float[] table(float[] query) {
+        float[] table = new float[subspaces * centroids];
+        for (int s = 0; s < subspaces; s++) {
+            for (int c = 0; c < centroids; c++) {
+                table[s * centroids + c] = dot(query, s * subDimension, codebooks, centroidOffset(s, c),
+                    subDimension);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * 查表计算编码向量与查询的近似内积
+     */
+    public float score(float[] table, byte[] codes, int offset) {
+        float score = 0;
+        for (int s = 0, base = 0; s < subspaces; s++, base += centroids) {
+            score += table[base + (codes[offset + s] & 0xFF)];
+        }
+        return score;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    public int subspaces() {
+        return subspaces;
+    }
+
+    /**
+     * 码本占用的字节数
+     */
+    public long codebookBytes() {
+        return (long) codebooks.length * Float.BYTES;
+    }
+
+    static void checkSubspaces(int dimension, int subspaces) {
+        if (subspaces <= 0 || dimension % subspaces != 0) {
+            throw new IllegalArgumentException("子空间数必须整除向量维度: " + subspaces + ", " + dimension);
+        }
+    }
+
+    /**
+     * 子向量的内积，子空间维度通常只有几到十几维，直接循环比调用SIMD内核开销更小
+     */
+    private static float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    private int centroidOffset(int subspace, int centroid) {
+        return (subspace * centroids + centroid) * subDimension;
+    }
+
+    /**
+     * 对data中count个dim维的点做k-means，结果写入out的outOffset处
+     * 初始中心为随机抽取的样本，空簇重新取一个随机样本
+     */
+    private static void kmeans(float[] data, int count, int dim, int k, int iterations, SplittableRandom random,
+                               int[] assignment, float[] out, int outOffset) {
+        float[] centers = new float[k * dim];
+        int[] picks = random.ints(0, count).distinct().limit(k).toArray();
+        for (int c = 0; c < k; c++) {
+            System.arraycopy(data, picks[c] * dim, centers, c * dim, dim);
+        }
+        float[] centerNorms = new float[k];
+        int[] sizes = new int[k];
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            for (int c = 0; c < k; c++) {
+                centerNorms[c] = dot(centers, c * dim, centers, c * dim, dim);
+            }
+            for (int i = 0; i < count; i++) {
+                int best = 0;
+                float bestDistance = Float.POSITIVE_INFINITY;
+                for (int c = 0; c < k; c++) {
+                    float distance = centerNorms[c] - 2 * dot(data, i * dim, centers, c * dim, dim);
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = c;
+                    }
+                }
+                assignment[i] = best;
+            }
+            Arrays.fill(centers, 0);
+            Arrays.fill(sizes, 0);
+            for (int i = 0; i < count; i++) {
+                int c = assignment[i];
+                sizes[c]++;
+                for (int d = 0; d < dim; d++) {
+                    centers[c * dim + d] += data[i * dim + d];
+                }
+            }
+            for (int c = 0; c < k; c++) {
+                if (sizes[c] == 0) {
+                    System.arraycopy(data, random.nextInt(count) * dim, centers, c * dim, dim);
+                    continue;
+                }
+                float inverse = 1.0f / sizes[c];
+                for (int d = 0; d < dim; d++) {
+                    centers[c * dim + d] *= inverse;
+                }
+            }
+        }
+        System.arraycopy(centers, 0, out, outOffset, k * dim);
+    }
+}
@@ -0,0 +1,71 @@
+package org.miao.retrieval;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 全精度向量文件
+ * 向量按序号定长存放（小端序float），写入和读取都是按位置的文件读写，不占用堆内存。
+ * 量化索引用它保存原始向量，供训练和重排序使用；热点向量由操作系统页缓存缓存。
+ */
+final class RawVectorFile implements Closeable {
+
+    private final int dimension;
+    private final int vectorBytes;
+    private final FileChannel channel;
+
+    RawVectorFile(Path path, int dimension) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.dimension = dimension;
+        this.vectorBytes = dimension * Float.BYTES;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+    }
+
+    void write(int id, float[] vector) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(vectorBytes).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(vector, 0, dimension);
+        long position = (long) id * vectorBytes;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    float[] read(int id, float[] into) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(vectorBytes).order(ByteOrder.LITTLE_ENDIAN);
+        long position = (long) id * vectorBytes;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("向量文件不完整，缺少序号 " + id);
+            }
+        }
+        buffer.flip();
+        buffer.asFloatBuffer().get(into, 0, dimension);
+        return into;
+    }
+
+    /**
+     * 文件中完整存放的向量数
+     */
+    int count() throws IOException {
+        return (int) (channel.size() / vectorBytes);
+    }
+
+    void force() throws IOException {
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,42 @@
+package org.miao.retrieval;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 倒数排名融合（RRF）
+ * 每个片段的融合得分为其在各路结果中排名的倒数之和 1 / (k + rank)，
+ * 只依赖排名而不依赖各路得分的量纲，适合合并BM25与向量相似度这类不可比较的得分。
+ */
+public final class ReciprocalRankFusion {
+
+    private ReciprocalRankFusion() {
+    }
+
+    /**
+     * 融合多路检索结果
+     *
+     * @param rankings 各路结果，每路按相关性从高到低排列
+     * @param k        平滑常数，常用60
+     * @param topK     返回的最大片段数
+     */
+    public static List<RetrievedChunk> fuse(List<List<RetrievedChunk>> rankings, int k, int topK) {
+        Map<String, DocumentChunk> chunks = new LinkedHashMap<>();
+        Map<String, Double> scores = new LinkedHashMap<>();
+        for (List<RetrievedChunk> ranking : rankings) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                DocumentChunk chunk = ranking.get(rank).getChunk();
+                chunks.putIfAbsent(chunk.getId(), chunk);
+                scores.merge(chunk.getId(), 1.0 / (k + rank + 1), Double::sum);
+            }
+        }
+        List<RetrievedChunk> fused = new ArrayList<>(scores.size());
+        for (Map.Entry<String, Double> entry : scores.entrySet()) {
+            fused.add(new RetrievedChunk(chunks.get(entry.getKey()), entry.getValue()));
+        }
+        fused.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
+        return fused.size() > topK ? new ArrayList<>(fused.subList(0, topK)) : fused;
+    }
+}
@@ -0,0 +1,23 @@
+package org.miao.retrieval;
+
+/**
+ * 检索结果：文档片段及其相关性得分
+ */
+public final class RetrievedChunk {
+
+    private final DocumentChunk chunk;
+    private final double score;
+
+    public RetrievedChunk(DocumentChunk chunk, double score) {
+        this.chunk = chunk;
+        this.score = score;
+    }
+
+    public DocumentChunk getChunk() {
+        return chunk;
+    }
+
+    public double getScore() {
+        return score;
+    }
+}
@@ -0,0 +1,18 @@
+package org.miao.retrieval;
+
+/**
+ * 向量相似度计算内核
+ * 向量在写入索引前已归一化，因此余弦相似度等价于点积
+ */
+public interface SimilarityKernel {
+
+    /**
+     * 计算a[aOffset, aOffset+length)与b[bOffset, bOffset+length)的点积
+     */
+    float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    /**
+     * 内核名称，用于日志和基准测试
+     */
+    String name();
+}
@@ -0,0 +1,67 @@
+package org.miao.retrieval;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 相似度计算内核的选择器
+ * 运行时存在jdk.incubator.vector模块时使用SIMD内核，否则回退到标量内核
+ */
+public final class SimilarityKernels {
+
+    private static final Logger logger = LoggerFactory.getLogger(SimilarityKernels.class);
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String PANAMA_KERNEL = "org.miao.retrieval.PanamaSimilarityKernel";
+
+    private static final SimilarityKernel BEST = load();
+
+    private SimilarityKernels() {
+    }
+
+    /**
+     * 当前运行环境下最快的内核
+     */
+    public static SimilarityKernel best() {
+        return BEST;
+    }
+
+    /**
+     * 标量内核
+     */
+    public static SimilarityKernel scalar() {
+        return ScalarSimilarityKernel.INSTANCE;
+    }
+
+    public static boolean isVectorApiAvailable() {
+        return BEST != ScalarSimilarityKernel.INSTANCE;
+    }
+
+    /**
+     * 将向量原地归一化为单位长度，零向量保持不变
+     */
+    public static void normalize(float[] vector) {
+        float norm = (float) Math.sqrt(BEST.dot(vector, 0, vector, 0, vector.length));
+        if (norm > 0f) {
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] /= norm;
+            }
+        }
+    }
+
+    private static SimilarityKernel load() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            logger.info("未启用{}模块，向量检索使用标量内核", VECTOR_MODULE);
+            return ScalarSimilarityKernel.INSTANCE;
+        }
+        try {
+            SimilarityKernel kernel = (SimilarityKernel) Class.forName(PANAMA_KERNEL)
+                .getDeclaredConstructor().newInstance();
+            logger.info("向量检索使用SIMD内核: {}", kernel.name());
+            return kernel;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            logger.warn("加载SIMD内核失败，回退到标量内核: {}", e.toString());
+            return ScalarSimilarityKernel.INSTANCE;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.miao.retrieval;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 多语言分词器
+ * - 中日韩文字按相邻两字切分（二元组），单字成词时保留单字，不依赖词典
+ * - 其他文字按字母数字连续片段切分并转为小写，下划线视为词的一部分
+ * - 标识符额外拆出驼峰和下划线分隔的子词，例如NullPointerException同时产生
+ *   nullpointerexception、null、pointer、exception，便于按类名或其中一段检索
+ */
+public final class Tokenizer {
+
+    private Tokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            int codePoint = text.codePointAt(i);
+            if (isCjk(codePoint)) {
+                int end = i;
+                while (end < length && isCjk(text.codePointAt(end))) {
+                    end += Character.charCount(text.codePointAt(end));
+                }
+                addBigrams(text, i, end, tokens);
+                i = end;
+            } else if (isWordChar(codePoint)) {
+                int end = i;
+                while (end < length) {
+                    int cp = text.codePointAt(end);
+                    if (!isWordChar(cp) || isCjk(cp)) {
+                        break;
+                    }
+                    end += Character.charCount(cp);
+                }
+                addWord(text.substring(i, end), tokens);
+                i = end;
+            } else {
+                i += Character.charCount(codePoint);
+            }
+        }
+        return tokens;
+    }
+
+    private static void addBigrams(String text, int start, int end, List<String> tokens) {
+        int first = start;
+        int second = first + Character.charCount(text.codePointAt(first));
+        if (second >= end) {
+            tokens.add(text.substring(first, end));
+            return;
+        }
+        while (second < end) {
+            int third = second + Character.charCount(text.codePointAt(second));
+            tokens.add(text.substring(first, third));
+            first = second;
+            second = third;
+        }
+    }
+
+    private static void addWord(String word, List<String> tokens) {
+        String lower = word.toLowerCase(Locale.ROOT);
+        tokens.add(lower);
+        int partStart = 0;
+        List<String> subwords = new ArrayList<>();
+        for (int i = 1; i <= word.length(); i++) {
+            if (i == word.length() || isBoundary(word, i)) {
+                String part = word.substring(partStart, i).replace("_", "");
+                if (!part.isEmpty()) {
+                    subwords.add(part.toLowerCase(Locale.ROOT));
+                }
+                partStart = i;
+            }
+        }
+        if (subwords.size() > 1) {
+            tokens.addAll(subwords);
+        }
+    }
+
+    /**
+     * 子词边界：下划线、小写到大写、字母与数字之间、连续大写后接小写（如HTTPServer中的S）
+     */
+    private static boolean isBoundary(String word, int index) {
+        char previous = word.charAt(index - 1);
+        char current = word.charAt(index);
+        if (current == '_' || previous == '_') {
+            return true;
+        }
+        if (Character.isLowerCase(previous) && Character.isUpperCase(current)) {
+            return true;
+        }
+        if (Character.isLetter(previous) != Character.isLetter(current)) {
+            return true;
+        }
+        return Character.isUpperCase(previous) && Character.isUpperCase(current)
+            && index + 1 < word.length() && Character.isLowerCase(word.charAt(index + 1));
+    }
+
+    private static boolean isWordChar(int codePoint) {
+        return Character.isLetterOrDigit(codePoint) || codePoint == '_';
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+            || script == Character.UnicodeScript.HIRAGANA
+            || script == Character.UnicodeScript.KATAKANA
+            || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -0,0 +1,125 @@
+package org.miao.retrieval;
+
+/**
+ * 保留得分最高的k个结果
+ * 使用基本类型数组实现的小顶堆，搜索过程中不产生装箱对象
+ */
+public final class TopK {
+
+    private final int k;
+    private final int[] ids;
+    private final float[] scores;
+    private int size;
+    private boolean sorted;
+
+    public TopK(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k必须大于0: " + k);
+        }
+        this.k = k;
+        this.ids = new int[k];
+        this.scores = new float[k];
+    }
+
+    /**
+     * 提交一个候选结果
+     *
+     * @return 候选结果是否进入了前k名
+     */
+    public boolean offer(int id, float score) {
+        if (size < k) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+            return true;
+        }
+        if (score <= scores[0]) {
+            return false;
+        }
+        ids[0] = id;
+        scores[0] = score;
+        siftDown(0);
+        return true;
+    }
+
+    /**
+     * 进入前k名所需的最低分，未满k个时返回负无穷
+     */
+    public float threshold() {
+        return size < k ? Float.NEGATIVE_INFINITY : scores[0];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == k;
+    }
+
+    /**
+     * 按得分从高到低排序，排序后不能再调用offer
+     */
+    public TopK sortDescending() {
+        if (!sorted) {
+            // 堆排序：依次把堆顶（最小值）换到末尾，得到降序数组
+            for (int end = size - 1; end > 0; end--) {
+                swap(0, end);
+                siftDown(0, end);
+            }
+            sorted = true;
+        }
+        return this;
+    }
+
+    public int getId(int index) {
+        return ids[index];
+    }
+
+    public float getScore(int index) {
+        return scores[index];
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (scores[parent] <= scores[index]) {
+                break;
+            }
+            swap(parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        siftDown(index, size);
+    }
+
+    private void siftDown(int index, int limit) {
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= limit) {
+                return;
+            }
+            int smallest = left;
+            int right = left + 1;
+            if (right < limit && scores[right] < scores[left]) {
+                smallest = right;
+            }
+            if (scores[index] <= scores[smallest]) {
+                return;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
@@ -0,0 +1,25 @@
+package org.miao.retrieval;
+
+/**
+ * 向量索引
+ * 向量按写入顺序分配从0开始的序号，检索结果以序号返回，由调用方映射回文档片段。
+ * 实现必须支持并发写入和检索。
+ */
+public interface VectorIndex {
+
+    /**
+     * 写入一个向量
+     *
+     * @return 向量的序号
+     */
+    int add(float[] vector);
+
+    /**
+     * 检索与查询向量余弦相似度最高的k个向量
+     */
+    TopK search(float[] query, int k);
+
+    int dimension();
+
+    int size();
+}
@@ -0,0 +1,63 @@
+package org.miao.retrieval;
+
+import org.miao.config.RetrievalProperties;
+import org.miao.service.EmbeddingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基于向量相似度的文档检索器
+ * 通过EmbeddingService（带缓存与微批）把查询和文档转换为向量，在进程内向量存储中检索
+ */
+@Component
+public class VectorRetriever implements DocumentRetriever {
+
+    private static final Logger logger = LoggerFactory.getLogger(VectorRetriever.class);
+
+    private final VectorStore vectorStore;
+    private final EmbeddingService embeddingService;
+    private final RetrievalProperties properties;
+
+    @Autowired
+    public VectorRetriever(VectorStore vectorStore, EmbeddingService embeddingService,
+                           RetrievalProperties properties) {
+        this.vectorStore = vectorStore;
+        this.embeddingService = embeddingService;
+        this.properties = properties;
+    }
+
+    @Override
+    public List<RetrievedChunk> retrieve(String query, int topK) {
+        if (vectorStore.size() == 0) {
+            return List.of();
+        }
+        float[] embedding = embeddingService.embed(query);
+        List<RetrievedChunk> results = new ArrayList<>(topK);
+        for (RetrievedChunk chunk : vectorStore.search(embedding, topK)) {
+            if (chunk.getScore() >= properties.getMinScore()) {
+                results.add(chunk);
+            }
+        }
+        logger.debug("向量检索完成 - 候选片段: {}, 命中: {}", vectorStore.size(), results.size());
+        return results;
+    }
+
+    /**
+     * 计算文档片段的嵌入向量并写入向量存储
+     */
+    public void index(DocumentChunk chunk) {
+        index(chunk, embeddingService.embed(chunk.getText()));
+    }
+
+    /**
+     * 写入已计算好嵌入向量的片段
+     */
+    public void index(DocumentChunk chunk, float[] embedding) {
+        vectorStore.add(chunk, embedding);
+    }
+}
@@ -0,0 +1,305 @@
+package org.miao.retrieval;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.miao.config.RetrievalProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * 进程内向量存储
+ * 文档片段与其嵌入向量一一对应，以向量在索引中的序号关联。
+ * 索引类型由retrieval.index-type决定：flat为暴力检索，hnsw为近似最近邻图索引，
+ * pq为乘积量化压缩索引（堆内只保存编码，全精度向量在磁盘上用于重排序）。
+ * HNSW和PQ索引在关闭时保存到磁盘，启动时直接打开，无需重建。
+ * 检索不加锁；写入之间可以并发，只与保存互斥。
+ */
+@Component
+public class VectorStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(VectorStore.class);
+
+    static final String INDEX_FILE = "vectors.hnsw";
+    static final String PQ_INDEX_FILE = "vectors.pq";
+    static final String RAW_VECTOR_FILE = "vectors.raw";
+    static final String CHUNK_FILE = "chunks.dat";
+
+    private final RetrievalProperties properties;
+    private final ConcurrentMap<Integer, DocumentChunk> chunks = new ConcurrentHashMap<>();
+    private final Set<String> chunkIds = ConcurrentHashMap.newKeySet();
+    private final ReadWriteLock saveLock = new ReentrantReadWriteLock();
+    private final Timer searchTimer;
+    private volatile VectorIndex index;
+
+    @Autowired
+    public VectorStore(RetrievalProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.index = newIndex();
+        this.searchTimer = Timer.builder("chat.retrieval.search")
+            .description("向量检索耗时")
+            .tag("index", properties.getIndexType())
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        Gauge.builder("chat.retrieval.vectors", this, VectorStore::size)
+            .description("向量存储中的片段数量")
+            .register(meterRegistry);
+    }
+
+    /**
+     * 从磁盘打开已保存的索引和片段
+     */
+    @PostConstruct
+    public void init() {
+        if (isPersistent()) {
+            Path indexFile = directory().resolve(indexFileName());
+            Path chunkFile = directory().resolve(CHUNK_FILE);
+            if (Files.exists(indexFile) && Files.exists(chunkFile)) {
+                try {
+                    long start = System.nanoTime();
+                    VectorIndex opened = openIndex(indexFile);
+                    if (opened.dimension() != properties.getDimension()) {
+                        logger.warn("向量索引维度 {} 与配置 {} 不一致，忽略已保存的索引",
+                            opened.dimension(), properties.getDimension());
+                        closeIndex(opened);
+                        closeIndex(index);
+                        index = newIndex();
+                    } else {
+                        readChunks(chunkFile);
+                        index = opened;
+                        logger.info("向量索引已从磁盘打开 - 片段数: {}, 耗时: {}ms",
+                            opened.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    }
+                } catch (IOException e) {
+                    chunks.clear();
+                    chunkIds.clear();
+                    closeIndex(index);
+                    index = newIndex();
+                    logger.error("打开向量索引失败，使用空索引 - {}", e.getMessage(), e);
+                }
+            }
+        }
+        logger.info("向量存储初始化完成 - 索引类型: {}, 维度: {}, 相似度内核: {}",
+            properties.getIndexType(), properties.getDimension(), SimilarityKernels.best().name());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        try {
+            save();
+        } catch (IOException e) {
+            logger.error("保存向量索引失败 - {}", e.getMessage(), e);
+        }
+        closeIndex(index);
+    }
+
+    /**
+     * 写入文档片段及其嵌入向量
+     */
+    public void add(DocumentChunk chunk, float[] embedding) {
+        saveLock.readLock().lock();
+        try {
+            int ordinal = index.add(embedding);
+            chunks.put(ordinal, chunk);
+            chunkIds.add(chunk.getId());
+        } finally {
+            saveLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 检索与查询向量最相似的k个片段
+     * 向量已写入索引但片段尚未登记的结果会被跳过
+     */
+    public List<RetrievedChunk> search(float[] query, int k) {
+        long start = System.nanoTime();
+        try {
+            TopK topK = index.search(query, k);
+            List<RetrievedChunk> results = new ArrayList<>(topK.size());
+            for (int i = 0; i < topK.size(); i++) {
+                DocumentChunk chunk = chunks.get(topK.getId(i));
+                if (chunk != null) {
+                    results.add(new RetrievedChunk(chunk, topK.getScore(i)));
+                }
+            }
+            return results;
+        } finally {
+            searchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 把HNSW或PQ索引和片段保存到磁盘，保存期间写入会被阻塞，检索不受影响
+     */
+    public void save() throws IOException {
+        if (!isPersistent()) {
+            return;
+        }
+        saveLock.writeLock().lock();
+        try {
+            Files.createDirectories(directory());
+            long start = System.nanoTime();
+            // 先写片段再写索引，索引中没有对应片段的向量在检索时会被跳过
+            writeChunks(directory().resolve(CHUNK_FILE));
+            Path indexFile = directory().resolve(indexFileName());
+            if (index instanceof HnswIndex) {
+                ((HnswIndex) index).save(indexFile);
+            } else if (index instanceof PqVectorIndex) {
+                ((PqVectorIndex) index).save(indexFile);
+            }
+            logger.info("向量索引已保存 - 片段数: {}, 耗时: {}ms",
+                chunks.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } finally {
+            saveLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 遍历已写入的片段，用于重建其他检索索引
+     */
+    public void forEachChunk(Consumer<DocumentChunk> action) {
+        chunks.values().forEach(action);
+    }
+
+    /**
+     * 是否已写入指定ID的片段，用于导入时跳过重复片段
+     */
+    public boolean contains(String chunkId) {
+        return chunkIds.contains(chunkId);
+    }
+
+    public int size() {
+        return chunks.size();
+    }
+
+    public int dimension() {
+        return index.dimension();
+    }
+
+    private VectorIndex newIndex() {
+        if (RetrievalProperties.INDEX_FLAT.equals(properties.getIndexType())) {
+            return new FlatVectorIndex(properties.getDimension());
+        }
+        if (RetrievalProperties.INDEX_PQ.equals(properties.getIndexType())) {
+            try {
+                return new PqVectorIndex(properties.getDimension(), properties.getPqSubspaces(),
+                    properties.getPqTrainingSize(), properties.getPqRerankFactor(), rawVectorFile());
+            } catch (IOException e) {
+                throw new UncheckedIOException("创建全精度向量文件失败", e);
+            }
+        }
+        return new HnswIndex(properties.getDimension(), properties.getHnswM(),
+            properties.getHnswEfConstruction(), properties.getHnswEfSearch());
+    }
+
+    private VectorIndex openIndex(Path indexFile) throws IOException {
+        if (RetrievalProperties.INDEX_PQ.equals(properties.getIndexType())) {
+            // 构造时创建的空索引使用同一个全精度向量文件，先关闭
+            closeIndex(index);
+            return PqVectorIndex.open(indexFile, rawVectorFile(), properties.getPqTrainingSize(),
+                properties.getPqRerankFactor(), SimilarityKernels.best());
+        }
+        return HnswIndex.open(indexFile, properties.getHnswEfConstruction(),
+            properties.getHnswEfSearch(), SimilarityKernels.best());
+    }
+
+    /**
+     * PQ索引的全精度向量文件，未启用持久化时使用临时文件
+     */
+    private Path rawVectorFile() throws IOException {
+        if (isPersistent()) {
+            return directory().resolve(RAW_VECTOR_FILE);
+        }
+        Path temp = Files.createTempFile("vectors", ".raw");
+        temp.toFile().deleteOnExit();
+        return temp;
+    }
+
+    private static void closeIndex(VectorIndex index) {
+        if (index instanceof Closeable) {
+            try {
+                ((Closeable) index).close();
+            } catch (IOException e) {
+                logger.warn("关闭向量索引失败 - {}", e.getMessage());
+            }
+        }
+    }
+
+    private String indexFileName() {
+        return RetrievalProperties.INDEX_PQ.equals(properties.getIndexType()) ? PQ_INDEX_FILE : INDEX_FILE;
+    }
+
+    private boolean isPersistent() {
+        return properties.isPersistenceEnabled()
+            && !RetrievalProperties.INDEX_FLAT.equals(properties.getIndexType());
+    }
+
+    private Path directory() {
+        return Paths.get(properties.getIndexDirectory());
+    }
+
+    private void writeChunks(Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(chunks.size());
+            for (var entry : chunks.entrySet()) {
+                DocumentChunk chunk = entry.getValue();
+                out.writeInt(entry.getKey());
+                writeString(out, chunk.getId());
+                writeString(out, chunk.getSource());
+                writeString(out, chunk.getText());
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void readChunks(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int ordinal = in.readInt();
+                DocumentChunk chunk = new DocumentChunk(readString(in), readString(in), readString(in));
+                chunks.put(ordinal, chunk);
+                chunkIds.add(chunk.getId());
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -2,7 +2,11 @@ package org.miao.service;
 
 import org.miao.dto.ChatRequest;
 import org.miao.dto.ChatResponse;
+import org.miao.dto.TokenUsage;
+import reactor.core.publisher.Flux;
+
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * 聊天服务接口
@@ -37,6 +41,26 @@ public interface ChatService {
      */
     ChatResponse sendMessage(ChatRequest request);
     
+    /**
+     * 使用ChatRequest对象发送消息，以流的形式逐段返回响应内容
+     * 
+     * @param request 聊天请求对象
+     * @return 响应内容片段流
+     */
+    Flux<String> streamMessage(ChatRequest request);
+    
+    /**
+     * 以流的形式逐段返回响应内容，流正常结束时把本次请求的token用量和费用交给usageListener
+     * 上游未返回用量时不调用usageListener
+     * 
+     * @param request 聊天请求对象
+     * @param usageListener 本次请求的用量回调
+     * @return 响应内容片段流
+     */
+    default Flux<String> streamMessage(ChatRequest request, Consumer<TokenUsage> usageListener) {
+        return streamMessage(request);
+    }
+    
     /**
      * 获取可用的AI模型列表
      * 
@@ -0,0 +1,27 @@
+package org.miao.service;
+
+import java.util.List;
+
+/**
+ * 嵌入服务接口
+ * 把文本转换为嵌入向量，供检索和文档导入使用
+ */
+public interface EmbeddingService {
+
+    /**
+     * 计算单条文本的嵌入向量
+     * 并发的单条请求会被合并为一次批量调用
+     *
+     * @param text 文本
+     * @return 嵌入向量
+     */
+    float[] embed(String text);
+
+    /**
+     * 批量计算嵌入向量
+     *
+     * @param texts 文本列表
+     * @return 与输入顺序一致的嵌入向量列表
+     */
+    List<float[]> embedAll(List<String> texts);
+}
@@ -1,42 +1,110 @@
 package org.miao.service.impl;
 
+import org.miao.cache.ResponseCache;
+import org.miao.config.ChatProperties;
 import org.miao.config.OpenRouterProperties;
+import org.miao.config.RetrievalProperties;
+import org.miao.conversation.ConversationStore;
+import org.miao.conversation.ConversationTurn;
 import org.miao.dto.ChatRequest;
 import org.miao.dto.ChatResponse;
+import org.miao.diagnostics.RequestTrace;
+import org.miao.diagnostics.SlowRequestRecorder;
+import org.miao.dto.TokenUsage;
 import org.miao.exception.ApiConnectionException;
 import org.miao.exception.InvalidRequestException;
 import org.miao.exception.ModelNotAvailableException;
+import org.miao.jfr.BackoffEvent;
+import org.miao.jfr.CacheHitEvent;
+import org.miao.jfr.ChatRequestEvent;
+import org.miao.jfr.UpstreamCallEvent;
+import org.miao.logging.LogContext;
+import org.miao.metrics.ChatMetrics;
+import org.miao.metrics.RequestTimings;
+import org.miao.retrieval.DocumentRetriever;
+import org.miao.retrieval.RetrievedChunk;
 import org.miao.service.ChatService;
+import org.miao.support.HashedTimerWheel;
+import org.miao.tracing.Span;
+import org.miao.tracing.TracePropagation;
+import org.miao.tracing.Tracer;
+import org.miao.usage.UsageAccountant;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.slf4j.MDC;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.Usage;
 import org.springframework.ai.openai.OpenAiChatOptions;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * 聊天服务实现类
  * 使用Spring AI ChatClient与OpenRouter API进行交互
+ * 设置chat.max-concurrent-requests时同时调用上游的请求数受其限制，超出的请求排队等待，默认不限制
+ * 各阶段耗时记录到当前请求的RequestTimings，由ServerTimingFilter输出为Server-Timing响应头；
+ * 请求、上游调用、退避等待和缓存命中同时发出JFR事件（org.miao.chat.*），未开启记录时几乎没有开销；
+ * 上游返回的token用量按价格表计算费用，由UsageAccountant累计并附在响应中；
+ * 慢请求和重试后仍失败的请求由SlowRequestRecorder保留诊断记录；
+ * 请求、校验、缓存、检索、每次上游调用和退避等待分别记录为span，请求ID取自traceId
  */
 @Service
 public class ChatServiceImpl implements ChatService {
 
     private static final Logger logger = LoggerFactory.getLogger(ChatServiceImpl.class);
 
+    private static final int HTTP_OK = 200;
+
     private final ChatClient chatClient;
     private final OpenRouterProperties openRouterProperties;
+    private final ConversationStore conversationStore;
+    private final ChatProperties chatProperties;
+    private final HashedTimerWheel timerWheel;
+    private final ResponseCache responseCache;
+    private final DocumentRetriever documentRetriever;
+    private final RetrievalProperties retrievalProperties;
+    private final ChatMetrics chatMetrics;
+    private final UsageAccountant usageAccountant;
+    private final SlowRequestRecorder slowRequestRecorder;
+    private final Tracer tracer;
+    private final Semaphore concurrencyLimit;
 
     @Autowired
-    public ChatServiceImpl(ChatClient chatClient, OpenRouterProperties openRouterProperties) {
+    public ChatServiceImpl(ChatClient chatClient, OpenRouterProperties openRouterProperties,
+                           ConversationStore conversationStore, ChatProperties chatProperties,
+                           HashedTimerWheel timerWheel, ResponseCache responseCache,
+                           DocumentRetriever documentRetriever, RetrievalProperties retrievalProperties,
+                           ChatMetrics chatMetrics, UsageAccountant usageAccountant,
+                           SlowRequestRecorder slowRequestRecorder, Tracer tracer) {
         this.chatClient = chatClient;
         this.openRouterProperties = openRouterProperties;
+        this.conversationStore = conversationStore;
+        this.chatProperties = chatProperties;
+        this.timerWheel = timerWheel;
+        this.responseCache = responseCache;
+        this.documentRetriever = documentRetriever;
+        this.retrievalProperties = retrievalProperties;
+        this.chatMetrics = chatMetrics;
+        this.usageAccountant = usageAccountant;
+        this.slowRequestRecorder = slowRequestRecorder;
+        this.tracer = tracer;
+        this.concurrencyLimit = new Semaphore(chatProperties.getMaxConcurrentRequests() > 0
+            ? chatProperties.getMaxConcurrentRequests() : Integer.MAX_VALUE, true);
         logger.info("ChatService初始化完成，默认模型: {}", openRouterProperties.getDefaultModel());
     }
 
@@ -47,40 +115,126 @@ public class ChatServiceImpl implements ChatService {
 
     @Override
     public ChatResponse sendMessage(String message, String model) {
-        String requestId = UUID.randomUUID().toString().substring(0, 8);
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-        
-        // 设置MDC用于日志追踪
-        MDC.put("requestId", requestId);
-        MDC.put("model", model);
-        MDC.put("timestamp", timestamp);
+        return processMessage(message, model, null);
+    }
+
+    /**
+     * 处理聊天消息，携带会话ID时附带历史消息并在成功后记录本轮问答
+     */
+    private ChatResponse processMessage(String message, String model, String conversationId) {
+        Tracer.SpanScope requestSpan = tracer.startActive("chat.request");
+        String requestId = tracer.requestId();
+        requestSpan.span().setAttribute("chat.request_id", requestId).setAttribute("chat.model", model);
+        // 日志上下文，结束时恢复线程原有的MDC
+        LogContext.Scope logScope = LogContext.of(requestId, model).activate();
         
+        ChatRequestEvent requestEvent = new ChatRequestEvent();
+        requestEvent.begin();
+        ChatMetrics.RequestSample sample = chatMetrics.start(metricModel(model));
+        RequestTrace trace = slowRequestRecorder.start(requestId, model, message, false);
+        String outcome = ChatMetrics.OUTCOME_ERROR;
         try {
-            logger.info("开始处理聊天请求 [{}] - 模型: {}, 消息长度: {}", 
+            logger.debug("开始处理聊天请求 [{}] - 模型: {}, 消息长度: {}", 
                        requestId, model, message != null ? message.length() : 0);
             
             // 验证输入参数
-            validateMessage(message);
-            validateModel(model);
+            long phaseStart = System.nanoTime();
+            try (Tracer.SpanScope ignored = tracer.startActive("chat.validate")) {
+                validateMessage(message);
+                validateModel(model);
+            }
+            RequestTimings.record("validate", phaseStart);
             
-            // 执行带重试的API调用
-            String response = executeWithRetry(message, model, requestId);
+            // 无会话的请求可以直接使用缓存的响应
+            boolean cacheable = !StringUtils.hasText(conversationId);
+            if (cacheable) {
+                phaseStart = System.nanoTime();
+                String cached;
+                try (Tracer.SpanScope cacheSpan = tracer.startActive("chat.cache")) {
+                    cached = responseCache.get(model, message);
+                    cacheSpan.span().setAttribute("chat.cache.hit", cached != null);
+                }
+                RequestTimings.record("cache", phaseStart);
+                if (cached != null) {
+                    logger.info("命中响应缓存 [{}] - 响应长度: {}", requestId, cached.length());
+                    outcome = ChatMetrics.OUTCOME_CACHE_HIT;
+                    CacheHitEvent.emit(CacheHitEvent.RESPONSE, model);
+                    return ChatResponse.success(cached, model);
+                }
+            }
+            
+            phaseStart = System.nanoTime();
+            List<ConversationTurn> history = cacheable
+                ? Collections.emptyList() : conversationStore.getHistory(conversationId);
+            RequestTimings.record("history", phaseStart);
+            phaseStart = System.nanoTime();
+            String context;
+            try (Tracer.SpanScope ignored = tracer.startActive("chat.retrieval")) {
+                context = retrieveContext(message, requestId);
+            }
+            RequestTimings.record("retrieval", phaseStart);
+            trace.context(history.size(), context != null ? context.length() : 0);
+            
+            if (!acquirePermit(requestId)) {
+                outcome = ChatMetrics.OUTCOME_REJECTED;
+                throw queueTimeout();
+            }
+            // 执行带重试的API调用，截止时间由时间轮触发
+            RequestDeadline deadline = new RequestDeadline();
+            HashedTimerWheel.Timeout deadlineTimeout = timerWheel.newTimeout(
+                deadline::expire, chatProperties.getRequestDeadlineSeconds(), TimeUnit.SECONDS);
+            org.springframework.ai.chat.model.ChatResponse upstream;
+            try {
+                upstream = executeWithRetry(message, model, history, context, deadline, requestId, trace);
+            } finally {
+                deadlineTimeout.cancel();
+                concurrencyLimit.release();
+            }
+            String response = contentOf(upstream);
+            trace.response(response != null ? response.length() : 0);
+            TokenUsage usage = accountUsage(model, UsageAccountant.ENDPOINT_CHAT, usageOf(upstream));
+            phaseStart = System.nanoTime();
+            if (cacheable) {
+                responseCache.put(model, message, response);
+            }
             
             logger.info("聊天请求处理成功 [{}] - 响应长度: {}", requestId, response != null ? response.length() : 0);
-            return ChatResponse.success(response, model);
+            ChatResponse chatResponse = ChatResponse.success(response, model);
+            chatResponse.setUsage(usage);
+            if (!cacheable) {
+                conversationStore.appendExchange(conversationId, message, response);
+                chatResponse.setConversationId(conversationId);
+            }
+            RequestTimings.record("persist", phaseStart);
+            outcome = ChatMetrics.OUTCOME_SUCCESS;
+            return chatResponse;
             
         } catch (InvalidRequestException | ModelNotAvailableException e) {
+            trace.failed(e.getMessage());
+            requestSpan.span().recordError(e);
             logger.warn("聊天请求参数错误 [{}] - {}", requestId, e.getMessage());
+            outcome = ChatMetrics.OUTCOME_CLIENT_ERROR;
             throw e;
         } catch (ApiConnectionException e) {
+            trace.failed(e.getMessage());
+            requestSpan.span().recordError(e);
             logger.error("聊天请求API连接失败 [{}] - {}", requestId, e.getMessage());
             throw e;
         } catch (Exception e) {
+            trace.failed(e.getMessage());
+            requestSpan.span().recordError(e);
             logger.error("聊天请求处理异常 [{}] - {}", requestId, e.getMessage(), e);
             throw new ApiConnectionException("处理聊天请求时发生未知错误: " + e.getMessage(), e);
         } finally {
-            // 清理MDC
-            MDC.clear();
+            long duration = sample.finish(outcome);
+            trace.complete(outcome, duration);
+            slowRequestRecorder.offer(trace, RequestTimings.current());
+            requestSpan.span().setAttribute("chat.outcome", outcome);
+            requestSpan.close();
+            commitRequestEvent(requestEvent, requestId, model, message, false,
+                StringUtils.hasText(conversationId), outcome);
+            logPerformanceMetrics(requestId, model, TimeUnit.NANOSECONDS.toMillis(duration), outcome);
+            logScope.close();
         }
     }
 
@@ -93,7 +247,123 @@ public class ChatServiceImpl implements ChatService {
         String model = StringUtils.hasText(request.getModel()) ? 
             request.getModel() : openRouterProperties.getDefaultModel();
         
-        return sendMessage(request.getMessage(), model);
+        return processMessage(request.getMessage(), model, request.getConversationId());
+    }
+
+    @Override
+    public Flux<String> streamMessage(ChatRequest request) {
+        return streamMessage(request, usage -> { });
+    }
+
+    /**
+     * 流式聊天
+     * 参数校验在订阅前同步完成；流式请求不重试（已输出的内容无法撤回），也不使用响应缓存
+     */
+    @Override
+    public Flux<String> streamMessage(ChatRequest request, Consumer<TokenUsage> usageListener) {
+        if (request == null) {
+            throw new InvalidRequestException("请求对象不能为空");
+        }
+        String message = request.getMessage();
+        String model = StringUtils.hasText(request.getModel()) ?
+            request.getModel() : openRouterProperties.getDefaultModel();
+        String conversationId = request.getConversationId();
+        validateMessage(message);
+        validateModel(model);
+
+        return Flux.defer(() -> {
+            String requestId = tracer.requestId();
+            Span streamSpan = tracer.startSpan("chat.stream")
+                .setAttribute("chat.request_id", requestId)
+                .setAttribute("chat.model", model);
+            LogContext logContext = LogContext.of(requestId, model);
+            logger.debug("开始处理流式聊天请求 [{}] - 模型: {}, 消息长度: {}", requestId, model, message.length());
+            ChatRequestEvent requestEvent = new ChatRequestEvent();
+            requestEvent.begin();
+            ChatMetrics.RequestSample sample = chatMetrics.start(model);
+            RequestTrace trace = slowRequestRecorder.start(requestId, model, message, true);
+            List<ConversationTurn> history;
+            String context;
+            boolean acquired;
+            try {
+                history = StringUtils.hasText(conversationId)
+                    ? conversationStore.getHistory(conversationId) : Collections.emptyList();
+                context = retrieveContext(message, requestId);
+                acquired = acquirePermit(requestId);
+            } catch (RuntimeException e) {
+                streamSpan.recordError(e).setAttribute("chat.outcome", ChatMetrics.OUTCOME_ERROR).end();
+                sample.finish(ChatMetrics.OUTCOME_ERROR);
+                commitRequestEvent(requestEvent, requestId, model, message, true,
+                    StringUtils.hasText(conversationId), ChatMetrics.OUTCOME_ERROR);
+                throw e;
+            }
+            if (!acquired) {
+                streamSpan.setAttribute("chat.outcome", ChatMetrics.OUTCOME_REJECTED).end();
+                sample.finish(ChatMetrics.OUTCOME_REJECTED);
+                commitRequestEvent(requestEvent, requestId, model, message, true,
+                    StringUtils.hasText(conversationId), ChatMetrics.OUTCOME_REJECTED);
+                return Flux.error(queueTimeout());
+            }
+            trace.context(history.size(), context != null ? context.length() : 0);
+            StringBuilder content = new StringBuilder();
+            Usage[] usage = new Usage[1];
+            Throwable[] failure = new Throwable[1];
+            long upstreamStart = System.nanoTime();
+            UpstreamCallEvent callEvent = new UpstreamCallEvent();
+            callEvent.begin();
+            // 截止时间限制整个流，而不是相邻两个元素的间隔：每个元素到达后只等待剩余的时间
+            long deadlineNanos = upstreamStart + TimeUnit.SECONDS.toNanos(chatProperties.getRequestDeadlineSeconds());
+            return Flux.defer(() -> buildPrompt(message, model, toMessages(history), context).stream().chatResponse())
+                .timeout(untilDeadline(deadlineNanos), response -> untilDeadline(deadlineNanos),
+                    Flux.defer(() -> Flux.error(deadlineExceeded(1, null))))
+                .doOnNext(response -> {
+                    if (response.getMetadata() != null && hasUsage(response.getMetadata().getUsage())) {
+                        usage[0] = response.getMetadata().getUsage();
+                    }
+                })
+                .mapNotNull(this::contentOf)
+                .filter(StringUtils::hasLength)
+                .doOnNext(token -> {
+                    sample.firstToken();
+                    content.append(token);
+                })
+                .doOnError(e -> failure[0] = e)
+                .doOnComplete(() -> {
+                    recordUsage(model, usage[0], sample.sinceFirstTokenNanos());
+                    TokenUsage tokenUsage = accountUsage(model, UsageAccountant.ENDPOINT_STREAM, usage[0]);
+                    if (tokenUsage != null) {
+                        usageListener.accept(tokenUsage);
+                    }
+                    if (StringUtils.hasText(conversationId)) {
+                        conversationStore.appendExchange(conversationId, message, content.toString());
+                    }
+                })
+                .doFinally(signal -> {
+                    concurrencyLimit.release();
+                    String outcome = signal == SignalType.ON_COMPLETE ? ChatMetrics.OUTCOME_SUCCESS
+                        : signal == SignalType.CANCEL ? ChatMetrics.OUTCOME_CANCELLED : ChatMetrics.OUTCOME_ERROR;
+                    long upstreamNanos = System.nanoTime() - upstreamStart;
+                    chatMetrics.recordAttempt(model, outcome, upstreamNanos);
+                    commitUpstreamEvent(callEvent, requestId, model, 1, outcome, null);
+                    long duration = sample.finish(outcome);
+                    trace.attempt(1, upstreamNanos, failure[0] != null ? SlowRequestRecorder.statusOf(failure[0]) : null,
+                        failure[0] != null ? failure[0].getMessage() : null);
+                    trace.response(content.length());
+                    trace.complete(outcome, duration);
+                    slowRequestRecorder.offer(trace, null);
+                    if (failure[0] != null) {
+                        streamSpan.recordError(failure[0]);
+                    }
+                    streamSpan.setAttribute("chat.outcome", outcome).end();
+                    commitRequestEvent(requestEvent, requestId, model, message, true,
+                        StringUtils.hasText(conversationId), outcome);
+                    // doFinally可能运行在任意调度线程上，在捕获的上下文中输出
+                    logContext.run(() -> logger.info("流式聊天请求结束 [{}] - 结果: {}, 响应长度: {}, 耗时: {}ms",
+                        requestId, outcome, content.length(), TimeUnit.NANOSECONDS.toMillis(duration)));
+                })
+                // 上游WebClient请求的traceparent经Reactor Context传递，不依赖订阅所在的线程
+                .contextWrite(ctx -> TracePropagation.withTraceparent(ctx, streamSpan));
+        });
     }
 
     @Override
@@ -142,35 +412,59 @@ public class ChatServiceImpl implements ChatService {
 
     /**
      * 执行带重试机制的API调用
+     *
+     * @return 上游的完整响应，包含内容和用量元数据
      */
-    private String executeWithRetry(String message, String model, String requestId) {
+    private org.springframework.ai.chat.model.ChatResponse executeWithRetry(
+            String message, String model, List<ConversationTurn> history,
+            String context, RequestDeadline deadline, String requestId, RequestTrace trace) {
+        List<Message> historyMessages = toMessages(history);
         int maxRetries = openRouterProperties.getMaxRetries();
         Exception lastException = null;
         
         for (int attempt = 1; attempt <= maxRetries; attempt++) {
+            if (deadline.isExpired()) {
+                throw deadlineExceeded(attempt - 1, lastException);
+            }
+            if (attempt > 1) {
+                chatMetrics.recordRetry(model);
+            }
+            long startTime = System.nanoTime();
+            UpstreamCallEvent callEvent = new UpstreamCallEvent();
+            callEvent.begin();
+            // 调用期间attemptSpan为当前span，RestClient拦截器据此设置上游请求的traceparent
+            Tracer.SpanScope attemptSpan = tracer.startActive("chat.upstream");
+            attemptSpan.span().setAttribute("chat.model", model).setAttribute("chat.attempt", attempt);
             try {
                 logger.debug("执行API调用 [{}] - 尝试次数: {}/{}", requestId, attempt, maxRetries);
                 
-                long startTime = System.currentTimeMillis();
+                org.springframework.ai.chat.model.ChatResponse chatResponse =
+                    buildPrompt(message, model, historyMessages, context)
+                        .call()
+                        .chatResponse();
+                attemptSpan.span().setAttribute("http.status_code", HTTP_OK);
+                attemptSpan.close();
                 
-                String response = chatClient
-                    .prompt()
-                    .user(message)
-                    .options(OpenAiChatOptions.builder()
-                        .withModel(model)
-                        .withTemperature(0.7)
-                        .withMaxTokens(1000)
-                        .build())
-                    .call()
-                    .content();
+                long duration = System.nanoTime() - startTime;
+                RequestTimings.record("upstream", startTime);
+                commitUpstreamEvent(callEvent, requestId, model, attempt, ChatMetrics.OUTCOME_SUCCESS, null);
+                chatMetrics.recordAttempt(model, ChatMetrics.OUTCOME_SUCCESS, duration);
+                trace.attempt(attempt, duration, HTTP_OK, null);
+                recordUsage(model, usageOf(chatResponse), duration);
+                logger.debug("API调用成功 [{}] - 耗时: {}ms, 尝试次数: {}",
+                           requestId, TimeUnit.NANOSECONDS.toMillis(duration), attempt);
                 
-                long duration = System.currentTimeMillis() - startTime;
-                logger.debug("API调用成功 [{}] - 耗时: {}ms, 尝试次数: {}", requestId, duration, attempt);
-                
-                return response;
+                return chatResponse;
                 
             } catch (Exception e) {
                 lastException = e;
+                attemptSpan.span().recordError(e).setAttribute("http.status_code", SlowRequestRecorder.statusOf(e));
+                attemptSpan.close();
+                RequestTimings.record("upstream", startTime);
+                commitUpstreamEvent(callEvent, requestId, model, attempt, ChatMetrics.OUTCOME_ERROR, e);
+                long duration = System.nanoTime() - startTime;
+                chatMetrics.recordAttempt(model, ChatMetrics.OUTCOME_ERROR, duration);
+                trace.attempt(attempt, duration, SlowRequestRecorder.statusOf(e), e.getMessage());
                 logger.warn("API调用失败 [{}] - 尝试次数: {}/{}, 错误: {}", 
                            requestId, attempt, maxRetries, e.getMessage());
                 
@@ -179,7 +473,29 @@ public class ChatServiceImpl implements ChatService {
                     try {
                         long waitTime = calculateBackoffTime(attempt);
                         logger.debug("等待 {}ms 后重试 [{}]", waitTime, requestId);
-                        Thread.sleep(waitTime);
+                        long backoffStart = System.nanoTime();
+                        Span backoffSpan = tracer.startSpan("chat.backoff").setAttribute("chat.attempt", attempt);
+                        BackoffEvent backoffEvent = new BackoffEvent();
+                        backoffEvent.begin();
+                        boolean expired;
+                        try {
+                            expired = deadline.await(waitTime);
+                        } finally {
+                            backoffSpan.end();
+                        }
+                        backoffEvent.end();
+                        if (backoffEvent.shouldCommit()) {
+                            backoffEvent.requestId = requestId;
+                            backoffEvent.attempt = attempt;
+                            backoffEvent.plannedMillis = waitTime;
+                            backoffEvent.deadlineExpired = expired;
+                            backoffEvent.commit();
+                        }
+                        RequestTimings.record("backoff", backoffStart);
+                        if (expired) {
+                            logger.error("请求超过截止时间，停止重试 [{}]", requestId);
+                            throw deadlineExceeded(attempt, lastException);
+                        }
                     } catch (InterruptedException ie) {
                         Thread.currentThread().interrupt();
                         logger.error("重试等待被中断 [{}]", requestId);
@@ -198,6 +514,71 @@ public class ChatServiceImpl implements ChatService {
             lastException);
     }
 
+    /**
+     * 构造超过截止时间的异常
+     */
+    private ApiConnectionException deadlineExceeded(int attempts, Exception lastException) {
+        return new ApiConnectionException(
+            String.format("请求超过截止时间 %d 秒，已尝试 %d 次", chatProperties.getRequestDeadlineSeconds(), attempts),
+            lastException);
+    }
+
+    /**
+     * 到截止时间为止的延迟，用作流式响应的超时信号
+     */
+    private static Mono<Long> untilDeadline(long deadlineNanos) {
+        return Mono.delay(Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime())));
+    }
+
+    /**
+     * 检索与消息相关的文档片段并拼接为系统提示词
+     * 检索失败不影响聊天请求，只是不附带参考资料
+     */
+    private String retrieveContext(String message, String requestId) {
+        if (!retrievalProperties.isEnabled()) {
+            return null;
+        }
+        List<RetrievedChunk> chunks;
+        try {
+            chunks = documentRetriever.retrieve(message, retrievalProperties.getTopK());
+        } catch (Exception e) {
+            logger.warn("文档检索失败，跳过参考资料 [{}] - {}", requestId, e.getMessage());
+            return null;
+        }
+        if (chunks.isEmpty()) {
+            return null;
+        }
+        StringBuilder context = new StringBuilder("请结合以下参考资料回答用户的问题，资料与问题无关时忽略即可。\n");
+        int used = 0;
+        int count = 0;
+        for (RetrievedChunk chunk : chunks) {
+            String text = chunk.getChunk().getText();
+            if (used > 0 && used + text.length() > retrievalProperties.getMaxContextChars()) {
+                break;
+            }
+            context.append("\n[来源: ").append(chunk.getChunk().getSource()).append("]\n").append(text).append('\n');
+            used += text.length();
+            count++;
+        }
+        logger.debug("注入参考资料 [{}] - 片段数: {}, 字符数: {}", requestId, count, used);
+        return context.toString();
+    }
+
+    /**
+     * 将会话历史转换为Spring AI消息
+     */
+    private List<Message> toMessages(List<ConversationTurn> history) {
+        List<Message> messages = new ArrayList<>(history.size());
+        for (ConversationTurn turn : history) {
+            if (turn.getRole() == ConversationTurn.Role.USER) {
+                messages.add(new UserMessage(turn.getContent()));
+            } else {
+                messages.add(new AssistantMessage(turn.getContent()));
+            }
+        }
+        return messages;
+    }
+
     /**
      * 计算退避等待时间（指数退避）
      */
@@ -210,13 +591,130 @@ public class ChatServiceImpl implements ChatService {
     /**
      * 记录性能指标
      */
-    private void logPerformanceMetrics(String requestId, String model, long duration, boolean success) {
+    private void logPerformanceMetrics(String requestId, String model, long duration, String outcome) {
         if (openRouterProperties.isDebugEnabled()) {
-            logger.info("性能指标 [{}] - 模型: {}, 耗时: {}ms, 成功: {}", 
-                       requestId, model, duration, success);
+            logger.info("性能指标 [{}] - 模型: {}, 耗时: {}ms, 结果: {}", 
+                       requestId, model, duration, outcome);
+        }
+    }
+
+    private static void commitRequestEvent(ChatRequestEvent event, String requestId, String model, String message,
+                                           boolean streaming, boolean conversation, String outcome) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.requestId = requestId;
+            event.model = model;
+            event.messageLength = message != null ? message.length() : 0;
+            event.streaming = streaming;
+            event.conversation = conversation;
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+
+    private static void commitUpstreamEvent(UpstreamCallEvent event, String requestId, String model, int attempt,
+                                            String status, Exception error) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.requestId = requestId;
+            event.model = model;
+            event.attempt = attempt;
+            event.status = status;
+            event.error = error != null ? error.getMessage() : null;
+            event.commit();
+        }
+    }
+
+    /**
+     * 指标中的模型标签，未通过校验的模型统一记为unknown
+     */
+    private String metricModel(String model) {
+        return isModelAvailable(model) ? model : ChatMetrics.UNKNOWN_MODEL;
+    }
+
+    /**
+     * 等待上游调用许可，等待时间记录为chat.queue.wait
+     *
+     * @return 在chat.queue-timeout-millis内取得许可时返回true
+     */
+    private boolean acquirePermit(String requestId) {
+        long entered = chatMetrics.enterQueue();
+        try {
+            return concurrencyLimit.tryAcquire(chatProperties.getQueueTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("等待调用许可被中断 [{}]", requestId);
+            throw new ApiConnectionException("等待调用许可被中断", e);
+        } finally {
+            chatMetrics.leaveQueue(entered);
+            RequestTimings.record("queue", entered);
         }
     }
 
+    private ApiConnectionException queueTimeout() {
+        return new ApiConnectionException(
+            String.format("服务繁忙，等待调用许可超过 %dms", chatProperties.getQueueTimeoutMillis()));
+    }
+
+    /**
+     * 构造发往上游的提示词，参考资料作为系统提示词
+     */
+    private ChatClient.ChatClientRequestSpec buildPrompt(String message, String model, List<Message> historyMessages,
+                                                         String context) {
+        ChatClient.ChatClientRequestSpec prompt = chatClient.prompt();
+        if (StringUtils.hasText(context)) {
+            prompt = prompt.system(context);
+        }
+        return prompt
+            .messages(historyMessages)
+            .user(message)
+            .options(OpenAiChatOptions.builder()
+                .withModel(model)
+                .withTemperature(0.7)
+                .withMaxTokens(1000)
+                .withStreamUsage(true)
+                .build());
+    }
+
+    private String contentOf(org.springframework.ai.chat.model.ChatResponse chatResponse) {
+        if (chatResponse == null || chatResponse.getResult() == null || chatResponse.getResult().getOutput() == null) {
+            return null;
+        }
+        return chatResponse.getResult().getOutput().getContent();
+    }
+
+    private static Usage usageOf(org.springframework.ai.chat.model.ChatResponse chatResponse) {
+        return chatResponse != null && chatResponse.getMetadata() != null ? chatResponse.getMetadata().getUsage() : null;
+    }
+
+    private static boolean hasUsage(Usage usage) {
+        return usage != null && usage.getTotalTokens() != null && usage.getTotalTokens() > 0;
+    }
+
+    /**
+     * 记录token用量，上游未返回用量时跳过
+     */
+    private void recordUsage(String model, Usage usage, long generationNanos) {
+        if (!hasUsage(usage)) {
+            return;
+        }
+        long promptTokens = usage.getPromptTokens() != null ? usage.getPromptTokens() : 0;
+        long completionTokens = usage.getGenerationTokens() != null ? usage.getGenerationTokens() : 0;
+        chatMetrics.recordUsage(model, promptTokens, completionTokens, generationNanos);
+    }
+
+    /**
+     * 累计token用量和费用，上游未返回用量时返回null
+     */
+    private TokenUsage accountUsage(String model, String endpoint, Usage usage) {
+        if (!hasUsage(usage)) {
+            return null;
+        }
+        long promptTokens = usage.getPromptTokens() != null ? usage.getPromptTokens() : 0;
+        long completionTokens = usage.getGenerationTokens() != null ? usage.getGenerationTokens() : 0;
+        return usageAccountant.record(model, endpoint, promptTokens, completionTokens);
+    }
+
     /**
      * 检查异常类型并进行分类处理
      */
@@ -243,4 +741,30 @@ public class ChatServiceImpl implements ChatService {
         logger.error("API调用异常 [{}] - {}", requestId, errorMessage, e);
         throw new ApiConnectionException("API调用失败: " + errorMessage, e);
     }
+
+    /**
+     * 请求截止时间
+     * 由时间轮在到期时触发，退避等待会被提前唤醒
+     */
+    private static final class RequestDeadline {
+
+        private final CountDownLatch expired = new CountDownLatch(1);
+
+        void expire() {
+            expired.countDown();
+        }
+
+        boolean isExpired() {
+            return expired.getCount() == 0;
+        }
+
+        /**
+         * 等待指定时间
+         *
+         * @return 等待期间截止时间已到时返回true
+         */
+        boolean await(long millis) throws InterruptedException {
+            return expired.await(millis, TimeUnit.MILLISECONDS);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,212 @@
+package org.miao.service.impl;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.miao.cache.EmbeddingCache;
+import org.miao.config.EmbeddingProperties;
+import org.miao.jfr.CacheHitEvent;
+import org.miao.service.EmbeddingService;
+import org.miao.support.MicroBatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 嵌入服务实现类
+ * 在Spring AI EmbeddingModel之上增加两层优化：
+ * 以内容哈希为键的向量缓存（内存LRU + 本地文件），未变化的文本不会重复计算；
+ * 并发到达的单条请求（例如检索查询）由微批处理器合并为一次批量调用，同一批内的重复文本只计算一次。
+ */
+@Service
+public class EmbeddingServiceImpl implements EmbeddingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingServiceImpl.class);
+
+    private final EmbeddingProperties properties;
+    private final ObjectProvider<EmbeddingModel> embeddingModelProvider;
+    private final DistributionSummary batchSize;
+    private final Timer embeddingTimer;
+    private final MeterRegistry meterRegistry;
+    private EmbeddingCache cache;
+    private MicroBatcher<String, float[]> batcher;
+
+    @Autowired
+    public EmbeddingServiceImpl(EmbeddingProperties properties, ObjectProvider<EmbeddingModel> embeddingModelProvider,
+                                MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.embeddingModelProvider = embeddingModelProvider;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = DistributionSummary.builder("chat.embedding.batch.size")
+            .description("单次嵌入调用的文本数")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        this.embeddingTimer = Timer.builder("chat.embedding.requests")
+            .description("嵌入模型调用耗时")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        Gauge.builder("chat.embedding.queued", this,
+                service -> service.batcher != null ? service.batcher.getQueuedRequests() : 0)
+            .description("等待合并成批的单条嵌入请求数")
+            .register(meterRegistry);
+    }
+
+    /**
+     * 打开缓存并启动微批处理器
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        if (properties.isCacheEnabled()) {
+            cache = new EmbeddingCache(properties.getCacheMaxEntries(),
+                properties.isPersistenceEnabled() ? Paths.get(properties.getCacheFile()) : null);
+            registerCacheMeters(cache);
+        }
+        batcher = new MicroBatcher<>("embedding", properties.getMaxBatchSize(), properties.getMaxWaitMillis(),
+            properties.getMaxConcurrentBatches(), this::embedBatch, null);
+        logger.info("嵌入服务初始化完成 - 配置: {}", properties);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (batcher != null) {
+            batcher.close();
+        }
+        if (cache != null) {
+            try {
+                cache.close();
+            } catch (IOException e) {
+                logger.error("关闭嵌入缓存失败 - {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public float[] embed(String text) {
+        EmbeddingCache.Key key = cache != null ? EmbeddingCache.key(properties.getModelId(), text) : null;
+        if (key != null) {
+            float[] cached = cache.get(key);
+            if (cached != null) {
+                CacheHitEvent.emit(CacheHitEvent.EMBEDDING, properties.getModelId());
+                return cached;
+            }
+        }
+        return await(batcher.submit(text));
+    }
+
+    @Override
+    public List<float[]> embedAll(List<String> texts) {
+        float[][] results = new float[texts.size()][];
+        List<String> missing = new ArrayList<>();
+        List<Integer> missingIndexes = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i++) {
+            float[] cached = cache != null ? cache.get(EmbeddingCache.key(properties.getModelId(), texts.get(i))) : null;
+            if (cached != null) {
+                CacheHitEvent.emit(CacheHitEvent.EMBEDDING, properties.getModelId());
+                results[i] = cached;
+            } else {
+                missing.add(texts.get(i));
+                missingIndexes.add(i);
+            }
+        }
+        // 调用方已经成批，未命中的文本按最大批大小分段直接调用，不再经过微批队列
+        for (int from = 0; from < missing.size(); from += properties.getMaxBatchSize()) {
+            int to = Math.min(missing.size(), from + properties.getMaxBatchSize());
+            List<float[]> embeddings = embedBatch(missing.subList(from, to));
+            for (int i = from; i < to; i++) {
+                results[missingIndexes.get(i)] = embeddings.get(i - from);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * 批量调用嵌入模型，同一批内相同的文本只计算一次，结果写入缓存
+     */
+    private List<float[]> embedBatch(List<String> texts) {
+        Map<String, float[]> unique = new LinkedHashMap<>();
+        for (String text : texts) {
+            unique.put(text, null);
+        }
+        List<String> inputs = new ArrayList<>(unique.keySet());
+        batchSize.record(inputs.size());
+        long start = System.nanoTime();
+        List<float[]> embeddings = embeddingModel().embed(inputs);
+        embeddingTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (embeddings.size() != inputs.size()) {
+            throw new IllegalStateException("嵌入结果数量与输入不一致: " + embeddings.size() + " != " + inputs.size());
+        }
+        for (int i = 0; i < inputs.size(); i++) {
+            unique.put(inputs.get(i), embeddings.get(i));
+            if (cache != null) {
+                cache.put(EmbeddingCache.key(properties.getModelId(), inputs.get(i)), embeddings.get(i));
+            }
+        }
+        List<float[]> results = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            results.add(unique.get(text));
+        }
+        logger.debug("嵌入批量调用完成 - 请求数: {}, 去重后: {}", texts.size(), inputs.size());
+        return results;
+    }
+
+    private float[] await(Future<float[]> future) {
+        try {
+            return future.get(properties.getTimeoutSeconds(), TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new IllegalStateException("等待嵌入结果时被中断", e);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new IllegalStateException("等待嵌入结果超时: " + properties.getTimeoutSeconds() + "s", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("嵌入调用失败: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private EmbeddingModel embeddingModel() {
+        EmbeddingModel embeddingModel = embeddingModelProvider.getIfAvailable();
+        if (embeddingModel == null) {
+            throw new IllegalStateException("未配置EmbeddingModel，无法计算嵌入向量");
+        }
+        return embeddingModel;
+    }
+
+    private void registerCacheMeters(EmbeddingCache cache) {
+        FunctionCounter.builder("chat.embedding.cache.requests", cache, EmbeddingCache::getMemoryHits)
+            .tag("result", "hit").tag("tier", "memory").register(meterRegistry);
+        FunctionCounter.builder("chat.embedding.cache.requests", cache, EmbeddingCache::getDiskHits)
+            .tag("result", "hit").tag("tier", "disk").register(meterRegistry);
+        FunctionCounter.builder("chat.embedding.cache.requests", cache, EmbeddingCache::getMisses)
+            .tag("result", "miss").tag("tier", "none").register(meterRegistry);
+        Gauge.builder("chat.embedding.cache.hit.ratio", cache, EmbeddingCache::hitRatio)
+            .description("嵌入缓存命中率（内存层与持久层合计）")
+            .register(meterRegistry);
+        Gauge.builder("chat.embedding.cache.size", cache, EmbeddingCache::memorySize)
+            .tag("tier", "memory").register(meterRegistry);
+        Gauge.builder("chat.embedding.cache.size", cache, EmbeddingCache::diskSize)
+            .tag("tier", "disk").register(meterRegistry);
+    }
+}
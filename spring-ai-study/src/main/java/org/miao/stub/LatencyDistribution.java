@@ -0,0 +1,62 @@
+package org.miao.stub;
+
+import org.miao.config.UpstreamStubProperties;
+
+import java.util.SplittableRandom;
+
+/**
+ * 桩服务的响应延迟分布
+ * fixed始终返回latencyMillis；uniform在[latencyMillis, latencyMaxMillis]内均匀分布；
+ * lognormal以latencyMillis为中位数、latencySigma为形状参数，模拟真实上游的长尾。
+ * 所有分布的采样值都截断到latencyMaxMillis。
+ */
+public final class LatencyDistribution {
+
+    private final String type;
+    private final long baseMillis;
+    private final long maxMillis;
+    private final double sigma;
+
+    private LatencyDistribution(String type, long baseMillis, long maxMillis, double sigma) {
+        this.type = type;
+        this.baseMillis = baseMillis;
+        this.maxMillis = maxMillis;
+        this.sigma = sigma;
+    }
+
+    public static LatencyDistribution of(UpstreamStubProperties properties) {
+        String type = properties.getLatencyDistribution();
+        if (!UpstreamStubProperties.LATENCY_FIXED.equals(type)
+                && !UpstreamStubProperties.LATENCY_UNIFORM.equals(type)
+                && !UpstreamStubProperties.LATENCY_LOGNORMAL.equals(type)) {
+            throw new IllegalArgumentException("未知的延迟分布: " + type);
+        }
+        if (properties.getLatencyMillis() < 0 || properties.getLatencyMaxMillis() < properties.getLatencyMillis()
+                || properties.getLatencySigma() < 0) {
+            throw new IllegalArgumentException("延迟分布参数无效: latencyMillis=" + properties.getLatencyMillis()
+                + ", latencyMaxMillis=" + properties.getLatencyMaxMillis() + ", latencySigma=" + properties.getLatencySigma());
+        }
+        return new LatencyDistribution(type, properties.getLatencyMillis(), properties.getLatencyMaxMillis(),
+            properties.getLatencySigma());
+    }
+
+    /**
+     * 采样一次延迟（毫秒）
+     */
+    public long sample(SplittableRandom random) {
+        double millis;
+        if (UpstreamStubProperties.LATENCY_UNIFORM.equals(type)) {
+            millis = baseMillis + random.nextDouble() * (maxMillis - baseMillis);
+        } else if (UpstreamStubProperties.LATENCY_LOGNORMAL.equals(type)) {
+            millis = baseMillis * Math.exp(sigma * random.nextGaussian());
+        } else {
+            millis = baseMillis;
+        }
+        return Math.min(maxMillis, Math.round(millis));
+    }
+
+    @Override
+    public String toString() {
+        return type + "(" + baseMillis + "ms, max " + maxMillis + "ms, sigma " + sigma + ")";
+    }
+}
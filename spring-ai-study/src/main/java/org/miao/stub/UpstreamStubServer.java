@@ -0,0 +1,377 @@
+package org.miao.stub;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.miao.config.UpstreamStubProperties;
+import org.miao.replay.TrafficLog;
+import org.miao.replay.TrafficRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * OpenAI chat-completions接口的本地桩服务
+ * 将openrouter.base-url指向该服务后，整个应用可以在不访问OpenRouter的情况下压测。
+ * 支持可编程的延迟分布、500错误和429限流注入，以及流式响应的片段节奏；
+ * 第n个请求的延迟和注入结果只由seed和n决定，同样的请求序列可以复现同样的上游行为。
+ *
+ * 只监听回环地址，不校验API密钥。429立即返回（带Retry-After头），500在采样的延迟之后返回。
+ * 配置replay-file时不再生成合成响应，而是按录制的状态码、响应体和耗时回放真实流量（错误和限流注入仍然生效）。
+ *
+ * 独立进程运行（压测时推荐，避免与被测服务争用CPU）：
+ * mvn exec:java -Dexec.mainClass=org.miao.stub.UpstreamStubServer -Dexec.args="--upstream-stub.latency-distribution=lognormal"
+ */
+public class UpstreamStubServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamStubServer.class);
+
+    public static final String COMPLETIONS_PATH = "/v1/chat/completions";
+
+    private static final int HTTP_OK = 200;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_METHOD_NOT_ALLOWED = 405;
+    private static final int HTTP_INTERNAL_ERROR = 500;
+    private static final int BACKLOG = 1024;
+
+    private final UpstreamStubProperties properties;
+    private final LatencyDistribution latency;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final AtomicLong replaySequence = new AtomicLong();
+    private final AtomicLong replayStreamSequence = new AtomicLong();
+
+    private List<TrafficRecord> replayRecords = List.of();
+    private List<TrafficRecord> replayStreamRecords = List.of();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public UpstreamStubServer(UpstreamStubProperties properties) {
+        if (properties.getErrorRate() < 0 || properties.getRateLimitRate() < 0
+                || properties.getErrorRate() + properties.getRateLimitRate() > 1.0) {
+            throw new IllegalArgumentException("错误注入比例无效: errorRate=" + properties.getErrorRate()
+                + ", rateLimitRate=" + properties.getRateLimitRate());
+        }
+        if (properties.getStreamChunks() <= 0 || properties.getWorkerThreads() <= 0) {
+            throw new IllegalArgumentException("桩服务参数无效: streamChunks=" + properties.getStreamChunks()
+                + ", workerThreads=" + properties.getWorkerThreads());
+        }
+        this.properties = properties;
+        this.latency = LatencyDistribution.of(properties);
+    }
+
+    public synchronized void start() throws IOException {
+        if (server != null) {
+            return;
+        }
+        if (StringUtils.hasText(properties.getReplayFile())) {
+            loadReplay();
+        }
+        AtomicInteger workers = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(properties.getWorkerThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "upstream-stub-" + workers.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), properties.getPort()), BACKLOG);
+        server.createContext(COMPLETIONS_PATH, this::handle);
+        server.setExecutor(executor);
+        server.start();
+        logger.info("上游桩服务已启动，地址: http://127.0.0.1:{}，延迟分布: {}，错误率: {}，限流率: {}",
+            getPort(), latency, properties.getErrorRate(), properties.getRateLimitRate());
+    }
+
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+        server.stop(0);
+        executor.shutdownNow();
+        server = null;
+        logger.info("上游桩服务已停止，完成: {}，限流: {}，错误: {}", getCompletedCount(), getRateLimitedCount(), getFailedCount());
+    }
+
+    /**
+     * 实际监听的端口，配置为0时由系统分配
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    public long getRateLimitedCount() {
+        return rateLimited.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendError(exchange, HTTP_METHOD_NOT_ALLOWED, "invalid_request_error", "Method not allowed");
+                return;
+            }
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            long n = sequence.getAndIncrement();
+            SplittableRandom random = new SplittableRandom(properties.getSeed() + n);
+            double roll = random.nextDouble();
+            long delayMillis = latency.sample(random);
+
+            if (roll < properties.getRateLimitRate()) {
+                rateLimited.increment();
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(properties.getRetryAfterSeconds()));
+                sendError(exchange, HTTP_TOO_MANY_REQUESTS, "rate_limit_exceeded", "Rate limit exceeded (injected)");
+                return;
+            }
+            if (roll < properties.getRateLimitRate() + properties.getErrorRate()) {
+                Thread.sleep(delayMillis);
+                failed.increment();
+                sendError(exchange, HTTP_INTERNAL_ERROR, "server_error", "Upstream error (injected)");
+                return;
+            }
+            TrafficRecord recorded = nextReplayRecord(request.path("stream").asBoolean(false));
+            if (recorded != null) {
+                replay(exchange, recorded);
+                return;
+            }
+            Thread.sleep(delayMillis);
+
+            String id = "chatcmpl-stub-" + n;
+            String model = request.path("model").asText("stub-model");
+            int promptTokens = estimatePromptTokens(request);
+            if (request.path("stream").asBoolean(false)) {
+                boolean includeUsage = request.path("stream_options").path("include_usage").asBoolean(false);
+                stream(exchange, id, model, promptTokens, includeUsage);
+            } else {
+                ObjectNode body = objectMapper.createObjectNode()
+                    .put("id", id)
+                    .put("object", "chat.completion")
+                    .put("created", System.currentTimeMillis() / 1000)
+                    .put("model", model);
+                ObjectNode choice = body.putArray("choices").addObject().put("index", 0);
+                choice.putObject("message").put("role", "assistant").put("content", content());
+                choice.put("finish_reason", "stop");
+                body.set("usage", usage(promptTokens));
+                byte[] bytes = objectMapper.writeValueAsBytes(body);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(HTTP_OK, bytes.length);
+                exchange.getResponseBody().write(bytes);
+            }
+            completed.increment();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // 客户端超时断开或请求体不是合法的JSON
+            logger.debug("桩服务请求处理失败: {}", e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void loadReplay() throws IOException {
+        List<TrafficRecord> records = TrafficLog.read(Paths.get(properties.getReplayFile()));
+        if (records.isEmpty()) {
+            throw new IllegalArgumentException("流量录制文件中没有记录: " + properties.getReplayFile());
+        }
+        List<TrafficRecord> plain = new ArrayList<>();
+        List<TrafficRecord> streamed = new ArrayList<>();
+        for (TrafficRecord record : records) {
+            (record.isStream() ? streamed : plain).add(record);
+        }
+        replayRecords = plain;
+        replayStreamRecords = streamed;
+        logger.info("上游桩服务回放录制文件: {}，非流式记录: {}，流式记录: {}",
+            properties.getReplayFile(), plain.size(), streamed.size());
+    }
+
+    /**
+     * 按顺序循环取下一条同类型的录制记录，没有同类型记录时返回null，使用合成响应
+     */
+    private TrafficRecord nextReplayRecord(boolean stream) {
+        List<TrafficRecord> records = stream ? replayStreamRecords : replayRecords;
+        if (records.isEmpty()) {
+            return null;
+        }
+        AtomicLong cursor = stream ? replayStreamSequence : replaySequence;
+        return records.get((int) (cursor.getAndIncrement() % records.size()));
+    }
+
+    /**
+     * 在录制的时间点发出响应头和各个片段
+     */
+    private void replay(HttpExchange exchange, TrafficRecord record) throws IOException, InterruptedException {
+        long startNanos = System.nanoTime();
+        boolean success = record.getStatus() / 100 == 2;
+        sleepUntil(startNanos, record.getHeadersMicros());
+        exchange.getResponseHeaders().set("Content-Type",
+            success && record.isStream() ? "text/event-stream" : "application/json");
+        long length = record.isStream() ? 0 : record.getResponseBytes();
+        exchange.sendResponseHeaders(record.getStatus(), length == 0 && !record.isStream() ? -1 : length);
+        OutputStream out = exchange.getResponseBody();
+        for (TrafficRecord.Frame frame : record.getFrames()) {
+            sleepUntil(startNanos, frame.getOffsetMicros());
+            out.write(frame.getData());
+            out.flush();
+        }
+        if (success) {
+            completed.increment();
+        } else if (record.getStatus() == HTTP_TOO_MANY_REQUESTS) {
+            rateLimited.increment();
+        } else {
+            failed.increment();
+        }
+    }
+
+    private static void sleepUntil(long startNanos, long offsetMicros) throws InterruptedException {
+        long remainingNanos = startNanos + TimeUnit.MICROSECONDS.toNanos(offsetMicros) - System.nanoTime();
+        if (remainingNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(remainingNanos);
+        }
+    }
+
+    /**
+     * 按OpenAI的SSE格式输出：首个片段带role，最后一个片段带finish_reason，
+     * 请求了include_usage时再输出choices为空、带usage的片段，最后是[DONE]
+     */
+    private void stream(HttpExchange exchange, String id, String model, int promptTokens, boolean includeUsage)
+            throws IOException, InterruptedException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(HTTP_OK, 0);
+        OutputStream out = exchange.getResponseBody();
+        long created = System.currentTimeMillis() / 1000;
+        for (int i = 0; i < properties.getStreamChunks(); i++) {
+            if (i > 0) {
+                Thread.sleep(properties.getStreamChunkIntervalMillis());
+            }
+            ObjectNode chunk = chunk(id, model, created);
+            ObjectNode choice = chunk.putArray("choices").addObject().put("index", 0);
+            ObjectNode delta = choice.putObject("delta");
+            if (i == 0) {
+                delta.put("role", "assistant");
+            }
+            delta.put("content", piece(i));
+            choice.putNull("finish_reason");
+            writeEvent(out, objectMapper.writeValueAsString(chunk));
+        }
+        ObjectNode last = chunk(id, model, created);
+        ObjectNode choice = last.putArray("choices").addObject().put("index", 0);
+        choice.putObject("delta");
+        choice.put("finish_reason", "stop");
+        writeEvent(out, objectMapper.writeValueAsString(last));
+        if (includeUsage) {
+            ObjectNode usageChunk = chunk(id, model, created);
+            usageChunk.putArray("choices");
+            usageChunk.set("usage", usage(promptTokens));
+            writeEvent(out, objectMapper.writeValueAsString(usageChunk));
+        }
+        writeEvent(out, "[DONE]");
+    }
+
+    private ObjectNode chunk(String id, String model, long created) {
+        return objectMapper.createObjectNode()
+            .put("id", id)
+            .put("object", "chat.completion.chunk")
+            .put("created", created)
+            .put("model", model);
+    }
+
+    private static void writeEvent(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private ObjectNode usage(int promptTokens) {
+        int completionTokens = properties.getStreamChunks();
+        return objectMapper.createObjectNode()
+            .put("prompt_tokens", promptTokens)
+            .put("completion_tokens", completionTokens)
+            .put("total_tokens", promptTokens + completionTokens);
+    }
+
+    private String content() {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < properties.getStreamChunks(); i++) {
+            content.append(piece(i));
+        }
+        return content.toString();
+    }
+
+    /**
+     * 每个片段计为一个token
+     */
+    private static String piece(int index) {
+        return "token" + index + " ";
+    }
+
+    /**
+     * 按每4个字符一个token粗略估算提示词的token数
+     */
+    private static int estimatePromptTokens(JsonNode request) {
+        int chars = 0;
+        JsonNode messages = request.path("messages");
+        if (messages instanceof ArrayNode) {
+            for (JsonNode message : messages) {
+                chars += message.path("content").asText("").length();
+            }
+        }
+        return Math.max(1, chars / 4);
+    }
+
+    private void sendError(HttpExchange exchange, int status, String type, String message) throws IOException {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.putObject("error")
+            .put("message", message)
+            .put("type", type)
+            .put("code", type);
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    /**
+     * 独立进程启动桩服务，配置项与application.properties中的upstream-stub.*相同，
+     * 可以通过命令行参数、系统属性或环境变量提供
+     */
+    public static void main(String[] args) throws IOException {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new SimpleCommandLinePropertySource(args));
+        UpstreamStubProperties properties = Binder.get(environment)
+            .bind("upstream-stub", UpstreamStubProperties.class)
+            .orElseGet(UpstreamStubProperties::new);
+        UpstreamStubServer server = new UpstreamStubServer(properties);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "upstream-stub-shutdown"));
+        server.start();
+    }
+}
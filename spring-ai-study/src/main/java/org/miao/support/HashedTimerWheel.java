@@ -0,0 +1,320 @@
+package org.miao.support;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+
+/**
+ * 哈希时间轮
+ * 用固定数量的槽位组织大量定时任务，新增和取消都是O(1)，
+ * 超过一圈的延迟通过剩余圈数（rounds）表示，由单个工作线程按tick推进并执行到期任务。
+ *
+ * 新增和取消的任务先进入无锁队列，工作线程在每个tick开始时再把它们挂到槽位上，
+ * 因此槽位链表只由工作线程访问，无需加锁。到期任务在工作线程上执行，必须足够轻量。
+ */
+public class HashedTimerWheel implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(HashedTimerWheel.class);
+
+    /**
+     * 每个tick最多转移的新任务数量，避免突发写入长时间占用工作线程
+     */
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final LongConsumer lagRecorder;
+    private final Thread worker;
+
+    private final Queue<TimeoutTask> pendingAdds = new ConcurrentLinkedQueue<>();
+    private final Queue<TimeoutTask> pendingCancels = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong pendingTimeouts = new AtomicLong();
+    private final AtomicLong expiredTimeouts = new AtomicLong();
+    private final AtomicLong cancelledTimeouts = new AtomicLong();
+
+    private volatile boolean running = true;
+    private final long startNanos;
+    private long tick;
+
+    /**
+     * @param name        工作线程名称
+     * @param tickMillis  每个槽位代表的时长，也是到期精度
+     * @param wheelSize   槽位数量，会向上取整为2的幂
+     * @param lagRecorder 每个任务到期时接收实际执行时间与期望时间的差值（纳秒），可为null
+     */
+    public HashedTimerWheel(String name, long tickMillis, int wheelSize, LongConsumer lagRecorder) {
+        if (tickMillis <= 0 || wheelSize <= 0 || wheelSize > (1 << 30)) {
+            throw new IllegalArgumentException("时间轮参数无效: tickMillis=" + tickMillis + ", wheelSize=" + wheelSize);
+        }
+        int size = Integer.highestOneBit(wheelSize - 1) << 1;
+        if (wheelSize == 1) {
+            size = 1;
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.lagRecorder = lagRecorder;
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * 注册一个定时任务
+     *
+     * @param task  到期后在工作线程上执行的任务
+     * @param delay 延迟时间
+     * @param unit  时间单位
+     * @return 可用于取消任务的句柄
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        if (!running) {
+            throw new IllegalStateException("时间轮已停止");
+        }
+        long deadline = System.nanoTime() - startNanos + unit.toNanos(Math.max(0, delay));
+        TimeoutTask timeout = new TimeoutTask(task, deadline);
+        pendingTimeouts.incrementAndGet();
+        pendingAdds.add(timeout);
+        return timeout;
+    }
+
+    public long getPendingTimeouts() {
+        return pendingTimeouts.get();
+    }
+
+    public long getExpiredTimeouts() {
+        return expiredTimeouts.get();
+    }
+
+    public long getCancelledTimeouts() {
+        return cancelledTimeouts.get();
+    }
+
+    public long getTickMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(tickNanos);
+    }
+
+    public int getWheelSize() {
+        return wheel.length;
+    }
+
+    /**
+     * 停止工作线程，未到期的任务不再执行
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            long now = waitForNextTick();
+            if (!running) {
+                break;
+            }
+            processCancellations();
+            transferTimeouts();
+            wheel[(int) (tick & mask)].expire(now);
+            tick++;
+        }
+        logger.debug("时间轮已停止，未执行任务: {}", pendingTimeouts.get());
+    }
+
+    /**
+     * 休眠到下一个tick的边界
+     *
+     * @return 相对启动时刻的当前时间（纳秒）
+     */
+    private long waitForNextTick() {
+        long deadline = tickNanos * (tick + 1);
+        while (running) {
+            long now = System.nanoTime() - startNanos;
+            long sleepNanos = deadline - now;
+            if (sleepNanos <= 0) {
+                return now;
+            }
+            LockSupport.parkNanos(this, sleepNanos);
+        }
+        return System.nanoTime() - startNanos;
+    }
+
+    private void transferTimeouts() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            TimeoutTask timeout = pendingAdds.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.state.get() == TimeoutTask.ST_CANCELLED) {
+                continue;
+            }
+            long calculated = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (calculated - tick) / wheel.length;
+            // 已经过期的任务放到当前槽位，本tick立即执行
+            long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private void processCancellations() {
+        TimeoutTask timeout;
+        while ((timeout = pendingCancels.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    /**
+     * 定时任务句柄
+     */
+    public interface Timeout {
+
+        /**
+         * 取消任务
+         *
+         * @return 任务尚未执行且本次成功取消时返回true
+         */
+        boolean cancel();
+
+        boolean isExpired();
+
+        boolean isCancelled();
+    }
+
+    private final class TimeoutTask implements Timeout {
+
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(ST_INIT);
+
+        // 以下字段只由工作线程访问
+        private long remainingRounds;
+        private Bucket bucket;
+        private TimeoutTask prev;
+        private TimeoutTask next;
+
+        private TimeoutTask(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!state.compareAndSet(ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            pendingTimeouts.decrementAndGet();
+            cancelledTimeouts.incrementAndGet();
+            pendingCancels.add(this);
+            return true;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state.get() == ST_EXPIRED;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state.get() == ST_CANCELLED;
+        }
+
+        private void expire(long now) {
+            if (!state.compareAndSet(ST_INIT, ST_EXPIRED)) {
+                return;
+            }
+            pendingTimeouts.decrementAndGet();
+            expiredTimeouts.incrementAndGet();
+            if (lagRecorder != null) {
+                lagRecorder.accept(Math.max(0, now - deadline));
+            }
+            try {
+                task.run();
+            } catch (Throwable t) {
+                logger.warn("定时任务执行异常: {}", t.getMessage(), t);
+            }
+        }
+    }
+
+    /**
+     * 槽位：到期时间落在同一tick上的任务组成的双向链表
+     */
+    private final class Bucket {
+
+        private TimeoutTask head;
+        private TimeoutTask tail;
+
+        private void add(TimeoutTask timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        private void expire(long now) {
+            TimeoutTask timeout = head;
+            while (timeout != null) {
+                TimeoutTask next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    timeout.expire(now);
+                } else if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        private void remove(TimeoutTask timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            TimeoutTask next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package org.miao.support;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * 微批处理器
+ * 把并发到达的单条请求合并为一批再调用批处理函数：
+ * 分发线程取到第一条请求后最多再等待maxWait，期间到达的请求合并进同一批，凑满maxBatchSize立即发出。
+ * 同时执行的批次数受maxConcurrentBatches限制，达到上限时分发线程等待，后续请求继续在队列中合并。
+ *
+ * @param <I> 单条请求
+ * @param <O> 单条结果
+ */
+public class MicroBatcher<I, O> implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MicroBatcher.class);
+
+    /**
+     * 批处理函数，返回结果的数量和顺序必须与输入一致
+     */
+    @FunctionalInterface
+    public interface BatchFunction<I, O> {
+
+        List<O> apply(List<I> inputs) throws Exception;
+    }
+
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final BatchFunction<I, O> function;
+    private final IntConsumer batchSizeRecorder;
+    private final BlockingQueue<Request<I, O>> queue = new LinkedBlockingQueue<>();
+    private final Semaphore permits;
+    private final ExecutorService executor;
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    /**
+     * @param name                 线程名称前缀
+     * @param maxBatchSize         每批最大请求数
+     * @param maxWaitMillis        凑批的最长等待时间
+     * @param maxConcurrentBatches 同时执行的最大批次数
+     * @param batchSizeRecorder    每发出一批时接收批大小，可为null
+     */
+    public MicroBatcher(String name, int maxBatchSize, long maxWaitMillis, int maxConcurrentBatches,
+                        BatchFunction<I, O> function, IntConsumer batchSizeRecorder) {
+        if (maxBatchSize <= 0 || maxWaitMillis < 0 || maxConcurrentBatches <= 0) {
+            throw new IllegalArgumentException("微批参数无效: maxBatchSize=" + maxBatchSize
+                + ", maxWaitMillis=" + maxWaitMillis + ", maxConcurrentBatches=" + maxConcurrentBatches);
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.function = function;
+        this.batchSizeRecorder = batchSizeRecorder;
+        this.permits = new Semaphore(maxConcurrentBatches);
+        AtomicInteger workers = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(maxConcurrentBatches, runnable -> {
+            Thread thread = new Thread(runnable, name + "-worker-" + workers.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dispatcher = new Thread(this::dispatch, name + "-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * 提交一条请求
+     *
+     * @return 该请求所在批次完成后得到结果的Future
+     */
+    public CompletableFuture<O> submit(I input) {
+        CompletableFuture<O> future = new CompletableFuture<>();
+        if (!running) {
+            future.completeExceptionally(new RejectedExecutionException("微批处理器已关闭"));
+            return future;
+        }
+        queue.add(new Request<>(input, future));
+        return future;
+    }
+
+    /**
+     * 等待合并的请求数
+     */
+    public int getQueuedRequests() {
+        return queue.size();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        dispatcher.interrupt();
+        executor.shutdownNow();
+        for (Request<I, O> request = queue.poll(); request != null; request = queue.poll()) {
+            request.future.completeExceptionally(new CancellationException("微批处理器已关闭"));
+        }
+    }
+
+    private void dispatch() {
+        while (running) {
+            List<Request<I, O>> batch = new ArrayList<>(maxBatchSize);
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Request<I, O> next = remaining > 0
+                        ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                permits.acquire();
+            } catch (InterruptedException e) {
+                fail(batch, new CancellationException("微批处理器已关闭"));
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                executor.execute(() -> execute(batch));
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                fail(batch, e);
+            }
+        }
+    }
+
+    private void execute(List<Request<I, O>> batch) {
+        try {
+            if (batchSizeRecorder != null) {
+                batchSizeRecorder.accept(batch.size());
+            }
+            List<I> inputs = new ArrayList<>(batch.size());
+            for (Request<I, O> request : batch) {
+                inputs.add(request.input);
+            }
+            List<O> outputs = function.apply(inputs);
+            if (outputs == null || outputs.size() != batch.size()) {
+                throw new IllegalStateException("批处理结果数量与请求数量不一致: "
+                    + (outputs == null ? 0 : outputs.size()) + " != " + batch.size());
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.complete(outputs.get(i));
+            }
+        } catch (Exception e) {
+            logger.debug("微批执行失败 - 批大小: {}, 错误: {}", batch.size(), e.getMessage());
+            fail(batch, e);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static <I, O> void fail(List<Request<I, O>> batch, Throwable error) {
+        for (Request<I, O> request : batch) {
+            request.future.completeExceptionally(error);
+        }
+    }
+
+    private static final class Request<I, O> {
+
+        private final I input;
+        private final CompletableFuture<O> future;
+
+        private Request(I input, CompletableFuture<O> future) {
+            this.input = input;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.miao.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 写入本地文件的span导出器，每行一个JSON
+ * 请求线程只把span放入有界队列，由后台线程批量写出；队列满时丢弃，不阻塞请求。
+ */
+public class FileSpanExporter implements SpanExporter, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileSpanExporter.class);
+
+    private static final int MAX_BATCH = 256;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BlockingQueue<Span> queue;
+    private final LongAdder dropped = new LongAdder();
+    private final BufferedWriter writer;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    public FileSpanExporter(Path file, int queueSize) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.worker = new Thread(this::drain, "span-exporter");
+        this.worker.setDaemon(true);
+        this.worker.start();
+        logger.info("span导出到文件: {}", file.toAbsolutePath());
+    }
+
+    @Override
+    public void export(Span span) {
+        if (!queue.offer(span)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * 因队列已满丢弃的span数量
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    private void drain() {
+        List<Span> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                Span first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                for (Span span : batch) {
+                    writer.write(objectMapper.writeValueAsString(span.toMap()));
+                    writer.newLine();
+                }
+                writer.flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                logger.warn("写入span失败，丢弃{}条 - {}", batch.size(), e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer.close();
+    }
+}
@@ -0,0 +1,29 @@
+package org.miao.tracing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 保存在内存中的span导出器，用于测试和本地排查
+ */
+public class InMemorySpanExporter implements SpanExporter {
+
+    private final ConcurrentLinkedQueue<Span> spans = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public void export(Span span) {
+        spans.add(span);
+    }
+
+    /**
+     * 已结束的span，按结束顺序
+     */
+    public List<Span> getFinishedSpans() {
+        return new ArrayList<>(spans);
+    }
+
+    public void reset() {
+        spans.clear();
+    }
+}
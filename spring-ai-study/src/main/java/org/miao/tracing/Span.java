@@ -0,0 +1,172 @@
+package org.miao.tracing;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 一段调用的耗时记录，字段对应OpenTelemetry的span
+ * 由Tracer创建，end时交给SpanExporter导出，end只生效一次，结束后的属性和错误不再记录。
+ * 属性、错误和end可以在不同线程上调用（如流式请求在Reactor的doFinally中结束span），
+ * 这些操作在span上互斥，end之后状态不再变化，导出线程读到的是完整的结果。
+ *
+ * 追踪未启用时Tracer返回NOOP，所有操作为空操作，traceparent为null。
+ */
+public final class Span {
+
+    public static final String STATUS_OK = "OK";
+    public static final String STATUS_ERROR = "ERROR";
+
+    static final Span NOOP = new Span(null, null, null, null, null, 0, 0);
+
+    private final SpanExporter exporter;
+    private final String traceId;
+    private final String spanId;
+    private final String parentSpanId;
+    private final String name;
+    private final long startEpochMicros;
+    private final long startNanos;
+    // 以下字段由this保护；NOOP不记录，不加锁
+    private final Map<String, Object> attributes = new LinkedHashMap<>();
+    private boolean ended;
+    private long durationNanos;
+    private String status = STATUS_OK;
+    private String error;
+
+    Span(SpanExporter exporter, String traceId, String spanId, String parentSpanId, String name,
+         long startEpochMicros, long startNanos) {
+        this.exporter = exporter;
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.name = name;
+        this.startEpochMicros = startEpochMicros;
+        this.startNanos = startNanos;
+    }
+
+    public boolean isRecording() {
+        return exporter != null;
+    }
+
+    public Span setAttribute(String key, Object value) {
+        if (isRecording() && value != null) {
+            synchronized (this) {
+                if (!ended) {
+                    attributes.put(key, value);
+                }
+            }
+        }
+        return this;
+    }
+
+    public Span recordError(Throwable throwable) {
+        if (isRecording()) {
+            synchronized (this) {
+                if (!ended) {
+                    status = STATUS_ERROR;
+                    error = throwable.getClass().getSimpleName() + ": " + throwable.getMessage();
+                }
+            }
+        }
+        return this;
+    }
+
+    public void end() {
+        end(System.nanoTime());
+    }
+
+    /**
+     * 以指定的时间点（System.nanoTime）结束
+     */
+    public void end(long endNanos) {
+        if (!isRecording()) {
+            return;
+        }
+        synchronized (this) {
+            if (ended) {
+                return;
+            }
+            ended = true;
+            durationNanos = endNanos - startNanos;
+        }
+        exporter.export(this);
+    }
+
+    /**
+     * W3C traceparent头的值，追踪未启用时返回null
+     */
+    public String traceparent() {
+        return isRecording() ? TraceContext.format(traceId, spanId) : null;
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public String getSpanId() {
+        return spanId;
+    }
+
+    public String getParentSpanId() {
+        return parentSpanId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getStartEpochMicros() {
+        return startEpochMicros;
+    }
+
+    long getStartNanos() {
+        return startNanos;
+    }
+
+    public synchronized long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * 属性的只读副本
+     */
+    public synchronized Map<String, Object> getAttributes() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(attributes));
+    }
+
+    public synchronized String getStatus() {
+        return status;
+    }
+
+    public synchronized String getError() {
+        return error;
+    }
+
+    /**
+     * 导出用的字段，耗时单位为微秒
+     */
+    public synchronized Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("traceId", traceId);
+        map.put("spanId", spanId);
+        if (parentSpanId != null) {
+            map.put("parentSpanId", parentSpanId);
+        }
+        map.put("name", name);
+        map.put("startEpochMicros", startEpochMicros);
+        map.put("durationMicros", durationNanos / 1000);
+        map.put("status", status);
+        if (error != null) {
+            map.put("error", error);
+        }
+        if (!attributes.isEmpty()) {
+            map.put("attributes", new LinkedHashMap<>(attributes));
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return "Span{" + name + ", traceId=" + traceId + ", spanId=" + spanId + '}';
+    }
+}
@@ -0,0 +1,9 @@
+package org.miao.tracing;
+
+/**
+ * span导出器，在结束span的线程上调用，实现不应阻塞
+ */
+public interface SpanExporter {
+
+    void export(Span span);
+}
@@ -0,0 +1,58 @@
+package org.miao.tracing;
+
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+/**
+ * 向上游请求传播traceparent头
+ * 同步调用（RestClient）从当前线程的span取值；流式调用（WebClient）优先从Reactor Context取值，
+ * 由调用方用withTraceparent写入，没有时退回当前线程的span。
+ */
+public final class TracePropagation {
+
+    /**
+     * Reactor Context中保存traceparent的键
+     */
+    public static final String CONTEXT_KEY = "org.miao.tracing.traceparent";
+
+    private TracePropagation() {
+    }
+
+    public static ClientHttpRequestInterceptor restClientInterceptor(Tracer tracer) {
+        return (request, body, execution) -> {
+            String traceparent = tracer.current().traceparent();
+            if (traceparent != null) {
+                request.getHeaders().set(TraceContext.TRACEPARENT, traceparent);
+            }
+            return execution.execute(request, body);
+        };
+    }
+
+    public static ExchangeFilterFunction webClientFilter(Tracer tracer) {
+        return (request, next) -> Mono.deferContextual(context -> {
+            String traceparent = traceparent(context, tracer);
+            if (traceparent == null) {
+                return next.exchange(request);
+            }
+            return next.exchange(ClientRequest.from(request)
+                .headers(headers -> headers.set(TraceContext.TRACEPARENT, traceparent))
+                .build());
+        });
+    }
+
+    /**
+     * 把span的traceparent写入Reactor Context，span未记录时原样返回
+     */
+    public static Context withTraceparent(Context context, Span span) {
+        String traceparent = span.traceparent();
+        return traceparent != null ? context.put(CONTEXT_KEY, traceparent) : context;
+    }
+
+    private static String traceparent(ContextView context, Tracer tracer) {
+        return context.<String>getOrEmpty(CONTEXT_KEY).orElseGet(() -> tracer.current().traceparent());
+    }
+}
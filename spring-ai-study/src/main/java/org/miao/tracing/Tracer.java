@@ -0,0 +1,156 @@
+package org.miao.tracing;
+
+import org.miao.config.TracingProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内的轻量追踪
+ * 当前span绑定在线程上，新建的span默认以当前span为父；服务端span从请求的traceparent头继续已有的追踪。
+ * 结束的span交给SpanExporter（本地文件或内存）。追踪未启用时返回空操作的span，traceparent不向上游传播。
+ *
+ * 响应式链路中回调线程不固定，不依赖线程绑定，而是通过Reactor Context传递traceparent（见TracePropagation）。
+ */
+@Component
+public class Tracer {
+
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+
+    private final TracingProperties tracingProperties;
+    private final SpanExporter exporter;
+    private final long anchorEpochMicros;
+    private final long anchorNanos;
+
+    @Autowired
+    public Tracer(TracingProperties tracingProperties, SpanExporter exporter) {
+        this.tracingProperties = tracingProperties;
+        this.exporter = exporter;
+        this.anchorEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        this.anchorNanos = System.nanoTime();
+    }
+
+    /**
+     * 新建span，以当前线程的span为父，没有时开始新的追踪
+     */
+    public Span startSpan(String name) {
+        return startSpan(name, CURRENT.get(), System.nanoTime());
+    }
+
+    /**
+     * 以指定时间点（System.nanoTime）为开始时间新建span，用于事后补记的阶段
+     */
+    public Span startSpan(String name, long startNanos) {
+        return startSpan(name, CURRENT.get(), startNanos);
+    }
+
+    /**
+     * 新建服务端span，traceparent合法时继续调用方的追踪
+     */
+    public Span startServerSpan(String name, String traceparent) {
+        if (!tracingProperties.isEnabled()) {
+            return Span.NOOP;
+        }
+        TraceContext parent = TraceContext.parse(traceparent);
+        long now = System.nanoTime();
+        return parent != null
+            ? newSpan(name, parent.getTraceId(), parent.getSpanId(), now)
+            : newSpan(name, TraceContext.newTraceId(), null, now);
+    }
+
+    /**
+     * 新建span并绑定到当前线程，关闭时结束span并恢复之前的当前span
+     */
+    public SpanScope startActive(String name) {
+        Span span = startSpan(name);
+        return new SpanScope(span, activate(span));
+    }
+
+    /**
+     * 把span绑定到当前线程，关闭返回的Scope时恢复之前的当前span
+     */
+    public Scope activate(Span span) {
+        Span previous = CURRENT.get();
+        CURRENT.set(span);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    /**
+     * 当前线程的span，没有时返回空操作的span
+     */
+    public Span current() {
+        Span span = CURRENT.get();
+        return span != null ? span : Span.NOOP;
+    }
+
+    /**
+     * 请求ID：有追踪时取当前span自己的spanId，日志中的请求ID可以直接对应到追踪中的span；否则随机生成。
+     * 不取traceId：同一个traceparent下的多次调用共享traceId，请求之间无法区分
+     */
+    public String requestId() {
+        Span span = CURRENT.get();
+        if (span != null && span.isRecording()) {
+            return span.getSpanId();
+        }
+        return TraceContext.newSpanId();
+    }
+
+    /**
+     * 以指定的父span和开始时间新建span，父span为null或未记录时开始新的追踪
+     */
+    public Span startSpan(String name, Span parent, long startNanos) {
+        if (!tracingProperties.isEnabled()) {
+            return Span.NOOP;
+        }
+        if (parent != null && parent.isRecording()) {
+            return newSpan(name, parent.getTraceId(), parent.getSpanId(), startNanos);
+        }
+        return newSpan(name, TraceContext.newTraceId(), null, startNanos);
+    }
+
+    private Span newSpan(String name, String traceId, String parentSpanId, long startNanos) {
+        long startEpochMicros = anchorEpochMicros + (startNanos - anchorNanos) / 1000;
+        return new Span(exporter, traceId, TraceContext.newSpanId(), parentSpanId, name, startEpochMicros, startNanos);
+    }
+
+    /**
+     * 线程绑定的作用范围
+     */
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+
+    /**
+     * startActive返回的作用范围，关闭时结束span
+     */
+    public static final class SpanScope implements AutoCloseable {
+
+        private final Span span;
+        private final Scope scope;
+
+        private SpanScope(Span span, Scope scope) {
+            this.span = span;
+            this.scope = scope;
+        }
+
+        public Span span() {
+            return span;
+        }
+
+        @Override
+        public void close() {
+            scope.close();
+            span.end();
+        }
+    }
+}
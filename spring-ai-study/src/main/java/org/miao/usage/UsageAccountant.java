@@ -0,0 +1,118 @@
+package org.miao.usage;
+
+import org.miao.config.UsageProperties;
+import org.miao.dto.TokenUsage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * token用量与费用统计
+ * 根据上游返回的用量和配置的价格表计算每个请求的费用，并按模型和接口累计总量及最近时间窗口的用量。
+ *
+ * 只应传入已校验的模型名，避免统计维度无限增长。
+ */
+@Component
+public class UsageAccountant {
+
+    public static final String ENDPOINT_CHAT = "chat";
+    public static final String ENDPOINT_STREAM = "stream";
+
+    private static final double TOKENS_PER_MILLION = 1_000_000.0;
+
+    private static final Map<String, Integer> WINDOWS = new LinkedHashMap<>();
+
+    static {
+        WINDOWS.put("5m", 5);
+        WINDOWS.put("1h", 60);
+        WINDOWS.put("24h", UsageSeries.BUCKET_COUNT);
+    }
+
+    private final UsageProperties usageProperties;
+    private final UsageSeries total = new UsageSeries();
+    private final ConcurrentMap<String, UsageSeries> byModel = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, UsageSeries> byEndpoint = new ConcurrentHashMap<>();
+    private final Instant startedAt = Instant.now();
+
+    @Autowired
+    public UsageAccountant(UsageProperties usageProperties) {
+        this.usageProperties = usageProperties;
+    }
+
+    /**
+     * 记录一个请求的用量
+     *
+     * @return 本次请求的用量和费用，未启用统计时返回null
+     */
+    public TokenUsage record(String model, String endpoint, long promptTokens, long completionTokens) {
+        return record(model, endpoint, promptTokens, completionTokens, System.currentTimeMillis());
+    }
+
+    TokenUsage record(String model, String endpoint, long promptTokens, long completionTokens, long nowMillis) {
+        if (!usageProperties.isEnabled()) {
+            return null;
+        }
+        double cost = cost(model, promptTokens, completionTokens);
+        total.record(promptTokens, completionTokens, cost, nowMillis);
+        byModel.computeIfAbsent(model, key -> new UsageSeries())
+            .record(promptTokens, completionTokens, cost, nowMillis);
+        byEndpoint.computeIfAbsent(endpoint, key -> new UsageSeries())
+            .record(promptTokens, completionTokens, cost, nowMillis);
+        return new TokenUsage(promptTokens, completionTokens, cost);
+    }
+
+    /**
+     * 按价格表计算费用（美元），未配置的模型使用默认单价
+     */
+    public double cost(String model, long promptTokens, long completionTokens) {
+        UsageProperties.Price price = usageProperties.getPrices().get(model);
+        double promptPrice = price != null ? price.getPromptPerMillion() : usageProperties.getDefaultPromptPerMillion();
+        double completionPrice = price != null
+            ? price.getCompletionPerMillion() : usageProperties.getDefaultCompletionPerMillion();
+        return (promptTokens * promptPrice + completionTokens * completionPrice) / TOKENS_PER_MILLION;
+    }
+
+    /**
+     * 用量快照：总量、按模型和按接口的总量及各时间窗口的用量
+     */
+    public Map<String, Object> snapshot() {
+        return snapshot(System.currentTimeMillis());
+    }
+
+    Map<String, Object> snapshot(long nowMillis) {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("since", startedAt.toString());
+        snapshot.put("total", describe(total, nowMillis));
+        snapshot.put("models", describeAll(byModel, nowMillis));
+        snapshot.put("endpoints", describeAll(byEndpoint, nowMillis));
+        return snapshot;
+    }
+
+    /**
+     * 单个模型的用量，没有记录时返回null
+     */
+    public Map<String, Object> modelSnapshot(String model) {
+        UsageSeries series = byModel.get(model);
+        return series != null ? describe(series, System.currentTimeMillis()) : null;
+    }
+
+    private static Map<String, Object> describeAll(Map<String, UsageSeries> series, long nowMillis) {
+        Map<String, Object> described = new TreeMap<>();
+        series.forEach((key, value) -> described.put(key, describe(value, nowMillis)));
+        return described;
+    }
+
+    private static Map<String, Object> describe(UsageSeries series, long nowMillis) {
+        Map<String, Object> described = new LinkedHashMap<>(series.total());
+        Map<String, Object> windows = new LinkedHashMap<>();
+        WINDOWS.forEach((name, minutes) -> windows.put(name, series.window(minutes, nowMillis)));
+        described.put("windows", windows);
+        return described;
+    }
+}
@@ -0,0 +1,37 @@
+package org.miao.usage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * token用量Actuator端点
+ * GET /actuator/tokenusage 返回总量及按模型、按接口的用量，
+ * GET /actuator/tokenusage/{model} 返回单个模型的用量，模型名可包含"/"，例如 /actuator/tokenusage/openai/gpt-4；
+ * 该模型没有用量记录时返回404。用量和费用属于敏感信息，访问需要X-Admin-Token（见AdminEndpointFilter）
+ */
+@Component
+@Endpoint(id = "tokenusage")
+public class UsageEndpoint {
+
+    private final UsageAccountant usageAccountant;
+
+    @Autowired
+    public UsageEndpoint(UsageAccountant usageAccountant) {
+        this.usageAccountant = usageAccountant;
+    }
+
+    @ReadOperation
+    public Map<String, Object> usage() {
+        return usageAccountant.snapshot();
+    }
+
+    @ReadOperation
+    public Map<String, Object> modelUsage(@Selector(match = Selector.Match.ALL_REMAINING) String[] model) {
+        return usageAccountant.modelSnapshot(String.join("/", model));
+    }
+}
@@ -0,0 +1,112 @@
+package org.miao.usage;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个统计维度（模型或接口）的用量累计
+ * 除启动以来的总量外，按分钟分桶保留最近24小时，查询时对最近N个桶求和得到时间窗口内的用量。
+ *
+ * 写入无锁：计数使用LongAdder/DoubleAdder，桶在进入新的一分钟时用CAS替换为新桶。
+ * 恰好跨分钟的并发写入可能计入刚被替换的旧桶，只影响窗口统计，总量不受影响。
+ */
+final class UsageSeries {
+
+    static final int BUCKET_COUNT = 24 * 60;
+
+    private static final long MILLIS_PER_MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+    private final Counters total = new Counters();
+    private final AtomicReferenceArray<Bucket> buckets = new AtomicReferenceArray<>(BUCKET_COUNT);
+
+    void record(long promptTokens, long completionTokens, double cost, long nowMillis) {
+        total.add(promptTokens, completionTokens, cost);
+        bucket(nowMillis / MILLIS_PER_MINUTE).add(promptTokens, completionTokens, cost);
+    }
+
+    /**
+     * 总量
+     */
+    Map<String, Object> total() {
+        return total.toMap();
+    }
+
+    /**
+     * 最近minutes分钟（含当前分钟）的用量
+     */
+    Map<String, Object> window(int minutes, long nowMillis) {
+        long currentMinute = nowMillis / MILLIS_PER_MINUTE;
+        Counters sum = new Counters();
+        for (int i = 0; i < Math.min(minutes, BUCKET_COUNT); i++) {
+            long minute = currentMinute - i;
+            Bucket bucket = buckets.get(index(minute));
+            if (bucket != null && bucket.minute == minute) {
+                sum.add(bucket.promptTokens.sum(), bucket.completionTokens.sum(), bucket.cost.sum(),
+                    bucket.requests.sum());
+            }
+        }
+        return sum.toMap();
+    }
+
+    private Bucket bucket(long minute) {
+        int index = index(minute);
+        while (true) {
+            Bucket current = buckets.get(index);
+            if (current != null && current.minute == minute) {
+                return current;
+            }
+            Bucket fresh = new Bucket(minute);
+            if (buckets.compareAndSet(index, current, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private static int index(long minute) {
+        return (int) Math.floorMod(minute, (long) BUCKET_COUNT);
+    }
+
+    private static class Counters {
+
+        final LongAdder requests = new LongAdder();
+        final LongAdder promptTokens = new LongAdder();
+        final LongAdder completionTokens = new LongAdder();
+        final DoubleAdder cost = new DoubleAdder();
+
+        void add(long prompt, long completion, double requestCost) {
+            add(prompt, completion, requestCost, 1);
+        }
+
+        void add(long prompt, long completion, double requestCost, long requestCount) {
+            requests.add(requestCount);
+            promptTokens.add(prompt);
+            completionTokens.add(completion);
+            cost.add(requestCost);
+        }
+
+        Map<String, Object> toMap() {
+            long prompt = promptTokens.sum();
+            long completion = completionTokens.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("requests", requests.sum());
+            map.put("promptTokens", prompt);
+            map.put("completionTokens", completion);
+            map.put("totalTokens", prompt + completion);
+            map.put("cost", cost.sum());
+            return map;
+        }
+    }
+
+    private static final class Bucket extends Counters {
+
+        final long minute;
+
+        Bucket(long minute) {
+            this.minute = minute;
+        }
+    }
+}
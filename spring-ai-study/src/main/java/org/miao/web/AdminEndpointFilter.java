@@ -0,0 +1,60 @@
+package org.miao.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.miao.config.DiagnosticsProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+/**
+ * 管理端点访问控制
+ * 访问/actuator/slowrequests、/actuator/tokenusage（用量和费用）和文档导入接口/api/ingestion
+ * 需要在X-Admin-Token请求头中提供diagnostics.admin-token，
+ * 未配置令牌时一律拒绝。令牌比较使用定长时间比较。
+ * 路径按Spring MVC匹配时的形式判断（URL解码、去掉;参数、合并重复的/），
+ * 否则/actuator/slowrequests;x或/actuator/%73lowrequests可以绕过检查仍到达端点。
+ */
+@Component
+public class AdminEndpointFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-Admin-Token";
+
+    private static final List<String> PROTECTED_PATHS = List.of(
+        "/actuator/slowrequests", "/actuator/tokenusage", "/api/ingestion");
+
+    private final DiagnosticsProperties diagnosticsProperties;
+
+    @Autowired
+    public AdminEndpointFilter(DiagnosticsProperties diagnosticsProperties) {
+        this.diagnosticsProperties = diagnosticsProperties;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = UrlPathHelper.defaultInstance.getPathWithinApplication(request);
+        return PROTECTED_PATHS.stream()
+            .noneMatch(protectedPath -> path.equals(protectedPath) || path.startsWith(protectedPath + "/"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String token = request.getHeader(HEADER);
+        if (!diagnosticsProperties.isAdminTokenConfigured() || token == null
+                || !MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+                    diagnosticsProperties.getAdminToken().getBytes(StandardCharsets.UTF_8))) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+}
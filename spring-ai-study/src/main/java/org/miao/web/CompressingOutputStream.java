@@ -0,0 +1,137 @@
+package org.miao.web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * 按大小阈值决定是否压缩的输出流
+ * 响应体先写入缓冲区，累计达到阈值时开始压缩输出；响应结束时仍未达到阈值则原样输出，小响应不付出压缩的CPU和头部开销。
+ * 流式响应（SSE）的总大小未知且每个事件都要立即送达，第一次flush时就开始压缩输出，之后每次flush都同步刷新压缩流。
+ * 非流式响应在达到阈值之前的flush（例如消息转换器写完JSON后的flush）被忽略。
+ */
+class CompressingOutputStream extends OutputStream {
+
+    /**
+     * 实际的响应输出
+     */
+    interface Target {
+
+        /**
+         * 是否为流式响应，在第一次flush时读取
+         */
+        boolean isStreaming();
+
+        /**
+         * 写出第一个字节前调用一次，compress表示响应体达到了压缩阈值或为流式响应，
+         * 返回实际写入的流（可能因内容类型等原因不压缩）
+         */
+        OutputStream open(boolean compress) throws IOException;
+    }
+
+    private final int threshold;
+    private final Target target;
+
+    private byte[] buffer;
+    private int count;
+    private OutputStream out;
+    private boolean closed;
+
+    CompressingOutputStream(int threshold, Target target) {
+        this.threshold = threshold;
+        this.target = target;
+        this.buffer = new byte[Math.min(Math.max(threshold, 16), 8192)];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        if (closed) {
+            throw new IOException("响应输出流已关闭");
+        }
+        if (out == null && count + length < threshold) {
+            if (count + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.min(Math.max(buffer.length * 2, count + length), threshold));
+            }
+            System.arraycopy(bytes, offset, buffer, count, length);
+            count += length;
+            return;
+        }
+        if (out == null) {
+            start(true);
+        }
+        out.write(bytes, offset, length);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (out == null) {
+            if (!target.isStreaming()) {
+                return;
+            }
+            start(true);
+        }
+        out.flush();
+    }
+
+    /**
+     * 结束响应：未开始输出时按缓冲的内容原样输出，已开始压缩时写出压缩流的结尾
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (out == null) {
+            if (count == 0) {
+                closed = true;
+                return;
+            }
+            start(false);
+        }
+        closed = true;
+        out.close();
+    }
+
+    /**
+     * 是否已经开始输出，开始后不能再修改响应头
+     */
+    boolean isStarted() {
+        return out != null;
+    }
+
+    /**
+     * 放弃压缩：尚未开始输出时把已缓冲的内容原样输出，之后的写入直接进入Target返回的流
+     */
+    void startUncompressed() throws IOException {
+        if (out == null && !closed) {
+            start(false);
+        }
+    }
+
+    /**
+     * 丢弃尚未输出的内容
+     */
+    void resetBuffer() {
+        if (out != null) {
+            throw new IllegalStateException("响应已开始输出，无法重置");
+        }
+        count = 0;
+    }
+
+    private void start(boolean compress) throws IOException {
+        out = target.open(compress);
+        if (count > 0) {
+            out.write(buffer, 0, count);
+        }
+        buffer = null;
+        count = 0;
+    }
+}
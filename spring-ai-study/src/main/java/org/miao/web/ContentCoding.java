@@ -0,0 +1,131 @@
+package org.miao.web;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.BrotliOutputStream;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 响应内容编码
+ * 压缩流的flush把已写入的内容完整地编码输出（gzip使用SYNC_FLUSH，brotli使用BROTLI_OPERATION_FLUSH），
+ * 客户端收到每个SSE事件后即可解码，代价是每次flush多出几个字节。
+ */
+public enum ContentCoding {
+
+    BROTLI("br") {
+        @Override
+        public OutputStream encode(OutputStream out, int level) throws IOException {
+            // BrotliOutputStream的flush只把编码结果写入out，不会flush out本身
+            return new BrotliOutputStream(out, new Encoder.Parameters().setQuality(level)) {
+                @Override
+                public void flush() throws IOException {
+                    super.flush();
+                    out.flush();
+                }
+            };
+        }
+    },
+
+    GZIP("gzip") {
+        @Override
+        public OutputStream encode(OutputStream out, int level) throws IOException {
+            return new GZIPOutputStream(out, BUFFER_SIZE, true) {
+                {
+                    def.setLevel(level);
+                }
+            };
+        }
+    },
+
+    IDENTITY("identity") {
+        @Override
+        public OutputStream encode(OutputStream out, int level) {
+            return out;
+        }
+    };
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final String token;
+
+    ContentCoding(String token) {
+        this.token = token;
+    }
+
+    /**
+     * Content-Encoding响应头中的名称
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * 包装输出流，关闭返回的流时写出压缩流的结尾并关闭out
+     */
+    public abstract OutputStream encode(OutputStream out, int level) throws IOException;
+
+    /**
+     * 按Accept-Encoding协商编码：q值高者优先，q值相同时br优先于gzip；
+     * q=0表示拒绝该编码，"*"匹配未列出的编码，都不可接受时不压缩
+     */
+    public static ContentCoding negotiate(String acceptEncoding, boolean brotliAvailable) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return IDENTITY;
+        }
+        Map<String, Double> qualities = new HashMap<>();
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String name = params[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1.0;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (!name.isEmpty()) {
+                qualities.merge(name, quality, Math::max);
+            }
+        }
+        ContentCoding best = IDENTITY;
+        double bestQuality = 0;
+        for (ContentCoding coding : values()) {
+            if (coding == IDENTITY || (coding == BROTLI && !brotliAvailable)) {
+                continue;
+            }
+            Double quality = qualities.get(coding.token);
+            if (quality == null && coding == GZIP) {
+                quality = qualities.get("x-gzip");
+            }
+            if (quality == null) {
+                quality = qualities.getOrDefault("*", 0.0);
+            }
+            if (quality > bestQuality) {
+                best = coding;
+                bestQuality = quality;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * brotli本地库能否在当前平台加载
+     */
+    public static boolean isBrotliAvailable() {
+        try {
+            return Brotli4jLoader.isAvailable();
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+}
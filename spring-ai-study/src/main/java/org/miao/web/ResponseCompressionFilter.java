@@ -0,0 +1,331 @@
+package org.miao.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.miao.config.ResponseCompressionProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.List;
+
+/**
+ * 响应压缩
+ * 按Accept-Encoding协商br或gzip，只压缩response-compression.mime-types中的内容类型，
+ * 非流式响应达到min-response-size才压缩，流式响应（SSE）从第一个事件开始压缩并逐个事件同步刷新。
+ * 压缩时去掉Content-Length，不压缩时原样保留；可压缩的内容类型都带Vary: Accept-Encoding。
+ * 排在ServerTimingFilter和TracingFilter之外，它们缓冲后写出的响应体同样经过压缩。
+ * 异步请求（流式接口）在异步分派结束时才写出压缩流的结尾。使用本过滤器时不要开启server.compression，否则会重复压缩。
+ * 非阻塞输出（setWriteListener）无法经过压缩流，注册时如果还没有开始压缩输出，则该响应改为不压缩、直接写入原响应。
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 2)
+public class ResponseCompressionFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponseCompressionFilter.class);
+
+    private final ResponseCompressionProperties properties;
+    private final List<MediaType> mimeTypes;
+    private final boolean brotliAvailable;
+
+    @Autowired
+    public ResponseCompressionFilter(ResponseCompressionProperties properties) {
+        this.properties = properties;
+        this.mimeTypes = MediaType.parseMediaTypes(properties.getMimeTypes());
+        this.brotliAvailable = properties.isBrotliEnabled() && ContentCoding.isBrotliAvailable();
+        if (properties.isEnabled() && properties.isBrotliEnabled() && !brotliAvailable) {
+            logger.warn("brotli本地库在当前平台不可用，响应压缩只使用gzip");
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled() || "HEAD".equals(request.getMethod());
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        HttpServletResponse responseToUse = response;
+        CompressingResponse compressingResponse = WebUtils.getNativeResponse(response, CompressingResponse.class);
+        if (compressingResponse == null && !isAsyncDispatch(request)) {
+            ContentCoding coding = ContentCoding.negotiate(request.getHeader(HttpHeaders.ACCEPT_ENCODING),
+                brotliAvailable);
+            if (coding != ContentCoding.IDENTITY) {
+                compressingResponse = new CompressingResponse(response, coding);
+                responseToUse = compressingResponse;
+            }
+        }
+        try {
+            chain.doFilter(request, responseToUse);
+        } finally {
+            if (compressingResponse != null && !isAsyncStarted(request)) {
+                compressingResponse.finish();
+            }
+        }
+    }
+
+    private MediaType parseContentType(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        try {
+            return MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 响应体经CompressingOutputStream写出，开始输出时才根据内容类型和状态码决定是否压缩并设置响应头
+     */
+    private final class CompressingResponse extends HttpServletResponseWrapper
+            implements CompressingOutputStream.Target {
+
+        private final ContentCoding coding;
+        private final CompressingOutputStream stream;
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+        private long contentLength = -1;
+        private boolean compressed;
+        private boolean nonBlocking;
+
+        CompressingResponse(HttpServletResponse response, ContentCoding coding) {
+            super(response);
+            this.coding = coding;
+            this.stream = new CompressingOutputStream(properties.getMinResponseSize(), this);
+        }
+
+        @Override
+        public boolean isStreaming() {
+            MediaType contentType = parseContentType(getContentType());
+            return contentType != null && (MediaType.TEXT_EVENT_STREAM.isCompatibleWith(contentType)
+                || MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType));
+        }
+
+        @Override
+        public OutputStream open(boolean compress) throws IOException {
+            HttpServletResponse response = (HttpServletResponse) getResponse();
+            boolean compressible = isCompressible();
+            if (compressible && !response.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT_ENCODING)) {
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            }
+            if (!compress || !compressible) {
+                if (contentLength >= 0) {
+                    response.setContentLengthLong(contentLength);
+                }
+                return response.getOutputStream();
+            }
+            compressed = true;
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, coding.getToken());
+            int level = coding == ContentCoding.BROTLI ? properties.getBrotliQuality() : properties.getGzipLevel();
+            return coding.encode(response.getOutputStream(), level);
+        }
+
+        private boolean isCompressible() {
+            int status = getStatus();
+            if (status == SC_NO_CONTENT || status == SC_NOT_MODIFIED || status == SC_PARTIAL_CONTENT
+                    || getHeader(HttpHeaders.CONTENT_ENCODING) != null) {
+                return false;
+            }
+            MediaType contentType = parseContentType(getContentType());
+            if (contentType == null) {
+                return false;
+            }
+            for (MediaType mimeType : mimeTypes) {
+                if (mimeType.isCompatibleWith(contentType)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void finish() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            stream.close();
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            if (outputStream == null) {
+                outputStream = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        stream.write(b);
+                    }
+
+                    @Override
+                    public void write(byte[] bytes, int offset, int length) throws IOException {
+                        stream.write(bytes, offset, length);
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        stream.flush();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        stream.close();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        if (!nonBlocking) {
+                            return true;
+                        }
+                        try {
+                            return getResponse().getOutputStream().isReady();
+                        } catch (IOException e) {
+                            return false;
+                        }
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener listener) {
+                        if (compressed) {
+                            throw new IllegalStateException("响应已开始压缩输出，无法改为非阻塞输出");
+                        }
+                        try {
+                            stream.startUncompressed();
+                            getResponse().getOutputStream().setWriteListener(listener);
+                        } catch (IOException e) {
+                            throw new IllegalStateException("切换为非阻塞输出失败", e);
+                        }
+                        nonBlocking = true;
+                    }
+                };
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            stream.flush();
+        }
+
+        @Override
+        public void resetBuffer() {
+            stream.resetBuffer();
+            super.resetBuffer();
+        }
+
+        @Override
+        public void reset() {
+            stream.resetBuffer();
+            contentLength = -1;
+            super.reset();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            discardBuffer();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            discardBuffer();
+            super.sendError(sc, msg);
+        }
+
+        private void discardBuffer() {
+            if (!stream.isStarted()) {
+                stream.resetBuffer();
+            }
+        }
+
+        @Override
+        public void setContentLength(int length) {
+            setContentLengthLong(length);
+        }
+
+        @Override
+        public void setContentLengthLong(long length) {
+            if (!stream.isStarted()) {
+                contentLength = length;
+            } else if (!compressed) {
+                super.setContentLengthLong(length);
+            }
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(value != null ? Long.parseLong(value) : -1);
+            } else {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(Long.parseLong(value));
+            } else {
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(value);
+            } else {
+                super.setIntHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addIntHeader(String name, int value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(value);
+            } else {
+                super.addIntHeader(name, value);
+            }
+        }
+
+        @Override
+        public String getHeader(String name) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name) && !stream.isStarted()) {
+                return contentLength >= 0 ? Long.toString(contentLength) : null;
+            }
+            return super.getHeader(name);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.miao.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.miao.config.ChatProperties;
+import org.miao.metrics.RequestTimings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+
+/**
+ * 为聊天接口添加Server-Timing响应头
+ * 在请求线程上绑定RequestTimings，聊天链路各阶段的耗时写入其中。
+ * 响应体先写入缓冲区，控制器返回之后的序列化耗时和总耗时也能在响应头发出前计入。
+ * 流式接口不经过此过滤器，缓冲会破坏逐段输出。
+ * 排在TracingFilter之外，TracingFilter返回时RequestTimings仍然绑定，可以据此补记序列化span。
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Server-Timing";
+
+    private static final String CHAT_PATH = "/api/chat";
+
+    private final ChatProperties chatProperties;
+
+    @Autowired
+    public ServerTimingFilter(ChatProperties chatProperties) {
+        this.chatProperties = chatProperties;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !chatProperties.isServerTimingEnabled()
+            || !"POST".equals(request.getMethod())
+            || !CHAT_PATH.equals(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestTimings timings = RequestTimings.begin();
+        ContentCachingResponseWrapper cachingResponse = new ContentCachingResponseWrapper(response);
+        try {
+            chain.doFilter(request, cachingResponse);
+        } finally {
+            RequestTimings.end();
+            long now = System.nanoTime();
+            if (timings.getHandlerCompletedNanos() > 0) {
+                timings.add("serialize", now - timings.getHandlerCompletedNanos());
+            }
+            timings.add("total", now - timings.getStartNanos());
+            if (!cachingResponse.isCommitted()) {
+                cachingResponse.setHeader(HEADER, timings.toServerTiming());
+            }
+            cachingResponse.copyBodyToResponse();
+        }
+    }
+}
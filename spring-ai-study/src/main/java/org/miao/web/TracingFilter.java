@@ -0,0 +1,74 @@
+package org.miao.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.miao.metrics.RequestTimings;
+import org.miao.tracing.Span;
+import org.miao.tracing.TraceContext;
+import org.miao.tracing.Tracer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * 为/api下的请求创建服务端span
+ * 请求带有合法的traceparent头时继续调用方的追踪，并在响应头中返回本次请求的traceparent。
+ * 位于ServerTimingFilter之内，控制器返回后到过滤器链返回之间的时间记为chat.serialize子span。
+ *
+ * 流式接口在控制器返回后异步输出，服务端span只覆盖到控制器返回，之后的耗时见chat.stream子span。
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class TracingFilter extends OncePerRequestFilter {
+
+    private static final String API_PREFIX = "/api/";
+
+    private final Tracer tracer;
+
+    @Autowired
+    public TracingFilter(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !path(request).startsWith(API_PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = path(request);
+        Span span = tracer.startServerSpan(request.getMethod() + " " + path,
+            request.getHeader(TraceContext.TRACEPARENT));
+        span.setAttribute("http.method", request.getMethod())
+            .setAttribute("http.target", path);
+        if (span.isRecording()) {
+            response.setHeader(TraceContext.TRACEPARENT, span.traceparent());
+        }
+        try (Tracer.Scope ignored = tracer.activate(span)) {
+            chain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            span.recordError(e);
+            throw e;
+        } finally {
+            long now = System.nanoTime();
+            RequestTimings timings = RequestTimings.current();
+            if (timings != null && timings.getHandlerCompletedNanos() > 0) {
+                tracer.startSpan("chat.serialize", span, timings.getHandlerCompletedNanos()).end(now);
+            }
+            span.setAttribute("http.status_code", response.getStatus());
+            span.end(now);
+        }
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+}
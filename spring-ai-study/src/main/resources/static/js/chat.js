@@ -32,6 +32,11 @@ class ChatApp {
         // 存储最后发送的消息，用于重试功能
         this.lastMessage = '';
         this.lastModel = '';
+        
+        // 当前页面的会话ID，服务端据此保存多轮对话历史
+        this.conversationId = (window.crypto && crypto.randomUUID)
+            ? crypto.randomUUID()
+            : Date.now().toString(36) + Math.random().toString(36).slice(2);
     }
 
     /**
@@ -139,7 +144,8 @@ class ChatApp {
     async callChatAPI(message, model) {
         const requestBody = {
             message: message,
-            model: model
+            model: model,
+            conversationId: this.conversationId
         };
         
         const response = await fetch('/api/chat', {
@@ -0,0 +1,110 @@
+package org.miao.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * EmbeddingCache单元测试类
+ * 测试内容哈希键、内存层LRU淘汰、持久层重新打开后的命中和尾部损坏的处理
+ */
+class EmbeddingCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testKey_DifferentNamespace_DifferentKey() {
+        // Act & Assert
+        assertEquals(EmbeddingCache.key("model-a", "文本"), EmbeddingCache.key("model-a", "文本"));
+        assertNotEquals(EmbeddingCache.key("model-a", "文本"), EmbeddingCache.key("model-b", "文本"));
+        assertNotEquals(EmbeddingCache.key("model-a", "文本1"), EmbeddingCache.key("model-a", "文本2"));
+    }
+
+    @Test
+    void testPut_MemoryOnly_EvictsLeastRecentlyUsed() throws Exception {
+        // Arrange
+        try (EmbeddingCache cache = new EmbeddingCache(2, null)) {
+            EmbeddingCache.Key a = EmbeddingCache.key("m", "a");
+            EmbeddingCache.Key b = EmbeddingCache.key("m", "b");
+            EmbeddingCache.Key c = EmbeddingCache.key("m", "c");
+            cache.put(a, new float[]{1});
+            cache.put(b, new float[]{2});
+
+            // Act - 访问a后写入c，应淘汰b
+            assertNotNull(cache.get(a));
+            cache.put(c, new float[]{3});
+
+            // Assert
+            assertEquals(2, cache.memorySize());
+            assertNull(cache.get(b));
+            assertArrayEquals(new float[]{1}, cache.get(a));
+            assertArrayEquals(new float[]{3}, cache.get(c));
+            assertEquals(3, cache.getMemoryHits());
+            assertEquals(1, cache.getMisses());
+            assertEquals(0.75, cache.hitRatio(), 1e-9);
+        }
+    }
+
+    @Test
+    void testGet_AfterReopen_HitsDiskTier() throws Exception {
+        // Arrange
+        Path file = tempDir.resolve("cache.dat");
+        EmbeddingCache.Key key = EmbeddingCache.key("m", "持久化的文本");
+        try (EmbeddingCache cache = new EmbeddingCache(10, file)) {
+            cache.put(key, new float[]{0.5f, -1.5f, 2.0f});
+            cache.put(key, new float[]{0.5f, -1.5f, 2.0f});
+            assertEquals(1, cache.diskSize());
+        }
+
+        // Act
+        try (EmbeddingCache reopened = new EmbeddingCache(10, file)) {
+            float[] first = reopened.get(key);
+            float[] second = reopened.get(key);
+
+            // Assert - 第一次从持久层读取，第二次已提升到内存层
+            assertArrayEquals(new float[]{0.5f, -1.5f, 2.0f}, first);
+            assertArrayEquals(first, second);
+            assertEquals(1, reopened.getDiskHits());
+            assertEquals(1, reopened.getMemoryHits());
+        }
+    }
+
+    @Test
+    void testOpen_TruncatedTail_DropsIncompleteRecord() throws Exception {
+        // Arrange
+        Path file = tempDir.resolve("cache.dat");
+        EmbeddingCache.Key complete = EmbeddingCache.key("m", "complete");
+        EmbeddingCache.Key partial = EmbeddingCache.key("m", "partial");
+        try (EmbeddingCache cache = new EmbeddingCache(10, file)) {
+            cache.put(complete, new float[]{1, 2, 3, 4});
+            cache.put(partial, new float[]{5, 6, 7, 8});
+        }
+        long size = Files.size(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 6);
+        }
+
+        // Act
+        try (EmbeddingCache reopened = new EmbeddingCache(10, file)) {
+            // Assert
+            assertEquals(1, reopened.diskSize());
+            assertArrayEquals(new float[]{1, 2, 3, 4}, reopened.get(complete));
+            assertNull(reopened.get(partial));
+            assertEquals(size / 2, Files.size(file));
+
+            // 截断后追加的新记录可以正常读取
+            reopened.put(partial, new float[]{5, 6, 7, 8});
+        }
+        try (EmbeddingCache reopened = new EmbeddingCache(10, file)) {
+            assertEquals(2, reopened.diskSize());
+            assertArrayEquals(new float[]{5, 6, 7, 8}, reopened.get(partial));
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package org.miao.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.miao.controller.ChatController;
+import org.miao.controller.GlobalExceptionHandler;
+import org.miao.dto.ChatRequest;
+import org.miao.dto.ChatResponse;
+import org.miao.exception.InvalidRequestException;
+import org.miao.service.ChatService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * WireFormatConfig单元测试类
+ * 测试聊天接口按Content-Type解析Smile和CBOR请求体、按Accept协商响应格式，以及未指定时仍使用JSON
+ */
+@ExtendWith(MockitoExtension.class)
+class WireFormatConfigTest {
+
+    private static final String DEFAULT_MODEL = "openai/gpt-3.5-turbo";
+    private static final MediaType SMILE = MediaType.parseMediaType(WireFormatConfig.SMILE_VALUE);
+    private static final MediaType CBOR = MediaType.parseMediaType(WireFormatConfig.CBOR_VALUE);
+
+    @Mock
+    private ChatService chatService;
+
+    private MockMvc mockMvc;
+    private ObjectMapper smileMapper;
+    private ObjectMapper cborMapper;
+
+    @BeforeEach
+    void setUp() {
+        WireFormatConfig config = new WireFormatConfig();
+        mockMvc = MockMvcBuilders.standaloneSetup(new ChatController(chatService))
+            .setControllerAdvice(new GlobalExceptionHandler())
+            .setMessageConverters(
+                new MappingJackson2HttpMessageConverter(Jackson2ObjectMapperBuilder.json().build()),
+                config.smileHttpMessageConverter(Jackson2ObjectMapperBuilder.json()),
+                config.cborHttpMessageConverter(Jackson2ObjectMapperBuilder.json()))
+            .build();
+        smileMapper = Jackson2ObjectMapperBuilder.smile().build();
+        cborMapper = Jackson2ObjectMapperBuilder.cbor().build();
+    }
+
+    @Test
+    void testChat_CborRequestAndAccept_ReturnsCborResponse() throws Exception {
+        // Arrange
+        when(chatService.sendMessage(any(ChatRequest.class)))
+            .thenReturn(ChatResponse.success("你好", DEFAULT_MODEL));
+
+        // Act
+        byte[] body = mockMvc.perform(post("/api/chat")
+                .contentType(CBOR)
+                .accept(CBOR)
+                .content(cborMapper.writeValueAsBytes(new ChatRequest("Hello", DEFAULT_MODEL))))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Assert
+        JsonNode response = cborMapper.readTree(body);
+        assertEquals("你好", response.get("response").asText());
+        assertEquals(DEFAULT_MODEL, response.get("model").asText());
+        assertTrue(response.get("timestamp").isTextual());
+        ArgumentCaptor<ChatRequest> captor = ArgumentCaptor.forClass(ChatRequest.class);
+        verify(chatService).sendMessage(captor.capture());
+        assertEquals("Hello", captor.getValue().getMessage());
+    }
+
+    @Test
+    void testChat_SmileRequestAndAccept_ReturnsSmileResponse() throws Exception {
+        // Arrange
+        when(chatService.sendMessage(any(ChatRequest.class)))
+            .thenReturn(ChatResponse.success("你好", DEFAULT_MODEL));
+
+        // Act
+        byte[] body = mockMvc.perform(post("/api/chat")
+                .contentType(SMILE)
+                .accept(SMILE)
+                .content(smileMapper.writeValueAsBytes(new ChatRequest("Hello", DEFAULT_MODEL))))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(SMILE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Assert
+        assertEquals("你好", smileMapper.readTree(body).get("response").asText());
+    }
+
+    @Test
+    void testChat_JsonRequestAcceptsCbor_ReturnsCborResponse() throws Exception {
+        // Arrange
+        when(chatService.sendMessage(any(ChatRequest.class)))
+            .thenReturn(ChatResponse.success("ok", DEFAULT_MODEL));
+
+        // Act
+        byte[] body = mockMvc.perform(post("/api/chat")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(CBOR)
+                .content(new ObjectMapper().writeValueAsString(new ChatRequest("Hello", DEFAULT_MODEL))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Assert
+        assertEquals("ok", cborMapper.readTree(body).get("response").asText());
+    }
+
+    @Test
+    void testModels_NoAccept_DefaultsToJson() throws Exception {
+        // Arrange
+        when(chatService.getAvailableModels()).thenReturn(List.of(DEFAULT_MODEL));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/models"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$[0]").value(DEFAULT_MODEL));
+    }
+
+    @Test
+    void testChat_InvalidRequestAcceptsCbor_ReturnsCborError() throws Exception {
+        // Arrange
+        when(chatService.sendMessage(any(ChatRequest.class)))
+            .thenThrow(new InvalidRequestException("消息内容不能为空"));
+
+        // Act
+        byte[] body = mockMvc.perform(post("/api/chat")
+                .contentType(CBOR)
+                .header(HttpHeaders.ACCEPT, WireFormatConfig.CBOR_VALUE)
+                .content(cborMapper.writeValueAsBytes(new ChatRequest("", DEFAULT_MODEL))))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Assert
+        JsonNode error = cborMapper.readTree(body);
+        assertEquals("INVALID_REQUEST", error.get("errorCode").asText());
+        assertFalse(error.get("success").asBoolean());
+    }
+}
@@ -14,7 +14,9 @@ import org.miao.exception.ModelNotAvailableException;
 import org.miao.service.ChatService;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import reactor.core.publisher.Flux;
 
 import java.util.Arrays;
 import java.util.List;
@@ -206,6 +208,28 @@ class ChatControllerTest {
         verify(chatService, never()).sendMessage(any(ChatRequest.class));
     }
 
+    @Test
+    void testChatStream_ValidRequest_ReturnsEventStream() throws Exception {
+        // Arrange
+        ChatRequest request = new ChatRequest(TEST_MESSAGE, DEFAULT_MODEL);
+        when(chatService.streamMessage(any(ChatRequest.class))).thenReturn(Flux.just("I'm doing", " well"));
+
+        // Act
+        MvcResult result = mockMvc.perform(post("/api/chat/stream")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(content().string("data:I'm doing\n\ndata: well\n\n"));
+
+        verify(chatService).streamMessage(any(ChatRequest.class));
+    }
+
     @Test
     void testGetAvailableModels_ReturnsModelList() throws Exception {
         // Arrange
@@ -0,0 +1,360 @@
+package org.miao.conversation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ConversationLog单元测试类
+ * 测试预写日志的批量写入、重放、损坏尾部截断、写入失败回退和日志段压缩
+ */
+class ConversationLogTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testAppendAndReplay_RestoresEntriesInOrder() throws Exception {
+        // Arrange
+        ConversationLog log = newLog(1024 * 1024, 4);
+        log.start();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(log.append(ConversationLog.Entry.append("c1", ConversationTurn.user("message-" + i))));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        log.close();
+
+        // Act
+        List<ConversationLog.Entry> replayed = new ArrayList<>();
+        ConversationLog reopened = newLog(1024 * 1024, 4);
+        long count = reopened.replay(replayed::add);
+        reopened.close();
+
+        // Assert
+        assertEquals(10, count);
+        for (int i = 0; i < 10; i++) {
+            assertEquals("c1", replayed.get(i).getConversationId());
+            assertEquals("message-" + i, replayed.get(i).getTurn().getContent());
+            assertEquals(i + 1, replayed.get(i).getSequence());
+        }
+    }
+
+    @Test
+    void testAppend_GroupsWritesIntoBatches() throws Exception {
+        // Arrange
+        ConversationLog log = newLog(1024 * 1024, 4);
+        log.start();
+
+        // Act
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(log.append(ConversationLog.Entry.append("c" + (i % 5), ConversationTurn.user("m" + i))));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        // Assert
+        assertEquals(200, log.getAppendedEntries());
+        assertTrue(log.getFlushedBatches() < 200, "写入应当被合并为少量批次");
+        log.close();
+    }
+
+    @Test
+    void testReplay_TruncatesTornTail() throws Exception {
+        // Arrange
+        ConversationLog log = newLog(1024 * 1024, 4);
+        log.start();
+        log.append(ConversationLog.Entry.append("c1", ConversationTurn.user("first"))).join();
+        log.append(ConversationLog.Entry.append("c1", ConversationTurn.assistant("second"))).join();
+        log.close();
+
+        Path segment = listSegments().get(0);
+        long size = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+
+        // Act
+        List<ConversationLog.Entry> replayed = new ArrayList<>();
+        ConversationLog reopened = newLog(1024 * 1024, 4);
+        reopened.replay(replayed::add);
+        reopened.start();
+        reopened.append(ConversationLog.Entry.append("c1", ConversationTurn.user("third"))).join();
+        reopened.close();
+
+        List<ConversationLog.Entry> afterRepair = new ArrayList<>();
+        ConversationLog verify = newLog(1024 * 1024, 4);
+        verify.replay(afterRepair::add);
+        verify.close();
+
+        // Assert
+        assertEquals(1, replayed.size());
+        assertEquals("first", replayed.get(0).getTurn().getContent());
+        assertEquals(2, afterRepair.size());
+        assertEquals("third", afterRepair.get(1).getTurn().getContent());
+    }
+
+    @Test
+    void testCompaction_DropsDeletedConversationsAndOldTurns() throws Exception {
+        // Arrange - 很小的日志段，保证每批都会滚动
+        ConversationLog log = newLog(64, 3);
+        log.start();
+        for (int i = 0; i < 5; i++) {
+            log.append(ConversationLog.Entry.append("kept", ConversationTurn.user("kept-" + i))).join();
+            log.append(ConversationLog.Entry.append("deleted", ConversationTurn.user("deleted-" + i))).join();
+        }
+        log.append(ConversationLog.Entry.delete("deleted")).join();
+        log.append(ConversationLog.Entry.append("kept", ConversationTurn.user("kept-last"))).join();
+        log.close();
+
+        // Act
+        List<ConversationLog.Entry> replayed = new ArrayList<>();
+        ConversationLog reopened = newLog(64, 3);
+        reopened.replay(replayed::add);
+        reopened.close();
+
+        // Assert
+        assertTrue(log.getCompactions() > 0);
+        assertTrue(listSegments().size() <= 4);
+        Map<String, List<String>> state = new HashMap<>();
+        for (ConversationLog.Entry entry : replayed) {
+            if (entry.isDelete()) {
+                state.remove(entry.getConversationId());
+            } else {
+                state.computeIfAbsent(entry.getConversationId(), id -> new ArrayList<>())
+                    .add(entry.getTurn().getContent());
+            }
+        }
+        assertFalse(state.containsKey("deleted"));
+        List<String> kept = state.get("kept");
+        assertEquals("kept-last", kept.get(kept.size() - 1));
+        assertFalse(kept.contains("kept-0"), "压缩后每个会话最多保留maxTurns条消息");
+    }
+
+    @Test
+    void testAppend_PartialWriteFails_RollsBackAndKeepsLaterEntries() throws Exception {
+        // Arrange
+        FailingChannel[] channel = new FailingChannel[1];
+        ConversationLog log = new ConversationLog(tempDir, 1024 * 1024, 16, 5, 4, 3) {
+            @Override
+            FileChannel openForAppend(Path segment) throws IOException {
+                channel[0] = new FailingChannel(super.openForAppend(segment));
+                return channel[0];
+            }
+        };
+        log.start();
+        log.append(ConversationLog.Entry.append("c1", ConversationTurn.user("first"))).join();
+
+        // Act
+        channel[0].failNextWrite = true;
+        CompletableFuture<Void> failed = log.append(ConversationLog.Entry.append("c1", ConversationTurn.user("lost")));
+        assertThrows(CompletionException.class, failed::join);
+        log.append(ConversationLog.Entry.append("c1", ConversationTurn.user("third"))).join();
+        log.close();
+
+        // Assert
+        List<ConversationLog.Entry> replayed = new ArrayList<>();
+        ConversationLog reopened = newLog(1024 * 1024, 4);
+        reopened.replay(replayed::add);
+        reopened.close();
+        assertEquals(2, replayed.size());
+        assertEquals("first", replayed.get(0).getTurn().getContent());
+        assertEquals("third", replayed.get(1).getTurn().getContent());
+        assertEquals(2, replayed.get(1).getSequence(), "失败批次的序号应当回退");
+    }
+
+    @Test
+    void testAppend_ConcurrentWithClose_AllFuturesComplete() throws Exception {
+        // Arrange
+        ConversationLog log = newLog(1024 * 1024, 4);
+        log.start();
+        List<CompletableFuture<Void>> futures = new CopyOnWriteArrayList<>();
+        ExecutorService appenders = Executors.newFixedThreadPool(4);
+        CountDownLatch started = new CountDownLatch(4);
+        for (int t = 0; t < 4; t++) {
+            appenders.execute(() -> {
+                started.countDown();
+                for (int i = 0; i < 5000; i++) {
+                    try {
+                        futures.add(log.append(ConversationLog.Entry.append("c1", ConversationTurn.user("m" + i))));
+                    } catch (IllegalStateException e) {
+                        return;
+                    }
+                }
+            });
+        }
+
+        // Act
+        started.await();
+        log.close();
+        appenders.shutdown();
+        assertTrue(appenders.awaitTermination(10, TimeUnit.SECONDS), "关闭后append不应一直阻塞");
+
+        // Assert
+        for (CompletableFuture<Void> future : futures) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                assertInstanceOf(IllegalStateException.class, e.getCause());
+            }
+        }
+    }
+
+    @Test
+    void testAppend_BeforeStart_ThrowsException() {
+        // Arrange
+        ConversationLog log = newLog(1024, 4);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class,
+            () -> log.append(ConversationLog.Entry.append("c1", ConversationTurn.user("m"))));
+    }
+
+    @Test
+    void testConstructor_InvalidCompactionThreshold_ThrowsException() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new ConversationLog(tempDir, 1024, 16, 5, 1, 4));
+    }
+
+    private ConversationLog newLog(long segmentSize, int compactionThreshold) {
+        return new ConversationLog(tempDir, segmentSize, 16, 5, compactionThreshold, 3);
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> stream = Files.list(tempDir)) {
+            return stream.filter(p -> p.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    /**
+     * 可注入写入失败的FileChannel：failNextWrite置位后，下一次写入只写出一半数据就抛出IOException
+     */
+    private static final class FailingChannel extends FileChannel {
+
+        private final FileChannel delegate;
+        private volatile boolean failNextWrite;
+
+        private FailingChannel(FileChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            if (failNextWrite) {
+                failNextWrite = false;
+                ByteBuffer partial = srcs[offset].duplicate();
+                partial.limit(partial.position() + partial.remaining() / 2);
+                delegate.write(partial);
+                throw new IOException("模拟磁盘写入失败");
+            }
+            return delegate.write(srcs, offset, length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return delegate.write(src);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            delegate.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return delegate.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return delegate.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+}
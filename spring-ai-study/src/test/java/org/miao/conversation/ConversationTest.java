@@ -0,0 +1,123 @@
+package org.miao.conversation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Conversation单元测试类
+ * 测试会话的冷存储压缩、访问时解压以及编解码的正确性
+ */
+class ConversationTest {
+
+    @Test
+    void testCodec_RoundTripPreservesTurns() {
+        // Arrange
+        List<ConversationTurn> turns = new ArrayList<>();
+        turns.add(new ConversationTurn(ConversationTurn.Role.USER, "你好，请介绍一下Spring AI", 1000L));
+        turns.add(new ConversationTurn(ConversationTurn.Role.ASSISTANT, "Spring AI是一个应用框架", 2000L));
+        turns.add(new ConversationTurn(ConversationTurn.Role.USER, "", 3000L));
+
+        // Act
+        ConversationCodec.Encoded encoded = ConversationCodec.encode(turns, 6);
+        List<ConversationTurn> decoded = ConversationCodec.decode(encoded.getBytes());
+
+        // Assert
+        assertEquals(turns.size(), decoded.size());
+        for (int i = 0; i < turns.size(); i++) {
+            assertEquals(turns.get(i).getRole(), decoded.get(i).getRole());
+            assertEquals(turns.get(i).getContent(), decoded.get(i).getContent());
+            assertEquals(turns.get(i).getTimestamp(), decoded.get(i).getTimestamp());
+        }
+    }
+
+    @Test
+    void testCodec_RepetitiveTextCompresses() {
+        // Arrange
+        List<ConversationTurn> turns = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            turns.add(ConversationTurn.user("请帮我检查这段Java代码中的空指针异常问题。".repeat(10)));
+        }
+
+        // Act
+        ConversationCodec.Encoded encoded = ConversationCodec.encode(turns, 1);
+
+        // Assert
+        assertTrue(encoded.getRatio() > 5, "重复文本的压缩比应明显大于1");
+        assertTrue(encoded.getBytes().length < encoded.getRawBytes());
+    }
+
+    @Test
+    void testCompressIfIdle_CompressesAndRehydratesOnAccess() {
+        // Arrange
+        AtomicInteger compressedCount = new AtomicInteger();
+        AtomicLong rehydrationNanos = new AtomicLong(-1);
+        Conversation conversation = new Conversation("c1", 10, new Conversation.TierListener() {
+            @Override
+            public void compressed(int rawBytes, int compressedBytes) {
+                compressedCount.incrementAndGet();
+            }
+
+            @Override
+            public void rehydrated(int rawBytes, int compressedBytes, long nanos) {
+                rehydrationNanos.set(nanos);
+            }
+        });
+        conversation.add(ConversationTurn.user("question"));
+        conversation.add(ConversationTurn.assistant("answer"));
+
+        // Act
+        boolean compressed = conversation.compressIfIdle(0, 1);
+
+        // Assert
+        assertTrue(compressed);
+        assertTrue(conversation.isCold());
+        assertTrue(conversation.getCompressedBytes() > 0);
+        assertEquals(1, compressedCount.get());
+
+        List<ConversationTurn> history = conversation.snapshot();
+        assertFalse(conversation.isCold());
+        assertEquals(0, conversation.getCompressedBytes());
+        assertTrue(rehydrationNanos.get() >= 0);
+        assertEquals(2, history.size());
+        assertEquals("answer", history.get(1).getContent());
+    }
+
+    @Test
+    void testCompressIfIdle_RecentlyTouched_StaysHot() {
+        // Arrange
+        Conversation conversation = new Conversation("c1", 10, null);
+        conversation.add(ConversationTurn.user("question"));
+        conversation.touch();
+
+        // Act
+        boolean compressed = conversation.compressIfIdle(60_000, 1);
+
+        // Assert
+        assertFalse(compressed);
+        assertFalse(conversation.isCold());
+    }
+
+    @Test
+    void testAdd_ToColdConversation_KeepsMaxTurns() {
+        // Arrange
+        Conversation conversation = new Conversation("c1", 2, null);
+        conversation.add(ConversationTurn.user("first"));
+        conversation.add(ConversationTurn.assistant("second"));
+        conversation.compressIfIdle(0, 1);
+
+        // Act
+        conversation.add(ConversationTurn.user("third"));
+
+        // Assert
+        List<ConversationTurn> history = conversation.snapshot();
+        assertEquals(2, history.size());
+        assertEquals("second", history.get(0).getContent());
+        assertEquals("third", history.get(1).getContent());
+    }
+}
@@ -0,0 +1,133 @@
+package org.miao.diagnostics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.miao.config.DiagnosticsProperties;
+import org.miao.metrics.ChatMetrics;
+import org.miao.metrics.RequestTimings;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SlowRequestRecorder单元测试类
+ * 测试慢请求和失败请求的采集条件、提示词截断、环形覆盖顺序以及上游状态码提取
+ */
+class SlowRequestRecorderTest {
+
+    private static final String MODEL = "openai/gpt-4";
+
+    private DiagnosticsProperties properties;
+    private SlowRequestRecorder recorder;
+
+    @BeforeEach
+    void setUp() {
+        properties = new DiagnosticsProperties();
+        properties.setSlowRequestThresholdMillis(1000);
+        properties.setSlowRequestCapacity(3);
+        properties.setPromptPreviewChars(5);
+        recorder = new SlowRequestRecorder(properties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testOffer_FastSuccess_NotCaptured() {
+        // Arrange
+        RequestTrace trace = recorder.start("req-1", MODEL, "你好", false);
+        trace.complete(ChatMetrics.OUTCOME_SUCCESS, TimeUnit.MILLISECONDS.toNanos(200));
+
+        // Act & Assert
+        assertFalse(recorder.offer(trace, null));
+        assertTrue(recorder.recent().isEmpty());
+    }
+
+    @Test
+    void testOffer_SlowRequest_CapturedWithTruncatedPromptAndTimings() {
+        // Arrange
+        RequestTimings timings = RequestTimings.begin();
+        RequestTimings.end();
+        timings.add("upstream", TimeUnit.MILLISECONDS.toNanos(1500));
+        RequestTrace trace = recorder.start("req-1", MODEL, "0123456789", false);
+        trace.context(4, 800);
+        trace.attempt(1, TimeUnit.MILLISECONDS.toNanos(1500), 200, null);
+        trace.response(42);
+        trace.complete(ChatMetrics.OUTCOME_SUCCESS, TimeUnit.MILLISECONDS.toNanos(1600));
+
+        // Act
+        boolean captured = recorder.offer(trace, timings);
+
+        // Assert
+        assertTrue(captured);
+        RequestTrace saved = recorder.recent().get(0);
+        assertEquals("01234...", saved.getPrompt());
+        assertEquals(10, saved.getMessageChars());
+        assertEquals(4, saved.getHistoryTurns());
+        assertEquals(800, saved.getContextChars());
+        assertEquals(42, saved.getResponseChars());
+        assertEquals(1600, saved.getDurationMillis());
+        assertEquals(1500.0, saved.getTimings().get("upstream"), 0.0);
+        assertEquals(200, saved.getAttempts().get(0).getStatus());
+    }
+
+    @Test
+    void testOffer_FailedAfterRetries_Captured() {
+        // Arrange
+        RequestTrace trace = recorder.start("req-1", MODEL, "你好", false);
+        trace.attempt(1, TimeUnit.MILLISECONDS.toNanos(30), 503, "503 - Service Unavailable");
+        trace.attempt(2, TimeUnit.MILLISECONDS.toNanos(30), 503, "503 - Service Unavailable");
+        trace.failed("API调用失败，已重试 2 次");
+        trace.complete(ChatMetrics.OUTCOME_ERROR, TimeUnit.MILLISECONDS.toNanos(100));
+
+        // Act
+        boolean captured = recorder.offer(trace, null);
+
+        // Assert
+        assertTrue(captured);
+        RequestTrace saved = recorder.recent().get(0);
+        assertEquals(2, saved.getAttempts().size());
+        assertEquals("API调用失败，已重试 2 次", saved.getError());
+        assertTrue(saved.getTimings().isEmpty());
+    }
+
+    @Test
+    void testRecent_OverCapacity_KeepsNewestFirst() {
+        // Arrange
+        for (int i = 1; i <= 5; i++) {
+            RequestTrace trace = recorder.start("req-" + i, MODEL, "你好", false);
+            trace.complete(ChatMetrics.OUTCOME_ERROR, 0);
+            recorder.offer(trace, null);
+        }
+
+        // Act
+        List<RequestTrace> recent = recorder.recent();
+
+        // Assert
+        assertEquals(3, recent.size());
+        assertEquals("req-5", recent.get(0).getRequestId());
+        assertEquals("req-3", recent.get(2).getRequestId());
+    }
+
+    @Test
+    void testOffer_Disabled_NotCaptured() {
+        // Arrange
+        properties.setSlowRequestEnabled(false);
+        RequestTrace trace = recorder.start("req-1", MODEL, "你好", false);
+        trace.complete(ChatMetrics.OUTCOME_ERROR, 0);
+
+        // Act & Assert
+        assertFalse(recorder.offer(trace, null));
+    }
+
+    @Test
+    void testStatusOf_ParsesStatusFromCauseChain() {
+        // Arrange
+        RuntimeException upstream = new RuntimeException("429 - {\"error\":\"rate limited\"}");
+        RuntimeException wrapped = new IllegalStateException("调用失败", upstream);
+
+        // Act & Assert
+        assertEquals(429, SlowRequestRecorder.statusOf(wrapped));
+        assertNull(SlowRequestRecorder.statusOf(new RuntimeException("Connection refused")));
+    }
+}
@@ -0,0 +1,267 @@
+package org.miao.eval;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.miao.config.EvalProperties;
+import org.miao.dto.ChatRequest;
+import org.miao.dto.ChatResponse;
+import org.miao.dto.TokenUsage;
+import org.miao.service.ChatService;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * EvalRunner单元测试类
+ * 使用返回延迟片段的ChatService测试评测的执行、TTFT和生成速度的计算、失败统计、评分以及提示词集校验
+ */
+class EvalRunnerTest {
+
+    private static final List<String> MODELS = List.of("fast", "slow");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRun_AllModelsAndRepetitions_ReportsEveryCombination() throws Exception {
+        // Arrange
+        EvalProperties properties = properties(2);
+        EvalRunner runner = new EvalRunner(new FakeChatService(), properties);
+
+        // Act
+        EvalReport report = runner.run(suite(), MODELS);
+
+        // Assert
+        assertEquals(2 * 2 * 2, report.getResults().size());
+        for (EvalResult result : report.getResults()) {
+            assertTrue(result.isSuccess());
+            assertTrue(result.getTtftMillis() <= result.getTotalMillis());
+            assertEquals(12, result.getResponseChars());
+            assertEquals(Long.valueOf(10), result.getPromptTokens());
+            assertEquals(Long.valueOf(3), result.getCompletionTokens());
+            assertNotNull(result.getTokensPerSecond());
+        }
+        Map<String, Object> slow = report.modelSummary("slow");
+        Map<String, Object> fast = report.modelSummary("fast");
+        assertEquals(4, slow.get("runs"));
+        assertTrue(p50(slow, "ttftMillis") >= 40);
+        assertTrue(p50(fast, "ttftMillis") < p50(slow, "ttftMillis"));
+    }
+
+    @Test
+    void testRun_CostAndScore_AggregatedPerModel() throws Exception {
+        // Arrange
+        EvalRunner runner = new EvalRunner(new FakeChatService(), properties(1));
+
+        // Act
+        EvalReport report = runner.run(suite(), MODELS);
+
+        // Assert
+        Map<String, Object> summary = report.modelSummary("fast");
+        Map<?, ?> cost = (Map<?, ?>) summary.get("cost");
+        assertEquals(0.002, (Double) cost.get("total"), 1e-9);
+        assertEquals(0.001, (Double) cost.get("perPrompt"), 1e-9);
+        assertEquals(6L, summary.get("completionTokens"));
+        // greeting包含"hello"得1分，keywords命中"world"不命中"spring"得0.5分
+        assertEquals(2, summary.get("scored"));
+        assertEquals(0.75, (Double) summary.get("score"), 1e-9);
+    }
+
+    @Test
+    void testRun_UpstreamError_CountedAsFailure() throws Exception {
+        // Arrange
+        FakeChatService chatService = new FakeChatService();
+        chatService.failingModel = "slow";
+        EvalRunner runner = new EvalRunner(chatService, properties(1));
+
+        // Act
+        EvalReport report = runner.run(suite(), MODELS);
+
+        // Assert
+        Map<String, Object> slow = report.modelSummary("slow");
+        assertEquals(2, slow.get("failed"));
+        assertEquals(0, slow.get("succeeded"));
+        assertNull(((Map<?, ?>) slow.get("ttftMillis")).get("p50"));
+        assertEquals(2, report.modelSummary("fast").get("succeeded"));
+        EvalResult failure = report.getResults().stream().filter(result -> !result.isSuccess()).findFirst().orElseThrow();
+        assertEquals("上游不可用", failure.getError());
+    }
+
+    @Test
+    void testRun_UnknownModel_ThrowsException() {
+        // Arrange
+        EvalRunner runner = new EvalRunner(new FakeChatService(), properties(1));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> runner.run(suite(), List.of("fast", "unknown")));
+    }
+
+    @Test
+    void testWrite_JsonReport_ContainsSummaryAndResults() throws Exception {
+        // Arrange
+        EvalReport report = new EvalRunner(new FakeChatService(), properties(1)).run(suite(), MODELS);
+
+        // Act
+        report.write(directory);
+
+        // Assert
+        JsonNode json = new ObjectMapper().readTree(directory.resolve("test-eval.json").toFile());
+        assertEquals("unit", json.get("suite").asText());
+        assertEquals(2, json.get("models").get("fast").get("runs").asInt());
+        assertEquals(4, json.get("results").size());
+        assertFalse(json.get("results").get(0).has("error"));
+    }
+
+    @Test
+    void testScore_Scorers_ReturnExpectedScores() {
+        // Act & Assert
+        assertEquals(1.0, EvalScorer.score(new EvalPrompt("a", "m", "exact", " 391 "), "391\n"));
+        assertEquals(0.0, EvalScorer.score(new EvalPrompt("a", "m", "exact", "391"), "答案是391"));
+        assertEquals(1.0, EvalScorer.score(new EvalPrompt("a", "m", "contains", "BEIJING"), "It is Beijing."));
+        assertEquals(1.0, EvalScorer.score(new EvalPrompt("a", "m", "regex", "\\b391\\b"), "结果: 391。"));
+        assertEquals(0.5, EvalScorer.score(new EvalPrompt("a", "m", "keywords", "429, 503, Retry-After, 退避"),
+            "429表示限流，应读取retry-after"), 1e-9);
+        assertNull(EvalScorer.score(new EvalPrompt("a", "m", null, null), "任意"));
+    }
+
+    @Test
+    void testLoad_InvalidSuite_ThrowsException() {
+        // Arrange
+        String duplicate = "{\"name\":\"x\",\"prompts\":[{\"id\":\"a\",\"message\":\"m\"},{\"id\":\"a\",\"message\":\"n\"}]}";
+        String badScorer = "{\"name\":\"x\",\"prompts\":[{\"id\":\"a\",\"message\":\"m\",\"scorer\":\"fuzzy\",\"expected\":\"e\"}]}";
+        String noExpected = "{\"name\":\"x\",\"prompts\":[{\"id\":\"a\",\"message\":\"m\",\"scorer\":\"contains\"}]}";
+        String valid = "{\"name\":\"x\",\"extra\":1,\"prompts\":[{\"id\":\"a\",\"message\":\"m\"}]}";
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> EvalSuite.load(stream(duplicate)));
+        assertThrows(IllegalArgumentException.class, () -> EvalSuite.load(stream(badScorer)));
+        assertThrows(IllegalArgumentException.class, () -> EvalSuite.load(stream(noExpected)));
+        assertDoesNotThrow(() -> EvalSuite.load(stream(valid)));
+    }
+
+    @Test
+    void testLoad_ExampleSuite_IsValid() throws Exception {
+        // Act
+        EvalSuite suite = EvalSuite.load(getClass().getResourceAsStream("/eval/example-suite.json"));
+
+        // Assert
+        assertEquals("example", suite.getName());
+        assertFalse(suite.getPrompts().isEmpty());
+    }
+
+    @Test
+    void testPercentile_NearestRank_ReturnsSampleValue() {
+        // Arrange
+        double[] sorted = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+
+        // Act & Assert
+        assertEquals(5.0, EvalReport.percentile(sorted, 50));
+        assertEquals(9.0, EvalReport.percentile(sorted, 90));
+        assertEquals(1.0, EvalReport.percentile(sorted, 0));
+        assertEquals(10.0, EvalReport.percentile(sorted, 100));
+    }
+
+    @Test
+    void testEvalProfile_FileWriters_UseEvalDataDirectory() throws Exception {
+        // Arrange
+        Properties profile = new Properties();
+        try (InputStream in = EvalRunnerTest.class.getClassLoader()
+                .getResourceAsStream("application-" + EvalRunner.EVAL_PROFILE + ".properties")) {
+            assertNotNull(in);
+            profile.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+
+        // Assert - 不写会话日志、不探测上游，所有文件路径都在评测的临时目录下
+        assertEquals("false", profile.getProperty("conversation.persistence-enabled"));
+        assertEquals("false", profile.getProperty("upstream-health.enabled"));
+        for (String key : List.of("conversation.log-directory", "retrieval.index-directory",
+                "embedding.cache-file", "ingestion.checkpoint-file", "traffic-capture.directory", "tracing.file")) {
+            assertTrue(profile.getProperty(key, "").startsWith("${eval.data-directory}/"), key);
+        }
+    }
+
+    private static EvalProperties properties(int repetitions) {
+        EvalProperties properties = new EvalProperties();
+        properties.setConcurrency(4);
+        properties.setRepetitions(repetitions);
+        properties.setLabel("test");
+        return properties;
+    }
+
+    private static EvalSuite suite() {
+        return new EvalSuite("unit", List.of(
+            new EvalPrompt("greeting", "你好", "contains", "hello"),
+            new EvalPrompt("keywords", "介绍一下", "keywords", "world, spring")));
+    }
+
+    private static ByteArrayInputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static double p50(Map<String, Object> summary, String metric) {
+        return (Double) ((Map<?, ?>) summary.get(metric)).get("p50");
+    }
+
+    /**
+     * "fast"模型10ms后开始输出，"slow"模型50ms后开始输出，每次返回3个片段"hello world!"
+     */
+    private static class FakeChatService implements ChatService {
+
+        volatile String failingModel;
+
+        @Override
+        public ChatResponse sendMessage(String message) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ChatResponse sendMessage(String message, String model) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ChatResponse sendMessage(ChatRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Flux<String> streamMessage(ChatRequest request) {
+            return streamMessage(request, usage -> { });
+        }
+
+        @Override
+        public Flux<String> streamMessage(ChatRequest request, Consumer<TokenUsage> usageListener) {
+            if (request.getModel().equals(failingModel)) {
+                return Flux.error(new IllegalStateException("上游不可用"));
+            }
+            long firstDelay = request.getModel().equals("slow") ? 50 : 10;
+            return Flux.just("hello", " world", "!")
+                .delayElements(Duration.ofMillis(5))
+                .delaySubscription(Duration.ofMillis(firstDelay))
+                .doOnComplete(() -> usageListener.accept(new TokenUsage(10, 3, 0.001)));
+        }
+
+        @Override
+        public List<String> getAvailableModels() {
+            return MODELS;
+        }
+
+        @Override
+        public boolean isModelAvailable(String model) {
+            return MODELS.contains(model);
+        }
+    }
+}
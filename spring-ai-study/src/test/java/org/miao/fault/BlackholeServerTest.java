@@ -0,0 +1,51 @@
+package org.miao.fault;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BlackholeServer单元测试类
+ * 测试连接可以建立、请求可以写出但永远读不到响应，由客户端读超时结束，以及关闭后不再接受连接
+ */
+class BlackholeServerTest {
+
+    @Test
+    void testRequest_NeverAnswered_ClientReadTimesOut() throws Exception {
+        // Arrange
+        try (BlackholeServer server = new BlackholeServer();
+             Socket socket = new Socket(server.getAddress().getAddress(), server.getAddress().getPort())) {
+            socket.setSoTimeout(300);
+            socket.getOutputStream().write("POST /v1/chat/completions HTTP/1.1\r\nHost: x\r\n\r\n"
+                .getBytes(StandardCharsets.UTF_8));
+            socket.getOutputStream().flush();
+            InputStream in = socket.getInputStream();
+
+            // Act
+            long start = System.nanoTime();
+            assertThrows(SocketTimeoutException.class, in::read);
+
+            // Assert
+            assertTrue(System.nanoTime() - start >= 250_000_000L, "应当等满客户端读超时");
+        }
+    }
+
+    @Test
+    void testClose_RefusesNewConnections() throws Exception {
+        // Arrange
+        BlackholeServer server = new BlackholeServer();
+        int port = server.getAddress().getPort();
+
+        // Act
+        server.close();
+
+        // Assert
+        assertThrows(IOException.class, () -> new Socket(server.getAddress().getAddress(), port).close());
+    }
+}
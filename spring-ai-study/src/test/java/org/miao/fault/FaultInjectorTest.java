@@ -0,0 +1,226 @@
+package org.miao.fault;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.miao.config.FaultInjectionProperties;
+import org.miao.config.FaultInjectionProperties.Scenario;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * FaultInjector单元测试类
+ * 测试场景时间窗口与循环、故障类型的抽取比例、按种子复现以及在途调用峰值的统计，
+ * 以及上游调用在响应体读完之前一直计为在途
+ */
+class FaultInjectorTest {
+
+    private final long[] clock = {0};
+    private FaultInjectionProperties properties;
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        properties = new FaultInjectionProperties();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testNext_NoScenarios_ReturnsNone() {
+        // Arrange
+        FaultInjector injector = injector();
+
+        // Act & Assert
+        assertSame(Fault.NONE, injector.next());
+        assertNull(injector.activeScenario());
+    }
+
+    @Test
+    void testActiveScenario_OnlyInsideWindow() {
+        // Arrange - 1秒后开始，持续2秒
+        properties.getScenarios().add(scenario("outage", 1000, 2000, 1.0));
+        FaultInjector injector = injector();
+
+        // Act & Assert
+        assertEquals(Fault.Type.NONE, injector.next().getType());
+        advanceMillis(1000);
+        assertEquals(Fault.Type.ERROR, injector.next().getType());
+        assertEquals(503, injector.next().getErrorStatus());
+        advanceMillis(2000);
+        assertEquals(Fault.Type.NONE, injector.next().getType());
+        assertEquals(2.0, meterRegistry.get("chat.fault.injected").tag("type", "error").counter().count(), 0.0);
+    }
+
+    @Test
+    void testActiveScenario_LoopRepeatsScript() {
+        // Arrange - 周期3秒，第2秒起故障
+        properties.setLoop(true);
+        properties.getScenarios().add(scenario("healthy", 0, 2000, 0.0));
+        properties.getScenarios().add(scenario("outage", 2000, 1000, 1.0));
+        FaultInjector injector = injector();
+
+        // Act & Assert
+        advanceMillis(2500);
+        assertEquals("outage", injector.activeScenario().getName());
+        advanceMillis(1000);
+        assertEquals("healthy", injector.activeScenario().getName());
+        advanceMillis(2000);
+        assertEquals("outage", injector.activeScenario().getName());
+        injector.restart();
+        assertEquals("healthy", injector.activeScenario().getName());
+    }
+
+    @Test
+    void testNext_MixedRates_MatchConfiguration() {
+        // Arrange
+        Scenario scenario = scenario("mixed", 0, 0, 0.2);
+        scenario.setBlackholeRate(0.1);
+        scenario.setResetRate(0.1);
+        scenario.setLatencySpikeRate(0.5);
+        scenario.setLatencySpikeMillis(300);
+        properties.getScenarios().add(scenario);
+        FaultInjector injector = injector();
+
+        // Act
+        Map<Fault.Type, Integer> counts = new EnumMap<>(Fault.Type.class);
+        int spikes = 0;
+        for (int i = 0; i < 20000; i++) {
+            Fault fault = injector.next();
+            counts.merge(fault.getType(), 1, Integer::sum);
+            if (fault.getLatencyMillis() == 300) {
+                spikes++;
+            }
+        }
+
+        // Assert
+        assertEquals(0.2, counts.get(Fault.Type.ERROR) / 20000.0, 0.02);
+        assertEquals(0.1, counts.get(Fault.Type.BLACKHOLE) / 20000.0, 0.02);
+        assertEquals(0.1, counts.get(Fault.Type.RESET) / 20000.0, 0.02);
+        assertEquals(0.5, spikes / 20000.0, 0.02);
+    }
+
+    @Test
+    void testNext_SameSeed_SameSequence() {
+        // Arrange
+        properties.getScenarios().add(scenario("flaky", 0, 0, 0.5));
+
+        // Act
+        List<Fault.Type> first = types(injector(), 50);
+        List<Fault.Type> second = types(injector(), 50);
+
+        // Assert
+        assertEquals(first, second);
+    }
+
+    @Test
+    void testEnterExit_TracksPeakInFlight() {
+        // Arrange
+        FaultInjector injector = injector();
+
+        // Act
+        injector.enter();
+        injector.enter();
+        injector.exit();
+        injector.enter();
+        injector.exit();
+        injector.exit();
+
+        // Assert
+        assertEquals(0, injector.getInFlight());
+        assertEquals(2, injector.getPeakInFlight());
+    }
+
+    @Test
+    void testWebClientFilter_ResponseHeadersReceived_InFlightUntilBodyEnds() {
+        // Arrange
+        FaultInjector injector = injector();
+        ExchangeFunction upstream = request -> Mono.just(ClientResponse.create(HttpStatus.OK)
+            .body("data: token")
+            .build());
+        ClientRequest request = ClientRequest.create(HttpMethod.POST, URI.create("http://upstream/v1/chat/completions"))
+            .build();
+
+        // Act
+        ClientResponse response = FaultInjection.webClientFilter(injector).filter(request, upstream).block();
+        int inFlightBeforeBody = injector.getInFlight();
+        String body = response.bodyToMono(String.class).block();
+
+        // Assert
+        assertEquals(1, inFlightBeforeBody);
+        assertEquals("data: token", body);
+        assertEquals(0, injector.getInFlight());
+    }
+
+    @Test
+    void testRestClientInterceptor_ResponseReturned_InFlightUntilClosed() throws Exception {
+        // Arrange
+        FaultInjector injector = injector();
+        MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.POST,
+            URI.create("http://upstream/v1/chat/completions"));
+
+        // Act
+        ClientHttpResponse response = FaultInjection.restClientInterceptor(injector).intercept(request, new byte[0],
+            (req, body) -> new MockClientHttpResponse("ok".getBytes(StandardCharsets.UTF_8), HttpStatus.OK));
+        int inFlightBeforeClose = injector.getInFlight();
+        response.close();
+        response.close();
+
+        // Assert
+        assertEquals(1, inFlightBeforeClose);
+        assertEquals(0, injector.getInFlight());
+    }
+
+    @Test
+    void testInvalidScenario_Rejected() {
+        // Arrange
+        Scenario scenario = scenario("invalid", 0, 0, 0.8);
+        scenario.setBlackholeRate(0.5);
+        properties.getScenarios().add(scenario);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, this::injector);
+    }
+
+    private FaultInjector injector() {
+        return new FaultInjector(properties, meterRegistry, () -> clock[0]);
+    }
+
+    private void advanceMillis(long millis) {
+        clock[0] += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private static List<Fault.Type> types(FaultInjector injector, int count) {
+        List<Fault.Type> types = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            types.add(injector.next().getType());
+        }
+        return types;
+    }
+
+    private static Scenario scenario(String name, long startMillis, long durationMillis, double errorRate) {
+        Scenario scenario = new Scenario();
+        scenario.setName(name);
+        scenario.setStartMillis(startMillis);
+        scenario.setDurationMillis(durationMillis);
+        scenario.setErrorRate(errorRate);
+        return scenario;
+    }
+}
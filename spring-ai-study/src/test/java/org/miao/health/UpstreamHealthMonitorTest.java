@@ -0,0 +1,179 @@
+package org.miao.health;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.miao.config.OpenRouterProperties;
+import org.miao.config.UpstreamHealthProperties;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * UpstreamHealthMonitor单元测试类
+ * 测试探测结果的滚动统计，正常、降级、不可用和恢复的状态判定，以及探测并发受限、慢探测不重复提交
+ */
+class UpstreamHealthMonitorTest {
+
+    private static final String HEALTHY = "openai/gpt-4";
+    private static final String FAILING = "anthropic/claude-3";
+
+    private final Set<String> failingModels = new HashSet<>();
+    private UpstreamHealthProperties properties;
+    private MeterRegistry meterRegistry;
+    private UpstreamHealthMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        OpenRouterProperties openRouterProperties = new OpenRouterProperties();
+        openRouterProperties.setAvailableModels(Arrays.asList(HEALTHY, FAILING));
+        properties = new UpstreamHealthProperties();
+        properties.setWindowSize(5);
+        properties.setDownAfterFailures(3);
+        properties.setDegradedErrorRate(0.2);
+        meterRegistry = new SimpleMeterRegistry();
+        monitor = new UpstreamHealthMonitor(openRouterProperties, properties, model -> {
+            if (failingModels.contains(model)) {
+                throw new IllegalStateException("503 - Service Unavailable");
+            }
+        }, meterRegistry);
+    }
+
+    @Test
+    void testState_NoProbes_Unknown() {
+        // Act & Assert
+        assertEquals(ModelState.UNKNOWN, monitor.state(HEALTHY));
+        assertTrue(monitor.isAvailable(HEALTHY));
+    }
+
+    @Test
+    void testProbeAll_AllSucceed_Up() {
+        // Act
+        monitor.probeAll();
+
+        // Assert
+        assertEquals(ModelState.UP, monitor.state(HEALTHY));
+        assertEquals(ModelState.UP, monitor.state(FAILING));
+        assertEquals(1.0, meterRegistry.get("chat.upstream.health").tag("model", HEALTHY).gauge().value(), 0.0);
+    }
+
+    @Test
+    void testProbeOnce_ConsecutiveFailures_DownThenRecovers() {
+        // Arrange
+        failingModels.add(FAILING);
+
+        // Act
+        monitor.probeOnce(FAILING);
+        ModelState afterOne = monitor.state(FAILING);
+        monitor.probeOnce(FAILING);
+        monitor.probeOnce(FAILING);
+        ModelState afterThree = monitor.state(FAILING);
+        boolean availableWhenDown = monitor.isAvailable(FAILING);
+        failingModels.clear();
+        monitor.probeOnce(FAILING);
+
+        // Assert - 一次失败即超过错误率阈值，连续三次失败判定不可用，成功后仍因错误率为降级
+        assertEquals(ModelState.DEGRADED, afterOne);
+        assertEquals(ModelState.DOWN, afterThree);
+        assertFalse(availableWhenDown);
+        assertEquals(ModelState.DEGRADED, monitor.state(FAILING));
+        assertTrue(monitor.isAvailable(FAILING));
+    }
+
+    @Test
+    void testProbeOnce_FailuresAgeOutOfWindow_Up() {
+        // Arrange
+        failingModels.add(FAILING);
+        monitor.probeOnce(FAILING);
+        failingModels.clear();
+
+        // Act - 窗口大小为5，再成功5次后失败记录被覆盖
+        for (int i = 0; i < 5; i++) {
+            monitor.probeOnce(FAILING);
+        }
+
+        // Assert
+        assertEquals(ModelState.UP, monitor.state(FAILING));
+    }
+
+    @Test
+    void testState_SlowProbes_Degraded() {
+        // Arrange
+        properties.setDegradedLatencyMillis(0);
+
+        // Act
+        monitor.probeOnce(HEALTHY);
+
+        // Assert - p95延迟大于0毫秒阈值
+        assertEquals(ModelState.DEGRADED, monitor.state(HEALTHY));
+    }
+
+    @Test
+    void testProbeAll_PreviousProbeStillRunning_SkipsModelAndBoundsThreads() throws Exception {
+        // Arrange - 探测一直阻塞，探测线程上限为1
+        OpenRouterProperties openRouterProperties = new OpenRouterProperties();
+        openRouterProperties.setAvailableModels(Arrays.asList(HEALTHY, FAILING));
+        properties.setInitialDelaySeconds(3600);
+        properties.setMaxConcurrentProbes(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        UpstreamHealthMonitor blocking = new UpstreamHealthMonitor(openRouterProperties, properties, model -> {
+            calls.incrementAndGet();
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                release.await();
+            } finally {
+                running.decrementAndGet();
+            }
+        }, meterRegistry);
+        blocking.start();
+
+        try {
+            // Act - 第一轮两个模型都已提交（一个在运行，一个排队），后两轮全部跳过
+            blocking.probeAll();
+            blocking.probeAll();
+            blocking.probeAll();
+            Thread.sleep(100);
+            int callsWhileBlocked = calls.get();
+            release.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (calls.get() < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(100);
+
+            // Assert
+            assertEquals(1, callsWhileBlocked);
+            assertEquals(2, calls.get(), "每个模型只探测一次");
+            assertEquals(1, peak.get(), "同时进行的探测不超过上限");
+        } finally {
+            blocking.stop();
+        }
+    }
+
+    @Test
+    void testDetails_ContainsStatsAndLastError() {
+        // Arrange
+        failingModels.add(FAILING);
+
+        // Act
+        monitor.probeAll();
+        Map<String, Map<String, Object>> details = monitor.details();
+
+        // Assert
+        assertEquals("UP", details.get(HEALTHY).get("status"));
+        assertEquals(1, details.get(HEALTHY).get("samples"));
+        assertEquals("503 - Service Unavailable", details.get(FAILING).get("lastError"));
+        assertEquals(1.0, details.get(FAILING).get("errorRate"));
+    }
+}
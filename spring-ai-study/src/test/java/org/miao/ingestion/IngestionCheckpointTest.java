@@ -0,0 +1,56 @@
+package org.miao.ingestion;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * IngestionCheckpoint单元测试类
+ * 测试检查点在重新打开后恢复已完成的文件
+ */
+class IngestionCheckpointTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testMarkCompleted_SurvivesReopen() throws Exception {
+        // Arrange
+        Path file = tempDir.resolve("checkpoint/checkpoint.log");
+        String first = IngestionCheckpoint.key(tempDir.resolve("a.md"), 10, 1000);
+        String second = IngestionCheckpoint.key(tempDir.resolve("b.md"), 20, 2000);
+
+        // Act
+        try (IngestionCheckpoint checkpoint = new IngestionCheckpoint(file)) {
+            checkpoint.markCompleted(List.of(first));
+            checkpoint.markCompleted(List.of(second));
+        }
+
+        // Assert
+        try (IngestionCheckpoint reopened = new IngestionCheckpoint(file)) {
+            assertEquals(2, reopened.completedCount());
+            assertTrue(reopened.isCompleted(first));
+            assertTrue(reopened.isCompleted(second));
+        }
+    }
+
+    @Test
+    void testKey_ModifiedFile_IsNotCompleted() throws Exception {
+        // Arrange
+        Path file = tempDir.resolve("checkpoint.log");
+        Path document = tempDir.resolve("a.md");
+
+        // Act
+        try (IngestionCheckpoint checkpoint = new IngestionCheckpoint(file)) {
+            checkpoint.markCompleted(List.of(IngestionCheckpoint.key(document, 10, 1000)));
+
+            // Assert
+            assertTrue(checkpoint.isCompleted(IngestionCheckpoint.key(document, 10, 1000)));
+            assertFalse(checkpoint.isCompleted(IngestionCheckpoint.key(document, 12, 3000)));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.miao.ingestion;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.miao.config.IngestionProperties;
+import org.miao.exception.InvalidRequestException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * IngestionService单元测试类
+ * 测试导入目录必须位于ingestion.root-directory下：未配置根目录、..和绝对路径越界、符号链接跳出时均拒绝
+ */
+class IngestionServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path allowedRoot;
+    private Path outside;
+    private IngestionProperties properties;
+    private IngestionService ingestionService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        allowedRoot = Files.createDirectories(tempDir.resolve("docs"));
+        outside = Files.createDirectories(tempDir.resolve("secret"));
+        properties = new IngestionProperties();
+        properties.setRootDirectory(allowedRoot.toString());
+        ingestionService = new IngestionService(properties, null, null, null);
+    }
+
+    @Test
+    void testStart_RootDirectoryNotConfigured_ThrowsInvalidRequest() {
+        // Arrange
+        properties.setRootDirectory("");
+
+        // Act & Assert
+        assertThrows(InvalidRequestException.class, () -> ingestionService.start(allowedRoot.toString()));
+        assertNull(ingestionService.getCurrentJob());
+    }
+
+    @Test
+    void testStart_AbsolutePathOutsideRoot_ThrowsInvalidRequest() {
+        // Act & Assert
+        assertThrows(InvalidRequestException.class, () -> ingestionService.start(outside.toString()));
+        assertThrows(InvalidRequestException.class, () -> ingestionService.start("/"));
+        assertNull(ingestionService.getCurrentJob());
+    }
+
+    @Test
+    void testStart_DotDotEscapesRoot_ThrowsInvalidRequest() {
+        // Act & Assert
+        assertThrows(InvalidRequestException.class, () -> ingestionService.start("../secret"));
+        assertThrows(InvalidRequestException.class,
+            () -> ingestionService.start(allowedRoot.resolve("../secret").toString()));
+        assertNull(ingestionService.getCurrentJob());
+    }
+
+    @Test
+    void testStart_SymlinkEscapesRoot_ThrowsInvalidRequest() throws Exception {
+        // Arrange
+        Files.createSymbolicLink(allowedRoot.resolve("link"), outside);
+
+        // Act & Assert
+        assertThrows(InvalidRequestException.class, () -> ingestionService.start("link"));
+        assertNull(ingestionService.getCurrentJob());
+    }
+
+    @Test
+    void testStart_MissingDirectory_ThrowsInvalidRequest() {
+        // Act & Assert
+        assertThrows(InvalidRequestException.class, () -> ingestionService.start("missing"));
+        assertThrows(InvalidRequestException.class, () -> ingestionService.start(" "));
+    }
+}
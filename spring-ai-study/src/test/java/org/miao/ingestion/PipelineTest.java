@@ -0,0 +1,108 @@
+package org.miao.ingestion;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pipeline单元测试类
+ * 测试多线程阶段的完整性、有界队列的背压、批处理阶段的凑批以及失败计数
+ */
+class PipelineTest {
+
+    @Test
+    void testRun_MultiThreadedStages_ProcessesEveryItemOnce() throws Exception {
+        // Arrange
+        Set<Integer> results = ConcurrentHashMap.newKeySet();
+        Pipeline<Integer> pipeline = Pipeline.from("source", IntStream.range(0, 1000).boxed().iterator())
+            .<Integer>then("double", 4, 8, (value, emit) -> emit.accept(value * 2))
+            .then("collect", 3, 8, (value, emit) -> {
+                assertTrue(results.add(value), "每条数据只应处理一次");
+                emit.accept(value);
+            });
+
+        // Act
+        List<StageStats> stats = pipeline.run();
+
+        // Assert
+        assertEquals(1000, results.size());
+        assertTrue(results.contains(1998));
+        assertEquals(1000, stats.get(0).getReceived());
+        assertEquals(1000, stats.get(1).getEmitted());
+        assertEquals(0, stats.get(1).getQueueDepth());
+    }
+
+    @Test
+    void testRun_SlowDownstream_BoundsItemsInFlight() throws Exception {
+        // Arrange
+        AtomicInteger produced = new AtomicInteger();
+        AtomicInteger consumed = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        Pipeline<Integer> pipeline = Pipeline.from("source", IntStream.range(0, 200).boxed()
+                .peek(value -> produced.incrementAndGet()).iterator())
+            .<Integer>then("fast", 1, 4, (value, emit) -> emit.accept(value))
+            .then("slow", 1, 4, (value, emit) -> {
+                maxInFlight.accumulateAndGet(produced.get() - consumed.get(), Math::max);
+                Thread.sleep(1);
+                consumed.incrementAndGet();
+            });
+
+        // Act
+        pipeline.run();
+
+        // Assert
+        assertEquals(200, consumed.get());
+        // 两个容量为4的队列、每阶段一条处理中的数据，再加数据源手中的一条
+        assertTrue(maxInFlight.get() <= 11, "在途数据量应受队列容量限制: " + maxInFlight.get());
+    }
+
+    @Test
+    void testBatch_GroupsItemsUpToBatchSize() throws Exception {
+        // Arrange
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        Pipeline<Integer> pipeline = Pipeline.from("source", IntStream.range(0, 100).boxed().iterator())
+            .batch("batch", 1, 128, 32, 1000, (batch, emit) -> {
+                batchSizes.add(batch.size());
+                batch.forEach(emit);
+            });
+
+        // Act
+        List<StageStats> stats = pipeline.run();
+
+        // Assert
+        assertEquals(100, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 32));
+        assertTrue(stats.get(0).getAverageBatchSize() > 1, "数据充足时应合并为批次");
+        assertEquals(100, stats.get(0).getEmitted());
+    }
+
+    @Test
+    void testRun_FailingItems_AreCountedAndSkipped() throws Exception {
+        // Arrange
+        Set<Integer> results = ConcurrentHashMap.newKeySet();
+        Pipeline<Integer> pipeline = Pipeline.from("source", IntStream.range(0, 100).boxed().iterator())
+            .<Integer>then("validate", 2, 8, (value, emit) -> {
+                if (value % 10 == 0) {
+                    throw new IllegalArgumentException("invalid " + value);
+                }
+                emit.accept(value);
+            })
+            .then("collect", 1, 8, (value, emit) -> results.add(value));
+
+        // Act
+        List<StageStats> stats = pipeline.run();
+
+        // Assert
+        assertEquals(90, results.size());
+        assertEquals(10, stats.get(0).getFailed());
+        assertEquals(90, stats.get(0).getEmitted());
+    }
+}
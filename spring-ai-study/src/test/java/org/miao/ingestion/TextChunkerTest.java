@@ -0,0 +1,62 @@
+package org.miao.ingestion;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TextChunker单元测试类
+ * 测试片段长度上限、句子边界切分和相邻片段的重叠
+ */
+class TextChunkerTest {
+
+    @Test
+    void testSplit_ShortText_ReturnsSingleChunk() {
+        // Arrange
+        TextChunker chunker = new TextChunker(100, 10);
+
+        // Act
+        List<String> chunks = chunker.split("  Spring AI是一个应用框架。  ");
+
+        // Assert
+        assertEquals(List.of("Spring AI是一个应用框架。"), chunks);
+        assertTrue(chunker.split("").isEmpty());
+    }
+
+    @Test
+    void testSplit_LongText_BreaksAtSentenceBoundaries() {
+        // Arrange
+        TextChunker chunker = new TextChunker(100, 0);
+        String text = "这是一个用于测试切分的句子。".repeat(30);
+
+        // Act
+        List<String> chunks = chunker.split(text);
+
+        // Assert
+        assertTrue(chunks.size() > 1);
+        for (String chunk : chunks) {
+            assertTrue(chunk.length() <= 100);
+            assertTrue(chunk.endsWith("。"), "片段应在句子边界处断开: " + chunk);
+        }
+        assertEquals(text, String.join("", chunks));
+    }
+
+    @Test
+    void testSplit_WithOverlap_AdjacentChunksShareText() {
+        // Arrange
+        TextChunker chunker = new TextChunker(50, 20);
+        String text = "abcdefghijklmnopqrstuvwxyz".repeat(10);
+
+        // Act
+        List<String> chunks = chunker.split(text);
+
+        // Assert
+        for (int i = 1; i < chunks.size(); i++) {
+            String previous = chunks.get(i - 1);
+            assertTrue(chunks.get(i).startsWith(previous.substring(previous.length() - 20)));
+        }
+        assertTrue(chunks.get(chunks.size() - 1).endsWith("xyz"));
+    }
+}
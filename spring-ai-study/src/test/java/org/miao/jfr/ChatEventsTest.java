@@ -0,0 +1,98 @@
+package org.miao.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 聊天链路JFR事件单元测试类
+ * 测试随应用打包的chat.jfc能启用事件，以及事件被禁用时不会写入记录
+ */
+class ChatEventsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testBundledSettings_EnablesChatEvents() throws Exception {
+        // Arrange
+        Configuration configuration;
+        try (Reader reader = new InputStreamReader(
+                ChatEventsTest.class.getResourceAsStream("/jfr/chat.jfc"), StandardCharsets.UTF_8)) {
+            configuration = Configuration.create(reader);
+        }
+        Path file = tempDir.resolve("chat.jfr");
+
+        // Act
+        try (Recording recording = new Recording(configuration)) {
+            recording.start();
+            UpstreamCallEvent event = new UpstreamCallEvent();
+            event.begin();
+            event.end();
+            if (event.shouldCommit()) {
+                event.requestId = "abc12345";
+                event.model = "openai/gpt-4";
+                event.attempt = 2;
+                event.status = "error";
+                event.commit();
+            }
+            CacheHitEvent.emit(CacheHitEvent.RESPONSE, "openai/gpt-4");
+            recording.stop();
+            recording.dump(file);
+        }
+
+        // Assert
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+            .filter(e -> e.getEventType().getName().startsWith("org.miao.chat."))
+            .collect(Collectors.toList());
+        assertEquals(2, events.size());
+        RecordedEvent upstream = events.stream()
+            .filter(e -> e.getEventType().getName().equals("org.miao.chat.UpstreamCall")).findFirst().orElseThrow();
+        assertEquals("abc12345", upstream.getString("requestId"));
+        assertEquals(2, upstream.getInt("attempt"));
+        RecordedEvent cacheHit = events.stream()
+            .filter(e -> e.getEventType().getName().equals("org.miao.chat.CacheHit")).findFirst().orElseThrow();
+        assertEquals(CacheHitEvent.RESPONSE, cacheHit.getString("cache"));
+    }
+
+    @Test
+    void testEvent_Disabled_NotRecorded() throws Exception {
+        // Arrange - 禁用缓存命中事件
+        Path file = tempDir.resolve("partial.jfr");
+
+        // Act
+        try (Recording recording = new Recording()) {
+            recording.enable(ChatRequestEvent.class);
+            recording.disable(CacheHitEvent.class);
+            recording.start();
+            CacheHitEvent.emit(CacheHitEvent.EMBEDDING, "default");
+            ChatRequestEvent event = new ChatRequestEvent();
+            event.begin();
+            event.end();
+            assertTrue(event.shouldCommit());
+            event.outcome = "success";
+            event.commit();
+            recording.stop();
+            recording.dump(file);
+        }
+
+        // Assert
+        List<String> names = RecordingFile.readAllEvents(file).stream()
+            .map(e -> e.getEventType().getName())
+            .filter(name -> name.startsWith("org.miao.chat."))
+            .collect(Collectors.toList());
+        assertEquals(List.of("org.miao.chat.Request"), names);
+    }
+}
@@ -0,0 +1,80 @@
+package org.miao.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JsonLogEncoder单元测试类
+ * 测试输出为单行合法JSON，包含MDC、静态字段和异常，并正确转义特殊字符
+ */
+class JsonLogEncoderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Logger logger;
+    private JsonLogEncoder encoder;
+
+    @BeforeEach
+    void setUp() {
+        LoggerContext loggerContext = new LoggerContext();
+        loggerContext.setMDCAdapter(MDC.getMDCAdapter());
+        logger = loggerContext.getLogger("org.miao.service.impl.ChatServiceImpl");
+        encoder = new JsonLogEncoder();
+        encoder.setContext(loggerContext);
+        encoder.setStaticFields("app=spring-ai-study, env=test");
+        encoder.start();
+    }
+
+    @Test
+    void testEncode_WritesSingleJsonLineWithMdcAndStaticFields() throws Exception {
+        // Arrange
+        LoggingEvent event = new LoggingEvent(Logger.class.getName(), logger, Level.INFO,
+            "聊天请求处理成功 [{}] - 响应长度: {}", null, new Object[]{"req-1", 42});
+        event.setMDCPropertyMap(Map.of(LogContext.REQUEST_ID, "req-1", LogContext.MODEL, "openai/gpt-4"));
+
+        // Act
+        String line = new String(encoder.encode(event), StandardCharsets.UTF_8);
+        JsonNode json = objectMapper.readTree(line);
+
+        // Assert
+        assertTrue(line.endsWith("}\n"));
+        assertEquals(1, line.split("\n").length);
+        assertEquals("INFO", json.get("level").asText());
+        assertEquals("org.miao.service.impl.ChatServiceImpl", json.get("logger").asText());
+        assertEquals("聊天请求处理成功 [req-1] - 响应长度: 42", json.get("message").asText());
+        assertEquals("req-1", json.get("requestId").asText());
+        assertEquals("openai/gpt-4", json.get("model").asText());
+        assertEquals("spring-ai-study", json.get("app").asText());
+        assertEquals("test", json.get("env").asText());
+        assertEquals(event.getTimeStamp(), json.get("ts").asLong());
+    }
+
+    @Test
+    void testEncode_EscapesSpecialCharactersAndIncludesException() throws Exception {
+        // Arrange
+        LoggingEvent event = new LoggingEvent(Logger.class.getName(), logger, Level.ERROR,
+            "引号\" 反斜杠\\ 换行\n制表\t控制\u0001", new IllegalStateException("boom"), null);
+
+        // Act
+        String line = new String(encoder.encode(event), StandardCharsets.UTF_8);
+        JsonNode json = objectMapper.readTree(line);
+
+        // Assert
+        assertEquals(1, line.split("\n").length);
+        assertEquals("引号\" 反斜杠\\ 换行\n制表\t控制\u0001", json.get("message").asText());
+        assertTrue(json.get("exception").asText().contains("IllegalStateException: boom"));
+        assertNull(json.get("requestId"));
+    }
+}
@@ -0,0 +1,78 @@
+package org.miao.logging;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LogContext单元测试类
+ * 测试上下文激活、关闭后恢复原有MDC以及跨线程传递
+ */
+class LogContextTest {
+
+    @AfterEach
+    void tearDown() {
+        MDC.clear();
+    }
+
+    @Test
+    void testActivate_PutsFieldsAndRemovesOnClose() {
+        // Act
+        try (LogContext.Scope ignored = LogContext.of("req-1", "openai/gpt-4").activate()) {
+            // Assert
+            assertEquals("req-1", MDC.get(LogContext.REQUEST_ID));
+            assertEquals("openai/gpt-4", MDC.get(LogContext.MODEL));
+        }
+        assertNull(MDC.get(LogContext.REQUEST_ID));
+        assertNull(MDC.get(LogContext.MODEL));
+    }
+
+    @Test
+    void testActivate_Nested_RestoresPreviousValues() {
+        // Arrange
+        MDC.put("other", "kept");
+        LogContext.Scope outer = LogContext.of("outer", "model-a").activate();
+
+        // Act
+        try (LogContext.Scope ignored = LogContext.of("inner", null).activate()) {
+            assertEquals("inner", MDC.get(LogContext.REQUEST_ID));
+            assertNull(MDC.get(LogContext.MODEL));
+        }
+
+        // Assert - 内层关闭后恢复外层，其他MDC字段不受影响
+        assertEquals("outer", MDC.get(LogContext.REQUEST_ID));
+        assertEquals("model-a", MDC.get(LogContext.MODEL));
+        outer.close();
+        assertNull(MDC.get(LogContext.REQUEST_ID));
+        assertEquals("kept", MDC.get("other"));
+    }
+
+    @Test
+    void testWrap_PropagatesToOtherThread() throws Exception {
+        // Arrange
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AtomicReference<String> seen = new AtomicReference<>();
+        AtomicReference<String> after = new AtomicReference<>("unset");
+        LogContext context;
+        try (LogContext.Scope ignored = LogContext.of("req-2", "model-b").activate()) {
+            context = LogContext.current();
+        }
+
+        // Act
+        executor.submit(context.wrap(() -> seen.set(MDC.get(LogContext.REQUEST_ID)))).get();
+        executor.submit(() -> after.set(MDC.get(LogContext.REQUEST_ID))).get();
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+
+        // Assert - 执行完毕后工作线程上不遗留字段
+        assertEquals("req-2", seen.get());
+        assertNull(after.get());
+    }
+}
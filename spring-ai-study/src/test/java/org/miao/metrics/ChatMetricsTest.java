@@ -0,0 +1,96 @@
+package org.miao.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ChatMetrics单元测试类
+ * 测试请求计时、在途请求数、排队等待、首个token耗时和token吞吐的记录
+ */
+class ChatMetricsTest {
+
+    private static final String MODEL = "openai/gpt-4";
+
+    private MeterRegistry meterRegistry;
+    private ChatMetrics chatMetrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        chatMetrics = new ChatMetrics(meterRegistry);
+    }
+
+    @Test
+    void testStartAndFinish_RecordsTimerAndInFlight() {
+        // Arrange
+        ChatMetrics.RequestSample sample = chatMetrics.start(MODEL);
+        assertEquals(1.0, meterRegistry.get("chat.requests.active").tag("model", MODEL).gauge().value(), 0.0);
+
+        // Act
+        sample.finish(ChatMetrics.OUTCOME_SUCCESS);
+        sample.finish(ChatMetrics.OUTCOME_ERROR);
+
+        // Assert - 重复finish不会重复记录
+        assertEquals(0.0, meterRegistry.get("chat.requests.active").tag("model", MODEL).gauge().value(), 0.0);
+        assertEquals(1, meterRegistry.get("chat.requests")
+            .tag("model", MODEL).tag("outcome", ChatMetrics.OUTCOME_SUCCESS).timer().count());
+        assertNull(meterRegistry.find("chat.requests").tag("outcome", ChatMetrics.OUTCOME_ERROR).timer());
+    }
+
+    @Test
+    void testFirstToken_RecordedOnce() {
+        // Arrange
+        ChatMetrics.RequestSample sample = chatMetrics.start(MODEL);
+
+        // Act
+        sample.firstToken();
+        sample.firstToken();
+        sample.finish(ChatMetrics.OUTCOME_SUCCESS);
+
+        // Assert
+        assertEquals(1, meterRegistry.get("chat.ttft").tag("model", MODEL).timer().count());
+    }
+
+    @Test
+    void testQueue_RecordsWaitAndQueuedGauge() {
+        // Act
+        long entered = chatMetrics.enterQueue();
+        double queued = meterRegistry.get("chat.requests.queued").gauge().value();
+        chatMetrics.leaveQueue(entered);
+
+        // Assert
+        assertEquals(1.0, queued, 0.0);
+        assertEquals(0.0, meterRegistry.get("chat.requests.queued").gauge().value(), 0.0);
+        assertEquals(1, meterRegistry.get("chat.queue.wait").timer().count());
+    }
+
+    @Test
+    void testRecordUsage_RecordsTokensAndThroughput() {
+        // Act - 2秒生成100个token
+        chatMetrics.recordUsage(MODEL, 40, 100, TimeUnit.SECONDS.toNanos(2));
+
+        // Assert
+        assertEquals(40.0, meterRegistry.get("chat.tokens").tag("type", "prompt").summary().totalAmount(), 0.0);
+        assertEquals(100.0, meterRegistry.get("chat.tokens").tag("type", "completion").summary().totalAmount(), 0.0);
+        assertEquals(50.0, meterRegistry.get("chat.tokens.throughput").tag("model", MODEL).summary().max(), 1e-6);
+    }
+
+    @Test
+    void testRecordAttemptAndRetry_TaggedByModel() {
+        // Act
+        chatMetrics.recordAttempt(MODEL, ChatMetrics.OUTCOME_ERROR, TimeUnit.MILLISECONDS.toNanos(30));
+        chatMetrics.recordRetry(MODEL);
+        chatMetrics.recordAttempt(MODEL, ChatMetrics.OUTCOME_SUCCESS, TimeUnit.MILLISECONDS.toNanos(20));
+
+        // Assert
+        assertEquals(1, meterRegistry.get("chat.upstream.requests").tag("outcome", ChatMetrics.OUTCOME_ERROR).timer().count());
+        assertEquals(1, meterRegistry.get("chat.upstream.requests").tag("outcome", ChatMetrics.OUTCOME_SUCCESS).timer().count());
+        assertEquals(1.0, meterRegistry.get("chat.retries").tag("model", MODEL).counter().count(), 0.0);
+    }
+}
@@ -0,0 +1,78 @@
+package org.miao.metrics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RequestTimings单元测试类
+ * 测试阶段耗时的累加、线程绑定和Server-Timing格式
+ */
+class RequestTimingsTest {
+
+    @AfterEach
+    void tearDown() {
+        RequestTimings.end();
+    }
+
+    @Test
+    void testRecord_NotBound_NoOp() {
+        // Act
+        RequestTimings.record("upstream", System.nanoTime());
+
+        // Assert
+        assertNull(RequestTimings.current());
+    }
+
+    @Test
+    void testAdd_SamePhase_Accumulates() {
+        // Arrange
+        RequestTimings timings = RequestTimings.begin();
+
+        // Act
+        timings.add("upstream", 1_500_000);
+        timings.add("backoff", 1_000_000_000);
+        timings.add("upstream", 2_000_000);
+
+        // Assert - 按首次记录的顺序输出
+        Map<String, Double> millis = timings.toMillis();
+        assertEquals(List.of("upstream", "backoff"), List.copyOf(millis.keySet()));
+        assertEquals(3.5, millis.get("upstream"), 1e-9);
+        assertEquals(1000.0, millis.get("backoff"), 1e-9);
+    }
+
+    @Test
+    void testToServerTiming_FormatsDurationsInMillis() {
+        // Arrange
+        RequestTimings timings = RequestTimings.begin();
+        timings.add("validate", 123_456);
+        timings.add("total", 830_100_000);
+
+        // Act
+        String header = timings.toServerTiming();
+
+        // Assert
+        assertEquals("validate;dur=0.123, total;dur=830.1", header);
+    }
+
+    @Test
+    void testRecord_Bound_RecordsElapsed() throws Exception {
+        // Arrange
+        RequestTimings timings = RequestTimings.begin();
+        long start = System.nanoTime();
+        Thread.sleep(5);
+
+        // Act
+        RequestTimings.record("queue", start);
+        RequestTimings.recordSinceStart("parse");
+
+        // Assert
+        assertSame(timings, RequestTimings.current());
+        assertTrue(timings.toMillis().get("queue") >= 5.0);
+        assertTrue(timings.toMillis().get("parse") >= 5.0);
+    }
+}
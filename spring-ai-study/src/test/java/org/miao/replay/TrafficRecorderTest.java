@@ -0,0 +1,163 @@
+package org.miao.replay;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TrafficRecorder单元测试类
+ * 测试录制文件的读写、请求和响应（含SSE事件）的脱敏、大小上限以及损坏尾部记录的处理
+ */
+class TrafficRecorderTest {
+
+    private static final String REQUEST = "{\"model\":\"openai/gpt-4\",\"user\":\"user-42\","
+        + "\"messages\":[{\"role\":\"user\",\"content\":\"你好 Spring AI\"}]}";
+    private static final String RESPONSE = "{\"id\":\"chatcmpl-1\",\"choices\":[{\"index\":0,"
+        + "\"message\":{\"role\":\"assistant\",\"content\":\"Hello, 世界\"}}]}";
+    private static final String EVENT = "data: {\"choices\":[{\"index\":0,\"delta\":{\"content\":\"Hi there\"}}]}\n\n";
+    private static final String DONE = "data: [DONE]\n\n";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRecord_RedactsContentAndKeepsSizes() throws Exception {
+        // Arrange
+        Path file = directory.resolve("capture.trf");
+        TrafficRecorder recorder = new TrafficRecorder(file, 16, 1.0, 1 << 20, new TrafficSanitizer(true));
+
+        // Act
+        recorder.record(System.nanoTime(), false, 200, 80_000, bytes(REQUEST),
+            List.of(new TrafficRecord.Frame(120_000, bytes(RESPONSE))));
+        recorder.close();
+        List<TrafficRecord> records = TrafficLog.read(file);
+
+        // Assert
+        assertEquals(1, records.size());
+        TrafficRecord record = records.get(0);
+        assertFalse(record.isStream());
+        assertEquals(200, record.getStatus());
+        assertEquals(80_000, record.getHeadersMicros());
+        assertEquals(120_000, record.getTotalMicros());
+        JsonNode request = objectMapper.readTree(record.getRequestBody());
+        assertFalse(request.has("user"));
+        assertEquals("openai/gpt-4", request.path("model").asText());
+        String content = request.path("messages").path(0).path("content").asText();
+        assertNotEquals("你好 Spring AI", content);
+        assertEquals(bytes("你好 Spring AI").length, bytes(content).length);
+        assertEquals(' ', content.charAt(2));
+        String answer = objectMapper.readTree(record.getFrames().get(0).getData())
+            .path("choices").path(0).path("message").path("content").asText();
+        assertEquals(bytes("Hello, 世界").length, bytes(answer).length);
+        assertFalse(answer.contains("Hello"));
+        assertEquals(1, recorder.getRecordedCount());
+    }
+
+    @Test
+    void testRecord_StreamEvents_RedactsDeltaContent() throws Exception {
+        // Arrange
+        Path file = directory.resolve("capture.trf");
+        TrafficRecorder recorder = new TrafficRecorder(file, 16, 1.0, 1 << 20, new TrafficSanitizer(true));
+
+        // Act
+        recorder.record(System.nanoTime(), true, 200, 50_000, bytes(REQUEST), List.of(
+            new TrafficRecord.Frame(60_000, bytes(EVENT)),
+            new TrafficRecord.Frame(90_000, bytes(DONE))));
+        recorder.close();
+        TrafficRecord record = TrafficLog.read(file).get(0);
+
+        // Assert
+        assertTrue(record.isStream());
+        assertEquals(2, record.getFrames().size());
+        String event = new String(record.getFrames().get(0).getData(), StandardCharsets.UTF_8);
+        assertTrue(event.startsWith("data: ") && event.endsWith("\n\n"));
+        JsonNode chunk = objectMapper.readTree(event.substring("data: ".length()).trim());
+        assertEquals("xx xxxxx", chunk.path("choices").path(0).path("delta").path("content").asText());
+        assertEquals(60_000, record.getFrames().get(0).getOffsetMicros());
+        assertEquals(DONE, new String(record.getFrames().get(1).getData(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testRecord_RedactDisabled_KeepsContentButDropsUser() throws Exception {
+        // Arrange
+        Path file = directory.resolve("capture.trf");
+        TrafficRecorder recorder = new TrafficRecorder(file, 16, 1.0, 1 << 20, new TrafficSanitizer(false));
+
+        // Act
+        recorder.record(System.nanoTime(), false, 200, 0, bytes(REQUEST),
+            List.of(new TrafficRecord.Frame(0, bytes(RESPONSE))));
+        recorder.close();
+        TrafficRecord record = TrafficLog.read(file).get(0);
+
+        // Assert
+        JsonNode request = objectMapper.readTree(record.getRequestBody());
+        assertFalse(request.has("user"));
+        assertEquals("你好 Spring AI", request.path("messages").path(0).path("content").asText());
+        assertEquals(RESPONSE, new String(record.getFrames().get(0).getData(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testRecord_OverMaxBodyBytes_Skipped() throws Exception {
+        // Arrange
+        Path file = directory.resolve("capture.trf");
+        TrafficRecorder recorder = new TrafficRecorder(file, 16, 1.0, 64, new TrafficSanitizer(true));
+
+        // Act
+        recorder.record(System.nanoTime(), false, 200, 0, bytes(REQUEST),
+            List.of(new TrafficRecord.Frame(0, bytes(RESPONSE))));
+        recorder.close();
+
+        // Assert
+        assertTrue(TrafficLog.read(file).isEmpty());
+        assertEquals(1, recorder.getSkippedCount());
+    }
+
+    @Test
+    void testRead_TruncatedTail_ReturnsCompleteRecords() throws Exception {
+        // Arrange
+        Path file = directory.resolve("capture.trf");
+        TrafficRecorder recorder = new TrafficRecorder(file, 16, 1.0, 1 << 20, new TrafficSanitizer(true));
+        for (int i = 0; i < 3; i++) {
+            recorder.record(System.nanoTime(), false, 200, 0, bytes(REQUEST),
+                List.of(new TrafficRecord.Frame(0, bytes(RESPONSE))));
+        }
+        recorder.close();
+
+        // Act - 模拟录制进程崩溃时最后一条记录只写了一部分
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+        List<TrafficRecord> records = TrafficLog.read(file);
+
+        // Assert
+        assertEquals(2, records.size());
+    }
+
+    @Test
+    void testRedact_PreservesUtf8LengthAndWhitespace() {
+        // Arrange
+        String text = "a é 中\t😀\n";
+
+        // Act
+        String redacted = TrafficSanitizer.redact(text);
+
+        // Assert
+        assertEquals(bytes(text).length, bytes(redacted).length);
+        assertEquals("x é 一\t😀\n", redacted);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,117 @@
+package org.miao.retrieval;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * FlatVectorIndex单元测试类
+ * 测试相似度内核的一致性、top-k排序以及跨块存储的检索结果
+ */
+class FlatVectorIndexTest {
+
+    @Test
+    void testKernels_ScalarAndBestAgree() {
+        // Arrange
+        Random random = new Random(7);
+        float[] a = randomVector(random, 389);
+        float[] b = randomVector(random, 389);
+
+        // Act
+        float scalar = SimilarityKernels.scalar().dot(a, 0, b, 0, a.length);
+        float best = SimilarityKernels.best().dot(a, 0, b, 0, a.length);
+
+        // Assert
+        assertEquals(scalar, best, 1e-3f * Math.max(1f, Math.abs(scalar)));
+    }
+
+    @Test
+    void testTopK_KeepsHighestScoresInDescendingOrder() {
+        // Arrange
+        TopK topK = new TopK(3);
+        float[] scores = {0.1f, 0.9f, 0.5f, 0.3f, 0.7f, 0.2f};
+
+        // Act
+        for (int i = 0; i < scores.length; i++) {
+            topK.offer(i, scores[i]);
+        }
+        float threshold = topK.threshold();
+        topK.sortDescending();
+
+        // Assert
+        assertEquals(3, topK.size());
+        assertEquals(1, topK.getId(0));
+        assertEquals(4, topK.getId(1));
+        assertEquals(2, topK.getId(2));
+        assertEquals(0.5f, threshold);
+    }
+
+    @Test
+    void testSearch_AcrossBlocks_FindsExactVector() {
+        // Arrange
+        Random random = new Random(11);
+        int dimension = 16;
+        FlatVectorIndex index = new FlatVectorIndex(dimension);
+        float[] target = null;
+        int count = FlatVectorIndex.BLOCK_VECTORS + 100;
+        for (int i = 0; i < count; i++) {
+            float[] vector = randomVector(random, dimension);
+            if (i == FlatVectorIndex.BLOCK_VECTORS + 42) {
+                target = vector.clone();
+            }
+            index.add(vector);
+        }
+
+        // Act
+        TopK result = index.search(target, 5);
+
+        // Assert
+        assertEquals(count, index.size());
+        assertEquals(5, result.size());
+        assertEquals(FlatVectorIndex.BLOCK_VECTORS + 42, result.getId(0));
+        assertEquals(1.0f, result.getScore(0), 1e-4f);
+        for (int i = 1; i < result.size(); i++) {
+            assertTrue(result.getScore(i - 1) >= result.getScore(i));
+        }
+    }
+
+    @Test
+    void testSearch_ScoresAreCosineSimilarity() {
+        // Arrange
+        FlatVectorIndex index = new FlatVectorIndex(2, SimilarityKernels.scalar());
+        index.add(new float[]{10f, 0f});
+        index.add(new float[]{0f, 3f});
+        index.add(new float[]{1f, 1f});
+
+        // Act
+        TopK result = index.search(new float[]{2f, 0f}, 3);
+
+        // Assert
+        assertEquals(0, result.getId(0));
+        assertEquals(1.0f, result.getScore(0), 1e-6f);
+        assertEquals(2, result.getId(1));
+        assertEquals((float) Math.sqrt(0.5), result.getScore(1), 1e-6f);
+        assertEquals(1, result.getId(2));
+        assertEquals(0f, result.getScore(2), 1e-6f);
+    }
+
+    @Test
+    void testAdd_WrongDimension_ThrowsException() {
+        // Arrange
+        FlatVectorIndex index = new FlatVectorIndex(4);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> index.add(new float[3]));
+        assertThrows(IllegalArgumentException.class, () -> index.search(new float[5], 1));
+    }
+
+    private float[] randomVector(Random random, int dimension) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,196 @@
+package org.miao.retrieval;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HnswIndex单元测试类
+ * 测试近似检索的召回率、并发写入，以及内存映射文件的保存、打开和增量写入
+ */
+class HnswIndexTest {
+
+    private static final int DIMENSION = 32;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSearch_EmptyIndex_ReturnsNoResults() {
+        // Arrange
+        HnswIndex index = new HnswIndex(DIMENSION, 8, 64, 32);
+
+        // Act
+        TopK result = index.search(randomVector(new Random(1)), 5);
+
+        // Assert
+        assertEquals(0, result.size());
+    }
+
+    @Test
+    void testSearch_RecallAgainstExactSearch() {
+        // Arrange
+        Random random = new Random(3);
+        HnswIndex hnsw = new HnswIndex(DIMENSION, 12, 100, 64);
+        FlatVectorIndex exact = new FlatVectorIndex(DIMENSION);
+        for (int i = 0; i < 3000; i++) {
+            float[] vector = randomVector(random);
+            hnsw.add(vector);
+            exact.add(vector);
+        }
+
+        // Act
+        double recall = recall(hnsw, exact, random, 50, 10);
+
+        // Assert
+        assertEquals(3000, hnsw.size());
+        assertTrue(recall >= 0.9, "召回率过低: " + recall);
+    }
+
+    @Test
+    void testAdd_ConcurrentInserts_AllVectorsReachable() throws Exception {
+        // Arrange
+        HnswIndex index = new HnswIndex(DIMENSION, 8, 64, 64);
+        int threads = 4;
+        int perThread = 500;
+        List<float[]> vectors = new ArrayList<>();
+        Random random = new Random(5);
+        for (int i = 0; i < threads * perThread; i++) {
+            vectors.add(randomVector(random));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        // Act
+        List<Future<int[]>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int from = t * perThread;
+            futures.add(executor.submit(() -> {
+                int[] ids = new int[perThread];
+                for (int i = 0; i < perThread; i++) {
+                    ids[i] = index.add(vectors.get(from + i));
+                    // 写入过程中穿插检索，验证读路径不需要加锁
+                    index.search(vectors.get(from + i), 3);
+                }
+                return ids;
+            }));
+        }
+        int[] idToVector = new int[threads * perThread];
+        for (int t = 0; t < threads; t++) {
+            int[] ids = futures.get(t).get(30, TimeUnit.SECONDS);
+            for (int i = 0; i < perThread; i++) {
+                idToVector[ids[i]] = t * perThread + i;
+            }
+        }
+        executor.shutdown();
+
+        // Assert
+        assertEquals(threads * perThread, index.size());
+        int found = 0;
+        for (int id = 0; id < idToVector.length; id++) {
+            TopK result = index.search(vectors.get(idToVector[id]), 1);
+            if (result.size() == 1 && result.getId(0) == id) {
+                found++;
+            }
+        }
+        assertTrue(found >= idToVector.length * 0.98, "能检索到自身的向量过少: " + found);
+    }
+
+    @Test
+    void testSaveAndOpen_SameResultsAndAcceptsNewVectors() throws Exception {
+        // Arrange
+        Random random = new Random(9);
+        HnswIndex index = new HnswIndex(DIMENSION, 8, 64, 64);
+        for (int i = 0; i < 1000; i++) {
+            index.add(randomVector(random));
+        }
+        Path file = tempDir.resolve("vectors.hnsw");
+        float[] query = randomVector(random);
+        TopK expected = index.search(query, 10);
+
+        // Act
+        index.save(file);
+        HnswIndex opened = HnswIndex.open(file, 64, 64, SimilarityKernels.best());
+        TopK actual = opened.search(query, 10);
+        float[] added = randomVector(random);
+        int addedId = opened.add(added);
+
+        // Assert
+        assertEquals(1000, opened.getBaseCount());
+        assertEquals(1001, opened.size());
+        assertEquals(1000, addedId);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getId(i), actual.getId(i));
+            assertEquals(expected.getScore(i), actual.getScore(i), 1e-6f);
+        }
+        assertEquals(addedId, opened.search(added, 1).getId(0));
+    }
+
+    @Test
+    void testSave_ReopenedIndexWithOverlay_RoundTrips() throws Exception {
+        // Arrange
+        Random random = new Random(13);
+        HnswIndex index = new HnswIndex(DIMENSION, 8, 64, 64);
+        for (int i = 0; i < 500; i++) {
+            index.add(randomVector(random));
+        }
+        Path file = tempDir.resolve("vectors.hnsw");
+        index.save(file);
+        HnswIndex opened = HnswIndex.open(file, 64, 64, SimilarityKernels.best());
+        List<float[]> added = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            float[] vector = randomVector(random);
+            added.add(vector);
+            opened.add(vector);
+        }
+
+        // Act
+        opened.save(file);
+        HnswIndex reopened = HnswIndex.open(file, 64, 64, SimilarityKernels.best());
+
+        // Assert
+        assertEquals(800, reopened.size());
+        int found = 0;
+        for (int i = 0; i < added.size(); i++) {
+            if (reopened.search(added.get(i), 1).getId(0) == 500 + i) {
+                found++;
+            }
+        }
+        assertTrue(found >= added.size() * 0.98, "重新打开后能检索到的新增向量过少: " + found);
+    }
+
+    private double recall(VectorIndex approximate, VectorIndex exact, Random random, int queries, int k) {
+        int hits = 0;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomVector(random);
+            TopK expected = exact.search(query, k);
+            TopK actual = approximate.search(query, k);
+            for (int i = 0; i < expected.size(); i++) {
+                for (int j = 0; j < actual.size(); j++) {
+                    if (expected.getId(i) == actual.getId(j)) {
+                        hits++;
+                        break;
+                    }
+                }
+            }
+        }
+        return (double) hits / (queries * k);
+    }
+
+    private float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,56 @@
+package org.miao.retrieval;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.miao.config.RetrievalProperties;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HybridRetriever单元测试类
+ * 测试向量检索没有命中时，关键词检索的弱匹配不会进入融合结果，而精确标识符的命中仍然返回
+ */
+class HybridRetrieverTest {
+
+    private KeywordRetriever keywordRetriever;
+    private HybridRetriever retriever;
+
+    @BeforeEach
+    void setUp() {
+        RetrievalProperties properties = new RetrievalProperties();
+        properties.setPersistenceEnabled(false);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        // 向量存储为空，向量检索不返回任何片段，也不会调用嵌入服务
+        VectorStore vectorStore = new VectorStore(properties, meterRegistry);
+        keywordRetriever = new KeywordRetriever(vectorStore, properties, meterRegistry);
+        retriever = new HybridRetriever(new VectorRetriever(vectorStore, null, properties),
+            keywordRetriever, properties);
+
+        keywordRetriever.index(new DocumentChunk("c1", "faq.md", "如何配置会话记忆的最大轮数"));
+        keywordRetriever.index(new DocumentChunk("c2", "faq.md", "检索增强需要先配置嵌入模型"));
+        keywordRetriever.index(new DocumentChunk("c3", "faq.md", "限流时返回配置的错误码"));
+        keywordRetriever.index(new DocumentChunk("c4", "errors.md", "错误码 E1024 表示上游模型限流"));
+    }
+
+    @Test
+    void testRetrieve_SingleCommonTermOverlap_ReturnsNoContext() {
+        // Act - 查询与片段只共享常见词"配置"
+        List<RetrievedChunk> results = retriever.retrieve("怎么配置打印机", 4);
+
+        // Assert
+        assertTrue(results.isEmpty());
+    }
+
+    @Test
+    void testRetrieve_ExactIdentifier_ReturnsKeywordMatch() {
+        // Act
+        List<RetrievedChunk> results = retriever.retrieve("E1024 限流", 4);
+
+        // Assert - 只返回精确命中的片段，只共享"限流"的片段低于最高分的比例被过滤
+        assertFalse(results.isEmpty());
+        assertEquals("c4", results.get(0).getChunk().getId());
+    }
+}
@@ -0,0 +1,104 @@
+package org.miao.retrieval;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * InvertedIndex单元测试类
+ * 测试多语言分词、BM25排序以及倒排列表压缩
+ */
+class InvertedIndexTest {
+
+    @Test
+    void testTokenize_ChineseText_ProducesBigrams() {
+        // Act
+        List<String> tokens = Tokenizer.tokenize("空指针异常");
+
+        // Assert
+        assertEquals(List.of("空指", "指针", "针异", "异常"), tokens);
+    }
+
+    @Test
+    void testTokenize_MixedText_SplitsIdentifiers() {
+        // Act
+        List<String> tokens = Tokenizer.tokenize("抛出NullPointerException，错误码E1024；读取max_retries");
+
+        // Assert
+        assertTrue(tokens.contains("抛出"));
+        assertTrue(tokens.contains("nullpointerexception"));
+        assertTrue(tokens.contains("pointer"));
+        assertTrue(tokens.contains("e1024"));
+        assertTrue(tokens.contains("max_retries"));
+        assertTrue(tokens.contains("retries"));
+        assertTrue(tokens.contains("错误"));
+        assertFalse(tokens.contains("，"));
+    }
+
+    @Test
+    void testSearch_ExactIdentifier_RanksMatchingDocumentFirst() {
+        // Arrange
+        InvertedIndex index = new InvertedIndex();
+        index.add("Spring AI 提供了统一的聊天客户端接口");
+        int target = index.add("调用失败时返回错误码 E1024，表示上游模型限流");
+        index.add("错误码 E2048 表示请求参数校验失败");
+        index.add("重试策略使用指数退避，最多重试三次");
+
+        // Act
+        TopK result = index.search("E1024是什么错误", 3);
+
+        // Assert
+        assertTrue(result.size() >= 1);
+        assertEquals(target, result.getId(0));
+    }
+
+    @Test
+    void testSearch_RareTermOutweighsCommonTerm() {
+        // Arrange
+        InvertedIndex index = new InvertedIndex();
+        for (int i = 0; i < 20; i++) {
+            index.add("聊天 服务 文档 " + i);
+        }
+        int rare = index.add("聊天 HashedTimerWheel");
+
+        // Act
+        TopK result = index.search("聊天 HashedTimerWheel", 5);
+
+        // Assert
+        assertEquals(rare, result.getId(0));
+        assertTrue(result.getScore(0) > result.getScore(1) * 2);
+    }
+
+    @Test
+    void testSearch_NoMatchingTerm_ReturnsEmpty() {
+        // Arrange
+        InvertedIndex index = new InvertedIndex();
+        index.add("向量检索");
+
+        // Act
+        TopK result = index.search("BM25", 5);
+
+        // Assert
+        assertEquals(0, result.size());
+    }
+
+    @Test
+    void testPostingList_DeltaEncoding_IsCompact() {
+        // Arrange
+        InvertedIndex index = new InvertedIndex();
+        for (int i = 0; i < 1000; i++) {
+            index.add("common term " + i);
+        }
+
+        // Act
+        long bytes = index.postingBytes();
+
+        // Assert
+        assertEquals(1000, index.size());
+        // common和term各1000条，每条差值和词频都只占1字节
+        assertTrue(bytes < 2 * 1000 * 2 + 1000 * 4, "倒排列表过大: " + bytes);
+        assertEquals(1000, index.search("common", 1000).size());
+    }
+}
@@ -0,0 +1,203 @@
+package org.miao.retrieval;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PqVectorIndex单元测试类
+ * 测试训练前的精确检索、量化后的召回率与重排序、压缩后的内存占用以及保存和重新打开
+ */
+class PqVectorIndexTest {
+
+    private static final int DIMENSION = 64;
+    private static final int CLUSTERS = 50;
+
+    @TempDir
+    Path tempDir;
+
+    private final List<PqVectorIndex> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (PqVectorIndex index : opened) {
+            index.close();
+        }
+    }
+
+    @Test
+    void testSearch_BeforeTraining_IsExact() throws Exception {
+        // Arrange
+        Random random = new Random(1);
+        PqVectorIndex index = track(new PqVectorIndex(DIMENSION, 8, 1000, 4, tempDir.resolve("vectors.raw")));
+        FlatVectorIndex exact = new FlatVectorIndex(DIMENSION);
+        for (int i = 0; i < 200; i++) {
+            float[] vector = randomVector(random);
+            index.add(vector);
+            exact.add(vector);
+        }
+
+        // Act
+        double recall = recall(index, exact, random, 20, 10);
+
+        // Assert
+        assertFalse(index.isTrained());
+        assertEquals(1.0, recall, 1e-9);
+    }
+
+    @Test
+    void testSearch_AfterTraining_RerankImprovesRecall() throws Exception {
+        // Arrange
+        Random random = new Random(3);
+        float[][] centers = centers(random);
+        PqVectorIndex approximate = track(new PqVectorIndex(DIMENSION, 16, 1000, 0, tempDir.resolve("a.raw")));
+        PqVectorIndex reranked = track(new PqVectorIndex(DIMENSION, 16, 1000, 8, tempDir.resolve("b.raw")));
+        FlatVectorIndex exact = new FlatVectorIndex(DIMENSION);
+        for (int i = 0; i < 3000; i++) {
+            float[] vector = around(centers[random.nextInt(CLUSTERS)], random);
+            approximate.add(vector);
+            reranked.add(vector);
+            exact.add(vector);
+        }
+
+        // Act
+        double approximateRecall = recall(approximate, exact, new Random(7), 50, 10);
+        double rerankedRecall = recall(reranked, exact, new Random(7), 50, 10);
+
+        // Assert
+        assertTrue(reranked.isTrained());
+        assertTrue(approximateRecall >= 0.4, "量化检索召回率过低: " + approximateRecall);
+        assertTrue(rerankedRecall >= 0.9, "重排序后召回率过低: " + rerankedRecall);
+        assertTrue(rerankedRecall >= approximateRecall);
+    }
+
+    @Test
+    void testHeapBytes_AfterTraining_StoresOnlyCodes() throws Exception {
+        // Arrange
+        Random random = new Random(5);
+        PqVectorIndex index = track(new PqVectorIndex(DIMENSION, 16, 500, 4, tempDir.resolve("vectors.raw")));
+
+        // Act
+        for (int i = 0; i < 2000; i++) {
+            index.add(randomVector(random));
+        }
+
+        // Assert
+        long codebookBytes = 256L * DIMENSION * Float.BYTES;
+        assertEquals(2000L * 16 + codebookBytes, index.heapBytes());
+        assertTrue(index.heapBytes() < 2000L * DIMENSION * Float.BYTES / 4);
+    }
+
+    @Test
+    void testSaveAndOpen_SameResultsAndAcceptsNewVectors() throws Exception {
+        // Arrange
+        Random random = new Random(9);
+        Path rawFile = tempDir.resolve("vectors.raw");
+        Path file = tempDir.resolve("vectors.pq");
+        PqVectorIndex index = new PqVectorIndex(DIMENSION, 8, 500, 4, rawFile);
+        for (int i = 0; i < 1200; i++) {
+            index.add(randomVector(random));
+        }
+        float[] query = randomVector(random);
+        TopK expected = index.search(query, 10);
+
+        // Act
+        index.save(file);
+        index.close();
+        PqVectorIndex reopened = track(PqVectorIndex.open(file, rawFile, 500, 4, SimilarityKernels.best()));
+        TopK actual = reopened.search(query, 10);
+        float[] added = randomVector(random);
+        int addedId = reopened.add(added);
+
+        // Assert
+        assertTrue(reopened.isTrained());
+        assertEquals(1201, reopened.size());
+        assertEquals(1200, addedId);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getId(i), actual.getId(i));
+            assertEquals(expected.getScore(i), actual.getScore(i), 1e-6f);
+        }
+        assertEquals(addedId, reopened.search(added, 1).getId(0));
+    }
+
+    @Test
+    void testOpen_UntrainedIndex_RestoresPendingVectors() throws Exception {
+        // Arrange
+        Random random = new Random(11);
+        Path rawFile = tempDir.resolve("vectors.raw");
+        Path file = tempDir.resolve("vectors.pq");
+        PqVectorIndex index = new PqVectorIndex(DIMENSION, 8, 1000, 4, rawFile);
+        List<float[]> vectors = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            float[] vector = randomVector(random);
+            vectors.add(vector);
+            index.add(vector);
+        }
+
+        // Act
+        index.save(file);
+        index.close();
+        PqVectorIndex reopened = track(PqVectorIndex.open(file, rawFile, 1000, 4, SimilarityKernels.best()));
+
+        // Assert
+        assertFalse(reopened.isTrained());
+        assertEquals(100, reopened.size());
+        for (int i = 0; i < vectors.size(); i++) {
+            assertEquals(i, reopened.search(vectors.get(i), 1).getId(0));
+        }
+    }
+
+    private PqVectorIndex track(PqVectorIndex index) {
+        opened.add(index);
+        return index;
+    }
+
+    private double recall(VectorIndex approximate, VectorIndex exact, Random random, int queries, int k) {
+        int hits = 0;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomVector(random);
+            TopK expected = exact.search(query, k);
+            TopK actual = approximate.search(query, k);
+            for (int i = 0; i < expected.size(); i++) {
+                for (int j = 0; j < actual.size(); j++) {
+                    if (expected.getId(i) == actual.getId(j)) {
+                        hits++;
+                        break;
+                    }
+                }
+            }
+        }
+        return (double) hits / (queries * k);
+    }
+
+    private float[][] centers(Random random) {
+        float[][] centers = new float[CLUSTERS][];
+        for (int i = 0; i < CLUSTERS; i++) {
+            centers[i] = randomVector(random);
+        }
+        return centers;
+    }
+
+    private float[] around(float[] center, Random random) {
+        float[] vector = randomVector(random);
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = center[i] + vector[i] * 0.3f;
+        }
+        return vector;
+    }
+
+    private float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,54 @@
+package org.miao.retrieval;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ReciprocalRankFusion单元测试类
+ * 测试多路检索结果的排名融合
+ */
+class ReciprocalRankFusionTest {
+
+    private final DocumentChunk a = new DocumentChunk("a", "doc", "A");
+    private final DocumentChunk b = new DocumentChunk("b", "doc", "B");
+    private final DocumentChunk c = new DocumentChunk("c", "doc", "C");
+
+    @Test
+    void testFuse_ChunkInBothRankings_RanksFirst() {
+        // Arrange
+        List<RetrievedChunk> vector = List.of(new RetrievedChunk(a, 0.9), new RetrievedChunk(b, 0.8));
+        List<RetrievedChunk> keyword = List.of(new RetrievedChunk(c, 12.0), new RetrievedChunk(b, 7.5));
+
+        // Act
+        List<RetrievedChunk> fused = ReciprocalRankFusion.fuse(List.of(vector, keyword), 60, 3);
+
+        // Assert
+        assertEquals(3, fused.size());
+        assertEquals("b", fused.get(0).getChunk().getId());
+        assertEquals(2.0 / 62, fused.get(0).getScore(), 1e-12);
+    }
+
+    @Test
+    void testFuse_LimitsToTopK() {
+        // Arrange
+        List<RetrievedChunk> ranking = List.of(
+            new RetrievedChunk(a, 3), new RetrievedChunk(b, 2), new RetrievedChunk(c, 1));
+
+        // Act
+        List<RetrievedChunk> fused = ReciprocalRankFusion.fuse(List.of(ranking), 60, 2);
+
+        // Assert
+        assertEquals(2, fused.size());
+        assertEquals("a", fused.get(0).getChunk().getId());
+        assertEquals("b", fused.get(1).getChunk().getId());
+    }
+
+    @Test
+    void testFuse_NoRankings_ReturnsEmpty() {
+        // Act & Assert
+        assertTrue(ReciprocalRankFusion.fuse(List.of(), 60, 4).isEmpty());
+    }
+}
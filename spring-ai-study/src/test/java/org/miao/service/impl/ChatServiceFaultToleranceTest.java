@@ -0,0 +1,281 @@
+package org.miao.service.impl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.miao.cache.ResponseCache;
+import org.miao.config.ApplicationConfig;
+import org.miao.config.ChatProperties;
+import org.miao.config.ConversationProperties;
+import org.miao.config.DiagnosticsProperties;
+import org.miao.config.FaultInjectionProperties;
+import org.miao.config.FaultInjectionProperties.Scenario;
+import org.miao.config.OpenRouterProperties;
+import org.miao.config.RetrievalProperties;
+import org.miao.config.TracingProperties;
+import org.miao.config.UpstreamStubProperties;
+import org.miao.config.UsageProperties;
+import org.miao.conversation.ConversationStore;
+import org.miao.diagnostics.SlowRequestRecorder;
+import org.miao.dto.ChatResponse;
+import org.miao.exception.ApiConnectionException;
+import org.miao.fault.FaultInjector;
+import org.miao.metrics.ChatMetrics;
+import org.miao.replay.TrafficLog;
+import org.miao.replay.TrafficRecord;
+import org.miao.replay.TrafficRecorder;
+import org.miao.replay.TrafficSanitizer;
+import org.miao.stub.UpstreamStubServer;
+import org.miao.support.HashedTimerWheel;
+import org.miao.tracing.Tracer;
+import org.miao.usage.UsageAccountant;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.SocketTimeoutException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ChatServiceImpl重试路径的故障容错测试
+ * 真实的OpenAiApi和ChatClient（与ApplicationConfig相同的装配）访问本地桩服务，
+ * 由FaultInjector在上游调用上注入错误、黑洞和连接重置（黑洞由客户端真实的读超时结束），验证上游调用并发和线程数有界、
+ * 故障结束后的下一次重试即恢复，以及重试只发生在ChatServiceImpl一层。
+ * 只断言尝试次数、注入计数和异常原因，不断言耗时，避免在繁忙的构建机上不稳定
+ */
+class ChatServiceFaultToleranceTest {
+
+    private static final String MODEL = "openai/gpt-4";
+    private static final String MESSAGE = "Hello";
+
+    private UpstreamStubServer stubServer;
+    private HashedTimerWheel timerWheel;
+    private ConversationStore conversationStore;
+    private MeterRegistry meterRegistry;
+    private FaultInjectionProperties faultProperties;
+    private OpenRouterProperties openRouterProperties;
+    private ChatProperties chatProperties;
+    private FaultInjector injector;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        UpstreamStubProperties stubProperties = new UpstreamStubProperties();
+        stubProperties.setPort(0);
+        stubProperties.setWorkerThreads(4);
+        stubProperties.setLatencyMillis(0);
+        stubProperties.setStreamChunks(3);
+        stubServer = new UpstreamStubServer(stubProperties);
+        stubServer.start();
+
+        openRouterProperties = new OpenRouterProperties();
+        openRouterProperties.setApiKey("stub");
+        openRouterProperties.setBaseUrl("http://127.0.0.1:" + stubServer.getPort());
+        openRouterProperties.setDefaultModel(MODEL);
+        openRouterProperties.setAvailableModels(List.of(MODEL));
+        chatProperties = new ChatProperties();
+        faultProperties = new FaultInjectionProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        timerWheel = new HashedTimerWheel("test-timer-wheel", 10, 512, lagNanos -> { });
+        ConversationProperties conversationProperties = new ConversationProperties();
+        conversationProperties.setPersistenceEnabled(false);
+        conversationStore = new ConversationStore(conversationProperties, timerWheel, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (injector != null) {
+            injector.close();
+        }
+        conversationStore.shutdown();
+        timerWheel.close();
+        stubServer.stop();
+    }
+
+    @Test
+    void testErrorWindow_RecoversWithinOneBackoff() {
+        // Arrange - 前1.5秒所有上游调用返回503；退避为1秒、2秒，第3次尝试落在故障窗口之后
+        faultProperties.getScenarios().add(scenario(0, 1500));
+        faultProperties.getScenarios().get(0).setErrorRate(1.0);
+        openRouterProperties.setMaxRetries(3);
+        FaultInjector injector = injector();
+        ChatServiceImpl chatService = chatService(injector);
+
+        // Act
+        injector.restart();
+        ChatResponse response = chatService.sendMessage(MESSAGE);
+
+        // Assert - 故障窗口之后的第一次尝试即成功，失败的尝试只有ChatServiceImpl的两次
+        assertTrue(response.isSuccess());
+        assertEquals(2.0, meterRegistry.get("chat.fault.injected").tag("type", "error").counter().count(), 0.0);
+        assertEquals(2.0, meterRegistry.get("chat.retries").tag("model", MODEL).counter().count(), 0.0);
+    }
+
+    @Test
+    void testErrorWindow_WithTrafficCapture_RecordsOnlyUpstreamExchanges(@TempDir Path directory) throws Exception {
+        // Arrange - 与testErrorWindow相同的故障窗口，同时开启流量录制
+        faultProperties.getScenarios().add(scenario(0, 1500));
+        faultProperties.getScenarios().get(0).setErrorRate(1.0);
+        openRouterProperties.setMaxRetries(3);
+        FaultInjector injector = injector();
+        Path file = directory.resolve("capture.trf");
+        TrafficRecorder recorder = new TrafficRecorder(file, 16, 1.0, 1 << 20, new TrafficSanitizer(true));
+        ChatServiceImpl chatService = chatService(injector, recorder);
+
+        // Act
+        injector.restart();
+        ChatResponse response = chatService.sendMessage(MESSAGE);
+        recorder.close();
+
+        // Assert - 注入的两次503没有到达录制层，只录制了真实的上游响应
+        assertTrue(response.isSuccess());
+        List<TrafficRecord> records = TrafficLog.read(file);
+        assertEquals(1, records.size());
+        assertEquals(200, records.get(0).getStatus());
+    }
+
+    @Test
+    void testPersistentErrors_FailAfterRetryBudget() {
+        // Arrange
+        faultProperties.getScenarios().add(scenario(0, 0));
+        faultProperties.getScenarios().get(0).setErrorRate(1.0);
+        openRouterProperties.setMaxRetries(2);
+        FaultInjector injector = injector();
+        ChatServiceImpl chatService = chatService(injector);
+
+        // Act
+        assertThrows(ApiConnectionException.class, () -> chatService.sendMessage(MESSAGE));
+
+        // Assert - 上游只被调用两次，一次重试，没有嵌套在模型内部的重试
+        assertEquals(2.0, meterRegistry.get("chat.fault.injected").tag("type", "error").counter().count(), 0.0);
+        assertEquals(1.0, meterRegistry.get("chat.retries").tag("model", MODEL).counter().count(), 0.0);
+    }
+
+    @Test
+    void testResetMidResponse_RetriedAndRecovered() {
+        // Arrange - 前0.5秒的响应读到16字节后连接被重置
+        faultProperties.getScenarios().add(scenario(0, 500));
+        faultProperties.getScenarios().get(0).setResetRate(1.0);
+        faultProperties.getScenarios().get(0).setResetAfterBytes(16);
+        openRouterProperties.setMaxRetries(2);
+        FaultInjector injector = injector();
+        ChatServiceImpl chatService = chatService(injector);
+
+        // Act
+        injector.restart();
+        ChatResponse response = chatService.sendMessage(MESSAGE);
+
+        // Assert
+        assertTrue(response.isSuccess());
+        assertEquals(1.0, meterRegistry.get("chat.fault.injected").tag("type", "reset").counter().count(), 0.0);
+        assertEquals(1.0, meterRegistry.get("chat.retries").tag("model", MODEL).counter().count(), 0.0);
+    }
+
+    @Test
+    void testBlackhole_ConcurrentRequests_BoundedUpstreamCallsAndThreads() throws Exception {
+        // Arrange - 所有上游调用发往黑洞，1秒后客户端读超时，最多4个并发上游调用，其余请求排队
+        faultProperties.getScenarios().add(scenario(0, 0));
+        faultProperties.getScenarios().get(0).setBlackholeRate(1.0);
+        openRouterProperties.setTimeoutSeconds(1);
+        openRouterProperties.setMaxRetries(1);
+        chatProperties.setMaxConcurrentRequests(4);
+        chatProperties.setQueueTimeoutMillis(10000);
+        FaultInjector injector = injector();
+        ChatServiceImpl chatService = chatService(injector);
+        int clients = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        int baseline = threads.getThreadCount();
+        threads.resetPeakThreadCount();
+
+        // Act
+        List<Future<ChatResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            futures.add(executor.submit(() -> chatService.sendMessage(MESSAGE)));
+        }
+        int failures = 0;
+        for (Future<ChatResponse> future : futures) {
+            try {
+                future.get(30, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                assertInstanceOf(ApiConnectionException.class, e.getCause());
+                assertTrue(causedBy(e.getCause(), SocketTimeoutException.class), "cause " + e.getCause());
+                failures++;
+            }
+        }
+        executor.shutdown();
+
+        // Assert - 每个请求都由客户端读超时结束，上游调用不超过许可数，除调用方线程外不为每个请求创建线程
+        assertEquals(clients, failures);
+        assertEquals(clients, meterRegistry.get("chat.fault.injected").tag("type", "blackhole").counter().count(), 0.0);
+        assertTrue(injector.getPeakInFlight() <= 4, "peak in flight " + injector.getPeakInFlight());
+        assertEquals(0, injector.getInFlight());
+        assertTrue(threads.getPeakThreadCount() <= baseline + clients + 8,
+            "peak threads " + threads.getPeakThreadCount() + ", baseline " + baseline);
+    }
+
+    private FaultInjector injector() {
+        injector = new FaultInjector(faultProperties, meterRegistry);
+        return injector;
+    }
+
+    /**
+     * 与运行时相同的装配：ApplicationConfig创建OpenAiApi、OpenAiChatModel和ChatClient
+     */
+    private ChatServiceImpl chatService(FaultInjector injector) {
+        return chatService(injector, null);
+    }
+
+    private ChatServiceImpl chatService(FaultInjector injector, TrafficRecorder recorder) {
+        ApplicationConfig applicationConfig = new ApplicationConfig();
+        ReflectionTestUtils.setField(applicationConfig, "openRouterProperties", openRouterProperties);
+        Tracer tracer = new Tracer(new TracingProperties(), span -> { });
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(recorder != null
+            ? Map.of("faultInjector", injector, "trafficRecorder", recorder) : Map.of("faultInjector", injector));
+        return new ChatServiceImpl(
+            applicationConfig.chatClient(applicationConfig.openAiChatModel(
+                applicationConfig.openAiApi(tracer, beanFactory.getBeanProvider(TrafficRecorder.class),
+                    beanFactory.getBeanProvider(FaultInjector.class)))),
+            openRouterProperties,
+            conversationStore,
+            chatProperties,
+            timerWheel,
+            new ResponseCache(chatProperties, timerWheel, meterRegistry),
+            (query, topK) -> Collections.emptyList(),
+            new RetrievalProperties(),
+            new ChatMetrics(meterRegistry),
+            new UsageAccountant(new UsageProperties()),
+            new SlowRequestRecorder(new DiagnosticsProperties(), meterRegistry),
+            tracer);
+    }
+
+    private static boolean causedBy(Throwable error, Class<? extends Throwable> type) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (type.isInstance(cause)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Scenario scenario(long startMillis, long durationMillis) {
+        Scenario scenario = new Scenario();
+        scenario.setStartMillis(startMillis);
+        scenario.setDurationMillis(durationMillis);
+        return scenario;
+    }
+}
@@ -10,6 +10,7 @@ import org.miao.dto.ChatRequest;
 import org.miao.exception.InvalidRequestException;
 import org.miao.exception.ModelNotAvailableException;
 import org.miao.service.ChatService;
+import reactor.core.publisher.Flux;
 
 import java.util.Arrays;
 import java.util.List;
@@ -88,6 +89,11 @@ class ChatServiceImplTest {
             return sendMessage(request.getMessage(), model);
         }
 
+        @Override
+        public Flux<String> streamMessage(ChatRequest request) {
+            return Flux.just(sendMessage(request).getResponse());
+        }
+
         @Override
         public List<String> getAvailableModels() {
             return openRouterProperties.getAvailableModels();
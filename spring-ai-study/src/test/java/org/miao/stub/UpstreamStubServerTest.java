@@ -0,0 +1,240 @@
+package org.miao.stub;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.miao.config.UpstreamStubProperties;
+import org.miao.replay.TrafficLog;
+import org.miao.replay.TrafficRecord;
+
+import java.io.DataOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * UpstreamStubServer单元测试类
+ * 测试OpenAI格式的普通和流式响应、429和500注入、延迟分布的采样、按种子复现以及录制流量的回放
+ */
+class UpstreamStubServerTest {
+
+    private static final String CHAT_BODY = "{\"model\":\"openai/gpt-4\",\"messages\":[{\"role\":\"user\",\"content\":\"0123456789abcdef\"}]}";
+    private static final String STREAM_BODY = "{\"model\":\"openai/gpt-4\",\"stream\":true,\"stream_options\":{\"include_usage\":true},"
+        + "\"messages\":[{\"role\":\"user\",\"content\":\"0123456789abcdef\"}]}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    private UpstreamStubProperties properties;
+    private UpstreamStubServer server;
+
+    @BeforeEach
+    void setUp() {
+        properties = new UpstreamStubProperties();
+        properties.setPort(0);
+        properties.setWorkerThreads(4);
+        properties.setLatencyMillis(0);
+        properties.setStreamChunks(3);
+        properties.setStreamChunkIntervalMillis(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    void testCompletion_ReturnsOpenAiResponseWithUsage() throws Exception {
+        // Arrange
+        startServer();
+
+        // Act
+        HttpResponse<String> response = post(CHAT_BODY);
+
+        // Assert
+        assertEquals(200, response.statusCode());
+        JsonNode body = objectMapper.readTree(response.body());
+        assertEquals("chat.completion", body.path("object").asText());
+        assertEquals("openai/gpt-4", body.path("model").asText());
+        assertEquals("token0 token1 token2 ", body.path("choices").path(0).path("message").path("content").asText());
+        assertEquals(4, body.path("usage").path("prompt_tokens").asInt());
+        assertEquals(3, body.path("usage").path("completion_tokens").asInt());
+        assertEquals(1, server.getCompletedCount());
+    }
+
+    @Test
+    void testStream_EmitsChunksUsageAndDone() throws Exception {
+        // Arrange
+        startServer();
+
+        // Act
+        HttpResponse<String> response = post(STREAM_BODY);
+
+        // Assert - 3个内容片段、结束片段、用量片段和[DONE]
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/event-stream"));
+        List<String> events = new ArrayList<>();
+        for (String line : response.body().split("\n")) {
+            if (line.startsWith("data: ")) {
+                events.add(line.substring("data: ".length()));
+            }
+        }
+        assertEquals(6, events.size());
+        assertEquals("assistant", objectMapper.readTree(events.get(0)).path("choices").path(0).path("delta").path("role").asText());
+        assertEquals("stop", objectMapper.readTree(events.get(3)).path("choices").path(0).path("finish_reason").asText());
+        assertEquals(7, objectMapper.readTree(events.get(4)).path("usage").path("total_tokens").asInt());
+        assertEquals("[DONE]", events.get(5));
+    }
+
+    @Test
+    void testRateLimitInjection_Returns429WithRetryAfter() throws Exception {
+        // Arrange
+        properties.setRateLimitRate(1.0);
+        properties.setRetryAfterSeconds(3);
+        startServer();
+
+        // Act
+        HttpResponse<String> response = post(CHAT_BODY);
+
+        // Assert
+        assertEquals(429, response.statusCode());
+        assertEquals("3", response.headers().firstValue("Retry-After").orElse(null));
+        assertEquals("rate_limit_exceeded", objectMapper.readTree(response.body()).path("error").path("type").asText());
+        assertEquals(1, server.getRateLimitedCount());
+    }
+
+    @Test
+    void testErrorInjection_SameSeedSameSequence() throws Exception {
+        // Arrange
+        properties.setErrorRate(0.5);
+        startServer();
+        List<Integer> first = statuses(20);
+        server.stop();
+        startServer();
+
+        // Act
+        List<Integer> second = statuses(20);
+
+        // Assert - 同样的种子下第n个请求的结果相同，且两种结果都出现
+        assertEquals(first, second);
+        assertTrue(first.contains(200));
+        assertTrue(first.contains(500));
+    }
+
+    @Test
+    void testLatencyDistribution_LognormalMedianAndCap() {
+        // Arrange
+        properties.setLatencyDistribution(UpstreamStubProperties.LATENCY_LOGNORMAL);
+        properties.setLatencyMillis(100);
+        properties.setLatencyMaxMillis(400);
+        properties.setLatencySigma(1.0);
+        LatencyDistribution distribution = LatencyDistribution.of(properties);
+        SplittableRandom random = new SplittableRandom(7);
+
+        // Act
+        int below = 0;
+        long max = 0;
+        for (int i = 0; i < 10000; i++) {
+            long sample = distribution.sample(random);
+            if (sample < 100) {
+                below++;
+            }
+            max = Math.max(max, sample);
+        }
+
+        // Assert
+        assertEquals(0.5, below / 10000.0, 0.03);
+        assertEquals(400, max);
+    }
+
+    @Test
+    void testReplay_ServesRecordedResponsesWithRecordedTiming(@TempDir Path directory) throws Exception {
+        // Arrange - 两条非流式记录按顺序循环，一条流式记录含两个事件
+        Path file = directory.resolve("capture.trf");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            TrafficLog.writeHeader(out);
+            TrafficLog.write(out, record(false, 200, 150_000, "{\"id\":\"first\"}"));
+            TrafficLog.write(out, record(false, 429, 0, "{\"error\":{}}"));
+            TrafficLog.write(out, record(true, 200, 0, "data: {\"id\":\"chunk\"}\n\n", "data: [DONE]\n\n"));
+        }
+        properties.setReplayFile(file.toString());
+        startServer();
+
+        // Act
+        long start = System.nanoTime();
+        HttpResponse<String> first = post(CHAT_BODY);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        HttpResponse<String> second = post(CHAT_BODY);
+        HttpResponse<String> third = post(CHAT_BODY);
+        HttpResponse<String> stream = post(STREAM_BODY);
+
+        // Assert
+        assertEquals(200, first.statusCode());
+        assertEquals("{\"id\":\"first\"}", first.body());
+        assertTrue(elapsedMillis >= 150, "elapsed " + elapsedMillis);
+        assertEquals(429, second.statusCode());
+        assertEquals("{\"id\":\"first\"}", third.body());
+        assertEquals("text/event-stream", stream.headers().firstValue("Content-Type").orElse(""));
+        assertEquals("data: {\"id\":\"chunk\"}\n\ndata: [DONE]\n\n", stream.body());
+        assertEquals(3, server.getCompletedCount());
+        assertEquals(1, server.getRateLimitedCount());
+    }
+
+    @Test
+    void testInvalidConfiguration_Rejected() {
+        // Arrange
+        properties.setLatencyDistribution("pareto");
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new UpstreamStubServer(properties));
+        properties.setLatencyDistribution(UpstreamStubProperties.LATENCY_FIXED);
+        properties.setErrorRate(0.8);
+        properties.setRateLimitRate(0.5);
+        assertThrows(IllegalArgumentException.class, () -> new UpstreamStubServer(properties));
+    }
+
+    private void startServer() throws Exception {
+        server = new UpstreamStubServer(properties);
+        server.start();
+    }
+
+    private static TrafficRecord record(boolean stream, int status, long offsetMicros, String... frames) {
+        List<TrafficRecord.Frame> recorded = new ArrayList<>();
+        for (String frame : frames) {
+            recorded.add(new TrafficRecord.Frame(offsetMicros, frame.getBytes(StandardCharsets.UTF_8)));
+        }
+        return new TrafficRecord(0, stream, status, offsetMicros / 2, CHAT_BODY.getBytes(StandardCharsets.UTF_8), recorded);
+    }
+
+    private List<Integer> statuses(int count) throws Exception {
+        List<Integer> statuses = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            statuses.add(post(CHAT_BODY).statusCode());
+        }
+        return statuses;
+    }
+
+    private HttpResponse<String> post(String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(
+                URI.create("http://127.0.0.1:" + server.getPort() + UpstreamStubServer.COMPLETIONS_PATH))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,134 @@
+package org.miao.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HashedTimerWheel单元测试类
+ * 测试定时任务的到期、取消、跨圈延迟和指标统计
+ */
+class HashedTimerWheelTest {
+
+    private HashedTimerWheel timerWheel;
+    private final AtomicLong lagSamples = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        timerWheel = new HashedTimerWheel("test-timer", 5, 8, lag -> lagSamples.incrementAndGet());
+    }
+
+    @AfterEach
+    void tearDown() {
+        timerWheel.close();
+    }
+
+    @Test
+    void testNewTimeout_ExpiresAfterDelay() throws Exception {
+        // Arrange
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        // Act
+        HashedTimerWheel.Timeout timeout = timerWheel.newTimeout(latch::countDown, 30, TimeUnit.MILLISECONDS);
+
+        // Assert
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 25);
+        assertTrue(timeout.isExpired());
+        assertEquals(1, timerWheel.getExpiredTimeouts());
+        assertEquals(1, lagSamples.get());
+    }
+
+    @Test
+    void testNewTimeout_DelayLongerThanOneRound() throws Exception {
+        // Arrange - 8个槽位 * 5ms = 40ms一圈
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        // Act
+        timerWheel.newTimeout(latch::countDown, 120, TimeUnit.MILLISECONDS);
+
+        // Assert
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 115);
+    }
+
+    @Test
+    void testCancel_PreventsExecution() throws Exception {
+        // Arrange
+        AtomicInteger executed = new AtomicInteger();
+        HashedTimerWheel.Timeout timeout = timerWheel.newTimeout(executed::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+
+        // Act
+        boolean cancelled = timeout.cancel();
+        Thread.sleep(120);
+
+        // Assert
+        assertTrue(cancelled);
+        assertFalse(timeout.cancel());
+        assertTrue(timeout.isCancelled());
+        assertEquals(0, executed.get());
+        assertEquals(1, timerWheel.getCancelledTimeouts());
+        assertEquals(0, timerWheel.getPendingTimeouts());
+    }
+
+    @Test
+    void testManyTimeouts_AllExpire() throws Exception {
+        // Arrange
+        int count = 10_000;
+        CountDownLatch latch = new CountDownLatch(count);
+
+        // Act
+        for (int i = 0; i < count; i++) {
+            timerWheel.newTimeout(latch::countDown, i % 100, TimeUnit.MILLISECONDS);
+        }
+
+        // Assert
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(count, timerWheel.getExpiredTimeouts());
+        assertEquals(0, timerWheel.getPendingTimeouts());
+    }
+
+    @Test
+    void testTaskException_DoesNotStopWheel() throws Exception {
+        // Arrange
+        CountDownLatch latch = new CountDownLatch(1);
+
+        // Act
+        timerWheel.newTimeout(() -> {
+            throw new IllegalStateException("boom");
+        }, 1, TimeUnit.MILLISECONDS);
+        timerWheel.newTimeout(latch::countDown, 20, TimeUnit.MILLISECONDS);
+
+        // Assert
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testConstructor_RoundsWheelSizeToPowerOfTwo() {
+        // Act
+        HashedTimerWheel wheel = new HashedTimerWheel("size-test", 10, 100, null);
+
+        // Assert
+        assertEquals(128, wheel.getWheelSize());
+        wheel.close();
+    }
+
+    @Test
+    void testNewTimeout_AfterClose_ThrowsException() {
+        // Arrange
+        timerWheel.close();
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class,
+            () -> timerWheel.newTimeout(() -> { }, 1, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,118 @@
+package org.miao.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MicroBatcher单元测试类
+ * 测试请求合并、批大小上限、失败传播和关闭时的处理
+ */
+class MicroBatcherTest {
+
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private MicroBatcher<String, Integer> batcher;
+
+    @AfterEach
+    void tearDown() {
+        if (batcher != null) {
+            batcher.close();
+        }
+    }
+
+    @Test
+    void testSubmit_ConcurrentRequests_MergedIntoOneBatch() throws Exception {
+        // Arrange - 等待时间足够长，10条请求应合并为一批
+        batcher = new MicroBatcher<>("test", 64, 200, 1, this::lengths, batchSizes::add);
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            futures.add(batcher.submit("x".repeat(i)));
+        }
+
+        // Assert
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, futures.get(i).get(2, TimeUnit.SECONDS));
+        }
+        assertEquals(List.of(10), batchSizes);
+    }
+
+    @Test
+    void testSubmit_ExceedsMaxBatchSize_SplitIntoBatches() throws Exception {
+        // Arrange
+        batcher = new MicroBatcher<>("test", 4, 200, 1, this::lengths, batchSizes::add);
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            futures.add(batcher.submit("abc"));
+        }
+        for (CompletableFuture<Integer> future : futures) {
+            assertEquals(3, future.get(2, TimeUnit.SECONDS));
+        }
+
+        // Assert
+        assertEquals(10, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 4));
+        assertTrue(batchSizes.size() >= 3);
+    }
+
+    @Test
+    void testSubmit_BatchFunctionFails_AllRequestsFail() throws Exception {
+        // Arrange
+        batcher = new MicroBatcher<>("test", 64, 100, 1, inputs -> {
+            throw new IllegalStateException("上游不可用");
+        }, batchSizes::add);
+
+        // Act
+        CompletableFuture<Integer> first = batcher.submit("a");
+        CompletableFuture<Integer> second = batcher.submit("b");
+
+        // Assert
+        ExecutionException error = assertThrows(ExecutionException.class, () -> first.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+        assertThrows(ExecutionException.class, () -> second.get(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testClose_QueuedRequestsCancelled() throws Exception {
+        // Arrange - 唯一的批次阻塞在批处理函数中，后续请求只能排队
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        batcher = new MicroBatcher<>("test", 1, 0, 1, inputs -> {
+            started.countDown();
+            release.await();
+            return lengths(inputs);
+        }, batchSizes::add);
+        batcher.submit("running");
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        CompletableFuture<Integer> queued = batcher.submit("queued");
+
+        // Act
+        batcher.close();
+        CompletableFuture<Integer> afterClose = batcher.submit("late");
+
+        // Assert
+        assertThrows(CancellationException.class, () -> queued.get(2, TimeUnit.SECONDS));
+        assertTrue(afterClose.isCompletedExceptionally());
+    }
+
+    private List<Integer> lengths(List<String> inputs) {
+        List<Integer> results = new ArrayList<>(inputs.size());
+        for (String input : inputs) {
+            results.add(input.length());
+        }
+        return results;
+    }
+}
@@ -0,0 +1,172 @@
+package org.miao.tracing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.miao.config.TracingProperties;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tracer单元测试类
+ * 测试span的父子关系、跨线程结束、traceparent的解析与延续、请求ID与traceId的对应以及未启用时的空操作
+ */
+class TracerTest {
+
+    private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+    private static final String PARENT_SPAN_ID = "00f067aa0ba902b7";
+    private static final String TRACEPARENT = "00-" + TRACE_ID + "-" + PARENT_SPAN_ID + "-01";
+
+    private TracingProperties properties;
+    private InMemorySpanExporter exporter;
+    private Tracer tracer;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TracingProperties();
+        exporter = new InMemorySpanExporter();
+        tracer = new Tracer(properties, exporter);
+    }
+
+    @Test
+    void testStartServerSpan_ValidTraceparent_ContinuesTrace() {
+        // Act
+        Span server = tracer.startServerSpan("POST /api/chat", TRACEPARENT);
+
+        // Assert
+        assertEquals(TRACE_ID, server.getTraceId());
+        assertEquals(PARENT_SPAN_ID, server.getParentSpanId());
+        assertEquals("00-" + TRACE_ID + "-" + server.getSpanId() + "-01", server.traceparent());
+    }
+
+    @Test
+    void testStartServerSpan_InvalidTraceparent_StartsNewTrace() {
+        // Act
+        Span server = tracer.startServerSpan("POST /api/chat", "00-" + "0".repeat(32) + "-" + PARENT_SPAN_ID + "-01");
+
+        // Assert
+        assertNotEquals("0".repeat(32), server.getTraceId());
+        assertEquals(32, server.getTraceId().length());
+        assertNull(server.getParentSpanId());
+    }
+
+    @Test
+    void testStartActive_NestedSpans_LinkedAndRestored() {
+        // Arrange
+        Span server = tracer.startServerSpan("POST /api/chat", null);
+
+        // Act
+        String requestId;
+        try (Tracer.Scope ignored = tracer.activate(server)) {
+            requestId = tracer.requestId();
+            try (Tracer.SpanScope request = tracer.startActive("chat.request")) {
+                try (Tracer.SpanScope upstream = tracer.startActive("chat.upstream")) {
+                    upstream.span().setAttribute("chat.attempt", 1);
+                }
+                assertSame(request.span(), tracer.current());
+            }
+            assertSame(server, tracer.current());
+        }
+        server.end();
+
+        // Assert - 子span先结束，父子关系正确，请求ID取当前span的spanId
+        List<Span> spans = exporter.getFinishedSpans();
+        assertEquals(3, spans.size());
+        Span upstream = spans.get(0);
+        Span request = spans.get(1);
+        assertEquals("chat.upstream", upstream.getName());
+        assertEquals(request.getSpanId(), upstream.getParentSpanId());
+        assertEquals(server.getSpanId(), request.getParentSpanId());
+        assertEquals(server.getTraceId(), upstream.getTraceId());
+        assertEquals(1, upstream.getAttributes().get("chat.attempt"));
+        assertEquals(server.getSpanId(), requestId);
+        assertFalse(tracer.current().isRecording());
+    }
+
+    @Test
+    void testRequestId_SameTraceparent_DistinctPerRequest() {
+        // Arrange
+        String traceparent = "00-" + TRACE_ID + "-" + PARENT_SPAN_ID + "-01";
+        Span first = tracer.startServerSpan("POST /api/chat", traceparent);
+        Span second = tracer.startServerSpan("POST /api/chat", traceparent);
+
+        // Act
+        String firstId;
+        String secondId;
+        try (Tracer.Scope ignored = tracer.activate(first)) {
+            firstId = tracer.requestId();
+        }
+        try (Tracer.Scope ignored = tracer.activate(second)) {
+            secondId = tracer.requestId();
+        }
+
+        // Assert
+        assertEquals(first.getTraceId(), second.getTraceId());
+        assertNotEquals(firstId, secondId);
+    }
+
+    @Test
+    void testEnd_CalledTwice_ExportedOnce() {
+        // Arrange
+        Span span = tracer.startSpan("chat.cache");
+
+        // Act
+        span.end();
+        span.end();
+        span.recordError(new IllegalStateException("after end"));
+
+        // Assert
+        assertEquals(1, exporter.getFinishedSpans().size());
+        assertEquals(Span.STATUS_OK, span.getStatus());
+    }
+
+    @Test
+    void testEnd_OnAnotherThread_ExportsAttributesAndErrorFromBothThreads() throws Exception {
+        // Arrange - 与流式请求一致：创建线程写入属性，另一线程记录结果并结束
+        Span span = tracer.startSpan("chat.stream").setAttribute("chat.model", "openai/gpt-4");
+
+        // Act
+        Thread finisher = new Thread(() -> span.recordError(new IllegalStateException("upstream"))
+            .setAttribute("chat.outcome", "error")
+            .end());
+        finisher.start();
+        finisher.join();
+        span.setAttribute("late", true);
+
+        // Assert
+        Span exported = exporter.getFinishedSpans().get(0);
+        assertEquals(Span.STATUS_ERROR, exported.getStatus());
+        assertEquals("IllegalStateException: upstream", exported.getError());
+        assertEquals("openai/gpt-4", exported.getAttributes().get("chat.model"));
+        assertEquals("error", exported.getAttributes().get("chat.outcome"));
+        assertFalse(exported.getAttributes().containsKey("late"), "结束后写入的属性不应记录");
+    }
+
+    @Test
+    void testDisabled_ReturnsNoopSpans() {
+        // Arrange
+        properties.setEnabled(false);
+
+        // Act
+        try (Tracer.SpanScope scope = tracer.startActive("chat.request")) {
+            scope.span().setAttribute("chat.model", "openai/gpt-4");
+            assertNull(scope.span().traceparent());
+        }
+
+        // Assert
+        assertTrue(exporter.getFinishedSpans().isEmpty());
+        assertEquals(16, tracer.requestId().length());
+    }
+
+    @Test
+    void testTraceContextParse_RejectsMalformedValues() {
+        // Act & Assert
+        assertNotNull(TraceContext.parse(TRACEPARENT));
+        assertNull(TraceContext.parse(null));
+        assertNull(TraceContext.parse("00-" + TRACE_ID + "-" + PARENT_SPAN_ID));
+        assertNull(TraceContext.parse("ff-" + TRACE_ID + "-" + PARENT_SPAN_ID + "-01"));
+        assertNull(TraceContext.parse("00-" + TRACE_ID.toUpperCase() + "-" + PARENT_SPAN_ID + "-01"));
+        assertNull(TraceContext.parse("00-" + TRACE_ID + "-" + "0".repeat(16) + "-01"));
+    }
+}
@@ -0,0 +1,135 @@
+package org.miao.usage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.miao.config.UsageProperties;
+import org.miao.dto.TokenUsage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * UsageAccountant单元测试类
+ * 测试按价格表计算费用、按模型和接口累计用量、时间窗口统计以及并发记录
+ */
+class UsageAccountantTest {
+
+    private static final String MODEL = "openai/gpt-4";
+    private static final long NOW = TimeUnit.DAYS.toMillis(20000);
+
+    private UsageProperties usageProperties;
+    private UsageAccountant usageAccountant;
+
+    @BeforeEach
+    void setUp() {
+        usageProperties = new UsageProperties();
+        UsageProperties.Price price = new UsageProperties.Price();
+        price.setPromptPerMillion(30);
+        price.setCompletionPerMillion(60);
+        usageProperties.getPrices().put(MODEL, price);
+        usageProperties.setDefaultPromptPerMillion(1);
+        usageProperties.setDefaultCompletionPerMillion(2);
+        usageAccountant = new UsageAccountant(usageProperties);
+    }
+
+    @Test
+    void testRecord_ConfiguredModel_UsesPriceTable() {
+        // Act
+        TokenUsage usage = usageAccountant.record(MODEL, UsageAccountant.ENDPOINT_CHAT, 1000, 500, NOW);
+
+        // Assert - 1000 * 30 / 1e6 + 500 * 60 / 1e6
+        assertEquals(1500, usage.getTotalTokens());
+        assertEquals(0.06, usage.getCost(), 1e-12);
+    }
+
+    @Test
+    void testRecord_UnknownModel_UsesDefaultPrice() {
+        // Act
+        TokenUsage usage = usageAccountant.record("other/model", UsageAccountant.ENDPOINT_CHAT, 1_000_000, 1_000_000, NOW);
+
+        // Assert
+        assertEquals(3.0, usage.getCost(), 1e-12);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSnapshot_AggregatesByModelEndpointAndWindow() {
+        // Arrange - 两小时前一次，当前分钟两次
+        usageAccountant.record(MODEL, UsageAccountant.ENDPOINT_CHAT, 100, 10, NOW - TimeUnit.HOURS.toMillis(2));
+        usageAccountant.record(MODEL, UsageAccountant.ENDPOINT_CHAT, 200, 20, NOW);
+        usageAccountant.record(MODEL, UsageAccountant.ENDPOINT_STREAM, 300, 30, NOW);
+
+        // Act
+        Map<String, Object> snapshot = usageAccountant.snapshot(NOW);
+
+        // Assert
+        Map<String, Object> model = (Map<String, Object>) ((Map<String, Object>) snapshot.get("models")).get(MODEL);
+        assertEquals(3L, model.get("requests"));
+        assertEquals(660L, model.get("totalTokens"));
+        Map<String, Object> windows = (Map<String, Object>) model.get("windows");
+        assertEquals(2L, ((Map<String, Object>) windows.get("5m")).get("requests"));
+        assertEquals(2L, ((Map<String, Object>) windows.get("1h")).get("requests"));
+        assertEquals(3L, ((Map<String, Object>) windows.get("24h")).get("requests"));
+
+        Map<String, Object> endpoints = (Map<String, Object>) snapshot.get("endpoints");
+        assertEquals(330L, ((Map<String, Object>) endpoints.get(UsageAccountant.ENDPOINT_STREAM)).get("totalTokens"));
+        assertEquals(3L, ((Map<String, Object>) snapshot.get("total")).get("requests"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSnapshot_BucketOlderThanOneDay_ExcludedFromWindow() {
+        // Arrange - 恰好一天前的记录与当前分钟落在同一个桶位
+        usageAccountant.record(MODEL, UsageAccountant.ENDPOINT_CHAT, 100, 10, NOW - TimeUnit.DAYS.toMillis(1));
+
+        // Act
+        Map<String, Object> model = (Map<String, Object>) ((Map<String, Object>) usageAccountant.snapshot(NOW)
+            .get("models")).get(MODEL);
+
+        // Assert
+        Map<String, Object> windows = (Map<String, Object>) model.get("windows");
+        assertEquals(0L, ((Map<String, Object>) windows.get("24h")).get("requests"));
+        assertEquals(1L, model.get("requests"));
+    }
+
+    @Test
+    void testRecord_Disabled_ReturnsNull() {
+        // Arrange
+        usageProperties.setEnabled(false);
+
+        // Act & Assert
+        assertNull(usageAccountant.record(MODEL, UsageAccountant.ENDPOINT_CHAT, 100, 10, NOW));
+        assertNull(usageAccountant.modelSnapshot(MODEL));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRecord_Concurrent_NoLostUpdates() throws Exception {
+        // Arrange
+        int threads = 8;
+        int perThread = 10000;
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            workers.add(new Thread(() -> {
+                for (int j = 0; j < perThread; j++) {
+                    usageAccountant.record(MODEL, UsageAccountant.ENDPOINT_CHAT, 2, 1, NOW);
+                }
+            }));
+        }
+
+        // Act
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        // Assert
+        Map<String, Object> model = usageAccountant.modelSnapshot(MODEL);
+        assertEquals((long) threads * perThread, model.get("requests"));
+        assertEquals(3L * threads * perThread, model.get("totalTokens"));
+    }
+}
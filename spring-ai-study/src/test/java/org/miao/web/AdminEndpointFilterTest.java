@@ -0,0 +1,174 @@
+package org.miao.web;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.miao.config.DiagnosticsProperties;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AdminEndpointFilter单元测试类
+ * 测试诊断端点、用量端点和文档导入接口的令牌校验，以及带;参数、URL编码和重复/的路径不能绕过校验
+ */
+class AdminEndpointFilterTest {
+
+    private static final String TOKEN = "s3cret-token";
+
+    private AdminEndpointFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        DiagnosticsProperties properties = new DiagnosticsProperties();
+        properties.setAdminToken(TOKEN);
+        filter = new AdminEndpointFilter(properties);
+    }
+
+    @Test
+    void testFilter_MissingToken_ReturnsForbidden() throws Exception {
+        // Act
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = perform("GET", "/actuator/slowrequests", null, chain);
+
+        // Assert
+        assertEquals(403, response.getStatus());
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void testFilter_WrongToken_ReturnsForbidden() throws Exception {
+        // Act
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = perform("DELETE", "/actuator/slowrequests", "wrong", chain);
+
+        // Assert
+        assertEquals(403, response.getStatus());
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void testFilter_CorrectToken_PassesThrough() throws Exception {
+        // Act
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = perform("GET", "/actuator/slowrequests", TOKEN, chain);
+
+        // Assert
+        assertEquals(200, response.getStatus());
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    void testFilter_ObfuscatedPathWithoutToken_ReturnsForbidden() throws Exception {
+        // Arrange
+        String[] paths = {
+            "/actuator/slowrequests;x",
+            "/actuator/%73lowrequests",
+            "/actuator/slowrequests;jsessionid=1/",
+            "/actuator;x/slowrequests",
+            "//actuator/slowrequests",
+            "/actuator/slowrequests/"
+        };
+
+        for (String path : paths) {
+            // Act
+            MockFilterChain chain = new MockFilterChain();
+            MockHttpServletResponse response = perform("DELETE", path, null, chain);
+
+            // Assert
+            assertEquals(403, response.getStatus(), path);
+            assertNull(chain.getRequest(), path);
+        }
+    }
+
+    @Test
+    void testFilter_IngestionWithoutToken_ReturnsForbidden() throws Exception {
+        // Arrange
+        String[] paths = {"/api/ingestion", "/api/ingestion/", "/api/ingestion;x", "/api/%69ngestion"};
+
+        for (String path : paths) {
+            // Act
+            MockFilterChain chain = new MockFilterChain();
+            MockHttpServletResponse response = perform("POST", path, null, chain);
+
+            // Assert
+            assertEquals(403, response.getStatus(), path);
+            assertNull(chain.getRequest(), path);
+        }
+    }
+
+    @Test
+    void testFilter_IngestionWithToken_PassesThrough() throws Exception {
+        // Act
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = perform("POST", "/api/ingestion", TOKEN, chain);
+
+        // Assert
+        assertEquals(200, response.getStatus());
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    void testFilter_TokenUsageWithoutToken_ReturnsForbidden() throws Exception {
+        // Arrange
+        String[] paths = {"/actuator/tokenusage", "/actuator/tokenusage/openai", "/actuator/tokenusage;x",
+            "/actuator/%74okenusage"};
+
+        for (String path : paths) {
+            // Act
+            MockFilterChain chain = new MockFilterChain();
+            MockHttpServletResponse response = perform("GET", path, null, chain);
+
+            // Assert
+            assertEquals(403, response.getStatus(), path);
+            assertNull(chain.getRequest(), path);
+        }
+    }
+
+    @Test
+    void testFilter_TokenUsageWithToken_PassesThrough() throws Exception {
+        // Act
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = perform("GET", "/actuator/tokenusage", TOKEN, chain);
+
+        // Assert
+        assertEquals(200, response.getStatus());
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    void testFilter_OtherPath_PassesThroughWithoutToken() throws Exception {
+        // Act
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = perform("GET", "/actuator/health", null, chain);
+
+        // Assert
+        assertEquals(200, response.getStatus());
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    void testFilter_TokenNotConfigured_ReturnsForbidden() throws Exception {
+        // Arrange
+        filter = new AdminEndpointFilter(new DiagnosticsProperties());
+
+        // Act
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = perform("GET", "/actuator/slowrequests", "", chain);
+
+        // Assert
+        assertEquals(403, response.getStatus());
+    }
+
+    private MockHttpServletResponse perform(String method, String uri, String token, MockFilterChain chain)
+            throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        if (token != null) {
+            request.addHeader(AdminEndpointFilter.HEADER, token);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
@@ -0,0 +1,173 @@
+package org.miao.web;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CompressingOutputStream和ContentCoding单元测试类
+ * 测试压缩阈值、流式响应逐个事件的同步刷新、缓冲区重置以及Accept-Encoding协商
+ */
+class CompressingOutputStreamTest {
+
+    private static final int THRESHOLD = 64;
+
+    @Test
+    void testClose_BelowThreshold_WritesUncompressed() throws Exception {
+        // Arrange
+        FakeTarget target = new FakeTarget(false);
+        CompressingOutputStream stream = new CompressingOutputStream(THRESHOLD, target);
+
+        // Act
+        stream.write(bytes("{\"response\":\"ok\"}"));
+        stream.flush();
+        stream.close();
+
+        // Assert
+        assertEquals(List.of(false), target.opened);
+        assertEquals("{\"response\":\"ok\"}", target.sink.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testWrite_ReachesThreshold_CompressesWholeBody() throws Exception {
+        // Arrange
+        FakeTarget target = new FakeTarget(false);
+        CompressingOutputStream stream = new CompressingOutputStream(THRESHOLD, target);
+        String body = "{\"response\":\"" + "Spring AI ".repeat(50) + "\"}";
+
+        // Act
+        stream.write(bytes(body.substring(0, 40)));
+        assertTrue(target.opened.isEmpty());
+        stream.write(bytes(body.substring(40)));
+        stream.close();
+
+        // Assert
+        assertEquals(List.of(true), target.opened);
+        assertEquals(body, gunzip(target.sink.toByteArray(), body.length()));
+        assertTrue(target.sink.size() < body.length() / 4);
+    }
+
+    @Test
+    void testFlush_NotStreamingBelowThreshold_KeepsBuffering() throws Exception {
+        // Arrange
+        FakeTarget target = new FakeTarget(false);
+        CompressingOutputStream stream = new CompressingOutputStream(THRESHOLD, target);
+
+        // Act
+        stream.write(bytes("partial"));
+        stream.flush();
+
+        // Assert
+        assertFalse(stream.isStarted());
+        assertEquals(0, target.sink.size());
+    }
+
+    @Test
+    void testFlush_Streaming_EachEventDecodableImmediately() throws Exception {
+        // Arrange
+        FakeTarget target = new FakeTarget(true);
+        CompressingOutputStream stream = new CompressingOutputStream(THRESHOLD, target);
+        StringBuilder sent = new StringBuilder();
+
+        // Act & Assert
+        for (int i = 0; i < 5; i++) {
+            String event = "data:片段" + i + "\n\n";
+            stream.write(bytes(event));
+            stream.flush();
+            sent.append(event);
+            int expectedLength = bytes(sent.toString()).length;
+            assertEquals(sent.toString(), gunzip(target.sink.toByteArray(), expectedLength));
+        }
+        stream.close();
+        assertEquals(List.of(true), target.opened);
+        assertEquals(sent.toString(), gunzip(target.sink.toByteArray(), bytes(sent.toString()).length));
+    }
+
+    @Test
+    void testResetBuffer_NotStarted_DiscardsContent() throws Exception {
+        // Arrange
+        FakeTarget target = new FakeTarget(false);
+        CompressingOutputStream stream = new CompressingOutputStream(THRESHOLD, target);
+        stream.write(bytes("discarded"));
+
+        // Act
+        stream.resetBuffer();
+        stream.write(bytes("kept"));
+        stream.close();
+
+        // Assert
+        assertEquals("kept", target.sink.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testClose_NothingWritten_DoesNotOpenTarget() throws Exception {
+        // Arrange
+        FakeTarget target = new FakeTarget(false);
+        CompressingOutputStream stream = new CompressingOutputStream(THRESHOLD, target);
+
+        // Act
+        stream.close();
+
+        // Assert
+        assertTrue(target.opened.isEmpty());
+        assertThrows(IOException.class, () -> stream.write(1));
+    }
+
+    @Test
+    void testNegotiate_AcceptEncoding_ChoosesPreferredCoding() {
+        // Act & Assert
+        assertEquals(ContentCoding.IDENTITY, ContentCoding.negotiate(null, true));
+        assertEquals(ContentCoding.BROTLI, ContentCoding.negotiate("gzip, deflate, br", true));
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate("gzip, deflate, br", false));
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate("br;q=0.5, gzip", true));
+        assertEquals(ContentCoding.IDENTITY, ContentCoding.negotiate("gzip;q=0, identity", true));
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate("x-gzip", true));
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate("*;q=0.1, br;q=0", true));
+        assertEquals(ContentCoding.IDENTITY, ContentCoding.negotiate("deflate", true));
+        assertEquals(ContentCoding.IDENTITY, ContentCoding.negotiate("gzip;q=abc", true));
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 只解码length字节，不要求读到压缩流的结尾
+     */
+    private static String gunzip(byte[] compressed, int length) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static class FakeTarget implements CompressingOutputStream.Target {
+
+        private final boolean streaming;
+        private final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        private final List<Boolean> opened = new ArrayList<>();
+
+        FakeTarget(boolean streaming) {
+            this.streaming = streaming;
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return streaming;
+        }
+
+        @Override
+        public OutputStream open(boolean compress) throws IOException {
+            opened.add(compress);
+            return compress ? ContentCoding.GZIP.encode(sink, 5) : sink;
+        }
+    }
+}
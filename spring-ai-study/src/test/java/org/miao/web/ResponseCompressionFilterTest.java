@@ -0,0 +1,233 @@
+package org.miao.web;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.miao.config.ChatProperties;
+import org.miao.config.ResponseCompressionProperties;
+import org.miao.controller.ChatController;
+import org.miao.dto.ChatRequest;
+import org.miao.dto.ChatResponse;
+import org.miao.service.ChatService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * ResponseCompressionFilter单元测试类
+ * 测试按Accept-Encoding压缩聊天接口的响应、压缩阈值、Vary响应头、与ServerTimingFilter的配合，以及非阻塞输出时不压缩
+ */
+@ExtendWith(MockitoExtension.class)
+class ResponseCompressionFilterTest {
+
+    private static final String DEFAULT_MODEL = "openai/gpt-3.5-turbo";
+    private static final String LONG_RESPONSE = "Spring AI提供了统一的ChatClient接口。".repeat(200);
+
+    @Mock
+    private ChatService chatService;
+
+    private ResponseCompressionProperties compressionProperties;
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        compressionProperties = new ResponseCompressionProperties();
+        compressionProperties.setBrotliEnabled(false);
+        objectMapper = new ObjectMapper();
+    }
+
+    @Test
+    void testChat_LargeResponseAcceptsGzip_ReturnsCompressedBody() throws Exception {
+        // Arrange
+        when(chatService.sendMessage(any(ChatRequest.class)))
+            .thenReturn(ChatResponse.success(LONG_RESPONSE, DEFAULT_MODEL));
+
+        // Act
+        MockHttpServletResponse response = mockMvc().perform(chatRequest()
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT_ENCODING)))
+                .andReturn().getResponse();
+
+        // Assert
+        byte[] compressed = response.getContentAsByteArray();
+        JsonNode json = objectMapper.readTree(new GZIPInputStream(new ByteArrayInputStream(compressed)));
+        assertEquals(LONG_RESPONSE, json.get("response").asText());
+        assertTrue(compressed.length < LONG_RESPONSE.length() / 4);
+        assertNull(response.getHeader(HttpHeaders.CONTENT_LENGTH));
+    }
+
+    @Test
+    void testModels_BelowThreshold_ReturnsUncompressedBody() throws Exception {
+        // Arrange
+        when(chatService.getAvailableModels()).thenReturn(List.of(DEFAULT_MODEL));
+
+        // Act & Assert
+        mockMvc().perform(get("/api/models").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT_ENCODING)))
+                .andExpect(jsonPath("$[0]").value(DEFAULT_MODEL));
+    }
+
+    @Test
+    void testChat_NoAcceptEncoding_ReturnsUncompressedBody() throws Exception {
+        // Arrange
+        when(chatService.sendMessage(any(ChatRequest.class)))
+            .thenReturn(ChatResponse.success(LONG_RESPONSE, DEFAULT_MODEL));
+
+        // Act & Assert
+        mockMvc().perform(chatRequest())
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(jsonPath("$.response").value(LONG_RESPONSE));
+    }
+
+    @Test
+    void testChat_Disabled_ReturnsUncompressedBody() throws Exception {
+        // Arrange
+        compressionProperties.setEnabled(false);
+        when(chatService.sendMessage(any(ChatRequest.class)))
+            .thenReturn(ChatResponse.success(LONG_RESPONSE, DEFAULT_MODEL));
+
+        // Act & Assert
+        mockMvc().perform(chatRequest().header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(jsonPath("$.response").value(LONG_RESPONSE));
+    }
+
+    @Test
+    void testChat_WithServerTiming_KeepsHeaderAndCompressesBufferedBody() throws Exception {
+        // Arrange
+        when(chatService.sendMessage(any(ChatRequest.class)))
+            .thenReturn(ChatResponse.success(LONG_RESPONSE, DEFAULT_MODEL));
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new ChatController(chatService))
+            .addFilters(new ResponseCompressionFilter(compressionProperties),
+                new ServerTimingFilter(new ChatProperties()))
+            .build();
+
+        // Act
+        MockHttpServletResponse response = mockMvc.perform(chatRequest().header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(ServerTimingFilter.HEADER, containsString("total;dur=")))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn().getResponse();
+
+        // Assert
+        JsonNode json = objectMapper.readTree(
+            new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray())));
+        assertEquals(LONG_RESPONSE, json.get("response").asText());
+        assertNull(response.getHeader(HttpHeaders.CONTENT_LENGTH));
+    }
+
+    @Test
+    void testFilter_WriteListenerRegistered_WritesUncompressedThroughNativeStream() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/models");
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        request.setAsyncSupported(true);
+        NonBlockingResponse response = new NonBlockingResponse();
+        byte[] body = LONG_RESPONSE.getBytes(StandardCharsets.UTF_8);
+
+        // Act - 容器在输出可写时回调监听器，监听器写完响应体
+        new ResponseCompressionFilter(compressionProperties).doFilter(request, response, (req, res) -> {
+            req.startAsync();
+            res.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            ServletOutputStream out = res.getOutputStream();
+            out.setWriteListener(new WriteListener() {
+                @Override
+                public void onWritePossible() throws IOException {
+                    if (out.isReady()) {
+                        out.write(body);
+                    }
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                }
+            });
+        });
+        response.listener.onWritePossible();
+
+        // Assert
+        assertNotNull(response.listener);
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(body, response.getContentAsByteArray());
+    }
+
+    private MockMvc mockMvc() {
+        return MockMvcBuilders.standaloneSetup(new ChatController(chatService))
+            .addFilters(new ResponseCompressionFilter(compressionProperties))
+            .build();
+    }
+
+    private MockHttpServletRequestBuilder chatRequest() throws Exception {
+        return post("/api/chat")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(new ChatRequest("Hello", DEFAULT_MODEL)));
+    }
+
+    /**
+     * 支持注册WriteListener的响应，MockHttpServletResponse自带的输出流不支持非阻塞输出
+     */
+    private static final class NonBlockingResponse extends MockHttpServletResponse {
+
+        private WriteListener listener;
+        private ServletOutputStream outputStream;
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            if (outputStream == null) {
+                ServletOutputStream delegate = super.getOutputStream();
+                outputStream = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        delegate.write(b);
+                    }
+
+                    @Override
+                    public void write(byte[] bytes, int offset, int length) throws IOException {
+                        delegate.write(bytes, offset, length);
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return listener != null;
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                        listener = writeListener;
+                    }
+                };
+            }
+            return outputStream;
+        }
+    }
+}
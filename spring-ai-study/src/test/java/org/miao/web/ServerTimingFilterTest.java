@@ -0,0 +1,104 @@
+package org.miao.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.miao.config.ChatProperties;
+import org.miao.controller.ChatController;
+import org.miao.dto.ChatRequest;
+import org.miao.dto.ChatResponse;
+import org.miao.service.ChatService;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * ServerTimingFilter单元测试类
+ * 测试聊天接口的Server-Timing响应头和响应体中的timings字段
+ */
+@ExtendWith(MockitoExtension.class)
+class ServerTimingFilterTest {
+
+    private static final String DEFAULT_MODEL = "openai/gpt-3.5-turbo";
+
+    @Mock
+    private ChatService chatService;
+
+    private ChatProperties chatProperties;
+    private MockMvc mockMvc;
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        chatProperties = new ChatProperties();
+        mockMvc = MockMvcBuilders.standaloneSetup(new ChatController(chatService))
+            .addFilters(new ServerTimingFilter(chatProperties))
+            .build();
+        objectMapper = new ObjectMapper();
+    }
+
+    @Test
+    void testChat_Enabled_ReturnsServerTimingHeader() throws Exception {
+        // Arrange
+        when(chatService.sendMessage(any(ChatRequest.class)))
+            .thenReturn(ChatResponse.success("ok", DEFAULT_MODEL));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/chat")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new ChatRequest("Hello", DEFAULT_MODEL))))
+                .andExpect(status().isOk())
+                .andExpect(header().string(ServerTimingFilter.HEADER, containsString("parse;dur=")))
+                .andExpect(header().string(ServerTimingFilter.HEADER, containsString("serialize;dur=")))
+                .andExpect(header().string(ServerTimingFilter.HEADER, containsString("total;dur=")))
+                .andExpect(jsonPath("$.response").value("ok"))
+                .andExpect(jsonPath("$.timings").doesNotExist());
+    }
+
+    @Test
+    void testChat_TimingsRequested_ReturnsTimingsField() throws Exception {
+        // Arrange
+        when(chatService.sendMessage(any(ChatRequest.class)))
+            .thenReturn(ChatResponse.success("ok", DEFAULT_MODEL));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/chat").param("timings", "true")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new ChatRequest("Hello", DEFAULT_MODEL))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.timings.parse").isNumber());
+    }
+
+    @Test
+    void testChat_Disabled_NoHeader() throws Exception {
+        // Arrange
+        chatProperties.setServerTimingEnabled(false);
+        when(chatService.sendMessage(any(ChatRequest.class)))
+            .thenReturn(ChatResponse.success("ok", DEFAULT_MODEL));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/chat")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new ChatRequest("Hello", DEFAULT_MODEL))))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(ServerTimingFilter.HEADER));
+    }
+
+    @Test
+    void testOtherEndpoint_NoHeader() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/api/health"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(ServerTimingFilter.HEADER));
+    }
+}